@@ -0,0 +1,103 @@
+package Graph.bench;
+
+import Graph.Graph;
+import Graph.GraphBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times building a whole graph through addVertex/addEdge and through a GraphBuilder, and tearing the hubs out of one
+ * with removeVertex.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BuildBenchmark {
+
+  @Param({"10000"})
+  public int size;
+
+  @Param({"SPARSE", "DENSE", "HUB", "GRID"})
+  public GraphGenerator.Shape shape;
+
+  private GraphGenerator generator;
+
+  /**
+   * Names of the vertices with the most edges, removed by removeVertex
+   */
+  private String[] hubs;
+
+  /**
+   * A freshly built graph for every removeVertex invocation
+   */
+  @State(Scope.Thread)
+  public static class Built {
+
+    Graph graph;
+
+    @Setup(Level.Invocation)
+    public void build (BuildBenchmark benchmark) {
+
+      graph = benchmark.generator.build();
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void generate () {
+
+    generator = new GraphGenerator(size, shape, 42L);
+
+    int[] degree = new int[size];
+    for (int i = 0; i < generator.from.length; i++) {
+      degree[generator.from[i]]++;
+      degree[generator.to[i]]++;
+    }
+
+    // Sort by degree, keeping the vertex index in the low bits
+    long[] byDegree = new long[size];
+    for (int i = 0; i < size; i++) {
+      byDegree[i] = ((long) degree[i] << 32) | i;
+    }
+    Arrays.sort(byDegree);
+
+    hubs = new String[Math.max(1, size / 100)];
+    for (int h = 0; h < hubs.length; h++) {
+      hubs[h] = generator.names[(int) byDegree[size - 1 - h]];
+    }
+  }
+
+  @Benchmark
+  public Graph addVerticesAndEdges () {
+
+    return generator.build();
+  }
+
+  @Benchmark
+  public Graph graphBuilder () {
+
+    GraphBuilder builder = new GraphBuilder();
+    builder.addVertices(generator.names, generator.locations, null);
+    builder.addEdges(generator.from, generator.to, null, generator.weights, generator.directed);
+    return builder.build();
+  }
+
+  @Benchmark
+  public Graph removeHubVertices (Built built) {
+
+    for (String name : hubs) {
+      built.graph.removeVertex(name);
+    }
+    return built.graph;
+  }
+
+}
@@ -0,0 +1,155 @@
+package Graph.bench;
+
+import Graph.Graph;
+import Graph.GraphFactory;
+import Graph.Vertex;
+
+import java.awt.*;
+import java.util.Random;
+
+/**
+ * Generates the vertices and edges of a benchmark graph up front, so the benchmarks can time building
+ * the graph separately from deciding what goes in it. The same size, shape and seed always give the same graph.
+ */
+public class GraphGenerator {
+
+  public enum Shape {
+    /**
+     * About 4 random outgoing edges per vertex
+     */
+    SPARSE,
+    /**
+     * About 64 random outgoing edges per vertex
+     */
+    DENSE,
+    /**
+     * About 4 edges per vertex, but half of them go to or from the 1% of vertices that are hubs
+     */
+    HUB,
+    /**
+     * A square lattice with bidirectional edges between horizontal and vertical neighbours
+     */
+    GRID
+  }
+
+  private static final int SPACING = 10;
+
+  public final String[] names;
+  public final Point[] locations;
+  public final int[] from;
+  public final int[] to;
+  public final int[] weights;
+  public final boolean[] directed;
+
+  /**
+   * @param size  - The number of vertices
+   * @param shape - How the vertices are connected
+   * @param seed  - The seed for the random parts of the graph
+   */
+  public GraphGenerator (int size, Shape shape, long seed) {
+
+    Random random = new Random(seed);
+    int side = (int) Math.ceil(Math.sqrt(size));
+
+    names = new String[size];
+    locations = new Point[size];
+    for (int i = 0; i < size; i++) {
+      names[i] = "V" + i;
+      if (shape == Shape.GRID) {
+        locations[i] = new Point((i % side) * SPACING, (i / side) * SPACING);
+      } else {
+        locations[i] = new Point(random.nextInt(side * SPACING), random.nextInt(side * SPACING));
+      }
+    }
+
+    int numEdges;
+    switch (shape) {
+      case DENSE:
+        numEdges = size * Math.min(64, size - 1);
+        break;
+      case GRID:
+        numEdges = 2 * side * side;
+        break;
+      default:
+        numEdges = size * 4;
+        break;
+    }
+
+    int[] f = new int[numEdges];
+    int[] t = new int[numEdges];
+    int count = 0;
+    if (shape == Shape.GRID) {
+      for (int i = 0; i < size; i++) {
+        if ((i % side) + 1 < side && i + 1 < size) {
+          f[count] = i;
+          t[count++] = i + 1;
+        }
+        if (i + side < size) {
+          f[count] = i;
+          t[count++] = i + side;
+        }
+      }
+    } else {
+      // Self loops are left out, so a few less than numEdges edges are generated
+      int hubs = Math.max(1, size / 100);
+      for (int i = 0; i < numEdges; i++) {
+        f[count] = random.nextInt(size);
+        t[count] = random.nextInt(size);
+        if (shape == Shape.HUB && random.nextBoolean()) {
+          if (random.nextBoolean()) {
+            f[count] = random.nextInt(hubs);
+          } else {
+            t[count] = random.nextInt(hubs);
+          }
+        }
+        if (f[count] != t[count]) {
+          count++;
+        }
+      }
+    }
+
+    from = new int[count];
+    to = new int[count];
+    weights = new int[count];
+    directed = new boolean[count];
+    for (int i = 0; i < count; i++) {
+      from[i] = f[i];
+      to[i] = t[i];
+      Point a = locations[f[i]];
+      Point b = locations[t[i]];
+      // Weights roughly follow the distance between the vertices, like a road network
+      weights[i] = 1 + (int) a.distance(b) + random.nextInt(SPACING);
+      directed[i] = shape != Shape.GRID;
+    }
+  }
+
+  /**
+   * @return The number of vertices
+   */
+  public int size () {
+
+    return names.length;
+  }
+
+  /**
+   * Adds all the vertices, then all the edges, to a new graph
+   *
+   * @return The new graph
+   */
+  public Graph build () {
+
+    Graph graph = GraphFactory.createGraph();
+    Vertex[] vertices = new Vertex[names.length];
+    for (int i = 0; i < names.length; i++) {
+      graph.addVertex(names[i], locations[i], "");
+      vertices[i] = graph.getVertex(names[i]);
+    }
+
+    for (int i = 0; i < from.length; i++) {
+      graph.addEdge(vertices[from[i]], vertices[to[i]], "", weights[i], directed[i]);
+    }
+
+    return graph;
+  }
+
+}
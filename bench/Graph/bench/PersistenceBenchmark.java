@@ -0,0 +1,96 @@
+package Graph.bench;
+
+import Graph.Graph;
+import Graph.GraphFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times save/load through JSON held in memory, and saveBinary/loadBinary through a temporary file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PersistenceBenchmark {
+
+  @Param({"10000"})
+  public int size;
+
+  @Param({"SPARSE", "DENSE", "HUB", "GRID"})
+  public GraphGenerator.Shape shape;
+
+  private Graph graph;
+
+  private byte[] json;
+
+  private File binary;
+
+  @Setup(Level.Trial)
+  public void build () throws IOException {
+
+    graph = new GraphGenerator(size, shape, 42L).build();
+    json = save();
+
+    binary = File.createTempFile("graph-bench", ".bin");
+    if (!graph.saveBinary(binary)) {
+      throw new IOException("Could not write " + binary);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void delete () {
+
+    binary.delete();
+  }
+
+  @Benchmark
+  public byte[] save () throws IOException {
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(json != null ? json.length : 1 << 16);
+    Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+    graph.save(out);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  public Graph load () {
+
+    Graph loaded = GraphFactory.createGraph();
+    loaded.load(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+    return loaded;
+  }
+
+  @Benchmark
+  public boolean saveBinary () {
+
+    return graph.saveBinary(binary);
+  }
+
+  @Benchmark
+  public Graph loadBinary () {
+
+    Graph loaded = GraphFactory.createGraph();
+    loaded.loadBinary(binary);
+    return loaded;
+  }
+
+}
@@ -0,0 +1,130 @@
+package Graph.bench;
+
+import Graph.ContractionHierarchy;
+import Graph.Edge;
+import Graph.Graph;
+import Graph.ShortestPath;
+import Graph.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.*;
+import java.util.Random;
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the read only queries against a graph that is built once per trial. Each invocation uses the next
+ * vertex, or pair of vertices, from a fixed random sequence so the queries don't all hit the same spot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+
+  private static final int NUM_QUERIES = 1024;
+
+  @Param({"10000"})
+  public int size;
+
+  @Param({"SPARSE", "DENSE", "HUB", "GRID"})
+  public GraphGenerator.Shape shape;
+
+  private Graph graph;
+
+  private Vertex[] sources;
+
+  private Vertex[] targets;
+
+  private Point[] locations;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void build () {
+
+    GraphGenerator generator = new GraphGenerator(size, shape, 42L);
+    graph = generator.build();
+
+    Random random = new Random(7L);
+    sources = new Vertex[NUM_QUERIES];
+    targets = new Vertex[NUM_QUERIES];
+    locations = new Point[NUM_QUERIES];
+    for (int i = 0; i < NUM_QUERIES; i++) {
+      sources[i] = graph.getVertex(generator.names[random.nextInt(size)]);
+      targets[i] = graph.getVertex(generator.names[random.nextInt(size)]);
+      // Half the lookups hit a vertex, half miss
+      Point hit = generator.locations[random.nextInt(size)];
+      locations[i] = random.nextBoolean() ? hit : new Point(hit.x + 1, hit.y - 1);
+    }
+    next = 0;
+  }
+
+  private int nextQuery () {
+
+    next = (next + 1) & (NUM_QUERIES - 1);
+    return next;
+  }
+
+  @Benchmark
+  public Vertex getVertexAtLocation () {
+
+    return graph.getVertexAtLocation(locations[nextQuery()]);
+  }
+
+  @Benchmark
+  public boolean isGraphConnected () {
+
+    return graph.isGraphConnected(sources[nextQuery()]);
+  }
+
+  @Benchmark
+  public boolean areVerticesConnected () {
+
+    int i = nextQuery();
+    return graph.areVerticesConnected(sources[i], targets[i]);
+  }
+
+  @Benchmark
+  public ShortestPath getPathInformation () {
+
+    return graph.getPathInformation(sources[nextQuery()]);
+  }
+
+  @Benchmark
+  public Stack<Edge> shortestPath () {
+
+    int i = nextQuery();
+    return graph.shortestPath(sources[i], targets[i]);
+  }
+
+  @Benchmark
+  public Stack<Edge> contractedPath (Contracted contracted) {
+
+    int i = nextQuery();
+    return contracted.hierarchy.getPathInformation(sources[i]).pathTo(targets[i]);
+  }
+
+  /**
+   * The contraction hierarchy is slow to build, so only the benchmark that queries it pays for it
+   */
+  @State(Scope.Thread)
+  public static class Contracted {
+
+    private ContractionHierarchy hierarchy;
+
+    @Setup(Level.Trial)
+    public void build (QueryBenchmark benchmark) {
+
+      hierarchy = benchmark.graph.contract();
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.Stack;
+
+/**
+ * Point to point shortest path search. Vertices come off the frontier in order of distance so far plus the
+ * heuristic's estimate of the distance left, so the search heads toward the target and stops as soon as the target
+ * comes off the frontier. Vertices are only indexed as they are reached, so the work done depends on how much of
+ * the graph is explored, not on the size of the graph. A vertex whose distance improves after it left the frontier
+ * goes back on, so a heuristic that never overestimates always gives a shortest path.
+ */
+class AStarSearch {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final AbstractGraph graph;
+
+  private final Heuristic heuristic;
+
+  /**
+   * Vertex id to the vertex's index in the arrays, handed out as vertices are reached
+   */
+  private VertexSlots index;
+  private int count;
+  private VertexIfc[] vertices;
+  private double[] distance;
+  private EdgeIfc[] via;
+  private final IndexedMinHeap frontier;
+
+  /**
+   * @param g - The graph to search, its edges are read through it
+   * @param h - The estimate of the distance left
+   */
+  AStarSearch (AbstractGraph g, Heuristic h) {
+
+    graph = g;
+    heuristic = h;
+    vertices = new VertexIfc[INITIAL_CAPACITY];
+    distance = new double[INITIAL_CAPACITY];
+    via = new EdgeIfc[INITIAL_CAPACITY];
+    frontier = new IndexedMinHeap(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param from - The vertex to start at
+   * @param to   - The vertex to find a path to
+   * @return The path, with the first edge on top of the stack, empty if from is to, null if there isn't a path
+   */
+  Stack<Edge> search (VertexIfc from, VertexIfc to) {
+
+    index = graph.acquireSlots();
+    try {
+      indexOf(from);
+      distance[0] = 0d;
+      frontier.insertOrDecrease(0, heuristic.estimate(from, to));
+
+      EdgeCursor edges = graph.edgeCursor(true);
+      while (!frontier.isEmpty()) {
+        int evalIndex = frontier.poll();
+        VertexIfc v = vertices[evalIndex];
+        if (v == to) {
+          return pathTo(evalIndex);
+        }
+
+        double evalDistance = distance[evalIndex];
+        edges.start(v);
+        while (edges.next()) {
+          int i = indexOf(edges);
+          double newDistance = evalDistance + edges.weight();
+          if (newDistance < distance[i]) {
+            distance[i] = newDistance;
+            via[i] = edges.edge();
+            frontier.insertOrDecrease(i, newDistance + heuristic.estimate(vertices[i], to));
+          }
+        }
+      }
+
+      return null;
+    }
+    finally {
+      index.release();
+    }
+  }
+
+  /**
+   * @param v - A vertex the search has reached
+   * @return The index of v, a new one at infinite distance if v hasn't been reached before
+   */
+  private int indexOf (VertexIfc v) {
+
+    int i = index.get(v.getId());
+    if (i >= 0 && vertices[i] == v) {
+      return i;
+    }
+
+    return add(v.getId(), v);
+  }
+
+  /**
+   * @param edges - A cursor on an edge the search has followed
+   * @return The index of the vertex at the other end, a new one at infinite distance if it hasn't been reached before
+   */
+  private int indexOf (EdgeCursor edges) {
+
+    int id = edges.otherId();
+    int i = index.get(id);
+    if (i >= 0 && edges.isOther(vertices[i])) {
+      return i;
+    }
+
+    return add(id, edges.other());
+  }
+
+  /**
+   * @return The index given to v, at infinite distance
+   */
+  private int add (int id, VertexIfc v) {
+
+    int next = count++;
+    if (next == vertices.length) {
+      int grown = 2 * next;
+      vertices = Arrays.copyOf(vertices, grown);
+      distance = Arrays.copyOf(distance, grown);
+      via = Arrays.copyOf(via, grown);
+      frontier.ensureCapacity(grown);
+    }
+    index.put(id, next);
+    vertices[next] = v;
+    distance[next] = Double.POSITIVE_INFINITY;
+
+    return next;
+  }
+
+  private Stack<Edge> pathTo (int i) {
+
+    Stack<Edge> path = new Stack<>();
+    EdgeIfc e = via[i];
+    while (e != null) {
+      path.push(e);
+      e = via[index.get(e.from().getId())];
+    }
+
+    return path;
+  }
+
+}
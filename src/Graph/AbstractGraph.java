@@ -0,0 +1,1116 @@
+package Graph;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The parts of a graph that only read the vertices and edges: persistence, traversals and path information.
+ * Implementations decide how the vertices and edges are stored and how they are changed.
+ */
+abstract class AbstractGraph implements GraphIfc {
+
+  /**
+   * Bumped after every change to the vertices, the edges or an edge weight
+   */
+  private final AtomicLong modCount = new AtomicLong();
+
+  /**
+   * Trees handed out by getPathInformation, dropped when modCount moves on
+   */
+  private final PathCache pathCache = new PathCache();
+
+  /**
+   * Bumped after a vertex in the graph moves
+   */
+  private final AtomicLong locationCount = new AtomicLong();
+
+  /**
+   * The default heuristic for shortestPath. Its scale is lowered as edges are added or get lighter, and worked out
+   * again from all the edges only after a vertex moves.
+   */
+  private volatile ScaledHeuristic defaultHeuristic;
+  private final Object heuristicLock = new Object();
+
+  /**
+   * The weakly connected components, kept up to date while the graph only grows. Null until they are first
+   * needed, and again after a vertex or edge is removed.
+   */
+  private volatile UnionFind components;
+  private final Object componentsLock = new Object();
+
+  /**
+   * True once a directed edge has been added, until the graph is cleared. The components only answer connectivity
+   * without a search while there are no directed edges, so only then are they worth working out for a query.
+   */
+  private volatile boolean directedEdgesAdded;
+
+  /**
+   * The listeners, and the changes waiting to be delivered to them
+   */
+  private final GraphEvents events = new GraphEvents();
+
+  /**
+   * The vertex slots of each thread's last search of this graph, kept with the graph so that a thread doesn't hold
+   * on to slots sized for a graph it has finished with
+   */
+  private final ThreadLocal<VertexSlots> spareSlots = new ThreadLocal<>();
+
+  /**
+   * @return The vertices in the graph, a live view that the caller must not change
+   */
+  abstract Collection<VertexIfc> vertexValues ();
+
+  /**
+   * @return The number of changes made to the graph so far
+   */
+  long modCount () {
+
+    return modCount.get();
+  }
+
+  /**
+   * Called after the vertices, the edges or an edge weight have changed
+   */
+  void modified () {
+
+    modCount.incrementAndGet();
+  }
+
+  /**
+   * Called after a vertex is added to the graph
+   *
+   * @param v - The vertex added
+   */
+  void vertexAdded (VertexIfc v) {
+
+    // The components are published before they are worked out, so a vertex missed here is seen by the work
+    if (components != null) {
+      synchronized (componentsLock) {
+        UnionFind uf = components;
+        if (uf != null) {
+          if (uf.canAdd(v)) {
+            uf.add(v);
+          } else {
+            components = null;
+          }
+        }
+      }
+    }
+    if (events.listening()) {
+      events.publish(GraphEvent.vertexAdded(v));
+    }
+  }
+
+  /**
+   * Called after an edge is added to the graph
+   *
+   * @param e - The edge added
+   */
+  void edgeAdded (EdgeIfc e) {
+
+    tighten(e);
+    if (e.getDirected() && !directedEdgesAdded) {
+      directedEdgesAdded = true;
+    }
+    if (components != null) {
+      synchronized (componentsLock) {
+        UnionFind uf = components;
+        if (uf != null) {
+          if (uf.canAdd(e.from()) && uf.canAdd(e.to())) {
+            uf.union(e);
+          } else {
+            components = null;
+          }
+        }
+      }
+    }
+    if (events.listening()) {
+      events.publish(GraphEvent.edgeAdded(e));
+    }
+  }
+
+  /**
+   * Called after a vertex or an edge is removed from the graph, the components are worked out again when next needed
+   */
+  void connectionsRemoved () {
+
+    synchronized (componentsLock) {
+      components = null;
+    }
+  }
+
+  /**
+   * Called after a vertex is removed from the graph, once its edges have been removed
+   *
+   * @param v - The vertex removed
+   */
+  void vertexRemoved (VertexIfc v) {
+
+    if (events.listening()) {
+      events.publish(GraphEvent.vertexRemoved(v));
+    }
+  }
+
+  /**
+   * Called after an edge is removed from the graph, on its own or along with one of its vertices
+   *
+   * @param e - The edge removed
+   */
+  void edgeRemoved (EdgeIfc e) {
+
+    if (events.listening()) {
+      events.publish(GraphEvent.edgeRemoved(e));
+    }
+  }
+
+  /**
+   * Called after an edge in the graph has changed weight
+   *
+   * @param e         - The edge whose weight changed
+   * @param oldWeight - The weight of the edge before it changed
+   */
+  void reweighted (EdgeIfc e, int oldWeight) {
+
+    modified();
+    if (e.getWeight() < oldWeight) {
+      tighten(e);
+    }
+    if (events.listening()) {
+      events.publish(GraphEvent.weightChanged(e, oldWeight));
+    }
+  }
+
+  /**
+   * Called after every vertex and edge has been dropped at once
+   */
+  void cleared () {
+
+    connectionsRemoved();
+    directedEdgesAdded = false;
+    defaultHeuristic = null;
+    if (events.listening()) {
+      events.publish(GraphEvent.cleared());
+    }
+  }
+
+  /**
+   * @return True if anything is listening to the graph, so the removed edges need to be told about one by one
+   */
+  boolean listening () {
+
+    return events.listening();
+  }
+
+  /**
+   * Holds back the events this thread makes until releaseEvents. Called before taking the locks for a change, so
+   * that no listener runs while they are held.
+   */
+  void holdEvents () {
+
+    events.hold();
+  }
+
+  /**
+   * Delivers the events held back since holdEvents, called once the locks for the change are let go
+   */
+  void releaseEvents () {
+
+    events.release();
+  }
+
+  /**
+   * Lowers the scale of the default heuristic if the edge is lighter for its length than any edge before it.
+   * Removing an edge or making one heavier leaves the scale as it is, a scale that is too small still never
+   * overestimates. The heuristic is published before its scale is worked out, so an edge added meanwhile either is
+   * seen while it is worked out or waits for the lock and lowers it after.
+   *
+   * @param e - An edge that was added, or whose weight went down
+   */
+  private void tighten (EdgeIfc e) {
+
+    ScaledHeuristic heuristic = defaultHeuristic;
+    if (heuristic == null) {
+      return;
+    }
+
+    double scale = Heuristics.edgeScale(e);
+    if (scale < heuristic.scale) {
+      synchronized (heuristicLock) {
+        heuristic = defaultHeuristic;
+        if (heuristic != null && scale < heuristic.scale) {
+          defaultHeuristic = new ScaledHeuristic(scale, heuristic.modCount, heuristic.locationCount,
+                                                 heuristic.complete);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return True if the scale of the default heuristic is lowered as the edges change, false if it has to be worked
+   *         out again after any change
+   */
+  boolean tightensHeuristic () {
+
+    return true;
+  }
+
+  /**
+   * @return True if the weakly connected components are kept between queries, false to work them out each time they
+   *         are asked for and never for a query they can only help with
+   */
+  boolean keepsComponents () {
+
+    return true;
+  }
+
+  /**
+   * @return False if no directed edge has been added to the graph since it was made or cleared
+   */
+  boolean mayHaveDirectedEdges () {
+
+    return directedEdgesAdded;
+  }
+
+  /**
+   * The caller holds componentsLock. The components are published before they are worked out, so a change made
+   * meanwhile is either seen while they are worked out or waits for the lock and is added after.
+   *
+   * @return The weakly connected components of the graph as it is now
+   */
+  private UnionFind components () {
+
+    if (components == null) {
+      UnionFind uf = new UnionFind();
+      components = uf;
+      addAll(uf);
+    }
+
+    return components;
+  }
+
+  /**
+   * @param uf - The union-find to add every vertex and edge of the graph to
+   * @return The union-find
+   */
+  private UnionFind addAll (UnionFind uf) {
+
+    for (VertexIfc v : vertexValues()) {
+      uf.add(v);
+      for (EdgeIfc e : outgoingEdges(v)) {
+        uf.union(e);
+      }
+    }
+
+    return uf;
+  }
+
+  /**
+   * @return The number of times a vertex in the graph has moved so far
+   */
+  long locationCount () {
+
+    return locationCount.get();
+  }
+
+  /**
+   * Called after a vertex in the graph has moved
+   *
+   * @param v           - The vertex that moved
+   * @param oldLocation - The location of the vertex before it moved, may be null
+   */
+  void moved (VertexIfc v, Point oldLocation) {
+
+    locationCount.incrementAndGet();
+    if (events.listening()) {
+      events.publish(GraphEvent.locationChanged(v, oldLocation));
+    }
+  }
+
+  /**
+   * @param name - The name of the vertex to retrieve
+   * @return The vertex with the matching name, null if the vertex isn't in the graph
+   */
+  abstract VertexIfc findVertex (String name);
+
+  /**
+   * @param id - A vertex id
+   * @return The vertex in the graph with the id, null if there isn't one
+   */
+  abstract VertexIfc vertexAt (int id);
+
+  /**
+   * @return One more than the highest vertex id in the graph
+   */
+  abstract int idBound ();
+
+  /**
+   * @return Empty vertex slots for a search of this graph on this thread, give them back with release when done
+   */
+  VertexSlots acquireSlots () {
+
+    return VertexSlots.acquire(spareSlots, idBound());
+  }
+
+  /**
+   * Finds the vertex of this graph that v stands for. A vertex of this graph is recognised by its id, without
+   * hashing its name, any other vertex is looked up by name.
+   *
+   * @param v - A vertex, possibly from another graph
+   * @return The vertex in this graph with the same name, null if there isn't one
+   */
+  VertexIfc resolve (Vertex v) {
+
+    VertexIfc actual = vertexAt(v.getId());
+    return (actual == v) ? actual : findVertex(v.getName());
+  }
+
+  /**
+   * @return A string form of the graph using the JSON string representation
+   */
+  @Override
+  public String toString () {
+
+    StringBuffer tmp = new StringBuffer("Graph.Graph ");
+    tmp.append(toJSONString());
+    return tmp.toString();
+  }
+
+  /**
+   * @return A string containing the JSON representation of this graph
+   */
+  @Override
+  public String toJSONString () {
+
+    StringWriter out = new StringWriter();
+    try {
+      writeJSONString(out);
+    }
+    catch (IOException e) {
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes the JSON representation of this graph straight to the writer in one pass. The vertices are
+   * written before the edges, so the graph can be streamed back in without holding any edges back.
+   *
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
+   */
+  @Override
+  public void writeJSONString (Writer out) throws IOException {
+
+    boolean first = true;
+    out.write("{\"vertices\":[");
+    for (VertexIfc v : vertexValues()) {
+      if (!first) {
+        out.write(',');
+      }
+      writeVertex(v, out);
+      first = false;
+    }
+
+    first = true;
+    out.write("],\"edges\":[");
+    for (EdgeIfc e : edges()) {
+      if (!first) {
+        out.write(',');
+      }
+      e.writeJSONString(out);
+      first = false;
+    }
+    out.write("]}");
+  }
+
+  /**
+   * Writes the JSON representation of one vertex of this graph, with its edges
+   *
+   * @param v   - The vertex to write
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
+   */
+  void writeVertex (VertexIfc v, Writer out) throws IOException {
+
+    v.writeJSONString(out);
+  }
+
+  /**
+   * Writes the JSON string representation of this graph to a Writer.
+   *
+   * @param writer - The writer to be used to store the JSON string
+   * @return True if the JSON string is successfully written to the writer, false otherwise
+   */
+  @Override
+  public boolean save (Writer writer) {
+
+    if (writer == null) {
+      return false;
+    }
+
+    try {
+      BufferedWriter out = new BufferedWriter(writer);
+      writeJSONString(out);
+      out.flush();
+    }
+    catch (IOException e) {
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Reads a JSON string from a Reader, populating the graph with the vertices and edges
+   * as they are read. If the JSON string is invalid, the graph keeps whatever was read before the error.
+   *
+   * @param reader - The reader to be used to access the JSON string
+   * @return True if the graph is successfully populated with the vertices and edges in the JSON string, false otherwise
+   */
+  @Override
+  public boolean load (Reader reader) {
+
+    if (reader == null) {
+      return false;
+    }
+
+    return new GraphJSONLoader(this).load(new BufferedReader(reader));
+  }
+
+  /**
+   * Writes the graph to a file in the compact binary format, which is much faster to load than JSON.
+   *
+   * @param file - The file to write, replaced if it already exists
+   * @return True if the graph is successfully written to the file, false otherwise
+   */
+  @Override
+  public boolean saveBinary (File file) {
+
+    return GraphBinaryFormat.save(this, file);
+  }
+
+  /**
+   * Memory maps a file written by saveBinary, then populates the graph with the vertices and
+   * edges contained in it.
+   *
+   * @param file - The file to read
+   * @return True if the graph is successfully populated with the vertices and edges in the file, false otherwise
+   */
+  @Override
+  public boolean loadBinary (File file) {
+
+    return GraphBinaryFormat.load(this, file);
+  }
+
+  /**
+   * @return The number of vertices in the graph
+   */
+  @Override
+  public int getSize () {
+
+    return vertexValues().size();
+  }
+
+  /**
+   * Are there any vertices in the graph
+   *
+   * @return true if there are no vertices in the graph, false otherwise
+   */
+  @Override
+  public boolean isEmpty () {
+
+    return vertexValues().isEmpty();
+  }
+
+  /**
+   * @param name - The name of the vertex to retrieve
+   * @return The vertex with the matching name, null if the vertex isn't in the graph
+   */
+  @Override
+  public Vertex getVertex (String name) {
+
+    return (name != null && !name.isEmpty()) ? findVertex(name) : null;
+  }
+
+  /**
+   * @param id - The id of the vertex to retrieve, see Vertex.getId
+   * @return The vertex with the id, null if no vertex in the graph has it
+   */
+  @Override
+  public Vertex getVertex (int id) {
+
+    return vertexAt(id);
+  }
+
+  /**
+   * @return One more than the highest vertex id in the graph, so arrays of this size can be indexed by vertex id
+   */
+  @Override
+  public int getVertexIdBound () {
+
+    return idBound();
+  }
+
+  /**
+   * @return A list of the vertices in the graph
+   */
+  @Override
+  public List<Vertex> getVertices () {
+
+    return new ArrayList<Vertex>(vertexValues());
+  }
+
+  /**
+   * Used internally to get the vertices in the graph
+   *
+   * @return The set of the vertices in the graph
+   */
+  @Override
+  public List<Vertex> vertices () {
+
+    return new ArrayList<Vertex>(vertexValues());
+  }
+
+  /**
+   * @param v - A vertex in the graph
+   * @return The outgoing edges of v
+   */
+  @Override
+  public List<EdgeIfc> outgoingEdges (VertexIfc v) {
+
+    return v.outgoingEdges();
+  }
+
+  /**
+   * @param v - A vertex in the graph
+   * @return The incoming edges of v
+   */
+  @Override
+  public List<EdgeIfc> incomingEdges (VertexIfc v) {
+
+    return v.incomingEdges();
+  }
+
+  /**
+   * @param outgoing - True to step through the outgoing edges of vertices, false for the incoming edges
+   * @return A new cursor over the lists outgoingEdges and incomingEdges give
+   */
+  @Override
+  public EdgeCursor edgeCursor (boolean outgoing) {
+
+    return new ListEdgeCursor(this, outgoing);
+  }
+
+  /**
+   * @return The list of the edges in the graph
+   */
+  @Override
+  public List<Edge> getEdges () {
+
+    return new ArrayList<Edge>(edges());
+  }
+
+  /**
+   * Does a breadth first search to determine if all the vertices can be reached from the starting point. Large
+   * graphs are searched in parallel. While the graph only grows the weakly connected components are kept up to
+   * date, and they answer without a search if the graph has no directed edges.
+   *
+   * @param startingPoint - The vertex at which to start the search, may be null. If null, just use the
+   *                      first vertex found in the vertices map
+   * @return True if all the vertices can be reached, false otherwise
+   */
+  @Override
+  public boolean isGraphConnected (Vertex startingPoint) throws IllegalArgumentException {
+
+    // if 0 or 1 vertices, return true
+    int numVertices = getSize();
+    if (numVertices <= 1) {
+      return true;
+    }
+
+    VertexIfc v = null;
+    if (startingPoint == null) {
+      Iterator<VertexIfc> it = vertexValues().iterator();
+      if (it.hasNext()) {
+        v = it.next();
+      }
+    } else {
+      v = resolve(startingPoint);
+    }
+
+    if (v == null) {
+      return false;
+    }
+
+    // The components rule out a graph that isn't even weakly connected, and without directed edges a weakly
+    // connected graph is connected from any vertex. They are only worked out for small graphs without directed
+    // edges, otherwise they are used if they are already known.
+    boolean parallel = ParallelBreadthFirstSearch.worthwhile(numVertices);
+    if (components != null || (!parallel && !mayHaveDirectedEdges() && keepsComponents())) {
+      synchronized (componentsLock) {
+        UnionFind uf = components();
+        if (uf.getCount() > 1) {
+          return false;
+        }
+        if (!uf.hasDirectedEdges()) {
+          return true;
+        }
+      }
+    }
+
+    // Large graphs are searched a level at a time on all the cores
+    if (parallel) {
+      ParallelBreadthFirstSearch search = new ParallelBreadthFirstSearch(this);
+      return search.reachedFrom(v) == search.size();
+    }
+
+    // Do breadth-first search, counting all vertices reached
+    // If number of vertices counted equals the number of vertices in the graph, return true
+    VisitContext context = breadthFirstSearch(v);
+
+    return numVertices == context.visitCount();
+  }
+
+  /**
+   * Does a bidirectional breadth first search to determine if there is a path from the from vertex
+   * to the to vertex. The weakly connected components answer first if they are known, or if the graph has no
+   * directed edges so they answer without a search.
+   *
+   * @param from - The vertex where the search will start
+   * @param to   - The destination vertex
+   * @return True if there is a path from "from" to "to"
+   */
+  @Override
+  public boolean areVerticesConnected (Vertex from, Vertex to) {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    if (to == null) {
+      throw new IllegalArgumentException("to cannot be null");
+    }
+
+    VertexIfc f = resolve(from);
+    VertexIfc t = resolve(to);
+
+    if (f == null || t == null) {
+      return false;
+    }
+
+    if (components == null && (mayHaveDirectedEdges() || !keepsComponents())) {
+      return Reachability.isReachable(this, f, t);
+    }
+
+    synchronized (componentsLock) {
+      UnionFind uf = components();
+      if (!uf.connected(f, t)) {
+        return false;
+      }
+      if (!uf.hasDirectedEdges()) {
+        return true;
+      }
+    }
+
+    return Reachability.isReachable(this, f, t);
+  }
+
+  /**
+   * @return The weakly connected components, the vertices that are connected when edge direction is ignored
+   */
+  @Override
+  public Components getWeaklyConnectedComponents () {
+
+    if (!keepsComponents()) {
+      return addAll(new UnionFind()).toComponents();
+    }
+
+    synchronized (componentsLock) {
+      return components().toComponents();
+    }
+  }
+
+  /**
+   * @return The strongly connected components, the vertices that can all be reached from each other
+   */
+  @Override
+  public Components getStronglyConnectedComponents () {
+
+    return ComponentsImpl.stronglyConnected(this);
+  }
+
+  /**
+   * Return an interface that can be used to get path information
+   * for the from vertex. The path information for recent sources is cached
+   * until the graph changes.
+   *
+   * @param from - The vertex to get path information for
+   * @return The interface to use to find distances and paths to other vertices
+   */
+  @Override
+  public ShortestPath getPathInformation (Vertex from) {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    // Read the version first, so a change made while the tree is computed keeps it out of the cache
+    long version = modCount();
+    VertexIfc v = resolve(from);
+    if (v == null) {
+      throw new IllegalArgumentException("from is not in graph");
+    }
+
+    ShortestPath paths = pathCache.get(v.getId(), version);
+    if (paths == null) {
+      paths = new ShortestPathImpl(this, v);
+      pathCache.put(v.getId(), version, paths);
+    }
+
+    return paths;
+  }
+
+  /**
+   * Finds a shortest path between two vertices with an A* search, guided by the straight line distance between
+   * the vertex locations. The distance is scaled down so it is never more than the weight of a path. The scale is
+   * kept up to date as edges are added and weights change, and only worked out again from all the edges after a
+   * vertex moves. When the locations can't guide the search it is a bidirectional Dijkstra search instead.
+   *
+   * @param from - The vertex to start at
+   * @param to   - The vertex to find a path to
+   * @return The path, with the first edge on top of the stack, empty if from is to, null if there isn't a path
+   */
+  @Override
+  public Stack<Edge> shortestPath (Vertex from, Vertex to) {
+
+    return shortestPath(from, to, defaultHeuristic());
+  }
+
+  /**
+   * Finds a shortest path between two vertices with an A* search, guided by the heuristic. Heuristics.NONE doesn't
+   * guide the search at all, so for it the search runs from both ends at once instead.
+   *
+   * @param from      - The vertex to start at
+   * @param to        - The vertex to find a path to
+   * @param heuristic - The estimate of the distance left, must never be more than the real distance
+   * @return The path, with the first edge on top of the stack, empty if from is to, null if there isn't a path
+   */
+  @Override
+  public Stack<Edge> shortestPath (Vertex from, Vertex to, Heuristic heuristic) {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    if (to == null) {
+      throw new IllegalArgumentException("to cannot be null");
+    }
+
+    if (heuristic == null) {
+      throw new IllegalArgumentException("heuristic cannot be null");
+    }
+
+    VertexIfc f = resolve(from);
+    VertexIfc t = resolve(to);
+
+    if (f == null || t == null) {
+      return null;
+    }
+
+    if (heuristic == Heuristics.NONE) {
+      return new BidirectionalSearch(this).search(f, t);
+    }
+
+    return new AStarSearch(this, heuristic).search(f, t);
+  }
+
+  /**
+   * @return The euclidean heuristic, scaled so it can't overestimate on the graph as it is now, Heuristics.NONE if
+   *         the locations give no lower bound at all
+   */
+  private Heuristic defaultHeuristic () {
+
+    ScaledHeuristic heuristic = defaultHeuristic;
+    if (!isCurrent(heuristic)) {
+      synchronized (heuristicLock) {
+        heuristic = defaultHeuristic;
+        if (!isCurrent(heuristic)) {
+          // Read the versions first, so a change made while the scale is worked out isn't missed next time
+          long version = modCount();
+          long moves = locationCount();
+          defaultHeuristic = new ScaledHeuristic(Double.POSITIVE_INFINITY, version, moves, false);
+          double scale = Double.POSITIVE_INFINITY;
+          for (EdgeIfc e : edges()) {
+            scale = Math.min(scale, Heuristics.edgeScale(e));
+            if (scale == 0) {
+              break;
+            }
+          }
+          heuristic = new ScaledHeuristic(Math.min(scale, defaultHeuristic.scale), version, moves, true);
+          defaultHeuristic = heuristic;
+        }
+      }
+    }
+
+    return heuristic.heuristic;
+  }
+
+  /**
+   * @param heuristic - The default heuristic, may be null
+   * @return True if the heuristic can be used for the graph as it is now
+   */
+  private boolean isCurrent (ScaledHeuristic heuristic) {
+
+    return heuristic != null && heuristic.complete && heuristic.locationCount == locationCount() &&
+           (tightensHeuristic() || heuristic.modCount == modCount());
+  }
+
+  /**
+   * Path information for the from vertex that listens to the graph and repairs itself after each change
+   *
+   * @param from - The vertex to get path information for
+   * @return The interface to use to find distances and paths to other vertices
+   * @throws IllegalArgumentException If from is null or not in the graph
+   */
+  @Override
+  public DynamicShortestPath trackPathInformation (Vertex from) throws IllegalArgumentException {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    VertexIfc v = resolve(from);
+    if (v == null) {
+      throw new IllegalArgumentException("from is not in graph");
+    }
+
+    return new DynamicShortestPathImpl(this, v);
+  }
+
+  /**
+   * Sets how many shortest path trees getPathInformation keeps
+   *
+   * @param size - The most trees to keep, 0 to turn the cache off
+   */
+  @Override
+  public void setPathCacheSize (int size) {
+
+    pathCache.setMaxSize(size);
+  }
+
+  /**
+   * Builds an immutable, compressed sparse row copy of the graph for traversal heavy workloads. Later changes to
+   * the graph are not seen by the compiled copy, compile again to pick them up.
+   *
+   * @return The compiled copy of the graph
+   */
+  @Override
+  public CompiledGraph compile () {
+
+    return new CompiledGraphImpl(this);
+  }
+
+  /**
+   * Preprocesses the graph into a contraction hierarchy. Later changes to the graph are not seen by the hierarchy,
+   * rebuild it to pick them up.
+   *
+   * @return The contraction hierarchy of the graph
+   */
+  @Override
+  public ContractionHierarchy contract () {
+
+    return new ContractionHierarchyImpl(this);
+  }
+
+  /**
+   * Adds a listener that is told about each change as soon as it is made, on the thread that made it
+   *
+   * @param listener - The listener to add
+   * @throws IllegalArgumentException If the listener is null
+   */
+  @Override
+  public void addGraphListener (GraphListener listener) throws IllegalArgumentException {
+
+    events.add(listener, 1, 0);
+  }
+
+  /**
+   * Adds a listener that is told about the changes in batches
+   *
+   * @param listener       - The listener to add
+   * @param maxEvents      - Deliver once this many events are waiting, 0 for no limit
+   * @param maxDelayMillis - Deliver at most this long after the first event waiting, 0 for no limit
+   * @throws IllegalArgumentException If the listener is null, a limit is negative or both limits are 0
+   */
+  @Override
+  public void addGraphListener (GraphListener listener, int maxEvents, long maxDelayMillis)
+      throws IllegalArgumentException {
+
+    events.add(listener, maxEvents, maxDelayMillis);
+  }
+
+  /**
+   * Removes the listener, after delivering the changes still waiting for it
+   *
+   * @param listener - The listener to remove
+   * @return True if the listener was removed, false if it wasn't listening
+   */
+  @Override
+  public boolean removeGraphListener (GraphListener listener) {
+
+    return events.remove(listener);
+  }
+
+  /**
+   * Starts a transaction on this thread, the changes it makes are delivered together when the transaction ends
+   */
+  @Override
+  public void beginTransaction () {
+
+    events.begin();
+  }
+
+  /**
+   * Ends the transaction started on this thread by beginTransaction
+   *
+   * @throws IllegalStateException If this thread has no transaction open
+   */
+  @Override
+  public void endTransaction () throws IllegalStateException {
+
+    events.end();
+  }
+
+  /**
+   * Perform a breadth first search of this graph, starting at v. The visit state is kept in a new context, the
+   * vertices themselves are not changed.
+   *
+   * @param v - The search starting point
+   * @return The context holding the vertices visited by the search
+   */
+  private VisitContext breadthFirstSearch (VertexIfc v) {
+
+    if (v == null) {
+      throw new IllegalArgumentException("v cannot be null");
+    }
+
+    VisitContext context = new VisitContext(idBound());
+    ArrayDeque<VertexIfc> q = new ArrayDeque<VertexIfc>();
+
+    q.add(v);
+    context.visit(v);
+    EdgeCursor edges = edgeCursor(true);
+    while (!q.isEmpty()) {
+      v = q.removeFirst();
+      edges.start(v);
+      while (edges.next()) {
+        if (context.visit(edges.otherId())) {
+          q.add(edges.other());
+        }
+      }
+    }
+
+    return context;
+  }
+
+  /**
+   * Steps through the edge lists of a graph whose vertices and edges are objects already
+   */
+  private static class ListEdgeCursor implements EdgeCursor {
+
+    private final GraphIfc graph;
+    private final boolean outgoing;
+    private Iterator<EdgeIfc> edges;
+    private EdgeIfc edge;
+
+    ListEdgeCursor (GraphIfc graph, boolean outgoing) {
+
+      this.graph = graph;
+      this.outgoing = outgoing;
+    }
+
+    @Override
+    public void start (VertexIfc v) {
+
+      edges = (outgoing ? graph.outgoingEdges(v) : graph.incomingEdges(v)).iterator();
+    }
+
+    @Override
+    public boolean next () {
+
+      if (!edges.hasNext()) {
+        return false;
+      }
+
+      edge = edges.next();
+      return true;
+    }
+
+    @Override
+    public int otherId () {
+
+      return other().getId();
+    }
+
+    @Override
+    public boolean isOther (VertexIfc v) {
+
+      return other() == v;
+    }
+
+    @Override
+    public VertexIfc other () {
+
+      return outgoing ? edge.to() : edge.from();
+    }
+
+    @Override
+    public int weight () {
+
+      return edge.getWeight();
+    }
+
+    @Override
+    public EdgeIfc edge () {
+
+      return edge;
+    }
+  }
+
+  /**
+   * A scaled euclidean heuristic with the versions of the graph it was worked out for
+   */
+  private static class ScaledHeuristic {
+
+    final double scale;
+    final Heuristic heuristic;
+    final long modCount;
+    final long locationCount;
+
+    /**
+     * False while the scale is still being worked out
+     */
+    final boolean complete;
+
+    /**
+     * @param s - The scale, 0 or infinity if the locations give no lower bound at all
+     */
+    ScaledHeuristic (double s, long m, long l, boolean c) {
+
+      scale = s;
+      heuristic = (s > 0 && s < Double.POSITIVE_INFINITY) ? Heuristics.euclidean(s) : Heuristics.NONE;
+      modCount = m;
+      locationCount = l;
+      complete = c;
+    }
+  }
+
+}
@@ -0,0 +1,235 @@
+package Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Stack;
+
+/**
+ * Point to point shortest path search with two Dijkstra searches, one forward from the start over the outgoing
+ * edges and one backward from the target over the incoming edges. The side whose frontier is closer to its own
+ * end is expanded next, so both grow at about the same rate. Every time a vertex is reached by both sides the
+ * path through it is a candidate, and the search stops once the two frontiers together are at least as far as
+ * the best candidate, since no path found after that could be shorter. Each side only has to reach about half
+ * way, which on large sparse graphs explores about half the vertices a one sided search does.
+ */
+class BidirectionalSearch {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final AbstractGraph graph;
+
+  /**
+   * Vertex id to the vertex's index in the arrays, shared by both sides and handed out as vertices are reached
+   */
+  private VertexSlots index;
+  private int count;
+  private VertexIfc[] vertices;
+
+  private double[] forwardDistance;
+  private double[] backwardDistance;
+
+  /**
+   * forwardVia[i] is the last edge on the path from the start to vertex i, backwardVia[i] the first edge on the path
+   * from vertex i to the target
+   */
+  private EdgeIfc[] forwardVia;
+  private EdgeIfc[] backwardVia;
+
+  private final IndexedMinHeap forward;
+  private final IndexedMinHeap backward;
+
+  private final EdgeCursor outgoing;
+  private final EdgeCursor incoming;
+
+  /**
+   * The shortest distance through a vertex reached by both sides so far, and that vertex
+   */
+  private double best;
+  private int meeting;
+
+  /**
+   * @param g - The graph to search, its edges are read through it
+   */
+  BidirectionalSearch (AbstractGraph g) {
+
+    graph = g;
+    vertices = new VertexIfc[INITIAL_CAPACITY];
+    forwardDistance = new double[INITIAL_CAPACITY];
+    backwardDistance = new double[INITIAL_CAPACITY];
+    forwardVia = new EdgeIfc[INITIAL_CAPACITY];
+    backwardVia = new EdgeIfc[INITIAL_CAPACITY];
+    forward = new IndexedMinHeap(INITIAL_CAPACITY);
+    backward = new IndexedMinHeap(INITIAL_CAPACITY);
+    outgoing = g.edgeCursor(true);
+    incoming = g.edgeCursor(false);
+  }
+
+  /**
+   * @param from - The vertex to start at
+   * @param to   - The vertex to find a path to
+   * @return The path, with the first edge on top of the stack, empty if from is to, null if there isn't a path
+   */
+  Stack<Edge> search (VertexIfc from, VertexIfc to) {
+
+    if (from == to) {
+      return new Stack<>();
+    }
+
+    index = graph.acquireSlots();
+    try {
+      int source = indexOf(from);
+      int target = indexOf(to);
+      forwardDistance[source] = 0d;
+      backwardDistance[target] = 0d;
+      forward.insertOrDecrease(source, 0d);
+      backward.insertOrDecrease(target, 0d);
+      best = Double.POSITIVE_INFINITY;
+      meeting = -1;
+
+      while (!forward.isEmpty() && !backward.isEmpty()) {
+        // Meeting criterion, nothing left on either frontier can lead to a shorter path
+        if (forward.peekKey() + backward.peekKey() >= best) {
+          break;
+        }
+
+        if (forward.peekKey() <= backward.peekKey()) {
+          expandForward(forward.poll());
+        } else {
+          expandBackward(backward.poll());
+        }
+      }
+
+      return (meeting >= 0) ? pathThrough(meeting) : null;
+    }
+    finally {
+      index.release();
+    }
+  }
+
+  private void expandForward (int evalIndex) {
+
+    double evalDistance = forwardDistance[evalIndex];
+    outgoing.start(vertices[evalIndex]);
+    while (outgoing.next()) {
+      int i = indexOf(outgoing);
+      double newDistance = evalDistance + outgoing.weight();
+      if (newDistance < forwardDistance[i]) {
+        forwardDistance[i] = newDistance;
+        forwardVia[i] = outgoing.edge();
+        forward.insertOrDecrease(i, newDistance);
+        meet(i);
+      }
+    }
+  }
+
+  private void expandBackward (int evalIndex) {
+
+    double evalDistance = backwardDistance[evalIndex];
+    incoming.start(vertices[evalIndex]);
+    while (incoming.next()) {
+      int i = indexOf(incoming);
+      double newDistance = evalDistance + incoming.weight();
+      if (newDistance < backwardDistance[i]) {
+        backwardDistance[i] = newDistance;
+        backwardVia[i] = incoming.edge();
+        backward.insertOrDecrease(i, newDistance);
+        meet(i);
+      }
+    }
+  }
+
+  /**
+   * Keeps the path through vertex i if it is the shortest seen so far
+   */
+  private void meet (int i) {
+
+    double through = forwardDistance[i] + backwardDistance[i];
+    if (through < best) {
+      best = through;
+      meeting = i;
+    }
+  }
+
+  /**
+   * @param v - A vertex either side has reached
+   * @return The index of v, a new one at infinite distance from both ends if v hasn't been reached before
+   */
+  private int indexOf (VertexIfc v) {
+
+    int i = index.get(v.getId());
+    if (i >= 0 && vertices[i] == v) {
+      return i;
+    }
+
+    return add(v.getId(), v);
+  }
+
+  /**
+   * @param edges - A cursor on an edge either side has followed
+   * @return The index of the vertex at the other end, a new one at infinite distance from both ends if it hasn't
+   *         been reached before
+   */
+  private int indexOf (EdgeCursor edges) {
+
+    int id = edges.otherId();
+    int i = index.get(id);
+    if (i >= 0 && edges.isOther(vertices[i])) {
+      return i;
+    }
+
+    return add(id, edges.other());
+  }
+
+  /**
+   * @return The index given to v, at infinite distance from both ends
+   */
+  private int add (int id, VertexIfc v) {
+
+    int next = count++;
+    if (next == vertices.length) {
+      int grown = 2 * next;
+      vertices = Arrays.copyOf(vertices, grown);
+      forwardDistance = Arrays.copyOf(forwardDistance, grown);
+      backwardDistance = Arrays.copyOf(backwardDistance, grown);
+      forwardVia = Arrays.copyOf(forwardVia, grown);
+      backwardVia = Arrays.copyOf(backwardVia, grown);
+      forward.ensureCapacity(grown);
+      backward.ensureCapacity(grown);
+    }
+    index.put(id, next);
+    vertices[next] = v;
+    forwardDistance[next] = Double.POSITIVE_INFINITY;
+    backwardDistance[next] = Double.POSITIVE_INFINITY;
+
+    return next;
+  }
+
+  /**
+   * @param i - The vertex where the two sides met
+   * @return The path from the start through vertex i to the target, with the first edge on top of the stack
+   */
+  private Stack<Edge> pathThrough (int i) {
+
+    // Edges from the meeting vertex toward the start, then from it toward the target
+    List<EdgeIfc> first = new ArrayList<>();
+    for (EdgeIfc e = forwardVia[i]; e != null; e = forwardVia[index.get(e.from().getId())]) {
+      first.add(e);
+    }
+    List<EdgeIfc> second = new ArrayList<>();
+    for (EdgeIfc e = backwardVia[i]; e != null; e = backwardVia[index.get(e.to().getId())]) {
+      second.add(e);
+    }
+
+    Stack<Edge> path = new Stack<>();
+    for (int j = second.size() - 1; j >= 0; j--) {
+      path.push(second.get(j));
+    }
+    for (EdgeIfc e : first) {
+      path.push(e);
+    }
+
+    return path;
+  }
+
+}
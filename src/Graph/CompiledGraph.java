@@ -0,0 +1,38 @@
+package Graph;
+
+public interface CompiledGraph {
+
+  /**
+   * @return The number of vertices in the compiled graph
+   */
+  public int getSize ();
+
+  /**
+   * Does a breadth first search to determine if all the vertices can be reached from the starting point
+   *
+   * @param startingPoint - The vertex at which to start the search, may be null. If null, just use the
+   *                      first compiled vertex
+   * @return True if all the vertices can be reached, false otherwise
+   */
+  public boolean isGraphConnected (Vertex startingPoint);
+
+  /**
+   * Does a breadth first search to determine if there is a path from the from vertex
+   * to the to vertex
+   *
+   * @param from - The vertex where the search will start
+   * @param to   - The destination vertex
+   * @return True if there is a path from "from" to "to"
+   */
+  public boolean areVerticesConnected (Vertex from, Vertex to);
+
+  /**
+   * Return an interface that can be used to get path information
+   * for the from vertex.
+   *
+   * @param from - The vertex to get path information for
+   * @return The interface to use to find distances and paths to other vertices
+   */
+  public ShortestPath getPathInformation (Vertex from);
+
+}
@@ -0,0 +1,338 @@
+package Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * Immutable compressed sparse row (CSR) copy of a graph. Vertices get dense ids 0 to n - 1, and the outgoing
+ * edges of vertex i are the slots offsets[i] to offsets[i + 1] - 1 of the targets, weights and edges arrays.
+ * Traversals only walk int arrays, the original edges are kept so paths can be reported with them.
+ */
+class CompiledGraphImpl implements CompiledGraph {
+
+  /**
+   * Compiled id to the vertex it was compiled from
+   */
+  private final VertexIfc[] vertices;
+
+  /**
+   * Graph vertex id to compiled id, -1 for the ids no vertex had when the graph was compiled
+   */
+  private final int[] ids;
+
+  /**
+   * Vertex name to compiled id, only worked out if a vertex that wasn't compiled is looked up
+   */
+  private volatile Map<String, Integer> names;
+
+  /**
+   * offsets[i] is the first edge slot of vertex i, offsets[n] is the number of edges
+   */
+  private final int[] offsets;
+
+  /**
+   * Compiled id of the ending vertex of each edge slot
+   */
+  private final int[] targets;
+
+  /**
+   * Weight of each edge slot at the time the graph was compiled
+   */
+  private final int[] weights;
+
+  /**
+   * The edge each slot was compiled from
+   */
+  private final EdgeIfc[] edges;
+
+  /**
+   * Compile the vertices, and their outgoing edges, into CSR form
+   *
+   * @param graph - The graph being compiled
+   */
+  CompiledGraphImpl (AbstractGraph graph) {
+
+    vertices = graph.vertexValues().toArray(new VertexIfc[0]);
+    int n = vertices.length;
+    int bound = graph.idBound();
+    for (VertexIfc v : vertices) {
+      bound = Math.max(bound, v.getId() + 1);
+    }
+    ids = new int[bound];
+    Arrays.fill(ids, -1);
+    offsets = new int[n + 1];
+
+    // Each vertex's edge list is read once, so a concurrent graph changing underneath can't make the passes disagree
+    List<List<EdgeIfc>> outgoing = new ArrayList<>(n);
+    int numEdges = 0;
+    for (int i = 0; i < n; i++) {
+      ids[vertices[i].getId()] = i;
+      List<EdgeIfc> edgeList = graph.outgoingEdges(vertices[i]);
+      outgoing.add(edgeList);
+      numEdges += edgeList.size();
+    }
+
+    int[] t = new int[numEdges];
+    int[] w = new int[numEdges];
+    EdgeIfc[] e = new EdgeIfc[numEdges];
+
+    int slot = 0;
+    for (int i = 0; i < n; i++) {
+      offsets[i] = slot;
+      for (EdgeIfc edge : outgoing.get(i)) {
+        int target = compiledId(edge.to());
+        // Skip edges to vertices added after the vertices were copied
+        if (target >= 0) {
+          t[slot] = target;
+          w[slot] = edge.getWeight();
+          e[slot] = edge;
+          slot++;
+        }
+      }
+    }
+    offsets[n] = slot;
+
+    targets = (slot == numEdges) ? t : Arrays.copyOf(t, slot);
+    weights = (slot == numEdges) ? w : Arrays.copyOf(w, slot);
+    edges = (slot == numEdges) ? e : Arrays.copyOf(e, slot);
+  }
+
+  /**
+   * @return The number of vertices in the compiled graph
+   */
+  @Override
+  public int getSize () {
+
+    return vertices.length;
+  }
+
+  /**
+   * Does a breadth first search to determine if all the vertices can be reached from the starting point
+   *
+   * @param startingPoint - The vertex at which to start the search, may be null. If null, just use the
+   *                      first compiled vertex
+   * @return True if all the vertices can be reached, false otherwise
+   */
+  @Override
+  public boolean isGraphConnected (Vertex startingPoint) {
+
+    int n = vertices.length;
+    if (n <= 1) {
+      return true;
+    }
+
+    int start = (startingPoint == null) ? 0 : idOf(startingPoint);
+    return start >= 0 && breadthFirstSearch(start, -1) == n;
+  }
+
+  /**
+   * Does a breadth first search to determine if there is a path from the from vertex
+   * to the to vertex
+   *
+   * @param from - The vertex where the search will start
+   * @param to   - The destination vertex
+   * @return True if there is a path from "from" to "to"
+   */
+  @Override
+  public boolean areVerticesConnected (Vertex from, Vertex to) {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    if (to == null) {
+      throw new IllegalArgumentException("to cannot be null");
+    }
+
+    int f = idOf(from);
+    int t = idOf(to);
+
+    return f >= 0 && t >= 0 && breadthFirstSearch(f, t) < 0;
+  }
+
+  /**
+   * Return an interface that can be used to get path information
+   * for the from vertex.
+   *
+   * @param from - The vertex to get path information for
+   * @return The interface to use to find distances and paths to other vertices
+   */
+  @Override
+  public ShortestPath getPathInformation (Vertex from) {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    int source = idOf(from);
+    if (source < 0) {
+      throw new IllegalArgumentException("from is not in graph");
+    }
+
+    int n = vertices.length;
+    double[] distance = new double[n];
+    int[] via = new int[n];
+    Arrays.fill(distance, Double.POSITIVE_INFINITY);
+    Arrays.fill(via, -1);
+
+    IndexedMinHeap heap = new IndexedMinHeap(n);
+    boolean[] settled = new boolean[n];
+    distance[source] = 0d;
+    heap.insertOrDecrease(source, 0d);
+
+    while (!heap.isEmpty()) {
+      int v = heap.poll();
+      settled[v] = true;
+      for (int slot = offsets[v], end = offsets[v + 1]; slot < end; slot++) {
+        int w = targets[slot];
+        double d = distance[v] + weights[slot];
+        if (!settled[w] && d < distance[w]) {
+          distance[w] = d;
+          via[w] = slot;
+          heap.insertOrDecrease(w, d);
+        }
+      }
+    }
+
+    return new CompiledPaths(distance, via);
+  }
+
+  /**
+   * @param v - The vertex to look up
+   * @return The compiled id of the vertex, -1 if it wasn't in the graph when it was compiled
+   */
+  private int idOf (Vertex v) {
+
+    int id = compiledId(v);
+    if (id >= 0) {
+      return id;
+    }
+
+    Map<String, Integer> map = names;
+    if (map == null) {
+      map = new HashMap<>(Math.max(16, (int) (vertices.length / .75f) + 1));
+      for (int i = 0; i < vertices.length; i++) {
+        map.put(vertices[i].getName(), i);
+      }
+      names = map;
+    }
+    Integer named = map.get(v.getName());
+
+    return (named != null) ? named : -1;
+  }
+
+  /**
+   * @param v - A vertex
+   * @return The compiled id of v, -1 if v itself wasn't compiled
+   */
+  private int compiledId (Vertex v) {
+
+    int id = v.getId();
+    int compiled = (id >= 0 && id < ids.length) ? ids[id] : -1;
+    return (compiled >= 0 && vertices[compiled] == v) ? compiled : -1;
+  }
+
+  /**
+   * Breadth first search from start over the CSR arrays, stopping early if target is reached.
+   *
+   * @param start  - The id to start the search at
+   * @param target - The id to stop at, -1 to search everything reachable
+   * @return -1 if target was reached, otherwise the number of vertices reached
+   */
+  private int breadthFirstSearch (int start, int target) {
+
+    if (start == target) {
+      return -1;
+    }
+
+    boolean[] visited = new boolean[vertices.length];
+    int[] queue = new int[vertices.length];
+    int head = 0;
+    int tail = 0;
+
+    queue[tail++] = start;
+    visited[start] = true;
+    while (head < tail) {
+      int v = queue[head++];
+      for (int slot = offsets[v], end = offsets[v + 1]; slot < end; slot++) {
+        int w = targets[slot];
+        if (!visited[w]) {
+          if (w == target) {
+            return -1;
+          }
+          visited[w] = true;
+          queue[tail++] = w;
+        }
+      }
+    }
+
+    return tail;
+  }
+
+  /**
+   * Shortest path tree computed over the compiled arrays
+   */
+  private class CompiledPaths implements ShortestPath {
+
+    private final double[] distance;
+
+    /**
+     * via[i] is the slot of the last edge on the path to vertex i, -1 for the source and unreachable vertices
+     */
+    private final int[] via;
+
+    CompiledPaths (double[] d, int[] v) {
+
+      distance = d;
+      via = v;
+    }
+
+    /**
+     * @param to - The destination vertex
+     * @return The distance between the vertices
+     */
+    @Override
+    public double distanceTo (Vertex to) {
+
+      int id = idOf(to);
+      return (id >= 0) ? distance[id] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param to - The destination vertex
+     * @return True if there is a path between the vertices, false otherwise
+     */
+    @Override
+    public boolean hasPathTo (Vertex to) {
+
+      return distanceTo(to) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param to - The destination vertex
+     * @return The path between the vertices
+     */
+    @Override
+    public Stack<Edge> pathTo (Vertex to) {
+
+      if (!hasPathTo(to)) {
+        return null;
+      }
+
+      Stack<Edge> path = new Stack<>();
+      int slot = via[idOf(to)];
+      while (slot >= 0) {
+        EdgeIfc e = edges[slot];
+        path.push(e);
+        slot = via[compiledId(e.from())];
+      }
+
+      return path;
+    }
+  }
+
+}
@@ -0,0 +1,24 @@
+package Graph;
+
+import java.util.List;
+
+public interface Components {
+
+  /**
+   * @return The number of components
+   */
+  public int getCount ();
+
+  /**
+   * @param v - The vertex to look up
+   * @return The id of the component the vertex is in, 0 to getCount() - 1, -1 if the vertex wasn't in the graph
+   */
+  public int getComponent (Vertex v);
+
+  /**
+   * @param component - The id of the component, 0 to getCount() - 1
+   * @return The vertices in the component
+   */
+  public List<Vertex> getVertices (int component);
+
+}
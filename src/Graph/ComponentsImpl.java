@@ -0,0 +1,197 @@
+package Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The components of a graph as it was when they were worked out
+ */
+class ComponentsImpl implements Components {
+
+  /**
+   * Vertex name to the id of its component
+   */
+  private final Map<String, Integer> components;
+
+  private final List<List<Vertex>> members;
+
+  /**
+   * @param vertices  - The vertices of the graph
+   * @param component - component[i] is the id of the component of vertices[i]
+   * @param count     - The number of components
+   */
+  ComponentsImpl (VertexIfc[] vertices, int[] component, int count) {
+
+    components = new HashMap<>(Math.max(16, (int) (vertices.length / .75f) + 1));
+    List<List<Vertex>> lists = new ArrayList<>(count);
+    for (int c = 0; c < count; c++) {
+      lists.add(new ArrayList<Vertex>());
+    }
+    for (int i = 0; i < vertices.length; i++) {
+      components.put(vertices[i].getName(), component[i]);
+      lists.get(component[i]).add(vertices[i]);
+    }
+    for (int c = 0; c < count; c++) {
+      lists.set(c, Collections.unmodifiableList(lists.get(c)));
+    }
+    members = lists;
+  }
+
+  /**
+   * Finds the strongly connected components with Tarjan's algorithm. The depth first search keeps its own stack of
+   * vertices and edge iterators, so long paths can't overflow the thread's stack.
+   *
+   * @param graph - The graph, its edges are read through it
+   * @return The strongly connected components, numbered in reverse topological order
+   */
+  static Components stronglyConnected (AbstractGraph graph) {
+
+    VertexIfc[] vertices = graph.vertexValues().toArray(new VertexIfc[0]);
+    int n = vertices.length;
+    int bound = graph.idBound();
+    for (VertexIfc v : vertices) {
+      bound = Math.max(bound, v.getId() + 1);
+    }
+
+    // Vertex id to the vertex's index in the search
+    int[] ids = new int[bound];
+    Arrays.fill(ids, -1);
+    for (int i = 0; i < n; i++) {
+      ids[vertices[i].getId()] = i;
+    }
+
+    // index[v] is the order v was reached in, low[v] the smallest index v's subtree reaches that is still open
+    int[] index = new int[n];
+    int[] low = new int[n];
+    int[] component = new int[n];
+    boolean[] open = new boolean[n];
+    Arrays.fill(index, -1);
+    int[] stack = new int[n];
+    int stackSize = 0;
+    int[] path = new int[n];
+    List<Iterator<EdgeIfc>> edges = new ArrayList<>();
+    int reached = 0;
+    int count = 0;
+
+    for (int root = 0; root < n; root++) {
+      if (index[root] >= 0) {
+        continue;
+      }
+
+      int depth = 0;
+      path[0] = root;
+      setAt(edges, 0, graph.outgoingEdges(vertices[root]).iterator());
+      index[root] = low[root] = reached++;
+      stack[stackSize++] = root;
+      open[root] = true;
+
+      while (depth >= 0) {
+        int v = path[depth];
+        Iterator<EdgeIfc> it = edges.get(depth);
+        boolean descended = false;
+        while (it.hasNext()) {
+          // Edges to vertices added after the search started are left out
+          VertexIfc to = it.next().to();
+          int id = to.getId();
+          int w = (id < bound) ? ids[id] : -1;
+          if (w < 0 || vertices[w] != to) {
+            continue;
+          }
+
+          if (index[w] < 0) {
+            depth++;
+            path[depth] = w;
+            setAt(edges, depth, graph.outgoingEdges(vertices[w]).iterator());
+            index[w] = low[w] = reached++;
+            stack[stackSize++] = w;
+            open[w] = true;
+            descended = true;
+            break;
+          }
+
+          if (open[w]) {
+            low[v] = Math.min(low[v], index[w]);
+          }
+        }
+        if (descended) {
+          continue;
+        }
+
+        // All of v's edges are done, if nothing below v reached above it v is the root of a component
+        if (low[v] == index[v]) {
+          int w;
+          do {
+            w = stack[--stackSize];
+            open[w] = false;
+            component[w] = count;
+          } while (w != v);
+          count++;
+        }
+
+        edges.set(depth, null);
+        depth--;
+        if (depth >= 0) {
+          low[path[depth]] = Math.min(low[path[depth]], low[v]);
+        }
+      }
+    }
+
+    return new ComponentsImpl(vertices, component, count);
+  }
+
+  /**
+   * Sets the iterator at depth, growing the list by one if the search is deeper than it has been before
+   */
+  private static void setAt (List<Iterator<EdgeIfc>> edges, int depth, Iterator<EdgeIfc> it) {
+
+    if (depth < edges.size()) {
+      edges.set(depth, it);
+    } else {
+      edges.add(it);
+    }
+  }
+
+  /**
+   * @return The number of components
+   */
+  @Override
+  public int getCount () {
+
+    return members.size();
+  }
+
+  /**
+   * @param v - The vertex to look up
+   * @return The id of the component the vertex is in, -1 if the vertex wasn't in the graph
+   */
+  @Override
+  public int getComponent (Vertex v) {
+
+    if (v == null) {
+      throw new IllegalArgumentException("v cannot be null");
+    }
+
+    Integer c = components.get(v.getName());
+    return (c != null) ? c : -1;
+  }
+
+  /**
+   * @param component - The id of the component
+   * @return The vertices in the component
+   */
+  @Override
+  public List<Vertex> getVertices (int component) {
+
+    if (component < 0 || component >= members.size()) {
+      throw new IllegalArgumentException("component is out of range");
+    }
+
+    return members.get(component);
+  }
+
+}
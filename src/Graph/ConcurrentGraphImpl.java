@@ -0,0 +1,608 @@
+package Graph;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Graph that many threads can change and query at the same time. Vertices are kept in a concurrent map, and
+ * each vertex name hashes to one of a fixed set of lock stripes. Adding or removing an edge holds the stripes of
+ * both its vertices, and removing a vertex holds the stripes of it and all its neighbours, so every change is
+ * atomic. Queries read the immutable adjacency lists of ConcurrentVertexImpl without taking any locks. The events
+ * of a change are delivered to the listeners once its locks are let go, so a listener may call back into the graph.
+ * Graphs are compared by identity.
+ */
+class ConcurrentGraphImpl extends AbstractGraph implements GraphObserver {
+
+  /**
+   * Map<String, Vertex> of graph vertices
+   */
+  private final ConcurrentMap<String, VertexIfc> vertices;
+
+  /**
+   * Set<Edge> of edges in the graph
+   */
+  private final Set<EdgeIfc> edges;
+
+  /**
+   * Locks for the vertex names, a name always maps to the same stripe
+   */
+  private final ReentrantLock[] stripes;
+
+  /**
+   * Grid index over the vertex locations, which isn't thread safe itself
+   */
+  private final SpatialIndex spatialIndex;
+
+  private final ReadWriteLock spatialLock;
+
+  /**
+   * State saved for the snapshots taken of this graph
+   */
+  private final SnapshotLog snapshots;
+
+  /**
+   * The vertex ids, and the vertex that has each one
+   */
+  private final VertexIds ids;
+
+  /**
+   * Construct a new graph without any vertices or edges
+   */
+  ConcurrentGraphImpl () {
+
+    vertices = new ConcurrentHashMap<>();
+    edges = Collections.newSetFromMap(new ConcurrentHashMap<EdgeIfc, Boolean>());
+    spatialIndex = new SpatialIndex();
+    spatialLock = new ReentrantReadWriteLock();
+    snapshots = new SnapshotLog();
+    ids = new VertexIds(snapshots, 0);
+
+    // A power of two, with plenty of stripes per core so unrelated edges rarely share a lock
+    int numStripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 16) - 1) << 1;
+    stripes = new ReentrantLock[numStripes];
+    for (int i = 0; i < numStripes; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * @param location - The location to determine if a vertex resides at
+   * @return The vertex at the location, null if there isn't a vertex at that location
+   */
+  @Override
+  public Vertex getVertexAtLocation (Point location) {
+
+    if (location == null) {
+      return null;
+    }
+
+    spatialLock.readLock().lock();
+    try {
+      return spatialIndex.at(location);
+    }
+    finally {
+      spatialLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param area - The area to look in, the edges of the area are included
+   * @return The vertices whose location is inside the area
+   */
+  @Override
+  public List<Vertex> getVerticesInArea (Rectangle area) {
+
+    if (area == null) {
+      return new ArrayList<Vertex>();
+    }
+
+    spatialLock.readLock().lock();
+    try {
+      return spatialIndex.within(area);
+    }
+    finally {
+      spatialLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param location - The location to measure from
+   * @param k        - The number of vertices wanted
+   * @return Up to k of the vertices closest to the location, closest first
+   */
+  @Override
+  public List<Vertex> getNearestVertices (Point location, int k) {
+
+    if (location == null) {
+      return new ArrayList<Vertex>();
+    }
+
+    spatialLock.readLock().lock();
+    try {
+      return spatialIndex.nearest(location, k);
+    }
+    finally {
+      spatialLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a vertex to the graph, if the given name is valid, and a vertex with that name isn't present in the graph
+   *
+   * @param name     - The name for the new vertex
+   * @param location - The location of the new vertex
+   * @param data     - The data for the vertex
+   * @return True if the vertex is added to the graph, false if it already existed or there was an problem
+   * @throws IllegalArgumentException If the name is null or empty
+   */
+  @Override
+  public boolean addVertex (String name, Point location, String data) throws IllegalArgumentException {
+
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Vertex name cannot be empty");
+    }
+
+    ReentrantLock lock = stripe(name);
+    holdEvents();
+    lock.lock();
+    try {
+      if (vertices.containsKey(name)) {
+        return false;
+      }
+
+      VertexIfc v = GraphFactory.createConcurrentVertex(name, location, data);
+      v.setObserver(this);
+      snapshots.record(name, null);
+      ids.assign(v);
+      vertices.put(name, v);
+      spatialLock.writeLock().lock();
+      try {
+        spatialIndex.add(v);
+      }
+      finally {
+        spatialLock.writeLock().unlock();
+      }
+      modified();
+      vertexAdded(v);
+      return true;
+    }
+    finally {
+      lock.unlock();
+      releaseEvents();
+    }
+  }
+
+  /**
+   * Removes the vertex from the graph, and removes all the edges adjacent to the vertex. The stripes of the vertex
+   * and all its neighbours are held while it is removed, so the vertex and its edges go in one atomic step.
+   *
+   * @param name - The name of the vertex to remove
+   * @return True if the edge was removed, false if it doesn't exist or there was a problem
+   */
+  @Override
+  public boolean removeVertex (String name) throws IllegalArgumentException {
+
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Vertex name cannot be empty");
+    }
+
+    while (true) {
+      VertexIfc v = vertices.get(name);
+      if (v == null) {
+        return false;
+      }
+
+      BitSet locked = neighbourStripes(v);
+      holdEvents();
+      lockAll(locked);
+      try {
+        // Retry if the vertex was replaced, or got a neighbour on a stripe that isn't held, before the locks were taken
+        if (vertices.get(name) != v || !containsAll(locked, neighbourStripes(v))) {
+          continue;
+        }
+
+        snapshots.recordWithNeighbours(v);
+        vertices.remove(name);
+        // The components must be dropped before the id can go to another vertex
+        connectionsRemoved();
+        ids.release(v);
+        v.setObserver(null);
+        spatialLock.writeLock().lock();
+        try {
+          spatialIndex.remove(v);
+        }
+        finally {
+          spatialLock.writeLock().unlock();
+        }
+
+        // Remove the edges associated with v, a self loop is in both lists but only leaves the graph once
+        List<EdgeIfc> adjacent = listening() ? new ArrayList<EdgeIfc>() : null;
+        for (EdgeIfc e : v.outgoingEdges()) {
+          e.to().removeEdge(e);
+          v.removeEdge(e);
+          if (edges.remove(e) && adjacent != null) {
+            adjacent.add(e);
+          }
+          e.setObserver(null);
+        }
+        for (EdgeIfc e : v.incomingEdges()) {
+          e.from().removeEdge(e);
+          v.removeEdge(e);
+          if (edges.remove(e) && adjacent != null) {
+            adjacent.add(e);
+          }
+          e.setObserver(null);
+        }
+        modified();
+        connectionsRemoved();
+        if (adjacent != null) {
+          for (EdgeIfc e : adjacent) {
+            edgeRemoved(e);
+          }
+        }
+        vertexRemoved(v);
+
+        return v.outgoingEdges().isEmpty() && v.incomingEdges().isEmpty();
+      }
+      finally {
+        unlockAll(locked);
+        releaseEvents();
+      }
+    }
+  }
+
+  /**
+   * Removes all the vertices and edges from the graph
+   */
+  @Override
+  public void clear () {
+
+    for (String name : vertices.keySet()) {
+      removeVertex(name);
+    }
+  }
+
+  /**
+   * Insert a directed, weighted Edge into the graph. A bidirectional edge adds both directions atomically.
+   *
+   * @param from     - The Edge starting vertex
+   * @param to       - The Edge ending vertex
+   * @param label    - The Edge label
+   * @param weight   - The Edge weight
+   * @param directed - True if the edge has a direction, false if it is bidirectional
+   * @return true if the Edge was added, false if from already has this Edge
+   * @throws IllegalArgumentException If from/to are not vertices in the graph
+   */
+  @Override
+  public boolean addEdge (Vertex from, Vertex to, String label, int weight, boolean directed)
+      throws IllegalArgumentException {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    if (to == null) {
+      throw new IllegalArgumentException("to cannot be null");
+    }
+
+    String fromName = from.getName();
+    String toName = to.getName();
+    holdEvents();
+    lockPair(fromName, toName);
+    try {
+      VertexIfc actualFrom = resolve(from);
+      VertexIfc actualTo = resolve(to);
+
+      if (actualFrom == null) {
+        throw new IllegalArgumentException("from is not in graph");
+      }
+
+      if (actualTo == null) {
+        throw new IllegalArgumentException("to is not in graph");
+      }
+
+      boolean added = addDirectedEdge(actualFrom, actualTo, label, weight, directed);
+
+      if (!directed) {
+        added = added && addDirectedEdge(actualTo, actualFrom, label, weight, directed);
+      }
+
+      return added;
+    }
+    finally {
+      unlockPair(fromName, toName);
+      releaseEvents();
+    }
+  }
+
+  /**
+   * Remove an Edge from the graph. A bidirectional edge removes both directions atomically.
+   *
+   * @param from - The Edge starting vertex
+   * @param to   -The Edge ending vertex
+   * @return true if the Edge exists, false otherwise
+   */
+  @Override
+  public boolean removeEdge (Vertex from, Vertex to) throws IllegalArgumentException {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    if (to == null) {
+      throw new IllegalArgumentException("to cannot be null");
+    }
+
+    String fromName = from.getName();
+    String toName = to.getName();
+    holdEvents();
+    lockPair(fromName, toName);
+    try {
+      VertexIfc actualFrom = resolve(from);
+      VertexIfc actualTo = resolve(to);
+      if (actualFrom == null || actualTo == null) {
+        return false;
+      }
+
+      boolean removed = false;
+      EdgeIfc e = actualFrom.find(actualTo);
+      if (e != null) {
+        snapshots.record(actualFrom);
+        snapshots.record(actualTo);
+        actualFrom.removeEdge(e);
+        if (actualTo != actualFrom) {
+          actualTo.removeEdge(e);
+        }
+        removed = edges.remove(e);
+        e.setObserver(null);
+
+        EdgeIfc reverse = null;
+        if (!e.getDirected()) {
+          reverse = actualTo.find(actualFrom);
+          if (reverse != null) {
+            actualFrom.removeEdge(reverse);
+            actualTo.removeEdge(reverse);
+            removed = removed && edges.remove(reverse);
+            reverse.setObserver(null);
+          }
+        }
+        modified();
+        connectionsRemoved();
+        edgeRemoved(e);
+        if (reverse != null) {
+          edgeRemoved(reverse);
+        }
+      }
+
+      return removed;
+    }
+    finally {
+      unlockPair(fromName, toName);
+      releaseEvents();
+    }
+  }
+
+  /**
+   * Takes a read only view of the graph as it is now. All the stripes are held for a moment so that no change is
+   * half made when the snapshot starts, which costs the same whatever the size of the graph.
+   *
+   * @return The snapshot
+   */
+  @Override
+  public Graph snapshot () {
+
+    BitSet all = new BitSet(stripes.length);
+    all.set(0, stripes.length);
+    lockAll(all);
+    try {
+      return new GraphSnapshot(this, snapshots.freeze());
+    }
+    finally {
+      unlockAll(all);
+    }
+  }
+
+  /**
+   * Keeps the spatial index up to date when a vertex in the graph is moved
+   *
+   * @param v           - The vertex that moved
+   * @param oldLocation - The location of the vertex before it moved, may be null
+   */
+  @Override
+  public void locationChanged (VertexIfc v, Point oldLocation) {
+
+    holdEvents();
+    spatialLock.writeLock().lock();
+    try {
+      // The vertex may have been removed after it read its observer
+      if (vertices.get(v.getName()) == v) {
+        spatialIndex.move(v);
+        moved(v, oldLocation);
+      }
+    }
+    finally {
+      spatialLock.writeLock().unlock();
+      releaseEvents();
+    }
+  }
+
+  /**
+   * Drops the cached path information and tells the listeners when an edge in the graph changes weight
+   *
+   * @param e         - The edge whose weight changed
+   * @param oldWeight - The weight of the edge before it changed
+   */
+  @Override
+  public void weightChanged (EdgeIfc e, int oldWeight) {
+
+    reweighted(e, oldWeight);
+  }
+
+  /**
+   * Used internally to get the edges in the graph
+   *
+   * @return The set of the edges in the graph
+   */
+  @Override
+  public Set<EdgeIfc> edges () {
+
+    return edges;
+  }
+
+  /**
+   * @param name - The name of the vertex to retrieve
+   * @return The vertex with the matching name, null if the vertex isn't in the graph
+   */
+  @Override
+  VertexIfc findVertex (String name) {
+
+    return (name != null && !name.isEmpty()) ? vertices.get(name) : null;
+  }
+
+  /**
+   * @param id - A vertex id
+   * @return The vertex in the graph with the id, null if there isn't one
+   */
+  @Override
+  VertexIfc vertexAt (int id) {
+
+    return ids.get(id);
+  }
+
+  /**
+   * @return One more than the highest vertex id in the graph
+   */
+  @Override
+  int idBound () {
+
+    return ids.bound();
+  }
+
+  /**
+   * @return The vertices in the graph, a weakly consistent live view that the caller must not change
+   */
+  @Override
+  Collection<VertexIfc> vertexValues () {
+
+    return vertices.values();
+  }
+
+  /**
+   * Adds a directed edge between two vertices in the graph. The caller holds the stripes of both vertices.
+   *
+   * @param from     - The Edge starting vertex
+   * @param to       - The Edge ending vertex
+   * @param label    - The Edge label
+   * @param weight   - The Edge weight
+   * @param directed - True if the edge has a direction, false if it is bidirectional
+   * @return True if the edge was added to the vertices and the graph
+   */
+  private boolean addDirectedEdge (VertexIfc from, VertexIfc to, String label, int weight, boolean directed) {
+
+    if (from.hasEdge(to)) {
+      return false;
+    }
+
+    EdgeIfc e = GraphFactory.createEdge(from, to, label, weight, directed);
+    snapshots.record(from);
+    snapshots.record(to);
+    from.addEdge(e);
+    if (to != from) {
+      to.addEdge(e);
+    }
+    edges.add(e);
+    e.setObserver(this);
+    modified();
+    edgeAdded(e);
+    return true;
+  }
+
+  /**
+   * @param v - A vertex
+   * @return The stripes of the vertex and of the vertices at the other end of its edges
+   */
+  private BitSet neighbourStripes (VertexIfc v) {
+
+    BitSet indexes = new BitSet(stripes.length);
+    indexes.set(stripeIndex(v.getName()));
+    for (EdgeIfc e : v.outgoingEdges()) {
+      indexes.set(stripeIndex(e.to().getName()));
+    }
+    for (EdgeIfc e : v.incomingEdges()) {
+      indexes.set(stripeIndex(e.from().getName()));
+    }
+
+    return indexes;
+  }
+
+  private static boolean containsAll (BitSet set, BitSet subset) {
+
+    BitSet extra = (BitSet) subset.clone();
+    extra.andNot(set);
+    return extra.isEmpty();
+  }
+
+  /**
+   * Locks the stripes in ascending order, the same order lockPair uses
+   */
+  private void lockAll (BitSet indexes) {
+
+    for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+      stripes[i].lock();
+    }
+  }
+
+  private void unlockAll (BitSet indexes) {
+
+    for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+      stripes[i].unlock();
+    }
+  }
+
+  /**
+   * @param name - A vertex name
+   * @return The lock stripe the name hashes to
+   */
+  private ReentrantLock stripe (String name) {
+
+    return stripes[stripeIndex(name)];
+  }
+
+  private int stripeIndex (String name) {
+
+    // Spread the high bits down, as HashMap does, since only the low bits pick the stripe
+    int h = name.hashCode();
+    h ^= (h >>> 16);
+    return h & (stripes.length - 1);
+  }
+
+  /**
+   * Locks the stripes of both names, always in ascending order so two threads can't deadlock
+   */
+  private void lockPair (String a, String b) {
+
+    int i = stripeIndex(a);
+    int j = stripeIndex(b);
+    stripes[Math.min(i, j)].lock();
+    if (i != j) {
+      stripes[Math.max(i, j)].lock();
+    }
+  }
+
+  private void unlockPair (String a, String b) {
+
+    int i = stripeIndex(a);
+    int j = stripeIndex(b);
+    if (i != j) {
+      stripes[Math.max(i, j)].unlock();
+    }
+    stripes[Math.min(i, j)].unlock();
+  }
+
+}
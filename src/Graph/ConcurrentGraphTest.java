@@ -0,0 +1,379 @@
+package Graph;
+
+import junit.framework.Assert;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs all the graph tests against the concurrent graph, then checks that it stays consistent when many
+ * threads change and query it at once.
+ */
+public class ConcurrentGraphTest extends GraphTest {
+
+  private static final int NUM_THREADS = 8;
+
+  @Override
+  GraphIfc createGraph () {
+
+    return new ConcurrentGraphImpl();
+  }
+
+  public void testConcurrentAddEdge () throws Exception {
+
+    final GraphIfc g = createGraph();
+    final int n = 100;
+    for (int i = 0; i < n; i++) {
+      assertTrue(g.addVertex("V" + i, new Point(i, i), ""));
+    }
+
+    // Every thread tries to add the same edges, each edge must be added exactly once
+    final AtomicInteger added = new AtomicInteger();
+    Thread[] threads = new Thread[NUM_THREADS];
+    for (int t = 0; t < threads.length; t++) {
+      final int seed = t;
+      threads[t] = new Thread() {
+
+        public void run () {
+
+          Random random = new Random(seed);
+          for (int i = 0; i < n * n; i++) {
+            int j = (i * 31 + random.nextInt(n)) % (n * n);
+            Vertex from = g.getVertex("V" + (j / n));
+            Vertex to = g.getVertex("V" + (j % n));
+            if (from != to && g.addEdge(from, to, "", j, true)) {
+              added.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(added.get(), g.getEdges().size());
+    assertConsistent(g);
+  }
+
+  public void testConcurrentChangesAndQueries () throws Exception {
+
+    final GraphIfc g = createGraph();
+    final int n = 50;
+    for (int i = 0; i < n; i++) {
+      assertTrue(g.addVertex("V" + i, new Point(i * 10, i), ""));
+    }
+
+    final AtomicInteger failures = new AtomicInteger();
+    Thread[] threads = new Thread[NUM_THREADS];
+    for (int t = 0; t < threads.length; t++) {
+      final boolean writer = (t % 2) == 0;
+      final int seed = t;
+      threads[t] = new Thread() {
+
+        public void run () {
+
+          Random random = new Random(seed);
+          try {
+            for (int i = 0; i < 2000; i++) {
+              Vertex from = g.getVertex("V" + random.nextInt(n));
+              Vertex to = g.getVertex("V" + random.nextInt(n));
+              if (writer) {
+                if (random.nextBoolean()) {
+                  g.addEdge(from, to, "", 1 + random.nextInt(10), random.nextBoolean());
+                } else {
+                  g.removeEdge(from, to);
+                }
+              } else {
+                ShortestPath sp = g.getPathInformation(from);
+                if (sp.hasPathTo(to) && sp.pathTo(to).size() > n) {
+                  failures.incrementAndGet();
+                }
+                g.areVerticesConnected(from, to);
+                g.isGraphConnected(from);
+                if (i % 100 == 0) {
+                  g.compile().getPathInformation(from);
+                }
+              }
+            }
+          }
+          catch (RuntimeException e) {
+            failures.incrementAndGet();
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(0, failures.get());
+    assertConsistent(g);
+  }
+
+  public void testRemoveVertexWhileAddingEdges () throws Exception {
+
+    final GraphIfc g = createGraph();
+    final int n = 20;
+    for (int i = 0; i < n; i++) {
+      assertTrue(g.addVertex("V" + i, new Point(i, i), ""));
+    }
+
+    final AtomicInteger failures = new AtomicInteger();
+    Thread adder = new Thread() {
+
+      public void run () {
+
+        for (int i = 0; i < 5000; i++) {
+          Vertex hub = g.getVertex("V0");
+          Vertex other = g.getVertex("V" + (1 + i % (n - 1)));
+          try {
+            if (hub != null) {
+              g.addEdge(hub, other, "", 1, false);
+            }
+          }
+          catch (IllegalArgumentException e) {
+            // The hub was removed after it was looked up
+          }
+        }
+      }
+    };
+
+    Thread remover = new Thread() {
+
+      public void run () {
+
+        for (int i = 0; i < 500; i++) {
+          g.removeVertex("V0");
+          if (!g.addVertex("V0", new Point(0, 0), "")) {
+            failures.incrementAndGet();
+          }
+        }
+      }
+    };
+
+    adder.start();
+    remover.start();
+    adder.join();
+    remover.join();
+
+    Assert.assertEquals(0, failures.get());
+    assertConsistent(g);
+    Assert.assertEquals(n, g.getVerticesInArea(new Rectangle(0, 0, n, n)).size());
+  }
+
+  public void testSnapshotsWhileChanging () throws Exception {
+
+    final GraphIfc g = createGraph();
+    final int n = 50;
+    for (int i = 0; i < n; i++) {
+      assertTrue(g.addVertex("V" + i, new Point(i, i), ""));
+    }
+
+    final AtomicInteger failures = new AtomicInteger();
+    final AtomicBoolean done = new AtomicBoolean();
+    Thread writer = new Thread() {
+
+      public void run () {
+
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+          String name = "V" + random.nextInt(n);
+          if (i % 50 == 0) {
+            g.removeVertex(name);
+            g.addVertex(name, new Point(i, i), "");
+          } else {
+            Vertex from = g.getVertex(name);
+            Vertex to = g.getVertex("V" + random.nextInt(n));
+            try {
+              if (random.nextBoolean()) {
+                g.addEdge(from, to, "", 1, random.nextBoolean());
+              } else if (from != null && to != null) {
+                g.removeEdge(from, to);
+              }
+            }
+            catch (IllegalArgumentException e) {
+              // A vertex was looked up just before it was removed
+            }
+          }
+        }
+        done.set(true);
+      }
+    };
+
+    Thread reader = new Thread() {
+
+      public void run () {
+
+        while (!done.get()) {
+          // Each snapshot must be a graph that really existed: every edge it sees joins vertices it sees
+          GraphIfc snapshot = (GraphIfc) g.snapshot();
+          int numEdges = 0;
+          for (Vertex v : snapshot.getVertices()) {
+            for (EdgeIfc e : snapshot.outgoingEdges((VertexIfc) v)) {
+              if (snapshot.getVertex(e.to().getName()) != e.to() || !snapshot.incomingEdges(e.to()).contains(e)) {
+                failures.incrementAndGet();
+              }
+              numEdges++;
+            }
+          }
+          if (numEdges != snapshot.getEdges().size() || snapshot.getSize() != snapshot.getVertices().size()) {
+            failures.incrementAndGet();
+          }
+          snapshot.isGraphConnected(null);
+        }
+      }
+    };
+
+    writer.start();
+    reader.start();
+    writer.join();
+    reader.join();
+
+    Assert.assertEquals(0, failures.get());
+    assertConsistent(g);
+  }
+
+  public void testConcurrentSetWeight () throws Exception {
+
+    final GraphIfc g = createGraph();
+    assertTrue(g.addVertex("A", null, ""));
+    assertTrue(g.addVertex("B", null, ""));
+    assertTrue(g.addEdge(g.getVertex("A"), g.getVertex("B"), "", 1, true));
+    final Edge edge = g.getVertex("A").findEdge(g.getVertex("B"));
+
+    final List<Integer> replaced = new ArrayList<>();
+    g.addGraphListener(new GraphListener() {
+
+      @Override
+      public void graphChanged (List<GraphEvent> events) {
+
+        for (GraphEvent event : events) {
+          replaced.add(event.getOldWeight());
+        }
+      }
+    });
+
+    // Every weight set is different, so each one is replaced exactly once, by the next set or not at all
+    final int n = 2000;
+    Thread[] threads = new Thread[NUM_THREADS];
+    for (int t = 0; t < threads.length; t++) {
+      final int id = t;
+      threads[t] = new Thread() {
+
+        public void run () {
+
+          for (int i = 0; i < n; i++) {
+            edge.setWeight(2 + id * n + i);
+            Thread.yield();
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Set<Integer> weights = new HashSet<>(replaced);
+    Assert.assertEquals(replaced.size(), weights.size());
+    assertTrue(weights.add(edge.getWeight()));
+    Assert.assertEquals(NUM_THREADS * n + 1, weights.size());
+  }
+
+  public void testListenerCallsBackIntoGraph () throws Exception {
+
+    final GraphIfc g = createGraph();
+    final int n = 200;
+    final AtomicInteger delivered = new AtomicInteger();
+    g.addGraphListener(new GraphListener() {
+
+      @Override
+      public void graphChanged (List<GraphEvent> events) {
+
+        // Needs every stripe, so it can only run once the writer has let go of its own
+        g.snapshot();
+        g.getVertexAtLocation(new Point(0, 0));
+        delivered.addAndGet(events.size());
+      }
+    });
+
+    final AtomicInteger failures = new AtomicInteger();
+    Thread[] threads = new Thread[NUM_THREADS];
+    for (int t = 0; t < threads.length; t++) {
+      final int id = t;
+      threads[t] = new Thread() {
+
+        public void run () {
+
+          try {
+            Vertex last = null;
+            for (int i = 0; i < n; i++) {
+              String name = "V" + id + "_" + i;
+              g.addVertex(name, new Point(id, i), "");
+              Vertex v = g.getVertex(name);
+              if (last != null) {
+                g.addEdge(last, v, "", i, true);
+              }
+              v.setLocation(new Point(-id, -i));
+              last = v;
+            }
+            g.removeVertex(last.getName());
+          }
+          catch (RuntimeException e) {
+            failures.incrementAndGet();
+          }
+        }
+      };
+      threads[t].setDaemon(true);
+      threads[t].start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join(20000);
+      assertFalse("A writer is stuck delivering to the listener", thread.isAlive());
+    }
+
+    Assert.assertEquals(0, failures.get());
+    // Each writer added n vertices, n - 1 edges and n moves, then removed a vertex and its one edge
+    Assert.assertEquals(NUM_THREADS * (3 * n - 1 + 2), delivered.get());
+    assertConsistent(g);
+  }
+
+  /**
+   * Checks that the edges of the graph and the edge lists of its vertices agree, and that no edge
+   * leads to a vertex that isn't in the graph
+   */
+  private static void assertConsistent (GraphIfc g) {
+
+    int numEdges = 0;
+    for (Vertex v : g.getVertices()) {
+      VertexIfc vertex = (VertexIfc) v;
+      for (EdgeIfc e : vertex.outgoingEdges()) {
+        assertSame(vertex, e.from());
+        assertSame(e.to(), g.getVertex(e.to().getName()));
+        assertTrue(e.to().incomingEdges().contains(e));
+        assertTrue(g.edges().contains(e));
+        numEdges++;
+      }
+      for (EdgeIfc e : vertex.incomingEdges()) {
+        assertSame(e.from(), g.getVertex(e.from().getName()));
+        assertTrue(e.from().outgoingEdges().contains(e));
+      }
+    }
+
+    Assert.assertEquals(numEdges, g.getEdges().size());
+  }
+
+}
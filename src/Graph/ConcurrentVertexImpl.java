@@ -0,0 +1,320 @@
+package Graph;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Vertex for the concurrent graph. The edge lists are immutable and replaced as a whole when an edge is
+ * added or removed, so they can be read and iterated by any number of threads without locking. Changes to
+ * the edges are made by the graph while it holds the lock for this vertex. Vertices are compared by identity.
+ */
+class ConcurrentVertexImpl implements VertexIfc {
+
+  private volatile ImmutableEdgeList incomingEdges;
+
+  private volatile ImmutableEdgeList outgoingEdges;
+
+  /**
+   * Ending vertex to the outgoing edge that goes to it
+   */
+  private final ConcurrentMap<Vertex, EdgeIfc> outgoingIndex;
+
+  private final String name;
+
+  private volatile Point location;
+
+  private volatile String data;
+
+  /**
+   * Set once, before the vertex is published to other threads
+   */
+  private int id = -1;
+
+  private volatile GraphObserver observer;
+
+  /**
+   * Create a Vertex with name n, location l, and given data
+   *
+   * @param n - name of vertex
+   * @param l - location of vertex
+   * @param d - data associated with vertex
+   */
+  ConcurrentVertexImpl (String n, Point l, String d) {
+
+    incomingEdges = ImmutableEdgeList.EMPTY;
+    outgoingEdges = ImmutableEdgeList.EMPTY;
+    outgoingIndex = new ConcurrentHashMap<>();
+    name = n;
+    location = l;
+    data = d;
+  }
+
+  /**
+   * @return a string form of the vertex with in and out edges.
+   */
+  @Override
+  public String toString () {
+
+    StringBuffer tmp = new StringBuffer("Graph.Vertex ");
+    tmp.append(toJSONString());
+    return tmp.toString();
+  }
+
+  /**
+   * @return A string containing the JSON representation of this vertex
+   */
+  @Override
+  public String toJSONString () {
+
+    StringWriter out = new StringWriter();
+    try {
+      writeJSONString(out);
+    }
+    catch (IOException e) {
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes the JSON representation of this vertex, including its edges, straight to the writer
+   *
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
+   */
+  @Override
+  public void writeJSONString (Writer out) throws IOException {
+
+    VertexImpl.writeJSON(this, out);
+  }
+
+  /**
+   * @return The name of the vertex, should never be null
+   */
+  @Override
+  public String getName () {
+
+    return name;
+  }
+
+  /**
+   * @return The id the graph gave this vertex when it was added, -1 if it was never in a graph
+   */
+  @Override
+  public int getId () {
+
+    return id;
+  }
+
+  /**
+   * @return The location of this vertex on the graph
+   */
+  @Override
+  public Point getLocation () {
+
+    return location;
+  }
+
+  /**
+   * Used to set the new location of the vertex in the case where the vertext is moved within the graph
+   *
+   * @param l The location of the vertex on the graph
+   */
+  @Override
+  public void setLocation (Point l) {
+
+    if (l != null) {
+      Point oldLocation = location;
+      location = l;
+      GraphObserver o = observer;
+      if (o != null) {
+        o.locationChanged(this, oldLocation);
+      }
+    }
+  }
+
+  /**
+   * @return The possibly null data of the vertex
+   */
+  @Override
+  public String getData () {
+
+    return data;
+  }
+
+  /**
+   * Used to set an extra data string for the vertex
+   *
+   * @param d The data for the vertex.
+   */
+  @Override
+  public void setData (String d) {
+
+    data = d;
+  }
+
+  /**
+   * Is there an outgoing edge ending at v.
+   *
+   * @param v - The vertex to check
+   * @return true if there is an outgoing edge ending at vertex, false otherwise.
+   */
+  @Override
+  public boolean hasEdge (Vertex v) {
+
+    return (findEdge(v) != null);
+  }
+
+  /**
+   * Search the outgoing edges looking for an edge whose edge.to == v.
+   *
+   * @param v The destination
+   * @return The outgoing edge going to v if one exists, null otherwise.
+   */
+  @Override
+  public Edge findEdge (Vertex v) {
+
+    return (v != null) ? find(v) : null;
+  }
+
+  /**
+   * Set the graph to tell about changes to this vertex
+   *
+   * @param o - The observer, null to stop telling anyone
+   */
+  @Override
+  public void setObserver (GraphObserver o) {
+
+    observer = o;
+  }
+
+  /**
+   * @param id - The id the graph gave the vertex
+   */
+  @Override
+  public void setId (int id) {
+
+    this.id = id;
+  }
+
+  /**
+   * Look up the outgoing edge whose edge.to == v, using the outgoing index instead of scanning the edges.
+   *
+   * @param v - The vertex that we are looking for a outgoing edge that connects to
+   * @return The outgoing edge going to v if one exists, null otherwise.
+   */
+  @Override
+  public EdgeIfc find (Vertex v) {
+
+    return (v != null) ? outgoingIndex.get(v) : null;
+  }
+
+  /**
+   * Add an edge to the vertex. If edge.from is this vertex, its an outgoing
+   * edge. If edge.to is this vertex, its an incoming edge, so a self loop is both
+   * and is only added once. If neither from or to is this vertex, the edge is not added.
+   * The caller must hold the lock for this vertex.
+   *
+   * @param e - The edge to add
+   * @return true if the edge was added, false otherwise
+   */
+  @Override
+  public boolean addEdge (EdgeIfc e) {
+
+    if (e != null) {
+      if (e.from() != this && e.to() != this) {
+        return false;
+      }
+      if (e.from() == this) {
+        outgoingIndex.putIfAbsent(e.to(), e);
+        outgoingEdges = outgoingEdges.appended(e);
+      }
+      if (e.to() == this) {
+        incomingEdges = incomingEdges.appended(e);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Remove an edge from this vertex, from both lists for a self loop. The caller must hold the lock for this vertex.
+   *
+   * @param e - The edge to removeEdge
+   * @return true if the edge was removed, false if the edge was not connected
+   *         to this vertex
+   */
+  @Override
+  public boolean removeEdge (EdgeIfc e) {
+
+    if (e != null) {
+      if (e.from() != this && e.to() != this) {
+        return false;
+      }
+      if (e.from() == this) {
+        outgoingEdges = outgoingEdges.without(e);
+        outgoingIndex.remove(e.to(), e);
+      }
+      if (e.to() == this) {
+        incomingEdges = incomingEdges.without(e);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Removes all the edges in the vertex from this vertex, and from the graph. The caller must hold the
+   * locks for this vertex and all its neighbours.
+   *
+   * @param graph The graph this vertex is contained in
+   * @return true if all the edges are successfully remove, false otherwise
+   */
+  @Override
+  public boolean removeEdges (GraphIfc graph) {
+
+    if (graph != null) {
+      for (EdgeIfc e : outgoingEdges) {
+        e.to().removeEdge(e);
+        removeEdge(e);
+        graph.edges().remove(e);
+        e.setObserver(null);
+      }
+      for (EdgeIfc e : incomingEdges) {
+        e.from().removeEdge(e);
+        removeEdge(e);
+        graph.edges().remove(e);
+        e.setObserver(null);
+      }
+    }
+
+    return outgoingEdges.isEmpty() && incomingEdges.isEmpty();
+  }
+
+  /**
+   * Get the incoming edges
+   *
+   * @return Incoming edge list, an immutable snapshot
+   */
+  @Override
+  public List<EdgeIfc> incomingEdges () {
+
+    return incomingEdges;
+  }
+
+  /**
+   * Get the outgoing edges
+   *
+   * @return Outgoing edge list, an immutable snapshot
+   */
+  @Override
+  public List<EdgeIfc> outgoingEdges () {
+
+    return outgoingEdges;
+  }
+
+}
@@ -0,0 +1,36 @@
+package Graph;
+
+public interface ContractionHierarchy {
+
+  /**
+   * @return The number of vertices in the hierarchy
+   */
+  public int getSize ();
+
+  /**
+   * @return The number of shortcut edges the hierarchy added to the graph
+   */
+  public int getShortcutCount ();
+
+  /**
+   * Return an interface that can be used to get path information for the from vertex. Each distance or path
+   * asked for is a separate query, which only searches upward in the hierarchy from both ends, so it doesn't
+   * work out a whole shortest path tree the way Graph.getPathInformation does.
+   *
+   * @param from - The vertex to get path information for
+   * @return The interface to use to find distances and paths to other vertices
+   */
+  public ShortestPath getPathInformation (Vertex from);
+
+  /**
+   * @return True if the graph hasn't changed since the hierarchy was built, false if it should be rebuilt
+   */
+  public boolean isCurrent ();
+
+  /**
+   * Builds the hierarchy again from the graph as it is now. Queries already running finish on the old hierarchy,
+   * queries started after this returns use the new one.
+   */
+  public void rebuild ();
+
+}
@@ -0,0 +1,706 @@
+package Graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * Contraction hierarchy over a copy of a graph. The vertices are contracted one at a time, least important first.
+ * Contracting a vertex takes it out of the graph, and a shortcut edge is added between each pair of its remaining
+ * neighbours whose shortest path went through it. Every shortest path then has a version that only goes up in the
+ * contraction order and then only down, so a query searches upward from both ends over a small part of the graph.
+ * Shortcuts remember the two edges they replace, so paths are unpacked back into the graph's own edges. Vertices
+ * that would need too many shortcuts are left uncontracted in a core above all the others, which queries search
+ * from both sides.
+ */
+class ContractionHierarchyImpl implements ContractionHierarchy {
+
+  /**
+   * How many vertices a witness search may settle before giving up. Giving up early only adds a shortcut that
+   * wasn't needed, it never loses a path.
+   */
+  private static final int WITNESS_SETTLE_LIMIT = 100;
+
+  /**
+   * A vertex with more in and out neighbour pairs than this is left in the core instead of being contracted. On
+   * graphs that aren't road like the last vertices to be contracted end up with very many neighbours, and
+   * contracting them costs far more than searching them.
+   */
+  private static final int CORE_PAIR_LIMIT = 256;
+
+  private final AbstractGraph graph;
+
+  private volatile Hierarchy hierarchy;
+
+  /**
+   * Search state is reused by the queries on a thread, so a query only costs the vertices it reaches. It is kept
+   * here rather than on the hierarchy, whose own thread local would be kept alive by the query that refers back to
+   * it, so a rebuild would never let go of the old hierarchy.
+   */
+  private final ThreadLocal<Query> queries = new ThreadLocal<>();
+
+  /**
+   * Builds the hierarchy from the graph as it is now
+   *
+   * @param g - The graph the hierarchy is for
+   */
+  ContractionHierarchyImpl (AbstractGraph g) {
+
+    graph = g;
+    rebuild();
+  }
+
+  /**
+   * @return The number of vertices in the hierarchy
+   */
+  @Override
+  public int getSize () {
+
+    return hierarchy.vertices.length;
+  }
+
+  /**
+   * @return The number of shortcut edges the hierarchy added to the graph
+   */
+  @Override
+  public int getShortcutCount () {
+
+    return hierarchy.shortcuts;
+  }
+
+  /**
+   * Return an interface that can be used to get path information for the from vertex
+   *
+   * @param from - The vertex to get path information for
+   * @return The interface to use to find distances and paths to other vertices
+   */
+  @Override
+  public ShortestPath getPathInformation (Vertex from) {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    Hierarchy h = hierarchy;
+    int source = h.idOf(from);
+    if (source < 0) {
+      throw new IllegalArgumentException("from is not in graph");
+    }
+
+    return new HierarchyPaths(h, source);
+  }
+
+  /**
+   * @param h - The hierarchy to search
+   * @return This thread's search state for the hierarchy, a new one if the thread last searched another
+   */
+  private Query query (Hierarchy h) {
+
+    Query q = queries.get();
+    if (q == null || q.h != h) {
+      q = new Query(h);
+      queries.set(q);
+    }
+
+    return q;
+  }
+
+  /**
+   * @return True if the graph hasn't changed since the hierarchy was built, false if it should be rebuilt
+   */
+  @Override
+  public boolean isCurrent () {
+
+    return hierarchy.modCount == graph.modCount();
+  }
+
+  /**
+   * Builds the hierarchy again from the graph as it is now
+   */
+  @Override
+  public void rebuild () {
+
+    // Read the version first, so a change made while building leaves the hierarchy out of date
+    long version = graph.modCount();
+    AbstractGraph snapshot = (AbstractGraph) graph.snapshot();
+    hierarchy = new Contraction(snapshot).contract(version);
+  }
+
+  /**
+   * An edge of the hierarchy, either an edge of the graph or a shortcut for two arcs through a contracted vertex
+   */
+  private static class Arc {
+
+    final int from;
+    final int to;
+    final double weight;
+
+    /**
+     * The graph edge, null for a shortcut
+     */
+    final EdgeIfc edge;
+
+    /**
+     * The arcs a shortcut replaces, in path order, null for a graph edge
+     */
+    final Arc first;
+    final Arc second;
+
+    Arc (int f, int t, double w, EdgeIfc e, Arc a, Arc b) {
+
+      from = f;
+      to = t;
+      weight = w;
+      edge = e;
+      first = a;
+      second = b;
+    }
+  }
+
+  /**
+   * The work space used while contracting, dropped once the hierarchy is built
+   */
+  private static class Contraction {
+
+    private final VertexIfc[] vertices;
+
+    /**
+     * Graph vertex id to the vertex's index here, -1 for the ids no vertex had when the graph was copied
+     */
+    private final int[] ids;
+
+    /**
+     * The arcs between vertices that haven't been contracted yet, keyed by the vertex at the other end
+     */
+    private final List<Map<Integer, Arc>> out;
+    private final List<Map<Integer, Arc>> in;
+
+    private final int[] contractedNeighbours;
+
+    private final double[] witnessDistance;
+    private final IndexedMinHeap witnessHeap;
+    private final int[] touched;
+    private int touchedCount;
+
+    /**
+     * Copies the vertices and edges, keeping only the lightest of parallel edges and no self loops
+     *
+     * @param g - The graph to contract
+     */
+    Contraction (AbstractGraph g) {
+
+      vertices = g.vertexValues().toArray(new VertexIfc[0]);
+      int n = vertices.length;
+      int bound = g.idBound();
+      for (VertexIfc v : vertices) {
+        bound = Math.max(bound, v.getId() + 1);
+      }
+      ids = new int[bound];
+      Arrays.fill(ids, -1);
+      out = new ArrayList<>(n);
+      in = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        ids[vertices[i].getId()] = i;
+        out.add(new HashMap<Integer, Arc>());
+        in.add(new HashMap<Integer, Arc>());
+      }
+
+      for (int i = 0; i < n; i++) {
+        for (EdgeIfc e : g.outgoingEdges(vertices[i])) {
+          VertexIfc to = e.to();
+          int t = (to.getId() < ids.length) ? ids[to.getId()] : -1;
+          if (t < 0 || vertices[t] != to || t == i) {
+            continue;
+          }
+          Arc existing = out.get(i).get(t);
+          if (existing == null || e.getWeight() < existing.weight) {
+            link(new Arc(i, t, e.getWeight(), e, null, null));
+          }
+        }
+      }
+
+      contractedNeighbours = new int[n];
+      witnessDistance = new double[n];
+      Arrays.fill(witnessDistance, Double.POSITIVE_INFINITY);
+      witnessHeap = new IndexedMinHeap(n);
+      touched = new int[n];
+    }
+
+    /**
+     * Contracts every vertex, in order of how few shortcuts it adds
+     *
+     * @param version - The version of the graph that was copied
+     * @return The hierarchy
+     */
+    Hierarchy contract (long version) {
+
+      int n = vertices.length;
+      IndexedMinHeap order = new IndexedMinHeap(n);
+      for (int v = 0; v < n; v++) {
+        order.insertOrDecrease(v, priority(v));
+      }
+
+      Arc[][] up = new Arc[n][];
+      Arc[][] down = new Arc[n][];
+      List<Integer> core = new ArrayList<>();
+      int shortcuts = 0;
+      while (!order.isEmpty()) {
+        // Priorities go stale as neighbours are contracted, a vertex that has become more important waits its turn
+        int v = order.poll();
+        double p = priority(v);
+        if (p > order.peekKey()) {
+          order.insertOrDecrease(v, p);
+          continue;
+        }
+
+        if (p == Double.POSITIVE_INFINITY) {
+          core.add(v);
+          continue;
+        }
+
+        shortcuts += shortcuts(v, false);
+        Map<Integer, Arc> outgoing = out.get(v);
+        Map<Integer, Arc> incoming = in.get(v);
+        up[v] = outgoing.values().toArray(new Arc[0]);
+        down[v] = incoming.values().toArray(new Arc[0]);
+        for (Integer w : outgoing.keySet()) {
+          in.get(w).remove(v);
+          contractedNeighbours[w]++;
+        }
+        for (Integer u : incoming.keySet()) {
+          out.get(u).remove(v);
+          contractedNeighbours[u]++;
+        }
+        out.set(v, Collections.<Integer, Arc>emptyMap());
+        in.set(v, Collections.<Integer, Arc>emptyMap());
+      }
+
+      // Everything else is contracted, so the core vertices only have arcs between each other left
+      for (int v : core) {
+        up[v] = out.get(v).values().toArray(new Arc[0]);
+        down[v] = in.get(v).values().toArray(new Arc[0]);
+      }
+
+      return new Hierarchy(vertices, ids, version, shortcuts, up, down);
+    }
+
+    /**
+     * @return The edge difference of contracting v, plus how many of its neighbours are already contracted so the
+     *         contraction is spread over the graph, infinity if v has too many neighbours to contract
+     */
+    private double priority (int v) {
+
+      if ((long) out.get(v).size() * in.get(v).size() > CORE_PAIR_LIMIT) {
+        return Double.POSITIVE_INFINITY;
+      }
+
+      return shortcuts(v, true) - out.get(v).size() - in.get(v).size() + contractedNeighbours[v];
+    }
+
+    /**
+     * Finds the shortcuts contracting v needs, a pair of neighbours needs one unless a witness search finds a path
+     * between them, not through v, that is no longer than the path through v
+     *
+     * @param v        - The vertex to contract
+     * @param simulate - True to only count the shortcuts, false to add them
+     * @return The number of shortcuts
+     */
+    private int shortcuts (int v, boolean simulate) {
+
+      Collection<Arc> incoming = in.get(v).values();
+      Collection<Arc> outgoing = out.get(v).values();
+      if (incoming.isEmpty() || outgoing.isEmpty()) {
+        return 0;
+      }
+
+      double longestOut = 0d;
+      for (Arc b : outgoing) {
+        longestOut = Math.max(longestOut, b.weight);
+      }
+
+      int count = 0;
+      for (Arc a : incoming) {
+        witnessSearch(a.from, v, a.weight + longestOut);
+        for (Arc b : outgoing) {
+          double through = a.weight + b.weight;
+          if (b.to == a.from || witnessDistance[b.to] <= through) {
+            continue;
+          }
+          count++;
+          if (!simulate) {
+            Arc existing = out.get(a.from).get(b.to);
+            if (existing == null || through < existing.weight) {
+              link(new Arc(a.from, b.to, through, null, a, b));
+            }
+          }
+        }
+        resetWitness();
+      }
+
+      return count;
+    }
+
+    /**
+     * Dijkstra search from source that doesn't go through skip, stopping at limit or after settling
+     * WITNESS_SETTLE_LIMIT vertices
+     */
+    private void witnessSearch (int source, int skip, double limit) {
+
+      witnessDistance[source] = 0d;
+      touched[touchedCount++] = source;
+      witnessHeap.insertOrDecrease(source, 0d);
+      int settled = 0;
+      while (!witnessHeap.isEmpty() && witnessHeap.peekKey() <= limit && settled < WITNESS_SETTLE_LIMIT) {
+        int x = witnessHeap.poll();
+        settled++;
+        for (Arc c : out.get(x).values()) {
+          int y = c.to;
+          double d = witnessDistance[x] + c.weight;
+          if (y != skip && d < witnessDistance[y]) {
+            if (witnessDistance[y] == Double.POSITIVE_INFINITY) {
+              touched[touchedCount++] = y;
+            }
+            witnessDistance[y] = d;
+            witnessHeap.insertOrDecrease(y, d);
+          }
+        }
+      }
+    }
+
+    private void resetWitness () {
+
+      for (int i = 0; i < touchedCount; i++) {
+        witnessDistance[touched[i]] = Double.POSITIVE_INFINITY;
+      }
+      touchedCount = 0;
+      witnessHeap.clear();
+    }
+
+    /**
+     * Adds the arc, replacing any arc between the same vertices
+     */
+    private void link (Arc a) {
+
+      out.get(a.from).put(a.to, a);
+      in.get(a.to).put(a.from, a);
+    }
+  }
+
+  /**
+   * The contracted graph, the upward arcs of each vertex in compressed sparse row form. The arcs between core
+   * vertices count as upward both ways, so both sides of a query can cross the core. It never changes once built,
+   * a rebuild makes a new one.
+   */
+  private static class Hierarchy {
+
+    final VertexIfc[] vertices;
+
+    /**
+     * Graph vertex id to the vertex's index in the hierarchy, -1 for the ids no vertex had
+     */
+    final int[] ids;
+
+    /**
+     * Vertex name to index, only worked out if a vertex that isn't in the hierarchy itself is looked up
+     */
+    volatile Map<String, Integer> names;
+
+    final long modCount;
+    final int shortcuts;
+
+    /**
+     * Arcs from each vertex to vertices contracted after it, slots upOffsets[v] to upOffsets[v + 1] - 1
+     */
+    final int[] upOffsets;
+    final Arc[] upArcs;
+
+    /**
+     * Arcs into each vertex from vertices contracted after it, slots downOffsets[v] to downOffsets[v + 1] - 1
+     */
+    final int[] downOffsets;
+    final Arc[] downArcs;
+
+    Hierarchy (VertexIfc[] v, int[] i, long version, int s, Arc[][] up, Arc[][] down) {
+
+      vertices = v;
+      ids = i;
+      modCount = version;
+      shortcuts = s;
+      upOffsets = new int[v.length + 1];
+      upArcs = flatten(up, upOffsets);
+      downOffsets = new int[v.length + 1];
+      downArcs = flatten(down, downOffsets);
+    }
+
+    private static Arc[] flatten (Arc[][] arcs, int[] offsets) {
+
+      int total = 0;
+      for (Arc[] a : arcs) {
+        total += a.length;
+      }
+
+      Arc[] flat = new Arc[total];
+      int slot = 0;
+      for (int v = 0; v < arcs.length; v++) {
+        offsets[v] = slot;
+        System.arraycopy(arcs[v], 0, flat, slot, arcs[v].length);
+        slot += arcs[v].length;
+      }
+      offsets[arcs.length] = slot;
+
+      return flat;
+    }
+
+    /**
+     * @param v - The vertex to look up
+     * @return The id of the vertex, -1 if it wasn't in the graph when the hierarchy was built
+     */
+    int idOf (Vertex v) {
+
+      int id = v.getId();
+      int i = (id >= 0 && id < ids.length) ? ids[id] : -1;
+      if (i >= 0 && vertices[i] == v) {
+        return i;
+      }
+
+      Map<String, Integer> map = names;
+      if (map == null) {
+        map = new HashMap<>(Math.max(16, (int) (vertices.length / .75f) + 1));
+        for (int j = 0; j < vertices.length; j++) {
+          map.put(vertices[j].getName(), j);
+        }
+        names = map;
+      }
+      Integer named = map.get(v.getName());
+
+      return (named != null) ? named : -1;
+    }
+  }
+
+  /**
+   * Bidirectional upward search over a hierarchy. Each side stops once its frontier is no closer than the best
+   * path found, the shortest path is the best meeting of the two.
+   */
+  private static class Query {
+
+    private final Hierarchy h;
+
+    private final double[] forwardDistance;
+    private final double[] backwardDistance;
+    private final Arc[] forwardVia;
+    private final Arc[] backwardVia;
+    private final IndexedMinHeap forward;
+    private final IndexedMinHeap backward;
+
+    /**
+     * The vertices reached by the last query, so only they are reset
+     */
+    private final int[] touched;
+    private int touchedCount;
+
+    private int meeting;
+
+    Query (Hierarchy hierarchy) {
+
+      h = hierarchy;
+      int n = h.vertices.length;
+      forwardDistance = new double[n];
+      backwardDistance = new double[n];
+      Arrays.fill(forwardDistance, Double.POSITIVE_INFINITY);
+      Arrays.fill(backwardDistance, Double.POSITIVE_INFINITY);
+      forwardVia = new Arc[n];
+      backwardVia = new Arc[n];
+      forward = new IndexedMinHeap(n);
+      backward = new IndexedMinHeap(n);
+      touched = new int[n];
+    }
+
+    /**
+     * @param s - The id to start at
+     * @param t - The id to find a path to
+     * @return The distance from s to t, infinity if there isn't a path
+     */
+    double search (int s, int t) {
+
+      reset();
+      reach(s);
+      forwardDistance[s] = 0d;
+      forward.insertOrDecrease(s, 0d);
+      if (s != t) {
+        reach(t);
+      }
+      backwardDistance[t] = 0d;
+      backward.insertOrDecrease(t, 0d);
+
+      double best = (s == t) ? 0d : Double.POSITIVE_INFINITY;
+      meeting = (s == t) ? s : -1;
+      while (true) {
+        boolean forwardOpen = forward.peekKey() < best;
+        boolean backwardOpen = backward.peekKey() < best;
+        if (!forwardOpen && !backwardOpen) {
+          break;
+        }
+
+        if (forwardOpen && (!backwardOpen || forward.peekKey() <= backward.peekKey())) {
+          int x = forward.poll();
+          for (int slot = h.upOffsets[x], end = h.upOffsets[x + 1]; slot < end; slot++) {
+            Arc a = h.upArcs[slot];
+            double d = forwardDistance[x] + a.weight;
+            if (d < forwardDistance[a.to]) {
+              reach(a.to);
+              forwardDistance[a.to] = d;
+              forwardVia[a.to] = a;
+              forward.insertOrDecrease(a.to, d);
+              if (d + backwardDistance[a.to] < best) {
+                best = d + backwardDistance[a.to];
+                meeting = a.to;
+              }
+            }
+          }
+        } else {
+          int x = backward.poll();
+          for (int slot = h.downOffsets[x], end = h.downOffsets[x + 1]; slot < end; slot++) {
+            Arc a = h.downArcs[slot];
+            double d = backwardDistance[x] + a.weight;
+            if (d < backwardDistance[a.from]) {
+              reach(a.from);
+              backwardDistance[a.from] = d;
+              backwardVia[a.from] = a;
+              backward.insertOrDecrease(a.from, d);
+              if (d + forwardDistance[a.from] < best) {
+                best = d + forwardDistance[a.from];
+                meeting = a.from;
+              }
+            }
+          }
+        }
+      }
+
+      return best;
+    }
+
+    /**
+     * @return The path found by the last search, with the first edge on top of the stack, null if there wasn't one
+     */
+    Stack<Edge> path () {
+
+      if (meeting < 0) {
+        return null;
+      }
+
+      // Arcs from the start up to the meeting vertex, then down to the target
+      List<Arc> arcs = new ArrayList<>();
+      for (Arc a = forwardVia[meeting]; a != null; a = forwardVia[a.from]) {
+        arcs.add(a);
+      }
+      Collections.reverse(arcs);
+      for (Arc a = backwardVia[meeting]; a != null; a = backwardVia[a.to]) {
+        arcs.add(a);
+      }
+
+      List<EdgeIfc> edges = new ArrayList<>();
+      Deque<Arc> pending = new ArrayDeque<>();
+      for (Arc arc : arcs) {
+        pending.push(arc);
+        while (!pending.isEmpty()) {
+          Arc a = pending.pop();
+          if (a.edge != null) {
+            edges.add(a.edge);
+          } else {
+            pending.push(a.second);
+            pending.push(a.first);
+          }
+        }
+      }
+
+      Stack<Edge> path = new Stack<>();
+      for (int i = edges.size() - 1; i >= 0; i--) {
+        path.push(edges.get(i));
+      }
+
+      return path;
+    }
+
+    private void reach (int v) {
+
+      if (forwardDistance[v] == Double.POSITIVE_INFINITY && backwardDistance[v] == Double.POSITIVE_INFINITY) {
+        touched[touchedCount++] = v;
+      }
+    }
+
+    private void reset () {
+
+      for (int i = 0; i < touchedCount; i++) {
+        int v = touched[i];
+        forwardDistance[v] = Double.POSITIVE_INFINITY;
+        backwardDistance[v] = Double.POSITIVE_INFINITY;
+        forwardVia[v] = null;
+        backwardVia[v] = null;
+      }
+      touchedCount = 0;
+      forward.clear();
+      backward.clear();
+    }
+  }
+
+  /**
+   * Distances and paths from one vertex, each worked out by a query when it is asked for
+   */
+  private class HierarchyPaths implements ShortestPath {
+
+    private final Hierarchy h;
+    private final int source;
+
+    HierarchyPaths (Hierarchy hierarchy, int s) {
+
+      h = hierarchy;
+      source = s;
+    }
+
+    /**
+     * @param to - The destination vertex
+     * @return The distance between the vertices
+     */
+    @Override
+    public double distanceTo (Vertex to) {
+
+      int target = h.idOf(to);
+      return (target >= 0) ? query(h).search(source, target) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param to - The destination vertex
+     * @return True if there is a path between the vertices, false otherwise
+     */
+    @Override
+    public boolean hasPathTo (Vertex to) {
+
+      return distanceTo(to) < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param to - The destination vertex
+     * @return The path between the vertices
+     */
+    @Override
+    public Stack<Edge> pathTo (Vertex to) {
+
+      int target = h.idOf(to);
+      if (target < 0) {
+        return null;
+      }
+
+      Query q = query(h);
+      q.search(source, target);
+      return q.path();
+    }
+  }
+
+}
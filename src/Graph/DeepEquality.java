@@ -0,0 +1,139 @@
+package Graph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compares what graphs, vertices and edges hold. Graphs, vertices and edges are themselves compared by identity,
+ * which keeps the hashed collections they are kept in fast, so two separately built graphs are never equal. These
+ * comparisons say whether they hold the same things, they walk the edges, so they cost as much as a copy.
+ */
+public class DeepEquality {
+
+  private DeepEquality () {
+
+  }
+
+  /**
+   * @param a - An edge, may be null
+   * @param b - Another edge, may be null
+   * @return True if the edges have the same label, weight and direction, and their ends have the same names
+   */
+  public static boolean edgesEqual (Edge a, Edge b) {
+
+    if (a == b) {
+      return true;
+    }
+
+    if (a == null || b == null) {
+      return false;
+    }
+
+    return Objects.equals(a.getLabel(), b.getLabel()) &&
+        a.getWeight() == b.getWeight() &&
+        a.getDirected() == b.getDirected() &&
+        a.getFrom().getName().equals(b.getFrom().getName()) &&
+        a.getTo().getName().equals(b.getTo().getName());
+  }
+
+  /**
+   * @param a - A vertex, may be null
+   * @param b - Another vertex, may be null
+   * @return True if the vertices have the same name, location and data, and equal incoming and outgoing edges
+   */
+  public static boolean verticesEqual (Vertex a, Vertex b) {
+
+    if (a == b) {
+      return true;
+    }
+
+    if (!fieldsEqual(a, b)) {
+      return false;
+    }
+
+    if (a instanceof VertexIfc && b instanceof VertexIfc) {
+      VertexIfc va = (VertexIfc) a;
+      VertexIfc vb = (VertexIfc) b;
+      return edgesEqual(va.outgoingEdges(), vb.outgoingEdges(), true) &&
+          edgesEqual(va.incomingEdges(), vb.incomingEdges(), false);
+    }
+
+    return true;
+  }
+
+  /**
+   * @param a - A graph, may be null
+   * @param b - Another graph, may be null
+   * @return True if the graphs have vertices with the same names, and the vertices with the same name are equal
+   */
+  public static boolean graphsEqual (Graph a, Graph b) {
+
+    if (a == b) {
+      return true;
+    }
+
+    if (a == null || b == null || a.getSize() != b.getSize()) {
+      return false;
+    }
+
+    for (Vertex va : a.getVertices()) {
+      Vertex vb = b.getVertex(va.getName());
+      if (!fieldsEqual(va, vb)) {
+        return false;
+      }
+
+      // Read the edges through the graphs, so snapshots are compared as they were taken
+      if (a instanceof GraphIfc && b instanceof GraphIfc && va instanceof VertexIfc && vb instanceof VertexIfc) {
+        GraphIfc ga = (GraphIfc) a;
+        GraphIfc gb = (GraphIfc) b;
+        if (!edgesEqual(ga.outgoingEdges((VertexIfc) va), gb.outgoingEdges((VertexIfc) vb), true) ||
+            !edgesEqual(ga.incomingEdges((VertexIfc) va), gb.incomingEdges((VertexIfc) vb), false)) {
+          return false;
+        }
+      } else if (!verticesEqual(va, vb)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean fieldsEqual (Vertex a, Vertex b) {
+
+    if (a == null || b == null) {
+      return a == b;
+    }
+
+    return a.getName().equals(b.getName()) &&
+        Objects.equals(a.getLocation(), b.getLocation()) &&
+        Objects.equals(a.getData(), b.getData());
+  }
+
+  /**
+   * A vertex has at most one edge to or from each other vertex, so the lists are matched up by the name at the
+   * other end and their order doesn't matter
+   *
+   * @param outgoing - True if the lists are outgoing edges, false if incoming
+   */
+  private static boolean edgesEqual (List<EdgeIfc> a, List<EdgeIfc> b, boolean outgoing) {
+
+    if (a.size() != b.size()) {
+      return false;
+    }
+
+    Map<String, EdgeIfc> byName = new HashMap<>(Math.max(16, (int) (b.size() / .75f) + 1));
+    for (EdgeIfc e : b) {
+      byName.put(outgoing ? e.to().getName() : e.from().getName(), e);
+    }
+    for (EdgeIfc e : a) {
+      if (!edgesEqual(e, byName.get(outgoing ? e.to().getName() : e.from().getName()))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+}
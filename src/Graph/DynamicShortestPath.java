@@ -0,0 +1,15 @@
+package Graph;
+
+public interface DynamicShortestPath extends ShortestPath {
+
+  /**
+   * @return The vertex the paths start from
+   */
+  public Vertex getSource ();
+
+  /**
+   * Stops following the changes to the graph, the paths stay as they are now
+   */
+  public void close ();
+
+}
@@ -0,0 +1,307 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Stack;
+
+/**
+ * A shortest path tree that listens to its graph and repairs itself after each change, in the manner of Ramalingam
+ * and Reps. A change that can only shorten paths, an edge added or made lighter, is relaxed and the shorter
+ * distances are spread with Dijkstra from the vertex it reaches. A change that can lengthen paths, a tree edge
+ * removed or made heavier, only affects the subtree hanging from that edge: the subtree is cut loose, each of its
+ * vertices starts from its best edge in from the rest of the tree, and Dijkstra settles the subtree again. Either
+ * way the work is proportional to the vertices whose distance changes and their edges, not to the graph.
+ * <p>
+ * Indexed by vertex id like ShortestPathImpl, vertices[id] is the vertex the tree holds for that id.
+ */
+class DynamicShortestPathImpl implements DynamicShortestPath, GraphListener {
+
+  private final GraphIfc graph;
+  private final VertexIfc source;
+
+  private VertexIfc[] vertices;
+  private double[] distance;
+  private EdgeIfc[] via;
+
+  private final IndexedMinHeap unsettled;
+
+  /**
+   * The subtree being repaired, marked by id and listed in subtree
+   */
+  private boolean[] cut;
+  private int[] subtree;
+
+  /**
+   * Works out the paths from the vertex, and starts following the changes to the graph
+   *
+   * @param graph - The graph
+   * @param from  - The vertex the paths start from
+   */
+  DynamicShortestPathImpl (GraphIfc graph, VertexIfc from) {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from is not in graph");
+    }
+
+    this.graph = graph;
+    this.source = from;
+    int capacity = Math.max(from.getId() + 1, graph.getVertexIdBound());
+    unsettled = new IndexedMinHeap(capacity);
+
+    // Changes made while the tree is worked out wait for it, and are repaired afterwards
+    synchronized (this) {
+      vertices = new VertexIfc[capacity];
+      distance = new double[capacity];
+      via = new EdgeIfc[capacity];
+      cut = new boolean[capacity];
+      subtree = new int[capacity];
+      graph.addGraphListener(this);
+
+      int s = slot(from);
+      distance[s] = 0d;
+      unsettled.insertOrDecrease(s, 0d);
+      settle();
+    }
+  }
+
+  /**
+   * @return The vertex the paths start from
+   */
+  @Override
+  public Vertex getSource () {
+
+    return source;
+  }
+
+  /**
+   * Stops following the changes to the graph, the paths stay as they are now
+   */
+  @Override
+  public void close () {
+
+    graph.removeGraphListener(this);
+  }
+
+  /**
+   * @param to - The destination vertex
+   * @return The distance between the vertices
+   */
+  @Override
+  public synchronized double distanceTo (Vertex to) {
+
+    int i = indexOf(to);
+    return (i >= 0) ? distance[i] : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * @param to - The destination vertex
+   * @return True if there is a path between the vertices, false otherwise
+   */
+  @Override
+  public boolean hasPathTo (Vertex to) {
+
+    return distanceTo(to) < Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * @param to - The destination vertex
+   * @return The path between the vertices
+   */
+  @Override
+  public synchronized Stack<Edge> pathTo (Vertex to) {
+
+    if (!hasPathTo(to)) {
+      return null;
+    }
+
+    Stack<Edge> path = new Stack<>();
+    EdgeIfc e = via[to.getId()];
+    while (e != null) {
+      path.push(e);
+      e = via[e.from().getId()];
+    }
+
+    return path;
+  }
+
+  /**
+   * Repairs the tree after each change, in the order they were made
+   *
+   * @param events - The changes
+   */
+  @Override
+  public synchronized void graphChanged (List<GraphEvent> events) {
+
+    for (GraphEvent event : events) {
+      EdgeIfc e = (EdgeIfc) event.getEdge();
+      switch (event.getType()) {
+        case EDGE_ADDED:
+          lower(e);
+          break;
+
+        case WEIGHT_CHANGED:
+          if (e.getWeight() > event.getOldWeight() && isTreeEdge(e)) {
+            raise(e.to());
+          } else {
+            lower(e);
+          }
+          break;
+
+        case EDGE_REMOVED:
+          if (isTreeEdge(e)) {
+            raise(e.to());
+          }
+          break;
+
+        case VERTEX_REMOVED:
+          // Its edges have gone already, so nothing hangs from it
+          int i = indexOf(event.getVertex());
+          if (i >= 0) {
+            vertices[i] = null;
+            via[i] = null;
+          }
+          break;
+
+        case CLEARED:
+          Arrays.fill(vertices, null);
+          Arrays.fill(via, null);
+          break;
+
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Spreads the shorter paths an edge added or made lighter may give
+   */
+  private void lower (EdgeIfc e) {
+
+    int u = indexOf(e.from());
+    if (u >= 0 && distance[u] < Double.POSITIVE_INFINITY) {
+      relax(e, distance[u]);
+      settle();
+    }
+  }
+
+  /**
+   * Cuts loose the subtree hanging from root, whose paths may have got longer, and settles it again from the best
+   * edges into it from the rest of the tree
+   *
+   * @param root - The vertex whose tree edge was removed or made heavier
+   */
+  private void raise (VertexIfc root) {
+
+    int r = indexOf(root);
+    int count = 0;
+    subtree[count++] = r;
+    cut[r] = true;
+    for (int next = 0; next < count; next++) {
+      for (EdgeIfc e : graph.outgoingEdges(vertices[subtree[next]])) {
+        if (isTreeEdge(e)) {
+          int c = e.to().getId();
+          if (!cut[c]) {
+            cut[c] = true;
+            subtree[count++] = c;
+          }
+        }
+      }
+    }
+
+    for (int k = 0; k < count; k++) {
+      distance[subtree[k]] = Double.POSITIVE_INFINITY;
+      via[subtree[k]] = null;
+    }
+
+    for (int k = 0; k < count; k++) {
+      int x = subtree[k];
+      for (EdgeIfc e : graph.incomingEdges(vertices[x])) {
+        int u = indexOf(e.from());
+        if (u >= 0 && !cut[u] && distance[u] < Double.POSITIVE_INFINITY) {
+          double d = distance[u] + e.getWeight();
+          if (d < distance[x]) {
+            distance[x] = d;
+            via[x] = e;
+            unsettled.insertOrDecrease(x, d);
+          }
+        }
+      }
+    }
+
+    for (int k = 0; k < count; k++) {
+      cut[subtree[k]] = false;
+    }
+    settle();
+  }
+
+  /**
+   * Dijkstra from the vertices waiting in unsettled
+   */
+  private void settle () {
+
+    while (!unsettled.isEmpty()) {
+      int x = unsettled.poll();
+      double d = distance[x];
+      for (EdgeIfc e : graph.outgoingEdges(vertices[x])) {
+        relax(e, d);
+      }
+    }
+  }
+
+  private void relax (EdgeIfc e, double fromDistance) {
+
+    int i = slot(e.to());
+    double d = fromDistance + e.getWeight();
+    if (d < distance[i]) {
+      distance[i] = d;
+      via[i] = e;
+      unsettled.insertOrDecrease(i, d);
+    }
+  }
+
+  /**
+   * @return True if e is the edge the tree reaches e.to() by
+   */
+  private boolean isTreeEdge (EdgeIfc e) {
+
+    int i = indexOf(e.to());
+    return i >= 0 && via[i] == e;
+  }
+
+  /**
+   * @return The index of the vertex in the tree, -1 if the tree doesn't hold it
+   */
+  private int indexOf (Vertex v) {
+
+    int i = (v != null) ? v.getId() : -1;
+    return (i >= 0 && i < vertices.length && vertices[i] == v) ? i : -1;
+  }
+
+  /**
+   * Makes room for a vertex the tree reaches, a vertex it hasn't held before starts out unreachable
+   *
+   * @return The index of the vertex in the tree
+   */
+  private int slot (VertexIfc v) {
+
+    int i = v.getId();
+    if (i >= vertices.length) {
+      int grown = Math.max(i + 1, vertices.length + (vertices.length >> 1));
+      vertices = Arrays.copyOf(vertices, grown);
+      distance = Arrays.copyOf(distance, grown);
+      via = Arrays.copyOf(via, grown);
+      cut = Arrays.copyOf(cut, grown);
+      subtree = Arrays.copyOf(subtree, grown);
+      unsettled.ensureCapacity(grown);
+    }
+    if (vertices[i] != v) {
+      vertices[i] = v;
+      distance[i] = Double.POSITIVE_INFINITY;
+      via[i] = null;
+    }
+
+    return i;
+  }
+
+}
@@ -0,0 +1,50 @@
+package Graph;
+
+/**
+ * Steps through the outgoing or incoming edges of a vertex for the algorithms, which mostly only need the id at the
+ * other end of an edge and its weight. A graph that doesn't keep its vertices and edges as objects can answer those
+ * without making one, and only makes the vertex or edge an algorithm keeps. One cursor is used for vertex after
+ * vertex by a single thread.
+ */
+interface EdgeCursor {
+
+  /**
+   * Moves the cursor to before the first edge of the vertex
+   *
+   * @param v - A vertex in the graph
+   */
+  public void start (VertexIfc v);
+
+  /**
+   * @return True if the cursor moved on to the next edge, false if there are no more
+   */
+  public boolean next ();
+
+  /**
+   * @return The id of the vertex at the other end of the edge, where an outgoing edge goes or an incoming edge
+   *         comes from
+   */
+  public int otherId ();
+
+  /**
+   * @param v - A vertex, may be null
+   * @return True if v is the vertex at the other end of the edge
+   */
+  public boolean isOther (VertexIfc v);
+
+  /**
+   * @return The vertex at the other end of the edge
+   */
+  public VertexIfc other ();
+
+  /**
+   * @return The weight of the edge
+   */
+  public int weight ();
+
+  /**
+   * @return The edge itself
+   */
+  public EdgeIfc edge ();
+
+}
@@ -1,11 +1,28 @@
 package Graph;
 
 import org.json.simple.JSONAware;
+import org.json.simple.JSONStreamAware;
 
-public interface EdgeIfc extends Edge, JSONAware {
+public interface EdgeIfc extends Edge, JSONAware, JSONStreamAware {
 
   public VertexIfc from ();
 
   public VertexIfc to ();
 
+  public void setObserver (GraphObserver o);
+
+  /**
+   * Vertices that keep their edges in array lists note where each edge is, so they can remove it without searching
+   *
+   * @param outgoing - True for the outgoing edges of from(), false for the incoming edges of to()
+   * @return The index of this edge in that list, -1 if it isn't in it
+   */
+  public int getSlot (boolean outgoing);
+
+  /**
+   * @param outgoing - True for the outgoing edges of from(), false for the incoming edges of to()
+   * @param slot     - The index of this edge in that list, -1 if it isn't in it
+   */
+  public void setSlot (boolean outgoing, int slot);
+
 }
@@ -1,19 +1,41 @@
 package Graph;
 
-import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A weighted edge between two vertices. Edges are compared by identity. The label and weight can be changed and
+ * read from any thread, each weight change is told to the observer along with the weight it replaced.
+ */
 class EdgeImpl implements EdgeIfc {
 
+  private static final AtomicIntegerFieldUpdater<EdgeImpl> WEIGHT =
+      AtomicIntegerFieldUpdater.newUpdater(EdgeImpl.class, "weight");
+
   private final VertexIfc from;
 
   private final VertexIfc to;
 
-  private String label;
+  private volatile String label;
 
-  private int weight;
+  private volatile int weight;
 
   private final boolean directed;
 
+  private volatile GraphObserver observer;
+
+  private final int hash;
+
+  /**
+   * Where the edge is in the outgoing edges of from and the incoming edges of to, changed by the vertices
+   */
+  private int outgoingSlot = -1;
+  private int incomingSlot = -1;
+
   /**
    * Create an edge between f and t with label l, weight w, and directed flag set to d
    *
@@ -29,6 +51,12 @@ class EdgeImpl implements EdgeIfc {
     label = (l != null) ? l : "";
     weight = (w >= 0) ? w : 0;
     directed = d;
+
+    int h = 7;
+    h = 31 * h + Boolean.valueOf(d).hashCode();
+    h = 31 * h + f.getName().hashCode();
+    h = 31 * h + t.getName().hashCode();
+    hash = h;
   }
 
   /**
@@ -43,50 +71,105 @@ class EdgeImpl implements EdgeIfc {
   }
 
   /**
+   * Edges are compared by identity, DeepEquality compares what they hold
+   *
    * @param o - Object, possibly an edge, to compare to this edge
-   * @return True if the object matches this edge, false otherwise
+   * @return True if the object is this edge, false otherwise
    */
   @Override
   public boolean equals (Object o) {
 
-    if (this == o) {
-      return true;
-    }
-
-    if ((o == null) || (this.getClass() != o.getClass())) {
-      return false;
-    }
-
-    EdgeImpl edge = (EdgeImpl) o;
-    return this.label.equals(edge.label) &&
-        this.weight == edge.weight &&
-        this.directed == edge.directed &&
-        this.from.getName().equals(edge.from.getName()) &&
-        this.to.getName().equals(edge.to.getName());
+    return this == o;
   }
 
   /**
+   * Worked out once from the ends, so the edge sets of a graph iterate in the same order from run to run
+   *
    * @return The hashcode for this edge
    */
   @Override
   public int hashCode () {
 
-    int hash = 7;
-    hash = 31 * hash + label.hashCode();
-    hash = 31 * hash + weight;
-    hash = 31 * hash + Boolean.valueOf(directed).hashCode();
-    hash = 31 * hash + from.getName().hashCode();
-    hash = 31 * hash + to.getName().hashCode();
     return hash;
   }
 
+  /**
+   * @param outgoing - True for the outgoing edges of from(), false for the incoming edges of to()
+   * @return The index of this edge in that list, -1 if it isn't in it
+   */
+  @Override
+  public int getSlot (boolean outgoing) {
+
+    return outgoing ? outgoingSlot : incomingSlot;
+  }
+
+  /**
+   * @param outgoing - True for the outgoing edges of from(), false for the incoming edges of to()
+   * @param slot     - The index of this edge in that list, -1 if it isn't in it
+   */
+  @Override
+  public void setSlot (boolean outgoing, int slot) {
+
+    if (outgoing) {
+      outgoingSlot = slot;
+    } else {
+      incomingSlot = slot;
+    }
+  }
+
   /**
    * @return A string containing the JSON representation of this edge
    */
   @Override
   public String toJSONString () {
 
-    return getJSON().toString();
+    StringWriter out = new StringWriter();
+    try {
+      writeJSONString(out);
+    }
+    catch (IOException e) {
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes the JSON representation of this edge straight to the writer
+   *
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
+   */
+  @Override
+  public void writeJSONString (Writer out) throws IOException {
+
+    writeJSON(this, out);
+  }
+
+  /**
+   * Writes the JSON representation of an edge straight to the writer
+   *
+   * @param e   - The edge to write
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
+   */
+  static void writeJSON (Edge e, Writer out) throws IOException {
+
+    Vertex from = e.getFrom();
+    Vertex to = e.getTo();
+    out.write("{\"label\":");
+    JSONValue.writeJSONString(e.getLabel(), out);
+    if (from != null) {
+      out.write(",\"from\":");
+      JSONValue.writeJSONString(from.getName(), out);
+    }
+    if (to != null) {
+      out.write(",\"to\":");
+      JSONValue.writeJSONString(to.getName(), out);
+    }
+    out.write(",\"weight\":");
+    out.write(Integer.toString(e.getWeight()));
+    out.write(",\"directed\":");
+    out.write(e.getDirected() ? "true" : "false");
+    out.write('}');
   }
 
   /**
@@ -126,7 +209,34 @@ class EdgeImpl implements EdgeIfc {
   @Override
   public void setWeight (int w) {
 
-    weight = (w >= 0) ? w : weight;
+    if (w < 0) {
+      return;
+    }
+
+    // Two threads setting the weight at once each replace a different weight, and each is told the one it replaced
+    int oldWeight;
+    do {
+      oldWeight = weight;
+      if (w == oldWeight) {
+        return;
+      }
+    } while (!WEIGHT.compareAndSet(this, oldWeight, w));
+
+    GraphObserver o = observer;
+    if (o != null) {
+      o.weightChanged(this, oldWeight);
+    }
+  }
+
+  /**
+   * Set the graph to tell about changes to this edge
+   *
+   * @param o - The observer, null to stop telling anyone
+   */
+  @Override
+  public void setObserver (GraphObserver o) {
+
+    observer = o;
   }
 
   /**
@@ -178,25 +288,5 @@ class EdgeImpl implements EdgeIfc {
     return from;
   }
 
-  /**
-   * @return The JSON object that represents this edge
-   */
-  JSONObject getJSON () {
-
-    JSONObject obj = new JSONObject();
-
-    obj.put("label", label);
-    if (from != null) {
-      obj.put("from", from.getName());
-    }
-    if (to != null) {
-      obj.put("to", to.getName());
-    }
-    obj.put("weight", weight);
-    obj.put("directed", directed);
-
-    return obj;
-  }
-
 }
 
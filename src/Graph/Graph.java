@@ -1,9 +1,11 @@
 package Graph;
 
 import java.awt.*;
+import java.io.File;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.List;
+import java.util.Stack;
 
 public interface Graph {
 
@@ -25,12 +27,38 @@ public interface Graph {
    */
   public Vertex getVertex (String name);
 
+  /**
+   * Looks a vertex up by id, which is an array read instead of hashing a name
+   *
+   * @param id - The id of the vertex to retrieve, see Vertex.getId
+   * @return The vertex with the id, null if no vertex in the graph has it
+   */
+  public Vertex getVertex (int id);
+
+  /**
+   * @return One more than the highest vertex id in the graph, so arrays of this size can be indexed by vertex id
+   */
+  public int getVertexIdBound ();
+
   /**
    * @param location - The location to determine if a vertex resides at
    * @return The vertex at the location, null if there isn't a vertex at that location
    */
   public Vertex getVertexAtLocation (Point location);
 
+  /**
+   * @param area - The area to look in, the edges of the area are included
+   * @return The vertices whose location is inside the area
+   */
+  public List<Vertex> getVerticesInArea (Rectangle area);
+
+  /**
+   * @param location - The location to measure from
+   * @param k        - The number of vertices wanted
+   * @return Up to k of the vertices closest to the location, closest first
+   */
+  public List<Vertex> getNearestVertices (Point location, int k);
+
   /**
    * @return A list of the vertices in the graph
    */
@@ -105,6 +133,23 @@ public interface Graph {
    */
   public boolean load (Reader reader);
 
+  /**
+   * Writes the graph to a file in the compact binary format, which is much faster to load than JSON.
+   *
+   * @param file - The file to write, replaced if it already exists
+   * @return True if the graph is successfully written to the file, false otherwise
+   */
+  public boolean saveBinary (File file);
+
+  /**
+   * Memory maps a file written by saveBinary, then populates the graph with the vertices and
+   * edges contained in it.
+   *
+   * @param file - The file to read
+   * @return True if the graph is successfully populated with the vertices and edges in the file, false otherwise
+   */
+  public boolean loadBinary (File file);
+
   /**
    * Does a breadth first search to determine if all the vertices can be reached from the starting point
    *
@@ -124,6 +169,23 @@ public interface Graph {
    */
   public boolean areVerticesConnected (Vertex from, Vertex to);
 
+  /**
+   * Finds the weakly connected components, the groups of vertices that are connected when edge direction is
+   * ignored. While only vertices and edges are added the components are kept up to date as they are, so this
+   * doesn't search the graph again, and neither does isGraphConnected or areVerticesConnected on a graph without
+   * directed edges. They are worked out again after a vertex or edge is removed.
+   *
+   * @return The weakly connected components of the graph as it is now
+   */
+  public Components getWeaklyConnectedComponents ();
+
+  /**
+   * Finds the strongly connected components, the groups of vertices that can all be reached from each other
+   *
+   * @return The strongly connected components of the graph as it is now
+   */
+  public Components getStronglyConnectedComponents ();
+
   /**
    * Return an interface that can be used to get path information
    * for the from vertex.
@@ -133,4 +195,124 @@ public interface Graph {
    */
   public ShortestPath getPathInformation (Vertex from);
 
+  /**
+   * Path information for the from vertex that keeps itself up to date as the graph changes. After an edge is
+   * added, removed or reweighted only the paths that change are worked out again, so tracking a source costs much
+   * less than asking getPathInformation again after every change. Changes made inside a transaction are seen when
+   * it ends. Close the paths when they are no longer needed, until then the graph keeps them updated.
+   *
+   * @param from - The vertex to get path information for
+   * @return The interface to use to find distances and paths to other vertices
+   * @throws IllegalArgumentException If from is null or not in the graph
+   */
+  public DynamicShortestPath trackPathInformation (Vertex from) throws IllegalArgumentException;
+
+  /**
+   * Sets how many shortest path trees getPathInformation keeps, for the sources asked about most recently.
+   * A kept tree is handed out again until the vertices, the edges or an edge weight change. The default is 128.
+   *
+   * @param size - The most trees to keep, 0 to turn the cache off
+   */
+  public void setPathCacheSize (int size);
+
+  /**
+   * Finds a shortest path between two vertices with an A* search, which only explores the part of the graph
+   * heading toward the destination. The search is guided by the straight line distance between the vertex
+   * locations, scaled down so it never overestimates the weight of a path in this graph. If the vertices have no
+   * locations to go by, the search is a bidirectional Dijkstra search, which meets in the middle and so explores
+   * about half the vertices a one sided search does.
+   *
+   * @param from - The vertex to start at
+   * @param to   - The vertex to find a path to
+   * @return The path, with the first edge on top of the stack, empty if from is to, null if there isn't a path
+   */
+  public Stack<Edge> shortestPath (Vertex from, Vertex to);
+
+  /**
+   * Finds a shortest path between two vertices with an A* search guided by the heuristic. With Heuristics.NONE
+   * the search is a bidirectional Dijkstra search, running forward from the start and backward from the destination
+   * until the two meet.
+   *
+   * @param from      - The vertex to start at
+   * @param to        - The vertex to find a path to
+   * @param heuristic - The estimate of the distance left, see Heuristics. Must never be more than the real distance,
+   *                  or the path found may not be the shortest
+   * @return The path, with the first edge on top of the stack, empty if from is to, null if there isn't a path
+   */
+  public Stack<Edge> shortestPath (Vertex from, Vertex to, Heuristic heuristic);
+
+  /**
+   * Builds an immutable, compressed sparse row copy of the graph for traversal heavy workloads. Later changes to
+   * the graph are not seen by the compiled copy, compile again to pick them up.
+   *
+   * @return The compiled copy of the graph
+   */
+  public CompiledGraph compile ();
+
+  /**
+   * Preprocesses the graph into a contraction hierarchy, for graphs that change rarely but are queried often.
+   * Building it is much slower than a single search, but after that each query only searches a small part of the
+   * graph. Later changes to the graph are not seen by the hierarchy, isCurrent tells when to rebuild it.
+   *
+   * @return The contraction hierarchy of the graph
+   */
+  public ContractionHierarchy contract ();
+
+  /**
+   * Takes a read only view of the graph as it is now, in constant time. The graph can keep being changed while
+   * the snapshot is read, and the snapshot keeps seeing the vertices and edges the graph had when it was taken.
+   * Vertices and edges that haven't changed since are shared with the graph, not copied. Weights, locations and
+   * data are not part of the snapshot, they are read as they are now. A graph for one thread at a time is
+   * snapshotted on the thread that changes it, and the snapshot can then be read on any thread. The off-heap graph
+   * is the exception, its snapshots read the unchanged edges from the graph's buffers, so a snapshot of it must not
+   * be read at the same time as the graph is changed. Between changes it still sees the graph as it was.
+   *
+   * @return The snapshot, whose methods that change the graph throw UnsupportedOperationException
+   */
+  public Graph snapshot ();
+
+  /**
+   * Adds a listener that is told about each change as soon as it is made, on the thread that made it
+   *
+   * @param listener - The listener to add
+   * @throws IllegalArgumentException If the listener is null
+   */
+  public void addGraphListener (GraphListener listener) throws IllegalArgumentException;
+
+  /**
+   * Adds a listener that is told about the changes in batches. A batch is delivered once it holds maxEvents
+   * events, or maxDelayMillis after its first event, whichever comes first, so at least one of them must be set.
+   * The changes made inside a transaction are always delivered together, when it ends. A listener must not change
+   * the graph it listens to.
+   *
+   * @param listener       - The listener to add
+   * @param maxEvents      - Deliver once this many events are waiting, 0 for no limit
+   * @param maxDelayMillis - Deliver at most this long after the first event waiting, 0 for no limit
+   * @throws IllegalArgumentException If the listener is null, a limit is negative or both limits are 0
+   */
+  public void addGraphListener (GraphListener listener, int maxEvents, long maxDelayMillis)
+      throws IllegalArgumentException;
+
+  /**
+   * Removes the listener, after delivering the changes still waiting for it
+   *
+   * @param listener - The listener to remove
+   * @return True if the listener was removed, false if it wasn't listening
+   */
+  public boolean removeGraphListener (GraphListener listener);
+
+  /**
+   * Starts a transaction on this thread. The changes this thread makes until the transaction ends are held back,
+   * and then delivered to every listener in one batch. Transactions nest, only the outermost one delivers. They
+   * only group the events, the changes themselves are made and seen straight away.
+   */
+  public void beginTransaction ();
+
+  /**
+   * Ends the transaction started on this thread by beginTransaction
+   *
+   * @throws IllegalStateException If this thread has no transaction open
+   */
+  public void endTransaction () throws IllegalStateException;
+
 }
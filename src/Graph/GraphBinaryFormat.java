@@ -0,0 +1,418 @@
+package Graph;
+
+import java.awt.*;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary form of a graph. All the names, labels and data strings go in a string table, and the
+ * vertices and edges are stored as columns of ints that refer to it. Big endian layout:
+ * <pre>
+ *   int    MAGIC, int VERSION
+ *   int    string count, then per string: int byte length, UTF-8 bytes
+ *   int    vertex count n
+ *   int[n] name, int[n] data (-1 for null), int[n] x, int[n] y, byte[n] flags (1 if the vertex has a location)
+ *   int    edge count m
+ *   int[m] from vertex, int[m] to vertex, int[m] label, int[m] weight, byte[m] directed
+ * </pre>
+ * Loading maps the file into memory, so reading it back is bulk copies out of the page cache instead of parsing.
+ * A mapping can't be bigger than 2GB, so a bigger file is mapped a window at a time as it is read.
+ */
+class GraphBinaryFormat {
+
+  /**
+   * "GRPH"
+   */
+  static final int MAGIC = 0x47525048;
+
+  static final int VERSION = 1;
+
+  private static final byte HAS_LOCATION = 1;
+
+  /**
+   * The most of the file mapped at once when loading
+   */
+  private static final int WINDOW_BYTES = 1 << 30;
+
+  /**
+   * Bytes each vertex and each edge takes in the file, four ints and a byte
+   */
+  private static final int RECORD_BYTES = 17;
+
+  private GraphBinaryFormat () {
+
+  }
+
+  /**
+   * Writes the graph to the file in the binary format
+   *
+   * @param graph - The graph to write
+   * @param file  - The file to write to, replaced if it exists
+   * @return True if the graph was written, false otherwise
+   */
+  static boolean save (Graph graph, File file) {
+
+    if (graph == null || file == null) {
+      return false;
+    }
+
+    List<Vertex> vertices = graph.getVertices();
+    List<Edge> edges = graph.getEdges();
+
+    List<String> strings = new ArrayList<>();
+    Map<String, Integer> stringIds = new HashMap<>();
+
+    // Vertex id to the vertex's index in the file
+    int n = vertices.size();
+    int bound = graph.getVertexIdBound();
+    for (Vertex v : vertices) {
+      bound = Math.max(bound, v.getId() + 1);
+    }
+    int[] vertexIds = new int[bound];
+    Arrays.fill(vertexIds, -1);
+    int[] names = new int[n];
+    int[] data = new int[n];
+    for (int i = 0; i < n; i++) {
+      Vertex v = vertices.get(i);
+      vertexIds[v.getId()] = i;
+      names[i] = stringId(v.getName(), strings, stringIds);
+      data[i] = stringId(v.getData(), strings, stringIds);
+    }
+
+    // Leave out edges to vertices that weren't listed, a concurrent graph may change between the two lists
+    List<Edge> listed = new ArrayList<>(edges.size());
+    for (Edge e : edges) {
+      if (indexOf(e.getFrom(), vertices, vertexIds) >= 0 && indexOf(e.getTo(), vertices, vertexIds) >= 0) {
+        listed.add(e);
+      }
+    }
+    edges = listed;
+
+    int m = edges.size();
+    int[] labels = new int[m];
+    for (int i = 0; i < m; i++) {
+      labels[i] = stringId(edges.get(i).getLabel(), strings, stringIds);
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      out.writeInt(strings.size());
+      for (String s : strings) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+
+      out.writeInt(n);
+      writeInts(out, names);
+      writeInts(out, data);
+      for (Vertex v : vertices) {
+        out.writeInt((v.getLocation() != null) ? v.getLocation().x : 0);
+      }
+      for (Vertex v : vertices) {
+        out.writeInt((v.getLocation() != null) ? v.getLocation().y : 0);
+      }
+      for (Vertex v : vertices) {
+        out.writeByte((v.getLocation() != null) ? HAS_LOCATION : 0);
+      }
+
+      out.writeInt(m);
+      for (Edge e : edges) {
+        out.writeInt(indexOf(e.getFrom(), vertices, vertexIds));
+      }
+      for (Edge e : edges) {
+        out.writeInt(indexOf(e.getTo(), vertices, vertexIds));
+      }
+      writeInts(out, labels);
+      for (Edge e : edges) {
+        out.writeInt(e.getWeight());
+      }
+      for (Edge e : edges) {
+        out.writeByte(e.getDirected() ? 1 : 0);
+      }
+    }
+    catch (IOException e) {
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Maps the file into memory and adds the vertices and edges in it to the graph
+   *
+   * @param graph - The graph to populate
+   * @param file  - The file to read, written by save
+   * @return True if the file was valid and everything in it was added to the graph, false otherwise
+   */
+  static boolean load (Graph graph, File file) {
+
+    return load(graph, file, WINDOW_BYTES);
+  }
+
+  /**
+   * @param graph       - The graph to populate
+   * @param file        - The file to read, written by save
+   * @param windowBytes - The most of the file to map at once, at least 4
+   * @return True if the file was valid and everything in it was added to the graph, false otherwise
+   */
+  static boolean load (Graph graph, File file, int windowBytes) {
+
+    if (graph == null || file == null) {
+      return false;
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedInput buffer = new MappedInput(channel, windowBytes);
+
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        return false;
+      }
+
+      // Check each count against what's left of the file before allocating for it, so a corrupt count fails
+      // the load instead of running out of memory
+      int stringCount = count(buffer, 4);
+      if (stringCount < 0) {
+        return false;
+      }
+      String[] strings = new String[stringCount];
+      byte[] bytes = new byte[64];
+      for (int i = 0; i < strings.length; i++) {
+        int length = count(buffer, 1);
+        if (length < 0) {
+          return false;
+        }
+        if (length > bytes.length) {
+          bytes = new byte[Math.max(length, 2 * bytes.length)];
+        }
+        buffer.get(bytes, length);
+        strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+
+      int n = count(buffer, RECORD_BYTES);
+      if (n < 0) {
+        return false;
+      }
+      int[] names = readInts(buffer, n);
+      int[] data = readInts(buffer, n);
+      int[] xs = readInts(buffer, n);
+      int[] ys = readInts(buffer, n);
+      byte[] flags = new byte[n];
+      buffer.get(flags, n);
+
+      Vertex[] vertices = new Vertex[n];
+      for (int i = 0; i < n; i++) {
+        Point location = ((flags[i] & HAS_LOCATION) != 0) ? new Point(xs[i], ys[i]) : null;
+        String name = strings[names[i]];
+        graph.addVertex(name, location, (data[i] >= 0) ? strings[data[i]] : null);
+        vertices[i] = graph.getVertex(name);
+      }
+
+      int m = count(buffer, RECORD_BYTES);
+      if (m < 0) {
+        return false;
+      }
+      int[] from = readInts(buffer, m);
+      int[] to = readInts(buffer, m);
+      int[] labels = readInts(buffer, m);
+      int[] weights = readInts(buffer, m);
+      byte[] directed = new byte[m];
+      buffer.get(directed, m);
+
+      // The halves this load added as the reverse of a bidirectional edge, keyed by their ends' indices
+      Set<Long> reverseHalves = new HashSet<>();
+      for (int i = 0; i < m; i++) {
+        Vertex f = vertices[from[i]];
+        Vertex t = vertices[to[i]];
+        String label = (labels[i] >= 0) ? strings[labels[i]] : null;
+        if (!f.hasEdge(t)) {
+          boolean reverse = directed[i] == 0 && !t.hasEdge(f);
+          if (graph.addEdge(f, t, label, weights[i], directed[i] != 0) && reverse) {
+            reverseHalves.add(halfKey(to[i], from[i]));
+          }
+        }
+        else if (reverseHalves.remove(halfKey(from[i], to[i]))) {
+          // The reverse half was made from the other half's label and weight, make it match what was saved
+          Edge e = f.findEdge(t);
+          e.setLabel(label);
+          e.setWeight(weights[i]);
+        }
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * @return The index of v in the file, -1 if v isn't one of the vertices written
+   */
+  private static int indexOf (Vertex v, List<Vertex> vertices, int[] vertexIds) {
+
+    int id = v.getId();
+    int i = (id >= 0 && id < vertexIds.length) ? vertexIds[id] : -1;
+    return (i >= 0 && vertices.get(i) == v) ? i : -1;
+  }
+
+  /**
+   * Reads a count and checks it against the bytes left in the file
+   *
+   * @param buffer    - The file to read from
+   * @param bytesEach - The fewest bytes each of the counted items takes
+   * @return The count, -1 if it's negative or more than the rest of the file could hold
+   */
+  private static int count (MappedInput buffer, int bytesEach) throws IOException {
+
+    int count = buffer.getInt();
+    return (count >= 0 && count <= buffer.remaining() / bytesEach) ? count : -1;
+  }
+
+  private static long halfKey (int from, int to) {
+
+    return ((long) from << 32) | (to & 0xffffffffL);
+  }
+
+  private static int stringId (String s, List<String> strings, Map<String, Integer> stringIds) {
+
+    if (s == null) {
+      return -1;
+    }
+
+    Integer id = stringIds.get(s);
+    if (id == null) {
+      id = strings.size();
+      strings.add(s);
+      stringIds.put(s, id);
+    }
+
+    return id;
+  }
+
+  private static void writeInts (DataOutputStream out, int[] values) throws IOException {
+
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  private static int[] readInts (MappedInput buffer, int count) throws IOException {
+
+    int[] values = new int[count];
+    buffer.get(values);
+    return values;
+  }
+
+  /**
+   * Reads a file front to back through a mapped window, which is moved along the file as it is read
+   */
+  private static class MappedInput {
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowBytes;
+
+    /**
+     * Where the window starts in the file
+     */
+    private long start;
+    private MappedByteBuffer window;
+
+    MappedInput (FileChannel channel, int windowBytes) throws IOException {
+
+      this.channel = channel;
+      this.size = channel.size();
+      this.windowBytes = Math.max(windowBytes, 4);
+      map(0);
+    }
+
+    /**
+     * @return The bytes left in the file
+     */
+    long remaining () {
+
+      return size - start - window.position();
+    }
+
+    int getInt () throws IOException {
+
+      if (window.remaining() < 4) {
+        next();
+      }
+
+      return window.getInt();
+    }
+
+    /**
+     * Reads count bytes into the start of bytes
+     */
+    void get (byte[] bytes, int count) throws IOException {
+
+      int done = 0;
+      while (done < count) {
+        if (!window.hasRemaining()) {
+          next();
+        }
+        int k = Math.min(count - done, window.remaining());
+        window.get(bytes, done, k);
+        done += k;
+      }
+    }
+
+    /**
+     * Fills the array with the next ints in the file
+     */
+    void get (int[] values) throws IOException {
+
+      int done = 0;
+      while (done < values.length) {
+        if (window.remaining() < 4) {
+          next();
+        }
+        int k = Math.min(values.length - done, window.remaining() / 4);
+        window.asIntBuffer().get(values, done, k);
+        window.position(window.position() + 4 * k);
+        done += k;
+      }
+    }
+
+    /**
+     * Moves the window on to start where reading got to
+     *
+     * @throws BufferUnderflowException If the file has nothing more to read
+     */
+    private void next () throws IOException {
+
+      long position = start + window.position();
+      if (size - position <= window.remaining()) {
+        throw new BufferUnderflowException();
+      }
+      map(position);
+    }
+
+    private void map (long position) throws IOException {
+
+      start = position;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowBytes, size - position));
+    }
+  }
+
+}
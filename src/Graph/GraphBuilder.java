@@ -0,0 +1,310 @@
+package Graph;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds a graph from vertices and edges added in bulk. The vertices are given dense indexes as they are added,
+ * and edges are staged by index, so nothing is looked up or checked per edge beyond the range of the indexes.
+ * Any number of threads can stage edges at once, each thread stages into a buffer of its own. build() then counts
+ * the edges of every vertex, creates the vertices with their edge lists already the right size, and links all the
+ * edges in one pass.
+ * <p>
+ * Add the vertices before the edges that use them. Staging must be finished, and the staging threads joined or
+ * otherwise synchronized with, before build() is called. The graph built matches adding the same vertices and edges
+ * through Graph.addVertex and Graph.addEdge in the order they were staged: a vertex name that is added again keeps
+ * the first vertex, and an edge between vertices that already have one is left out.
+ */
+public class GraphBuilder {
+
+  private final List<String> names;
+  private final List<Point> locations;
+  private final List<String> data;
+
+  /**
+   * Vertex name to its index
+   */
+  private final ConcurrentMap<String, Integer> ids;
+
+  private volatile int vertexCount;
+
+  /**
+   * The edge buffers of all the threads that have staged edges
+   */
+  private final Queue<EdgeBuffer> buffers;
+
+  private final ThreadLocal<EdgeBuffer> buffer = new ThreadLocal<EdgeBuffer>() {
+
+    @Override
+    protected EdgeBuffer initialValue () {
+
+      EdgeBuffer b = new EdgeBuffer();
+      buffers.add(b);
+      return b;
+    }
+  };
+
+  /**
+   * Create a builder without any vertices or edges
+   */
+  public GraphBuilder () {
+
+    names = new ArrayList<>();
+    locations = new ArrayList<>();
+    data = new ArrayList<>();
+    ids = new ConcurrentHashMap<>();
+    buffers = new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * @param name     - The name for the new vertex
+   * @param location - The location of the new vertex
+   * @param data     - The data for the vertex
+   * @return The index of the vertex, the index it already had if a vertex with the name was added before
+   * @throws IllegalArgumentException If the name is null or empty
+   */
+  public synchronized int addVertex (String name, Point location, String data) throws IllegalArgumentException {
+
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Vertex name cannot be empty");
+    }
+
+    Integer id = ids.get(name);
+    if (id != null) {
+      return id;
+    }
+
+    int next = names.size();
+    names.add(name);
+    locations.add(location);
+    this.data.add(data);
+    ids.put(name, next);
+    vertexCount = next + 1;
+
+    return next;
+  }
+
+  /**
+   * @param names     - The names for the new vertices
+   * @param locations - The locations of the new vertices, may be null if none of them have one
+   * @param data      - The data for the vertices, may be null if none of them have any
+   * @return The index of each vertex
+   * @throws IllegalArgumentException If a name is null or empty, or the arrays aren't the same length
+   */
+  public synchronized int[] addVertices (String[] names, Point[] locations, String[] data)
+      throws IllegalArgumentException {
+
+    if ((locations != null && locations.length != names.length) || (data != null && data.length != names.length)) {
+      throw new IllegalArgumentException("The arrays must be the same length");
+    }
+
+    int[] indexes = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      indexes[i] = addVertex(names[i], (locations != null) ? locations[i] : null, (data != null) ? data[i] : null);
+    }
+
+    return indexes;
+  }
+
+  /**
+   * @param name - The name of the vertex
+   * @return The index of the vertex, -1 if no vertex has the name
+   */
+  public int getVertex (String name) {
+
+    Integer id = (name != null) ? ids.get(name) : null;
+    return (id != null) ? id : -1;
+  }
+
+  /**
+   * Stages an edge, in this thread's buffer
+   *
+   * @param from     - The index of the Edge starting vertex
+   * @param to       - The index of the Edge ending vertex
+   * @param label    - The Edge label
+   * @param weight   - The Edge weight
+   * @param directed - True if the edge has a direction, false if it is bidirectional
+   * @throws IllegalArgumentException If from/to are not vertices in the builder
+   */
+  public void addEdge (int from, int to, String label, int weight, boolean directed) throws IllegalArgumentException {
+
+    int n = vertexCount;
+    if (from < 0 || from >= n) {
+      throw new IllegalArgumentException("from is not in graph");
+    }
+
+    if (to < 0 || to >= n) {
+      throw new IllegalArgumentException("to is not in graph");
+    }
+
+    buffer.get().add(from, to, label, weight, directed);
+  }
+
+  /**
+   * Stages an edge between the vertices with the names, in this thread's buffer
+   *
+   * @param from     - The name of the Edge starting vertex
+   * @param to       - The name of the Edge ending vertex
+   * @param label    - The Edge label
+   * @param weight   - The Edge weight
+   * @param directed - True if the edge has a direction, false if it is bidirectional
+   * @throws IllegalArgumentException If from/to are not vertices in the builder
+   */
+  public void addEdge (String from, String to, String label, int weight, boolean directed)
+      throws IllegalArgumentException {
+
+    int f = getVertex(from);
+    if (f < 0) {
+      throw new IllegalArgumentException("from is not in graph");
+    }
+
+    int t = getVertex(to);
+    if (t < 0) {
+      throw new IllegalArgumentException("to is not in graph");
+    }
+
+    buffer.get().add(f, t, label, weight, directed);
+  }
+
+  /**
+   * Stages the edges from[i] to to[i], in this thread's buffer
+   *
+   * @param from     - The indexes of the Edge starting vertices
+   * @param to       - The indexes of the Edge ending vertices
+   * @param labels   - The Edge labels, may be null to give every edge an empty label
+   * @param weights  - The Edge weights
+   * @param directed - For each edge, true if the edge has a direction, false if it is bidirectional
+   * @throws IllegalArgumentException If an index is not a vertex in the builder, or the arrays aren't the same length
+   */
+  public void addEdges (int[] from, int[] to, String[] labels, int[] weights, boolean[] directed)
+      throws IllegalArgumentException {
+
+    int m = from.length;
+    if (to.length != m || weights.length != m || directed.length != m || (labels != null && labels.length != m)) {
+      throw new IllegalArgumentException("The arrays must be the same length");
+    }
+
+    EdgeBuffer b = buffer.get();
+    b.ensureCapacity(b.count + m);
+    for (int i = 0; i < m; i++) {
+      addEdge(from[i], to[i], (labels != null) ? labels[i] : "", weights[i], directed[i]);
+    }
+  }
+
+  /**
+   * Builds a graph from everything staged so far. The builder keeps what was staged, so it can stage more and
+   * build again.
+   *
+   * @return The new graph
+   */
+  public Graph build () {
+
+    String[] vertexNames;
+    Point[] vertexLocations;
+    String[] vertexData;
+    synchronized (this) {
+      vertexNames = names.toArray(new String[0]);
+      vertexLocations = locations.toArray(new Point[0]);
+      vertexData = data.toArray(new String[0]);
+    }
+    int n = vertexNames.length;
+    List<EdgeBuffer> staged = new ArrayList<>(buffers);
+
+    // Count each vertex's edges, so every list is created at its final size
+    int[] outgoing = new int[n];
+    int[] incoming = new int[n];
+    int numEdges = 0;
+    for (EdgeBuffer b : staged) {
+      for (int i = 0; i < b.count; i++) {
+        outgoing[b.from[i]]++;
+        incoming[b.to[i]]++;
+        numEdges++;
+        if (!b.directed[i]) {
+          outgoing[b.to[i]]++;
+          incoming[b.from[i]]++;
+          numEdges++;
+        }
+      }
+    }
+
+    VertexIfc[] vertices = new VertexIfc[n];
+    for (int i = 0; i < n; i++) {
+      vertices[i] = GraphFactory.createVertex(vertexNames[i], vertexLocations[i], vertexData[i], outgoing[i],
+          incoming[i]);
+    }
+
+    EdgeIfc[] edges = new EdgeIfc[numEdges];
+    int linked = 0;
+    for (EdgeBuffer b : staged) {
+      for (int i = 0; i < b.count; i++) {
+        VertexIfc f = vertices[b.from[i]];
+        VertexIfc t = vertices[b.to[i]];
+        // Same as addEdge, a bidirectional edge is left out entirely if its first direction is already there
+        if (f.hasEdge(t)) {
+          continue;
+        }
+        edges[linked++] = link(f, t, b.labels[i], b.weights[i], b.directed[i]);
+        if (!b.directed[i] && !t.hasEdge(f)) {
+          edges[linked++] = link(t, f, b.labels[i], b.weights[i], false);
+        }
+      }
+    }
+
+    return GraphFactory.createGraph(vertices, (linked == numEdges) ? edges : Arrays.copyOf(edges, linked));
+  }
+
+  private static EdgeIfc link (VertexIfc from, VertexIfc to, String label, int weight, boolean directed) {
+
+    EdgeIfc e = GraphFactory.createEdge(from, to, label, weight, directed);
+    from.addEdge(e);
+    if (to != from) {
+      to.addEdge(e);
+    }
+
+    return e;
+  }
+
+  /**
+   * The edges staged by one thread, in parallel arrays
+   */
+  private static class EdgeBuffer {
+
+    int[] from = new int[64];
+    int[] to = new int[64];
+    String[] labels = new String[64];
+    int[] weights = new int[64];
+    boolean[] directed = new boolean[64];
+    int count;
+
+    void add (int f, int t, String label, int weight, boolean d) {
+
+      if (count == from.length) {
+        ensureCapacity(2 * count);
+      }
+      from[count] = f;
+      to[count] = t;
+      labels[count] = label;
+      weights[count] = weight;
+      directed[count] = d;
+      count++;
+    }
+
+    void ensureCapacity (int capacity) {
+
+      if (capacity > from.length) {
+        from = Arrays.copyOf(from, capacity);
+        to = Arrays.copyOf(to, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        directed = Arrays.copyOf(directed, capacity);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+package Graph;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import java.awt.*;
+import java.util.Random;
+
+public class GraphBuilderTest extends TestCase {
+
+  private static final String VERTEX_NAME_PREFIX = "Node ";
+
+  public void testMatchesAddEdge () throws Exception {
+
+    int n = 200;
+    String[] names = new String[n];
+    Point[] locations = new Point[n];
+    for (int i = 0; i < n; i++) {
+      names[i] = VERTEX_NAME_PREFIX + i;
+      locations[i] = new Point(i, 2 * i);
+    }
+
+    // Duplicates, self loops and bidirectional edges over directed ones are all in the mix
+    Random random = new Random(9);
+    int m = 1000;
+    int[] from = new int[m];
+    int[] to = new int[m];
+    int[] weights = new int[m];
+    boolean[] directed = new boolean[m];
+    for (int i = 0; i < m; i++) {
+      from[i] = random.nextInt(n);
+      to[i] = (i % 50 == 0) ? from[i] : random.nextInt(n);
+      weights[i] = random.nextInt(100);
+      directed[i] = random.nextBoolean();
+    }
+
+    Graph expected = GraphFactory.createGraph();
+    for (int i = 0; i < n; i++) {
+      expected.addVertex(names[i], locations[i], null);
+    }
+    for (int i = 0; i < m; i++) {
+      expected.addEdge(expected.getVertex(names[from[i]]), expected.getVertex(names[to[i]]), "", weights[i],
+          directed[i]);
+    }
+
+    GraphBuilder builder = new GraphBuilder();
+    int[] indexes = builder.addVertices(names, locations, null);
+    Assert.assertEquals(n - 1, indexes[n - 1]);
+    Assert.assertEquals(3, builder.addVertex(names[3], null, null));
+    builder.addEdges(from, to, null, weights, directed);
+    Graph built = builder.build();
+
+    Assert.assertEquals(n, built.getSize());
+    Assert.assertEquals(expected.getEdges().size(), built.getEdges().size());
+    assertTrue(DeepEquality.graphsEqual(expected, built));
+    for (int i = 0; i < n; i++) {
+      Vertex v = built.getVertex(names[i]);
+      Assert.assertEquals(locations[i], v.getLocation());
+      assertTrue(DeepEquality.verticesEqual(expected.getVertex(names[i]), v));
+    }
+    Assert.assertSame(built.getVertex(names[5]), built.getVertexAtLocation(new Point(5, 10)));
+
+    // The graph built is an ordinary graph
+    Vertex a = built.getVertex(names[0]);
+    Vertex b = built.getVertex(names[1]);
+    built.removeEdge(a, b);
+    assertTrue(built.addEdge(a, b, "", 1, true));
+    assertTrue(built.removeVertex(names[1]));
+    Assert.assertEquals(n - 1, built.getSize());
+  }
+
+  public void testStagingFromThreads () throws Exception {
+
+    final int n = 1000;
+    final GraphBuilder builder = new GraphBuilder();
+    for (int i = 0; i < n; i++) {
+      builder.addVertex(VERTEX_NAME_PREFIX + i, null, "");
+    }
+
+    // Each thread stages the edges from its own share of the vertices
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int first = t;
+      threads[t] = new Thread() {
+
+        @Override
+        public void run () {
+
+          for (int i = first; i < n; i += 4) {
+            builder.addEdge(i, (i + 1) % n, "", i, true);
+            builder.addEdge(VERTEX_NAME_PREFIX + i, VERTEX_NAME_PREFIX + ((i + 7) % n), "", i, false);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    Graph graph = builder.build();
+    Assert.assertEquals(n, graph.getSize());
+    Assert.assertEquals(3 * n, graph.getEdges().size());
+    assertTrue(graph.isGraphConnected(null));
+    Vertex v = graph.getVertex(VERTEX_NAME_PREFIX + 10);
+    assertTrue(v.hasEdge(graph.getVertex(VERTEX_NAME_PREFIX + 11)));
+    assertTrue(graph.getVertex(VERTEX_NAME_PREFIX + 17).hasEdge(v));
+
+    try {
+      builder.addEdge(0, n, "", 1, true);
+      fail("Staged an edge to a vertex that isn't in the builder");
+    }
+    catch (IllegalArgumentException e) {
+    }
+  }
+
+}
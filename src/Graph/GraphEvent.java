@@ -0,0 +1,130 @@
+package Graph;
+
+import java.awt.*;
+
+/**
+ * One change made to a graph, as handed to a GraphListener. Events only hold references to what changed, the
+ * vertex or edge is read as it is now, not as it was when the event was made.
+ */
+public class GraphEvent {
+
+  public enum Type {
+    VERTEX_ADDED,
+    VERTEX_REMOVED,
+    EDGE_ADDED,
+    EDGE_REMOVED,
+    WEIGHT_CHANGED,
+    LOCATION_CHANGED,
+
+    /**
+     * Every vertex and edge was dropped at once by clear, sent instead of a removal event for each of them
+     */
+    CLEARED
+  }
+
+  private final Type type;
+  private final Vertex vertex;
+  private final Edge edge;
+  private final int oldWeight;
+  private final Point oldLocation;
+
+  private GraphEvent (Type type, Vertex vertex, Edge edge, int oldWeight, Point oldLocation) {
+
+    this.type = type;
+    this.vertex = vertex;
+    this.edge = edge;
+    this.oldWeight = oldWeight;
+    this.oldLocation = oldLocation;
+  }
+
+  static GraphEvent vertexAdded (Vertex v) {
+
+    return new GraphEvent(Type.VERTEX_ADDED, v, null, 0, null);
+  }
+
+  static GraphEvent vertexRemoved (Vertex v) {
+
+    return new GraphEvent(Type.VERTEX_REMOVED, v, null, 0, null);
+  }
+
+  static GraphEvent edgeAdded (Edge e) {
+
+    return new GraphEvent(Type.EDGE_ADDED, null, e, 0, null);
+  }
+
+  static GraphEvent edgeRemoved (Edge e) {
+
+    return new GraphEvent(Type.EDGE_REMOVED, null, e, 0, null);
+  }
+
+  static GraphEvent weightChanged (Edge e, int oldWeight) {
+
+    return new GraphEvent(Type.WEIGHT_CHANGED, null, e, oldWeight, null);
+  }
+
+  static GraphEvent locationChanged (Vertex v, Point oldLocation) {
+
+    return new GraphEvent(Type.LOCATION_CHANGED, v, null, 0, oldLocation);
+  }
+
+  static GraphEvent cleared () {
+
+    return new GraphEvent(Type.CLEARED, null, null, 0, null);
+  }
+
+  /**
+   * @return What kind of change this is
+   */
+  public Type getType () {
+
+    return type;
+  }
+
+  /**
+   * @return The vertex added, removed or moved, null for the other types
+   */
+  public Vertex getVertex () {
+
+    return vertex;
+  }
+
+  /**
+   * @return The edge added, removed or reweighted, null for the other types. Removing a bidirectional edge
+   * removes both its directions, and sends an event for each.
+   */
+  public Edge getEdge () {
+
+    return edge;
+  }
+
+  /**
+   * @return The weight the edge had before a WEIGHT_CHANGED event, 0 for the other types
+   */
+  public int getOldWeight () {
+
+    return oldWeight;
+  }
+
+  /**
+   * @return The location the vertex had before a LOCATION_CHANGED event, null for the other types
+   */
+  public Point getOldLocation () {
+
+    return oldLocation;
+  }
+
+  @Override
+  public String toString () {
+
+    if (vertex != null) {
+      return type + " " + vertex.getName();
+    }
+
+    if (edge != null) {
+      return type + " " + edge.getFrom().getName() + " -> " + edge.getTo().getName();
+    }
+
+    return type.toString();
+  }
+
+}
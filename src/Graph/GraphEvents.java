@@ -0,0 +1,287 @@
+package Graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The listeners of a graph, and the events waiting to be delivered to them. Each listener has its own batch, which
+ * is delivered once it holds maxEvents events, or maxDelayMillis after its first event, whichever comes first.
+ * Events made inside a transaction are held by the thread making them, and delivered together when the outermost
+ * transaction of that thread ends. A graph that makes its events while holding locks holds them back until it has
+ * let go, so a listener never runs under the graph's locks.
+ */
+class GraphEvents {
+
+  private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+  private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+
+  private final ThreadLocal<Held> held = new ThreadLocal<Held>() {
+
+    @Override
+    protected Held initialValue () {
+
+      return new Held();
+    }
+  };
+
+  /**
+   * @return True if anything is listening, events are only made when this is true
+   */
+  boolean listening () {
+
+    return !registrations.isEmpty();
+  }
+
+  /**
+   * @param listener       - The listener to add
+   * @param maxEvents      - Deliver once this many events are waiting, 0 for no limit
+   * @param maxDelayMillis - Deliver at most this long after the first event waiting, 0 for no limit
+   * @throws IllegalArgumentException If the listener is null, a limit is negative or both limits are 0
+   */
+  void add (GraphListener listener, int maxEvents, long maxDelayMillis) throws IllegalArgumentException {
+
+    if (listener == null) {
+      throw new IllegalArgumentException("listener cannot be null");
+    }
+
+    if (maxEvents < 0 || maxDelayMillis < 0) {
+      throw new IllegalArgumentException("The limits cannot be negative");
+    }
+
+    // Outside a transaction nothing would ever deliver the batch, so it would grow until the listener is removed
+    if (maxEvents == 0 && maxDelayMillis == 0) {
+      throw new IllegalArgumentException("At least one of the limits must be set");
+    }
+
+    registrations.add(new Registration(listener, maxEvents, maxDelayMillis));
+  }
+
+  /**
+   * Removes the listener, after delivering the events still waiting for it
+   *
+   * @param listener - The listener to remove
+   * @return True if the listener was removed, false if it wasn't listening
+   */
+  boolean remove (GraphListener listener) {
+
+    for (Registration r : registrations) {
+      if (r.listener == listener && registrations.remove(r)) {
+        r.deliver();
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Starts a transaction on this thread, transactions nest
+   */
+  void begin () {
+
+    Transaction t = transaction.get();
+    if (t == null) {
+      t = new Transaction();
+      transaction.set(t);
+    }
+    t.depth++;
+  }
+
+  /**
+   * Ends a transaction on this thread, the outermost one delivers its events to every listener
+   *
+   * @throws IllegalStateException If this thread has no transaction open
+   */
+  void end () throws IllegalStateException {
+
+    Transaction t = transaction.get();
+    if (t == null) {
+      throw new IllegalStateException("No transaction to end");
+    }
+
+    if (--t.depth == 0) {
+      transaction.remove();
+      if (!t.events.isEmpty()) {
+        for (Registration r : registrations) {
+          r.addAll(t.events);
+        }
+      }
+    }
+  }
+
+  /**
+   * Holds back the events this thread publishes until the matching release, holds nest. Called by the graph before
+   * it takes the locks for a change.
+   */
+  void hold () {
+
+    held.get().depth++;
+  }
+
+  /**
+   * Ends a hold, the outermost one delivers the events held back. Called by the graph once it has let go of the
+   * locks for a change, so the listeners are free to call back into the graph.
+   */
+  void release () {
+
+    Held h = held.get();
+    if (--h.depth == 0 && !h.events.isEmpty()) {
+      // A listener may change the graph again from here, which holds its events in a new list
+      List<GraphEvent> events = h.events;
+      h.events = new ArrayList<>();
+      for (GraphEvent event : events) {
+        deliver(event);
+      }
+    }
+  }
+
+  /**
+   * Called by the thread that made the change, after the change is made
+   *
+   * @param event - The change
+   */
+  void publish (GraphEvent event) {
+
+    Transaction t = transaction.get();
+    if (t != null) {
+      t.events.add(event);
+      return;
+    }
+
+    Held h = held.get();
+    if (h.depth > 0) {
+      h.events.add(event);
+      return;
+    }
+
+    deliver(event);
+  }
+
+  private void deliver (GraphEvent event) {
+
+    for (Registration r : registrations) {
+      r.add(event);
+    }
+  }
+
+  private static class Transaction {
+
+    int depth;
+    final List<GraphEvent> events = new ArrayList<>();
+  }
+
+  private static class Held {
+
+    int depth;
+    List<GraphEvent> events = new ArrayList<>();
+  }
+
+  /**
+   * A listener and its batch. The batch is guarded by the registration, delivery by deliveryLock, so events can be
+   * added while a batch is being delivered, and batches are delivered one at a time in order.
+   */
+  private static class Registration implements Runnable {
+
+    final GraphListener listener;
+    private final int maxEvents;
+    private final long maxDelayMillis;
+    private final Object deliveryLock = new Object();
+    private List<GraphEvent> pending = new ArrayList<>();
+    private boolean scheduled;
+
+    Registration (GraphListener listener, int maxEvents, long maxDelayMillis) {
+
+      this.listener = listener;
+      this.maxEvents = maxEvents;
+      this.maxDelayMillis = maxDelayMillis;
+    }
+
+    void add (GraphEvent event) {
+
+      boolean full;
+      synchronized (this) {
+        pending.add(event);
+        full = maxEvents > 0 && pending.size() >= maxEvents;
+        if (!full) {
+          schedule();
+        }
+      }
+
+      if (full) {
+        deliver();
+      }
+    }
+
+    /**
+     * Adds the events of a transaction, and delivers them at once whatever the limits
+     */
+    void addAll (List<GraphEvent> events) {
+
+      synchronized (this) {
+        pending.addAll(events);
+      }
+      deliver();
+    }
+
+    /**
+     * The caller holds the registration
+     */
+    private void schedule () {
+
+      if (maxDelayMillis > 0 && !scheduled) {
+        scheduled = true;
+        Timer.EXECUTOR.schedule(this, maxDelayMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    void deliver () {
+
+      synchronized (deliveryLock) {
+        List<GraphEvent> batch;
+        synchronized (this) {
+          if (pending.isEmpty()) {
+            return;
+          }
+          batch = pending;
+          pending = new ArrayList<>();
+          scheduled = false;
+        }
+        listener.graphChanged(Collections.unmodifiableList(batch));
+      }
+    }
+
+    /**
+     * Delivers the batch from the timer thread once its delay is up
+     */
+    @Override
+    public void run () {
+
+      deliver();
+    }
+  }
+
+  /**
+   * The one daemon thread that delivers delayed batches for every graph, only started once a batch needs it
+   */
+  private static class Timer {
+
+    static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread (Runnable r) {
+
+        Thread t = new Thread(r, "Graph event timer");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+}
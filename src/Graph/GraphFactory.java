@@ -9,12 +9,43 @@ public class GraphFactory {
     return new GraphImpl();
   }
 
+  // A graph that many threads can change and query at once
+  public static Graph createConcurrentGraph() {
+
+    return new ConcurrentGraphImpl();
+  }
+
+  // A graph kept outside the Java heap, for graphs too big to keep on it. Its snapshots must not be read while
+  // it is being changed.
+  public static Graph createOffHeapGraph() {
+
+    return new OffHeapGraphImpl();
+  }
+
+  // Only used within the package, a graph around vertices and edges that are already linked
+  static Graph createGraph (VertexIfc[] vs, EdgeIfc[] es) {
+
+    return new GraphImpl(vs, es);
+  }
+
   // Only used within the package, not allowed by general public
   static VertexIfc createVertex (String n, Point l, String d) {
 
     return new VertexImpl(n, l, d);
   }
 
+  // Only used within the package, a vertex with room for the edges it will get
+  static VertexIfc createVertex (String n, Point l, String d, int outgoing, int incoming) {
+
+    return new VertexImpl(n, l, d, outgoing, incoming);
+  }
+
+  // Only used within the package, not allowed by general public
+  static VertexIfc createConcurrentVertex (String n, Point l, String d) {
+
+    return new ConcurrentVertexImpl(n, l, d);
+  }
+
   // Only used within the package, not allowed by general public
   static EdgeIfc createEdge (VertexIfc f, VertexIfc t, String l, int w, boolean d) {
 
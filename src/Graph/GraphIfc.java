@@ -1,14 +1,35 @@
 package Graph;
 
 import org.json.simple.JSONAware;
+import org.json.simple.JSONStreamAware;
 
 import java.util.List;
 import java.util.Set;
 
-public interface GraphIfc extends Graph, JSONAware {
+public interface GraphIfc extends Graph, JSONAware, JSONStreamAware {
 
   public List<Vertex> vertices ();
 
   public Set<EdgeIfc> edges ();
 
+  /**
+   * Algorithms read the edges of a vertex through the graph, so they see the edges a snapshot had
+   *
+   * @param v - A vertex in the graph
+   * @return The outgoing edges of v as this graph sees them
+   */
+  public List<EdgeIfc> outgoingEdges (VertexIfc v);
+
+  /**
+   * @param v - A vertex in the graph
+   * @return The incoming edges of v as this graph sees them
+   */
+  public List<EdgeIfc> incomingEdges (VertexIfc v);
+
+  /**
+   * @param outgoing - True to step through the outgoing edges of vertices, false for the incoming edges
+   * @return A new cursor over the edges of a vertex as this graph sees them, for one thread to use
+   */
+  public EdgeCursor edgeCursor (boolean outgoing);
+
 }
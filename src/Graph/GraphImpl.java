@@ -1,235 +1,113 @@
 package Graph;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONAware;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-
 import java.awt.*;
-import java.io.BufferedReader;
-import java.io.Reader;
-import java.io.Writer;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
-class GraphImpl implements GraphIfc {
+/**
+ * Graph for use by one thread at a time. Graphs are compared by identity, DeepEquality compares what they hold.
+ * <p>
+ * Snapshots are the exception to one thread at a time: a snapshot is taken by the thread changing the graph, and
+ * can then be read by any number of threads while the graph keeps being changed. The vertex map is concurrent, and
+ * the vertices leave the edge lists a snapshot may be reading alone, for that.
+ */
+class GraphImpl extends AbstractGraph implements GraphObserver {
 
   /**
-   * Vector<Vertex> of graph vertices
+   * Vector<Vertex> of graph vertices, concurrent so that snapshots can read it while the graph is changed
    */
-  private final Map<String, VertexIfc> vertices;
+  private Map<String, VertexIfc> vertices;
 
   /**
    * Vector<Edge> of edges in the graph
    */
-  private final Set<EdgeIfc> edges;
-
+  private Set<EdgeIfc> edges;
 
   /**
-   * Construct a new graph without any vertices or edges
+   * Grid index over the vertex locations
    */
-  GraphImpl () {
-
-    vertices = new HashMap<>();
-    edges = new HashSet<>();
-  }
-
-  /**
-   * @return A string form of the graph using the JSON string representation
-   */
-  @Override
-  public String toString () {
-
-    StringBuffer tmp = new StringBuffer("Graph.Graph ");
-    tmp.append(toJSONString());
-    return tmp.toString();
-  }
+  private SpatialIndex spatialIndex;
 
   /**
-   * @param o - Object, possibly a graph, to compare to this graph
-   * @return True if the object matches this graph, false otherwise
+   * State saved for the snapshots taken of this graph
    */
-  @Override
-  public boolean equals (Object o) {
-
-    if (this == o) {
-      return true;
-    }
-
-    if ((o == null) || (this.getClass() != o.getClass())) {
-      return false;
-    }
-
-    GraphImpl graph = (GraphImpl) o;
-    return vertices.equals(graph.vertices) && edges.equals(graph.edges);
-  }
+  private final SnapshotLog snapshots;
 
   /**
-   * @return The hashcode for this graph
+   * The vertex ids, and the vertex that has each one
    */
-  @Override
-  public int hashCode () {
-
-    int hash = 7;
-    hash = 31 * hash + vertices.hashCode();
-    hash = 31 * hash + edges.hashCode();
-    return hash;
-  }
+  private VertexIds ids;
 
   /**
-   * @return A string containing the JSON representation of this graph
-   */
-  @Override
-  public String toJSONString () {
-
-    return getJSON().toString();
-  }
-
-  /**
-   * Writes the JSON string representation of this graph to a Writer.
-   *
-   * @param writer - The writer to be used to store the JSON string
-   * @return True if the JSON string is successfully written to the writer, false otherwise
+   * Construct a new graph without any vertices or edges
    */
-  @Override
-  public boolean save (Writer writer) {
-
-    if (writer == null) {
-      return false;
-    }
-
-    JSONObject json = getJSON();
-
-    try {
-      JSONObject.writeJSONString(json, writer);
-    }
-    catch (Exception e) {
-      return false;
-    }
+  GraphImpl () {
 
-    return true;
+    vertices = new ConcurrentHashMap<>();
+    edges = new HashSet<>();
+    spatialIndex = new SpatialIndex();
+    snapshots = new SnapshotLog();
+    ids = new VertexIds(snapshots, 0);
   }
 
   /**
-   * Reads a JSON string from a Reader, then populates the graph with the vertices and
-   * edges contained in the JSON string.
+   * Construct a graph around vertices whose edges are already in place. The maps are sized for them up front, and
+   * nothing is checked, the caller makes sure the names are unique and the edges are only between these vertices.
    *
-   * @param reader - The reader to be used to access the JSON string
-   * @return True if the graph is successfully populated with the vertices and edges in the JSON string, false otherwise
+   * @param vs - The vertices, with their edges
+   * @param es - All the edges of the vertices
    */
-  @Override
-  public boolean load (Reader reader) {
-
-    if (reader == null) {
-      return false;
-    }
-
-    BufferedReader bufferReader = new BufferedReader(reader);
-    StringBuffer json = new StringBuffer();
-    String line;
+  GraphImpl (VertexIfc[] vs, EdgeIfc[] es) {
 
-    try {
-      while ((line = bufferReader.readLine()) != null) {
-        json.append(line);
-      }
+    vertices = new ConcurrentHashMap<>(Math.max(16, (int) (vs.length / .75f) + 1));
+    edges = new HashSet<>(Math.max(16, (int) (es.length / .75f) + 1));
+    spatialIndex = new SpatialIndex();
+    snapshots = new SnapshotLog();
+    ids = new VertexIds(snapshots, vs.length);
 
-      bufferReader.close();
-    }
-    catch (Exception ex) {
-      return false;
+    for (VertexIfc v : vs) {
+      ids.assign(v);
+      vertices.put(v.getName(), v);
+      spatialIndex.add(v);
+      v.setObserver(this);
     }
-
-    JSONParser parser = new JSONParser();
-    JSONObject obj;
-
-    try {
-      obj = (JSONObject) parser.parse(json.toString());
-    }
-    catch (ParseException e) {
-      return false;
-    }
-
-    /*
-    Walk through object adding vertices and edges.
-     */
-    JSONArray varray = (JSONArray) obj.get("vertices");
-    for (Object vobj : varray) {
-      JSONObject v = (JSONObject) vobj;
-      JSONObject l = (JSONObject) v.get("location");
-      Point location = new Point(((Long) l.get("x")).intValue(), ((Long) l.get("y")).intValue());
-      addVertex((String) v.get("name"), location, (String) v.get("data"));
-    }
-
-    JSONArray earray = (JSONArray) obj.get("edges");
-    for (Object eobj : earray) {
-      JSONObject e = (JSONObject) eobj;
-      String fromName = (String) e.get("from");
-      String toName = (String) e.get("to");
-      Vertex from = getVertex(fromName);
-      Vertex to = getVertex(toName);
-
-      addEdge(from, to, (String) e.get("label"), ((Long) e.get("weight")).intValue(), (boolean) e.get("directed"));
+    for (EdgeIfc e : es) {
+      edges.add(e);
+      e.setObserver(this);
+      edgeAdded(e);
     }
-
-    return true;
   }
 
   /**
-   * @return The number of vertices in the graph
-   */
-  @Override
-  public int getSize () {
-
-    return vertices.size();
-  }
-
-  /**
-   * Are there any vertices in the graph
-   *
-   * @return true if there are no vertices in the graph, false otherwise
-   */
-  @Override
-  public boolean isEmpty () {
-
-    return vertices.isEmpty();
-  }
-
-  /**
-   * @param name - The name of the vertex to retrieve
-   * @return The vertex with the matching name, null if the vertex isn't in the graph
+   * @param location - The location to determine if a vertex resides at
+   * @return The vertex at the location, null if there isn't a vertex at that location
    */
   @Override
-  public Vertex getVertex (String name) {
+  public Vertex getVertexAtLocation (Point location) {
 
-    return (name != null && !name.isEmpty()) ? findVertex(name) : null;
+    return (location != null) ? spatialIndex.at(location) : null;
   }
 
   /**
-   * @param location - The location to determine if a vertex resides at
-   * @return The vertex at the location, null if there isn't a vertex at that location
+   * @param area - The area to look in, the edges of the area are included
+   * @return The vertices whose location is inside the area
    */
   @Override
-  public Vertex getVertexAtLocation (Point location) {
+  public List<Vertex> getVerticesInArea (Rectangle area) {
 
-    if (location != null) {
-      for (VertexIfc v : vertices.values()) {
-        if (v.getLocation().equals(location)) {
-          return v;
-        }
-      }
-    }
-
-    return null;
+    return (area != null) ? spatialIndex.within(area) : new ArrayList<Vertex>();
   }
 
   /**
-   * @return A list of the vertices in the graph
+   * @param location - The location to measure from
+   * @param k        - The number of vertices wanted
+   * @return Up to k of the vertices closest to the location, closest first
    */
   @Override
-  public List<Vertex> getVertices () {
+  public List<Vertex> getNearestVertices (Point location, int k) {
 
-    return new ArrayList<Vertex>(this.vertices.values());
+    return (location != null) ? spatialIndex.nearest(location, k) : new ArrayList<Vertex>();
   }
 
   /**
@@ -250,7 +128,13 @@ class GraphImpl implements GraphIfc {
 
     if (!vertices.containsKey(name)) {
       VertexIfc v = GraphFactory.createVertex(name, location, data);
+      snapshots.record(name, null);
+      ids.assign(v);
       vertices.put(name, v);
+      spatialIndex.add(v);
+      v.setObserver(this);
+      modified();
+      vertexAdded(v);
       return vertices.containsKey(name);
     }
 
@@ -276,18 +160,52 @@ class GraphImpl implements GraphIfc {
       return false;
     }
 
+    snapshots.recordWithNeighbours(v);
     vertices.remove(name);
-
-    // Remove the edges associated with v
-    return v.removeEdges(this);
+    ids.release(v);
+    spatialIndex.remove(v);
+    v.setObserver(null);
+
+    // Remove the edges associated with v, keeping hold of them if the listeners need telling
+    List<EdgeIfc> adjacent = null;
+    if (listening()) {
+      adjacent = new ArrayList<>(v.outgoingEdges());
+      for (EdgeIfc e : v.incomingEdges()) {
+        if (e.from() != v) {
+          adjacent.add(e);
+        }
+      }
+    }
+    boolean removed = v.removeEdges(this);
+    modified();
+    connectionsRemoved();
+    if (adjacent != null) {
+      for (EdgeIfc e : adjacent) {
+        edgeRemoved(e);
+      }
+    }
+    vertexRemoved(v);
+    return removed;
   }
 
   /**
-   * Removes all the vertices and edges from the graph
+   * Removes all the vertices and edges from the graph. Unless a snapshot may still be reading them, the vertices
+   * and edges are dropped all at once in constant time, without being taken apart one by one, and the listeners
+   * are sent a single CLEARED event.
    */
   @Override
   public void clear () {
 
+    if (!snapshots.hasSnapshots()) {
+      vertices = new ConcurrentHashMap<>();
+      edges = new HashSet<>();
+      spatialIndex = new SpatialIndex();
+      ids = new VertexIds(snapshots, 0);
+      modified();
+      cleared();
+      return;
+    }
+
     ArrayList<String> toRemove = new ArrayList<>(vertices.size());
 
     for (String name : vertices.keySet()) {
@@ -322,32 +240,25 @@ class GraphImpl implements GraphIfc {
       throw new IllegalArgumentException("to cannot be null");
     }
 
-    if (!vertices.containsKey(from.getName())) {
+    VertexIfc actualFrom = resolve(from);
+    if (actualFrom == null) {
       throw new IllegalArgumentException("from is not in graph");
     }
 
-    if (!vertices.containsKey(to.getName())) {
+    VertexIfc actualTo = resolve(to);
+    if (actualTo == null) {
       throw new IllegalArgumentException("to is not in graph");
     }
 
-    boolean added = addDirectedEdge(from, to, label, weight, directed);
+    boolean added = addDirectedEdge(actualFrom, actualTo, label, weight, directed);
 
     if (!directed) {
-      added = added && addDirectedEdge(to, from, label, weight, directed);
+      added = added && addDirectedEdge(actualTo, actualFrom, label, weight, directed);
     }
 
     return added;
   }
 
-  /**
-   * @return The list of the edges in the graph
-   */
-  @Override
-  public List<Edge> getEdges () {
-
-    return new ArrayList<Edge>(this.edges);
-  }
-
   /**
    * Remove an Edge from the graph
    *
@@ -367,129 +278,78 @@ class GraphImpl implements GraphIfc {
     }
 
     boolean removed = false;
-    VertexIfc actualFrom = findVertex(from.getName());
-    VertexIfc actualTo = findVertex(to.getName());
+    VertexIfc actualFrom = resolve(from);
+    VertexIfc actualTo = resolve(to);
     EdgeIfc e = actualFrom.find(actualTo);
     if (e != null) {
+      snapshots.record(actualFrom);
+      snapshots.record(actualTo);
       actualFrom.removeEdge(e);
       actualTo.removeEdge(e);
       removed = edges.remove(e);
+      e.setObserver(null);
 
+      EdgeIfc reverse = null;
       if (!e.getDirected()) {
-        e = actualTo.find(actualFrom);
-        if (e != null) {
-          actualFrom.removeEdge(e);
-          actualTo.removeEdge(e);
-          removed = removed && edges.remove(e);
+        reverse = actualTo.find(actualFrom);
+        if (reverse != null) {
+          actualFrom.removeEdge(reverse);
+          actualTo.removeEdge(reverse);
+          removed = removed && edges.remove(reverse);
+          reverse.setObserver(null);
         }
       }
+      modified();
+      connectionsRemoved();
+      edgeRemoved(e);
+      if (reverse != null) {
+        edgeRemoved(reverse);
+      }
     }
 
     return removed;
   }
 
   /**
-   * Does a breadth first search to determine if all the vertices can be reached from the starting point
+   * Takes a read only view of the graph as it is now, in constant time. Take it on the thread changing the graph,
+   * then read it on any thread.
    *
-   * @param startingPoint - The vertex at which to start the search, may be null. If null, just use the
-   *                      first vertex found in the vertices map
-   * @return True if all the vertices can be reached, false otherwise
+   * @return The snapshot
    */
   @Override
-  public boolean isGraphConnected (Vertex startingPoint) throws IllegalArgumentException {
-
-    // if 0 or 1 vertices, return true
-    int numVertices = getSize();
-    if (numVertices <= 1) {
-      return true;
-    }
-
-    VertexIfc v = null;
-    if (startingPoint == null) {
-      Iterator<VertexIfc> it = vertices.values().iterator();
-      if (it.hasNext()) {
-        v = it.next();
-      }
-    } else {
-      v = findVertex(startingPoint.getName());
-    }
+  public Graph snapshot () {
 
-    if (v != null) {
-      // Do breadth-first or depth-first search, counting all vertices reached
-      // If number of vertices counted equals the number of vertices in the graph, return true
-      try {
-        this.breadthFirstSearch(v, null);
-      }
-      catch (Exception ex) {
-      }
-    }
-
-    int visitCount = 0;
-    for (VertexIfc vtx : vertices.values()) {
-      if (vtx.visited()) {
-        visitCount++;
-      }
-    }
-
-    return numVertices == visitCount;
+    return new GraphSnapshot(this, snapshots.freeze());
   }
 
   /**
-   * Does a breadth first search to determine if there is a path from the from vertex
-   * to the to vertex
+   * Keeps the spatial index up to date when a vertex in the graph is moved
    *
-   * @param from - The vertex where the search will start
-   * @param to   - The destination vertex
-   * @return True if there is a path from "from" to "to"
+   * @param v           - The vertex that moved
+   * @param oldLocation - The location of the vertex before it moved, may be null
    */
   @Override
-  public boolean areVerticesConnected (Vertex from, Vertex to) {
-
-    if (from == null) {
-      throw new IllegalArgumentException("from cannot be null");
-    }
-
-    if (to == null) {
-      throw new IllegalArgumentException("to cannot be null");
-    }
-
-    final VertexIfc f = findVertex(from.getName());
-    final VertexIfc t = findVertex(to.getName());
-
-    if (f == null || t == null) {
-      return false;
-    }
-
-    final VisitorEX<RuntimeException> visitor = new VisitorEX<RuntimeException>() {
+  public void locationChanged (VertexIfc v, Point oldLocation) {
 
-      public void visiting (Graph g, VertexIfc v) throws RuntimeException {
-
-        if (v != null && v.equals(t)) {
-          // throw an exception once we find the destination vertex
-          throw new RuntimeException("Found destination vertex");
-        }
-      }
-    };
-
-    try {
-      this.breadthFirstSearch(f, visitor);
-    }
-    catch (Exception ex) {
+    // Vertices dropped by clear still report to the graph
+    if (ids.get(v.getId()) == v) {
+      spatialIndex.move(v);
+      moved(v, oldLocation);
     }
-
-    // If we visited both the from and to vertices, then they are connected
-    return f.visited() && t.visited();
   }
 
   /**
-   * Used internally to get the vertices in the graph
+   * Drops the cached path information and tells the listeners when an edge in the graph changes weight
    *
-   * @return The set of the vertices in the graph
+   * @param e         - The edge whose weight changed
+   * @param oldWeight - The weight of the edge before it changed
    */
   @Override
-  public List<Vertex> vertices () {
+  public void weightChanged (EdgeIfc e, int oldWeight) {
 
-    return new ArrayList<Vertex>(this.vertices.values());
+    if (ids.get(e.from().getId()) == e.from()) {
+      reweighted(e, oldWeight);
+    }
   }
 
   /**
@@ -503,145 +363,74 @@ class GraphImpl implements GraphIfc {
     return edges;
   }
 
-  /**
-   * @return The JSON object that represents this graph
-   */
-  JSONObject getJSON () {
-
-    JSONObject obj = new JSONObject();
-    JSONParser parser = new JSONParser();
-
-    JSONArray jsonVertices = new JSONArray();
-    for (VertexIfc v : vertices.values()) {
-      try {
-        JSONObject jsonVertex = (JSONObject) parser.parse(v.toJSONString());
-        jsonVertices.add(jsonVertex);
-      }
-      catch (ParseException e) {
-      }
-    }
-    obj.put("vertices", jsonVertices);
-
-    JSONArray jsonEdges = new JSONArray();
-    for (EdgeIfc e : edges.toArray(new EdgeIfc[edges.size()])) {
-      try {
-        JSONObject jsonEdge = (JSONObject) parser.parse(e.toJSONString());
-        jsonEdges.add(jsonEdge);
-      }
-      catch (ParseException ex) {
-      }
-    }
-    obj.put("edges", jsonEdges);
-
-    return obj;
-  }
-
   /**
    * @param name - The name of the vertex to retrieve
    * @return The vertex with the matching name, null if the vertex isn't in the graph
    */
+  @Override
   VertexIfc findVertex (String name) {
 
     return (name != null && !name.isEmpty()) ? vertices.get(name) : null;
   }
 
   /**
-   * Adds a directed edge to a vertex. For bidirectional edges, will be call twice when the edge is added.
-   *
-   * @param from     - The Edge starting vertex
-   * @param to       - The Edge ending vertex
-   * @param label    - The Edge label
-   * @param weight   - The Edge weight
-   * @param directed - True if the edge has a direction, false if it is bidirectional
-   * @return True if the edge was added to the vertex and the graph
+   * @param id - A vertex id
+   * @return The vertex in the graph with the id, null if there isn't one
    */
-  private boolean addDirectedEdge (Vertex from, Vertex to, String label, int weight, boolean directed) {
-
-    if (from == null) {
-      throw new IllegalArgumentException("from cannot be null");
-    }
-
-    if (to == null) {
-      throw new IllegalArgumentException("to cannot be null");
-    }
-
-    boolean added = false;
-    if (!from.hasEdge(to)) {
-      VertexIfc actualFrom = findVertex(from.getName());
-      VertexIfc actualTo = findVertex(to.getName());
-      EdgeIfc e = GraphFactory.createEdge(actualFrom, actualTo, label, weight, directed);
-      actualFrom.addEdge(e);
-      actualTo.addEdge(e);
-      edges.add(e);
-      added = true;
-    }
+  @Override
+  VertexIfc vertexAt (int id) {
 
-    return added;
+    return ids.get(id);
   }
 
   /**
-   * Initializes the vertices by clearing the visited flag
+   * @return One more than the highest vertex id in the graph
    */
-  private void initializeBreadthFirstSearch () {
+  @Override
+  int idBound () {
 
-    for (VisitAware v : vertices.values()) {
-      v.leave();
-    }
+    return ids.bound();
   }
 
   /**
-   * Perform a breadth first search of this graph, starting at v. The visit may
-   * be cut short if visitor throws an exception during a visit callback.
-   *
-   * @param v       - The search starting point
-   * @param visitor - The visitor whose visiting method is called after visiting a vertex.
-   * @throws E if visitor.visiting throws an exception
+   * @return The vertices in the graph, a live view that the caller must not change
    */
-  private <E extends Exception> void breadthFirstSearch (VertexIfc v, VisitorEX<E> visitor) throws E {
-
-    if (v == null) {
-      throw new IllegalArgumentException("v cannot be null");
-    }
-
-    LinkedList<VertexIfc> q = new LinkedList<VertexIfc>();
-
-    initializeBreadthFirstSearch();
+  @Override
+  Collection<VertexIfc> vertexValues () {
 
-    q.add(v);
-    v.visit();
-    if (visitor != null) {
-      visitor.visiting(this, v);
-    }
-    while (!q.isEmpty()) {
-      v = q.removeFirst();
-      for (EdgeIfc e : v.outgoingEdges()) {
-        VertexIfc to = e.to();
-        if (!to.visited()) {
-          q.add(to);
-          to.visit();
-          if (visitor != null) {
-            visitor.visiting(this, to);
-          }
-        }
-      }
-    }
+    return vertices.values();
   }
 
   /**
-   * Return an interface that can be used to get path information
-   * for the from vertex.
+   * Adds a directed edge between two vertices in the graph. For bidirectional edges, will be call twice when the
+   * edge is added.
    *
-   * @param from - The vertex to get path information for
-   * @return The interface to use to find distances and paths to other vertices
+   * @param from     - The Edge starting vertex
+   * @param to       - The Edge ending vertex
+   * @param label    - The Edge label
+   * @param weight   - The Edge weight
+   * @param directed - True if the edge has a direction, false if it is bidirectional
+   * @return True if the edge was added to the vertex and the graph
    */
-  @Override
-  public ShortestPath getPathInformation (Vertex from) {
+  private boolean addDirectedEdge (VertexIfc from, VertexIfc to, String label, int weight, boolean directed) {
 
-    if (from == null) {
-      throw new IllegalArgumentException("from cannot be null");
+    boolean added = false;
+    if (!from.hasEdge(to)) {
+      EdgeIfc e = GraphFactory.createEdge(from, to, label, weight, directed);
+      snapshots.record(from);
+      snapshots.record(to);
+      from.addEdge(e);
+      if (to != from) {
+        to.addEdge(e);
+      }
+      edges.add(e);
+      e.setObserver(this);
+      modified();
+      edgeAdded(e);
+      added = true;
     }
 
-    return new ShortestPathImpl(this, findVertex(from.getName()));
+    return added;
   }
 
 }
@@ -0,0 +1,228 @@
+package Graph;
+
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Populates a graph from a JSON document as the parser reads it, instead of building the whole document
+ * as a tree first. Each vertex and edge is added as soon as its object has been read, so only the current
+ * record is held in memory. Edges that show up before the vertices they connect are held back until the
+ * end of the document.
+ */
+class GraphJSONLoader implements ContentHandler {
+
+  private final Graph graph;
+
+  /**
+   * The object entry keys from the document root down to the current value
+   */
+  private final List<String> keys;
+
+  /**
+   * Edges read before their vertices were added
+   */
+  private final List<EdgeRecord> pending;
+
+  private VertexRecord vertex;
+
+  private EdgeRecord edge;
+
+  /**
+   * False once something in the document couldn't be added to the graph
+   */
+  private boolean valid;
+
+  private static class VertexRecord {
+
+    String name;
+    String data;
+
+    /**
+     * Null unless the document gives the vertex a location
+     */
+    Point location;
+  }
+
+  private static class EdgeRecord {
+
+    String from;
+    String to;
+    String label;
+    int weight;
+    boolean directed;
+  }
+
+  /**
+   * Create a loader that adds what it reads to the graph
+   *
+   * @param g - The graph to populate
+   */
+  GraphJSONLoader (Graph g) {
+
+    graph = g;
+    keys = new ArrayList<>();
+    pending = new ArrayList<>();
+    valid = true;
+  }
+
+  /**
+   * Reads the JSON document from the reader, populating the graph as it goes
+   *
+   * @param reader - The reader to be used to access the JSON string
+   * @return True if the whole document was read and added to the graph, false otherwise
+   */
+  boolean load (Reader reader) {
+
+    try {
+      new JSONParser().parse(reader, this);
+      reader.close();
+    }
+    catch (IOException | ParseException | RuntimeException ex) {
+      return false;
+    }
+
+    return valid;
+  }
+
+  @Override
+  public void startJSON () {
+
+  }
+
+  @Override
+  public void endJSON () {
+
+    for (EdgeRecord e : pending) {
+      addEdge(e);
+    }
+    pending.clear();
+  }
+
+  @Override
+  public boolean startObject () {
+
+    if (keys.size() == 1) {
+      // An element of one of the top level arrays
+      if ("vertices".equals(keys.get(0))) {
+        vertex = new VertexRecord();
+      } else if ("edges".equals(keys.get(0))) {
+        edge = new EdgeRecord();
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public boolean endObject () {
+
+    if (keys.size() == 1) {
+      if (vertex != null) {
+        graph.addVertex(vertex.name, vertex.location, vertex.data);
+        vertex = null;
+      } else if (edge != null) {
+        if (graph.getVertex(edge.from) != null && graph.getVertex(edge.to) != null) {
+          addEdge(edge);
+        } else {
+          pending.add(edge);
+        }
+        edge = null;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public boolean startObjectEntry (String key) {
+
+    keys.add(key);
+    return true;
+  }
+
+  @Override
+  public boolean endObjectEntry () {
+
+    keys.remove(keys.size() - 1);
+    return true;
+  }
+
+  @Override
+  public boolean startArray () {
+
+    return true;
+  }
+
+  @Override
+  public boolean endArray () {
+
+    return true;
+  }
+
+  @Override
+  public boolean primitive (Object value) {
+
+    if (vertex != null) {
+      if (keys.size() == 2) {
+        if ("name".equals(keys.get(1))) {
+          vertex.name = (String) value;
+        } else if ("data".equals(keys.get(1))) {
+          vertex.data = (String) value;
+        }
+      } else if (keys.size() == 3 && "location".equals(keys.get(1)) && value != null) {
+        if ("x".equals(keys.get(2))) {
+          location().x = ((Long) value).intValue();
+        } else if ("y".equals(keys.get(2))) {
+          location().y = ((Long) value).intValue();
+        }
+      }
+    } else if (edge != null && keys.size() == 2) {
+      String key = keys.get(1);
+      if ("from".equals(key)) {
+        edge.from = (String) value;
+      } else if ("to".equals(key)) {
+        edge.to = (String) value;
+      } else if ("label".equals(key)) {
+        edge.label = (String) value;
+      } else if ("weight".equals(key)) {
+        edge.weight = ((Long) value).intValue();
+      } else if ("directed".equals(key)) {
+        edge.directed = (Boolean) value;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return The location of the vertex being read, made when its first coordinate is read
+   */
+  private Point location () {
+
+    if (vertex.location == null) {
+      vertex.location = new Point();
+    }
+
+    return vertex.location;
+  }
+
+  private void addEdge (EdgeRecord e) {
+
+    Vertex from = graph.getVertex(e.from);
+    Vertex to = graph.getVertex(e.to);
+    if (from == null || to == null) {
+      valid = false;
+      return;
+    }
+
+    graph.addEdge(from, to, e.label, e.weight, e.directed);
+  }
+
+}
@@ -3,7 +3,10 @@ package Graph;
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
+import java.awt.*;
 import java.io.FileReader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Stack;
 
 public class GraphJSONTest extends TestCase {
@@ -88,4 +91,77 @@ public class GraphJSONTest extends TestCase {
     assertFalse(graph.load(in));
   }
 
+  public void testMalformedJSON () throws Exception {
+
+    FileReader in = new FileReader("json/BadGraph.json");
+    assertFalse(graph.load(in));
+    in.close();
+  }
+
+  public void testEdgesBeforeVertices () throws Exception {
+
+    String json = "{\"edges\":[{\"from\":\"A\",\"to\":\"B\",\"label\":\"A->B\",\"weight\":3,\"directed\":true}]," +
+                  "\"vertices\":[{\"location\":{\"x\":1,\"y\":2},\"name\":\"A\",\"data\":\"a\"," +
+                  "\"outgoingEdges\":[{\"from\":\"A\",\"to\":\"B\",\"weight\":3}]}," +
+                  "{\"location\":{\"x\":3,\"y\":4},\"name\":\"B\"}]}";
+    assertTrue(graph.load(new StringReader(json)));
+
+    Assert.assertEquals(2, graph.getSize());
+    Assert.assertEquals(1, graph.getEdges().size());
+
+    Vertex a = graph.getVertex("A");
+    Vertex b = graph.getVertex("B");
+    Assert.assertEquals(new Point(1, 2), a.getLocation());
+    Assert.assertEquals("a", a.getData());
+    Assert.assertEquals(new Point(3, 4), b.getLocation());
+    assertNull(b.getData());
+    Assert.assertEquals(3, a.findEdge(b).getWeight());
+    Assert.assertEquals("A->B", a.findEdge(b).getLabel());
+  }
+
+  public void testEdgeToMissingVertex () throws Exception {
+
+    String json = "{\"vertices\":[{\"location\":{\"x\":1,\"y\":2},\"name\":\"A\"}]," +
+                  "\"edges\":[{\"from\":\"A\",\"to\":\"B\",\"label\":\"A->B\",\"weight\":3,\"directed\":true}]}";
+    assertFalse(graph.load(new StringReader(json)));
+  }
+
+  public void testRoundTrip () throws Exception {
+
+    FileReader in = new FileReader("json/GraphA.json");
+    assertTrue(graph.load(in));
+    in.close();
+    assertTrue(graph.addVertex("Nowhere", null, null));
+
+    StringWriter out = new StringWriter();
+    assertTrue(graph.save(out));
+    String json = out.toString();
+    assertTrue(json.indexOf("\"vertices\"") < json.indexOf("\"edges\""));
+
+    Graph copy = GraphFactory.createGraph();
+    assertTrue(copy.load(new StringReader(json)));
+    Assert.assertEquals(graph.getSize(), copy.getSize());
+    Assert.assertEquals(graph.getEdges().size(), copy.getEdges().size());
+
+    for (Edge e : graph.getEdges()) {
+      Vertex from = copy.getVertex(e.getFrom().getName());
+      Vertex to = copy.getVertex(e.getTo().getName());
+      Assert.assertEquals(e.getFrom().getLocation(), from.getLocation());
+      Edge copied = from.findEdge(to);
+      assertNotNull(copied);
+      Assert.assertEquals(e.getLabel(), copied.getLabel());
+      Assert.assertEquals(e.getWeight(), copied.getWeight());
+      Assert.assertEquals(e.getDirected(), copied.getDirected());
+    }
+
+    // A vertex without a location must not come back at the origin
+    assertNull(copy.getVertex("Nowhere").getLocation());
+    Vertex atOrigin = copy.getVertexAtLocation(new Point(0, 0));
+    assertTrue(atOrigin == null || !"Nowhere".equals(atOrigin.getName()));
+
+    StringWriter again = new StringWriter();
+    assertTrue(copy.save(again));
+    Assert.assertEquals(json.length(), again.toString().length());
+  }
+
 }
@@ -0,0 +1,16 @@
+package Graph;
+
+import java.util.List;
+
+public interface GraphListener {
+
+  /**
+   * Called with the changes made to the graph since the last call, in the order they were made. The calls to one
+   * listener never overlap, but they can come from the thread that made a change or from the timer thread that
+   * delivers delayed batches, so the listener must not assume it is on any particular thread.
+   *
+   * @param events - The changes, a list the listener may keep but not change
+   */
+  public void graphChanged (List<GraphEvent> events);
+
+}
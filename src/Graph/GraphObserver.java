@@ -0,0 +1,23 @@
+package Graph;
+
+import java.awt.*;
+
+interface GraphObserver {
+
+  /**
+   * Called by a vertex after its location has been changed
+   *
+   * @param v           - The vertex that moved
+   * @param oldLocation - The location of the vertex before it moved, may be null
+   */
+  public void locationChanged (VertexIfc v, Point oldLocation);
+
+  /**
+   * Called by an edge after its weight has been changed
+   *
+   * @param e         - The edge whose weight changed
+   * @param oldWeight - The weight of the edge before it changed
+   */
+  public void weightChanged (EdgeIfc e, int oldWeight);
+
+}
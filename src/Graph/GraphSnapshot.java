@@ -0,0 +1,367 @@
+package Graph;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Read only view of a graph as it was when the snapshot was taken. The live graph keeps being changed while the
+ * snapshot is read, the vertices and edges that have changed since are read from what the snapshot's epoch saved,
+ * everything else is read straight from the live graph. The snapshot fixes which vertices and edges are in the
+ * graph, the weights, locations and data of those vertices and edges are read as they are now. The vertices handed
+ * out are the live vertices, so their edges should be read through the snapshot, not through the vertex.
+ */
+class GraphSnapshot extends AbstractGraph {
+
+  private final AbstractGraph live;
+
+  private final SnapshotLog.Epoch epoch;
+
+  /**
+   * Worked out the first time they are needed, they never change after that
+   */
+  private volatile List<VertexIfc> vertexList;
+  private volatile Map<String, VertexIfc> vertexMap;
+  private volatile VertexIfc[] vertexTable;
+  private volatile Set<EdgeIfc> edgeSet;
+
+  /**
+   * @param g - The live graph
+   * @param e - The epoch started when the snapshot was taken
+   */
+  GraphSnapshot (AbstractGraph g, SnapshotLog.Epoch e) {
+
+    live = g;
+    epoch = e;
+  }
+
+  /**
+   * The weights and locations read through a snapshot are live, so the versions that caches
+   * check are the live graph's
+   *
+   * @return The number of changes made to the live graph so far
+   */
+  @Override
+  long modCount () {
+
+    return live.modCount();
+  }
+
+  /**
+   * The edges removed from the live graph since don't tell it when their weights change
+   *
+   * @return False, the scale of the default heuristic is worked out again after any change to the live graph
+   */
+  @Override
+  boolean tightensHeuristic () {
+
+    return false;
+  }
+
+  /**
+   * @return False if no directed edge has been added to the live graph since it was made or cleared
+   */
+  @Override
+  boolean mayHaveDirectedEdges () {
+
+    return live.mayHaveDirectedEdges();
+  }
+
+  /**
+   * @return The number of times a vertex in the live graph has moved so far
+   */
+  @Override
+  long locationCount () {
+
+    return live.locationCount();
+  }
+
+  /**
+   * @return This snapshot, it never changes
+   */
+  @Override
+  public Graph snapshot () {
+
+    return this;
+  }
+
+  /**
+   * @param v - A vertex in the snapshot
+   * @return The outgoing edges of v when the snapshot was taken
+   */
+  @Override
+  public List<EdgeIfc> outgoingEdges (VertexIfc v) {
+
+    // Read the live list before looking for a saved one, a change is always saved before it is made
+    List<EdgeIfc> edges = v.outgoingEdges();
+    SnapshotLog.Frozen f = epoch.find(v.getName());
+    if (f == null) {
+      return edges;
+    }
+
+    return (f.vertex == v) ? f.outgoing : Collections.<EdgeIfc>emptyList();
+  }
+
+  /**
+   * @param v - A vertex in the snapshot
+   * @return The incoming edges of v when the snapshot was taken
+   */
+  @Override
+  public List<EdgeIfc> incomingEdges (VertexIfc v) {
+
+    List<EdgeIfc> edges = v.incomingEdges();
+    SnapshotLog.Frozen f = epoch.find(v.getName());
+    if (f == null) {
+      return edges;
+    }
+
+    return (f.vertex == v) ? f.incoming : Collections.<EdgeIfc>emptyList();
+  }
+
+  /**
+   * @return The vertices in the snapshot
+   */
+  @Override
+  Collection<VertexIfc> vertexValues () {
+
+    List<VertexIfc> values = vertexList;
+    if (values == null) {
+      // Live first, anything added to the live graph after that has been saved by then
+      List<VertexIfc> current = new ArrayList<>(live.vertexValues());
+      Map<String, SnapshotLog.Frozen> changed = new HashMap<>();
+      for (SnapshotLog.Epoch e = epoch; e != null; e = e.next) {
+        for (Map.Entry<String, SnapshotLog.Frozen> entry : e.frozen.entrySet()) {
+          if (!changed.containsKey(entry.getKey())) {
+            changed.put(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+
+      values = new ArrayList<>(current.size());
+      for (VertexIfc v : current) {
+        if (!changed.containsKey(v.getName())) {
+          values.add(v);
+        }
+      }
+      for (SnapshotLog.Frozen f : changed.values()) {
+        if (f.vertex != null) {
+          values.add(f.vertex);
+        }
+      }
+
+      values = Collections.unmodifiableList(values);
+      vertexList = values;
+    }
+
+    return values;
+  }
+
+  /**
+   * @param name - The name of the vertex to retrieve
+   * @return The vertex with the matching name when the snapshot was taken, null if there wasn't one
+   */
+  @Override
+  VertexIfc findVertex (String name) {
+
+    if (name == null || name.isEmpty()) {
+      return null;
+    }
+
+    Map<String, VertexIfc> map = vertexMap;
+    if (map == null) {
+      Collection<VertexIfc> values = vertexValues();
+      map = new HashMap<>(Math.max(16, (int) (values.size() / .75f) + 1));
+      for (VertexIfc v : values) {
+        map.put(v.getName(), v);
+      }
+      vertexMap = map;
+    }
+
+    return map.get(name);
+  }
+
+  /**
+   * The ids of removed vertices aren't used again while a snapshot may see them, so the ids in a snapshot are unique
+   *
+   * @param id - A vertex id
+   * @return The vertex with the id when the snapshot was taken, null if there wasn't one
+   */
+  @Override
+  VertexIfc vertexAt (int id) {
+
+    VertexIfc[] table = vertexTable();
+    return (id >= 0 && id < table.length) ? table[id] : null;
+  }
+
+  /**
+   * @return One more than the highest vertex id in the snapshot
+   */
+  @Override
+  int idBound () {
+
+    return vertexTable().length;
+  }
+
+  private VertexIfc[] vertexTable () {
+
+    VertexIfc[] table = vertexTable;
+    if (table == null) {
+      Collection<VertexIfc> values = vertexValues();
+      int bound = 0;
+      for (VertexIfc v : values) {
+        bound = Math.max(bound, v.getId() + 1);
+      }
+      table = new VertexIfc[bound];
+      for (VertexIfc v : values) {
+        table[v.getId()] = v;
+      }
+      vertexTable = table;
+    }
+
+    return table;
+  }
+
+  /**
+   * @return The edges in the snapshot
+   */
+  @Override
+  public Set<EdgeIfc> edges () {
+
+    Set<EdgeIfc> set = edgeSet;
+    if (set == null) {
+      set = new HashSet<>();
+      for (VertexIfc v : vertexValues()) {
+        set.addAll(outgoingEdges(v));
+      }
+      set = Collections.unmodifiableSet(set);
+      edgeSet = set;
+    }
+
+    return set;
+  }
+
+  /**
+   * Writes the vertex with the edges it had when the snapshot was taken
+   */
+  @Override
+  void writeVertex (VertexIfc v, Writer out) throws IOException {
+
+    VertexImpl.writeJSON(v, incomingEdges(v), outgoingEdges(v), out);
+  }
+
+  /**
+   * @param location - The location to determine if a vertex resides at
+   * @return The vertex at the location, null if there isn't a vertex at that location
+   */
+  @Override
+  public Vertex getVertexAtLocation (Point location) {
+
+    if (location != null) {
+      for (VertexIfc v : vertexValues()) {
+        if (location.equals(v.getLocation())) {
+          return v;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @param area - The area to look in, the edges of the area are included
+   * @return The vertices whose location is inside the area
+   */
+  @Override
+  public List<Vertex> getVerticesInArea (Rectangle area) {
+
+    List<Vertex> found = new ArrayList<>();
+    if (area != null && area.width >= 0 && area.height >= 0) {
+      long right = (long) area.x + area.width;
+      long bottom = (long) area.y + area.height;
+      for (VertexIfc v : vertexValues()) {
+        Point p = v.getLocation();
+        if (p != null && p.x >= area.x && p.x <= right && p.y >= area.y && p.y <= bottom) {
+          found.add(v);
+        }
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * @param location - The location to measure from
+   * @param k        - The number of vertices wanted
+   * @return Up to k of the vertices closest to the location, closest first
+   */
+  @Override
+  public List<Vertex> getNearestVertices (final Point location, int k) {
+
+    List<Vertex> found = new ArrayList<>();
+    if (location == null || k <= 0) {
+      return found;
+    }
+
+    for (VertexIfc v : vertexValues()) {
+      if (v.getLocation() != null) {
+        found.add(v);
+      }
+    }
+    Collections.sort(found, new Comparator<Vertex>() {
+
+      public int compare (Vertex a, Vertex b) {
+
+        return Double.compare(location.distanceSq(a.getLocation()), location.distanceSq(b.getLocation()));
+      }
+    });
+
+    return (found.size() > k) ? new ArrayList<>(found.subList(0, k)) : found;
+  }
+
+  @Override
+  public boolean addVertex (String name, Point location, String data) {
+
+    throw new UnsupportedOperationException("A snapshot can't be changed");
+  }
+
+  @Override
+  public boolean removeVertex (String name) {
+
+    throw new UnsupportedOperationException("A snapshot can't be changed");
+  }
+
+  @Override
+  public void clear () {
+
+    throw new UnsupportedOperationException("A snapshot can't be changed");
+  }
+
+  @Override
+  public boolean addEdge (Vertex from, Vertex to, String label, int weight, boolean directed) {
+
+    throw new UnsupportedOperationException("A snapshot can't be changed");
+  }
+
+  @Override
+  public boolean removeEdge (Vertex from, Vertex to) {
+
+    throw new UnsupportedOperationException("A snapshot can't be changed");
+  }
+
+  @Override
+  public boolean load (Reader reader) {
+
+    throw new UnsupportedOperationException("A snapshot can't be changed");
+  }
+
+  @Override
+  public boolean loadBinary (File file) {
+
+    throw new UnsupportedOperationException("A snapshot can't be changed");
+  }
+
+}
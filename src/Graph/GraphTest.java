@@ -7,10 +7,24 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 
 import java.awt.*;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class GraphTest extends TestCase {
 
@@ -28,8 +42,7 @@ public class GraphTest extends TestCase {
 
     super.setUp();
 
-    // Uses package private constructor instead of graph factory because it needs access to internal interface
-    graph = GraphFactory.createTestGraph();
+    graph = createGraph();
 
     int i;
     Vertex first = null;
@@ -51,6 +64,15 @@ public class GraphTest extends TestCase {
 
   }
 
+  /**
+   * @return The empty graph to run the tests against, subclasses test other implementations
+   */
+  GraphIfc createGraph () {
+
+    // Uses package private constructor instead of graph factory because it needs access to internal interface
+    return GraphFactory.createTestGraph();
+  }
+
   public void testJSON () throws Exception {
 
     String json = graph.toJSONString();
@@ -299,6 +321,117 @@ public class GraphTest extends TestCase {
     assertTrue(graph.isGraphConnected(root));
   }
 
+  public void testComponents () throws Exception {
+
+    Vertex one = graph.getVertex(VERTEX_NAME_PREFIX + "1");
+    Vertex two = graph.getVertex(VERTEX_NAME_PREFIX + "2");
+    Vertex three = graph.getVertex(VERTEX_NAME_PREFIX + "3");
+    Vertex four = graph.getVertex(VERTEX_NAME_PREFIX + "4");
+
+    Assert.assertEquals(1, graph.getWeaklyConnectedComponents().getCount());
+    Assert.assertEquals(1, graph.getStronglyConnectedComponents().getCount());
+
+    // Kept up to date as vertices and edges are added
+    Vertex five = addVertex(5);
+    Vertex six = addVertex(6);
+    Assert.assertEquals(3, graph.getWeaklyConnectedComponents().getCount());
+    assertFalse(graph.isGraphConnected(null));
+    addEdge(five, six, 5, true);
+    addEdge(six, one, 6, true);
+    Components weak = graph.getWeaklyConnectedComponents();
+    Assert.assertEquals(1, weak.getCount());
+    Assert.assertEquals(NUM_VERTICES + 2, weak.getVertices(0).size());
+    assertFalse(graph.isGraphConnected(one));
+    assertTrue(graph.isGraphConnected(five));
+    assertFalse(graph.areVerticesConnected(one, six));
+
+    Components strong = graph.getStronglyConnectedComponents();
+    Assert.assertEquals(3, strong.getCount());
+    Assert.assertEquals(strong.getComponent(one), strong.getComponent(three));
+    assertFalse(strong.getComponent(five) == strong.getComponent(six));
+    Assert.assertEquals(-1, strong.getComponent(new VertexImpl("missing", null, null)));
+
+    // Worked out again after a removal
+    assertTrue(graph.removeEdge(three, four));
+    strong = graph.getStronglyConnectedComponents();
+    Assert.assertEquals(5, strong.getCount());
+    Assert.assertEquals(strong.getComponent(one), strong.getComponent(four));
+    assertFalse(strong.getComponent(one) == strong.getComponent(two));
+    assertTrue(graph.removeVertex(six.getName()));
+    weak = graph.getWeaklyConnectedComponents();
+    Assert.assertEquals(2, weak.getCount());
+    assertFalse(weak.getComponent(one) == weak.getComponent(five));
+    Assert.assertEquals(-1, weak.getComponent(six));
+
+    // Without directed edges the components answer for reachability
+    graph.clear();
+    Vertex[] vertices = new Vertex[50];
+    for (int i = 0; i < vertices.length; i++) {
+      vertices[i] = addVertex(i);
+      if (i > 0 && i != 25) {
+        addEdge(vertices[i - 1], vertices[i], i, false);
+      }
+    }
+    assertFalse(graph.isGraphConnected(null));
+    assertFalse(graph.areVerticesConnected(vertices[3], vertices[40]));
+    assertTrue(graph.areVerticesConnected(vertices[40], vertices[26]));
+    addEdge(vertices[10], vertices[30], 1, false);
+    assertTrue(graph.isGraphConnected(null));
+    assertTrue(graph.areVerticesConnected(vertices[3], vertices[40]));
+    Assert.assertEquals(1, graph.getStronglyConnectedComponents().getCount());
+
+    // A ring too long for a recursive search
+    graph.clear();
+    int n = 50000;
+    vertices = new Vertex[n];
+    for (int i = 0; i < n; i++) {
+      assertTrue(graph.addVertex(VERTEX_NAME_PREFIX + i, null, ""));
+      vertices[i] = graph.getVertex(VERTEX_NAME_PREFIX + i);
+      if (i > 0) {
+        assertTrue(graph.addEdge(vertices[i - 1], vertices[i], "", 1, true));
+      }
+    }
+    Assert.assertEquals(n, graph.getStronglyConnectedComponents().getCount());
+    assertTrue(graph.addEdge(vertices[n - 1], vertices[0], "", 1, true));
+    Assert.assertEquals(1, graph.getStronglyConnectedComponents().getCount());
+  }
+
+  public void testParallelBreadthFirstSearch () throws Exception {
+
+    graph.clear();
+    int n = 40000;
+    Vertex[] vertices = new Vertex[n + 100];
+    for (int i = 0; i < vertices.length; i++) {
+      assertTrue(graph.addVertex(VERTEX_NAME_PREFIX + i, null, ""));
+      vertices[i] = graph.getVertex(VERTEX_NAME_PREFIX + i);
+    }
+
+    // A directed ring, one vertex per level, and vertices outside it with edges into it but none back
+    for (int i = 0; i < n; i++) {
+      assertTrue(graph.addEdge(vertices[i], vertices[(i + 1) % n], "", 1, true));
+    }
+    Random random = new Random(3);
+    for (int i = n; i < vertices.length; i++) {
+      assertTrue(graph.addEdge(vertices[i], vertices[random.nextInt(n)], "", 1, true));
+    }
+    assertEquals(n, new ParallelBreadthFirstSearch((AbstractGraph) graph).reachedFrom((VertexIfc) vertices[0]));
+    assertEquals(n + 1, new ParallelBreadthFirstSearch((AbstractGraph) graph).reachedFrom((VertexIfc) vertices[n]));
+    assertFalse(graph.isGraphConnected(vertices[5]));
+
+    // Random edges make the frontier wide enough to search bottom up
+    for (int i = 0; i < 3 * n; i++) {
+      graph.addEdge(vertices[random.nextInt(n)], vertices[random.nextInt(n)], "", 1, true);
+    }
+    assertEquals(n, new ParallelBreadthFirstSearch((AbstractGraph) graph).reachedFrom((VertexIfc) vertices[0]));
+    assertEquals(n + 1, new ParallelBreadthFirstSearch((AbstractGraph) graph).reachedFrom((VertexIfc) vertices[n + 1]));
+
+    for (int i = n; i < vertices.length; i++) {
+      assertTrue(graph.addEdge(vertices[i - n], vertices[i], "", 1, true));
+    }
+    assertTrue(graph.isGraphConnected(vertices[n / 2]));
+    assertTrue(graph.isGraphConnected(vertices[n + 50]));
+  }
+
   private void assertVertexConnection (String f, String t, boolean compareWith) {
 
     Vertex from = graph.getVertex(VERTEX_NAME_PREFIX + f);
@@ -408,4 +541,997 @@ public class GraphTest extends TestCase {
     assertFalse(sp.hasPathTo(three));
   }
 
+  public void testCompile () throws Exception {
+
+    Vertex one = graph.getVertex(VERTEX_NAME_PREFIX + "1");
+    Vertex two = graph.getVertex(VERTEX_NAME_PREFIX + "2");
+    Vertex three = graph.getVertex(VERTEX_NAME_PREFIX + "3");
+    Vertex four = graph.getVertex(VERTEX_NAME_PREFIX + "4");
+
+    CompiledGraph compiled = graph.compile();
+    Assert.assertEquals(NUM_VERTICES, compiled.getSize());
+    assertTrue(compiled.isGraphConnected(null));
+    assertTrue(compiled.areVerticesConnected(two, one));
+
+    ShortestPath sp = compiled.getPathInformation(three);
+    Assert.assertEquals(16.0, sp.distanceTo(four));
+    Assert.assertEquals(116.0, sp.distanceTo(one));
+    Assert.assertEquals(120.0, sp.distanceTo(two));
+
+    Stack<Edge> path = sp.pathTo(two);
+    assertEquals(3, path.size());
+    Assert.assertEquals(four, path.pop().getTo());
+    Assert.assertEquals(one, path.pop().getTo());
+    Assert.assertEquals(two, path.pop().getTo());
+
+    // Changes to the graph are not seen until it is compiled again
+    assertTrue(graph.removeEdge(two, three));
+    assertTrue(compiled.areVerticesConnected(two, three));
+    assertTrue(compiled.getPathInformation(two).hasPathTo(three));
+
+    compiled = graph.compile();
+    assertFalse(compiled.areVerticesConnected(two, three));
+    assertFalse(compiled.getPathInformation(two).hasPathTo(three));
+    assertFalse(compiled.isGraphConnected(one));
+    assertTrue(compiled.isGraphConnected(three));
+  }
+
+  public void testContract () throws Exception {
+
+    Vertex two = graph.getVertex(VERTEX_NAME_PREFIX + "2");
+    Vertex three = graph.getVertex(VERTEX_NAME_PREFIX + "3");
+
+    ContractionHierarchy hierarchy = graph.contract();
+    Assert.assertEquals(NUM_VERTICES, hierarchy.getSize());
+    assertTrue(hierarchy.isCurrent());
+    Assert.assertEquals(120.0, hierarchy.getPathInformation(three).distanceTo(two));
+    assertEquals(graph.getPathInformation(three).pathTo(two), hierarchy.getPathInformation(three).pathTo(two));
+    assertTrue(hierarchy.getPathInformation(two).pathTo(two).isEmpty());
+
+    // Changes to the graph are not seen until it is rebuilt
+    assertTrue(graph.removeEdge(two, three));
+    assertFalse(hierarchy.isCurrent());
+    assertTrue(hierarchy.getPathInformation(two).hasPathTo(three));
+    hierarchy.rebuild();
+    assertTrue(hierarchy.isCurrent());
+    assertFalse(hierarchy.getPathInformation(two).hasPathTo(three));
+    assertNull(hierarchy.getPathInformation(two).pathTo(three));
+
+    graph.clear();
+    int n = 400;
+    Random random = new Random(5);
+    for (int i = 0; i < n; i++) {
+      assertTrue(graph.addVertex(VERTEX_NAME_PREFIX + i, null, ""));
+    }
+    for (int i = 0; i < n * 3; i++) {
+      Vertex from = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      Vertex to = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      graph.addEdge(from, to, "", random.nextInt(50), random.nextBoolean());
+    }
+
+    hierarchy.rebuild();
+    Set<Edge> edges = new HashSet<>(graph.getEdges());
+    for (int s = 0; s < n; s += 13) {
+      Vertex source = graph.getVertex(VERTEX_NAME_PREFIX + s);
+      ShortestPath expected = graph.getPathInformation(source);
+      ShortestPath actual = hierarchy.getPathInformation(source);
+      for (int t = 0; t < n; t += 3) {
+        Vertex target = graph.getVertex(VERTEX_NAME_PREFIX + t);
+        Assert.assertEquals(expected.distanceTo(target), actual.distanceTo(target));
+        Stack<Edge> path = actual.pathTo(target);
+        if (!expected.hasPathTo(target)) {
+          assertNull(path);
+          continue;
+        }
+
+        // Shortcuts are unpacked back into the graph's own edges
+        Vertex at = source;
+        double length = 0;
+        while (!path.empty()) {
+          Edge e = path.pop();
+          assertSame(at, e.getFrom());
+          assertTrue(edges.contains(e));
+          length += e.getWeight();
+          at = e.getTo();
+        }
+        assertSame(target, at);
+        Assert.assertEquals(expected.distanceTo(target), length);
+      }
+    }
+  }
+
+  public void testSnapshot () throws Exception {
+
+    Vertex one = graph.getVertex(VERTEX_NAME_PREFIX + "1");
+    Vertex two = graph.getVertex(VERTEX_NAME_PREFIX + "2");
+    Vertex three = graph.getVertex(VERTEX_NAME_PREFIX + "3");
+
+    Graph snapshot = graph.snapshot();
+    double distance = graph.getPathInformation(three).distanceTo(two);
+
+    // Change the live graph after the snapshot is taken
+    assertTrue(graph.removeEdge(two, three));
+    assertTrue(graph.removeVertex(VERTEX_NAME_PREFIX + "4"));
+    Vertex ten = addVertex(10);
+    addEdge(one, ten, 10, true);
+
+    assertFalse(graph.isGraphConnected(one));
+    assertFalse(graph.areVerticesConnected(two, three));
+
+    // The snapshot still sees the graph as it was
+    Assert.assertEquals(NUM_VERTICES, snapshot.getSize());
+    Assert.assertEquals(NUM_VERTICES + 1, snapshot.getEdges().size());
+    assertNotNull(snapshot.getVertex(VERTEX_NAME_PREFIX + "4"));
+    assertNull(snapshot.getVertex(VERTEX_NAME_PREFIX + "10"));
+    assertTrue(snapshot.isGraphConnected(one));
+    assertTrue(snapshot.areVerticesConnected(two, three));
+    Assert.assertEquals(distance, snapshot.getPathInformation(three).distanceTo(two));
+    assertFalse(snapshot.getPathInformation(one).hasPathTo(ten));
+    Assert.assertEquals(NUM_VERTICES, snapshot.compile().getSize());
+
+    JSONObject obj = (JSONObject) new JSONParser().parse(((GraphIfc) snapshot).toJSONString());
+    Assert.assertEquals(NUM_VERTICES, ((JSONArray) obj.get("vertices")).size());
+    Assert.assertEquals(NUM_VERTICES + 1, ((JSONArray) obj.get("edges")).size());
+
+    // A new snapshot sees the changes
+    Graph later = graph.snapshot();
+    Assert.assertEquals(graph.getSize(), later.getSize());
+    Assert.assertEquals(graph.getEdges().size(), later.getEdges().size());
+    assertTrue(later.areVerticesConnected(one, ten));
+    assertFalse(later.areVerticesConnected(two, three));
+
+    graph.clear();
+    Assert.assertEquals(NUM_VERTICES, snapshot.getSize());
+    assertTrue(later.areVerticesConnected(one, ten));
+
+    try {
+      snapshot.addVertex("New", new Point(1, 1), "");
+      fail("A snapshot can't be changed");
+    }
+    catch (UnsupportedOperationException e) {
+    }
+  }
+
+  public void testSnapshotsReadWhileChanging () throws Exception {
+
+    readSnapshotsWhileChanging(null);
+  }
+
+  /**
+   * Changes a graph on one thread while snapshots of it are read on another
+   *
+   * @param lock - Held around each change and each read of a snapshot, so that they take turns, null to let them
+   *             run at the same time
+   */
+  void readSnapshotsWhileChanging (Object lock) throws Exception {
+
+    final Object writing = (lock != null) ? lock : new Object();
+    final Object reading = (lock != null) ? lock : new Object();
+    final GraphIfc g = createGraph();
+    final int n = 50;
+    for (int i = 0; i < n; i++) {
+      assertTrue(g.addVertex("V" + i, new Point(i, i), ""));
+    }
+
+    // The snapshots are taken by the thread changing the graph, and read on another
+    final AtomicReference<Graph> latest = new AtomicReference<>(g.snapshot());
+    // The number of edges the graph had when each snapshot was taken
+    final ConcurrentMap<Graph, Integer> edgeCounts = new ConcurrentHashMap<>();
+    edgeCounts.put(latest.get(), g.getEdges().size());
+    final AtomicInteger failures = new AtomicInteger();
+    final AtomicBoolean done = new AtomicBoolean();
+    Thread writer = new Thread() {
+
+      public void run () {
+
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+          synchronized (writing) {
+            String name = "V" + random.nextInt(n);
+            if (i % 50 == 0) {
+              g.removeVertex(name);
+              g.addVertex(name, new Point(i, i), "");
+            } else {
+              Vertex from = g.getVertex(name);
+              Vertex to = g.getVertex("V" + random.nextInt(n));
+              if (random.nextBoolean()) {
+                g.addEdge(from, to, "", 1 + random.nextInt(10), random.nextBoolean());
+              } else {
+                g.removeEdge(from, to);
+              }
+            }
+            if (i % 100 == 0) {
+              Graph snapshot = g.snapshot();
+              edgeCounts.put(snapshot, g.getEdges().size());
+              latest.set(snapshot);
+            }
+          }
+        }
+        done.set(true);
+      }
+    };
+
+    Thread reader = new Thread() {
+
+      public void run () {
+
+        while (!done.get()) {
+          synchronized (reading) {
+            try {
+              // Each snapshot must be a graph that really existed: every edge it sees joins vertices it sees
+              GraphIfc snapshot = (GraphIfc) latest.get();
+              int numEdges = 0;
+              for (Vertex v : snapshot.getVertices()) {
+                for (EdgeIfc e : snapshot.outgoingEdges((VertexIfc) v)) {
+                  if (snapshot.getVertex(e.to().getName()) != e.to() ||
+                      !snapshot.incomingEdges(e.to()).contains(e)) {
+                    failures.incrementAndGet();
+                  }
+                  numEdges++;
+                }
+              }
+              if (numEdges != edgeCounts.get(snapshot) || numEdges != snapshot.getEdges().size() ||
+                  snapshot.getSize() != snapshot.getVertices().size()) {
+                failures.incrementAndGet();
+              }
+              snapshot.isGraphConnected(null);
+              Vertex source = snapshot.getVertex("V0");
+              if (source != null) {
+                snapshot.getPathInformation(source);
+              }
+            }
+            catch (RuntimeException e) {
+              failures.incrementAndGet();
+            }
+          }
+        }
+      }
+    };
+
+    writer.start();
+    reader.start();
+    writer.join();
+    reader.join();
+
+    Assert.assertEquals(0, failures.get());
+  }
+
+  public void testSearchSlotsKeptPerGraph () throws Exception {
+
+    AbstractGraph g = (AbstractGraph) createGraph();
+    VertexSlots slots = g.acquireSlots();
+    slots.release();
+    assertSame(slots, g.acquireSlots());
+    slots.release();
+
+    // Another graph doesn't get the slots kept for this one
+    VertexSlots other = ((AbstractGraph) createGraph()).acquireSlots();
+    assertNotSame(slots, other);
+    other.release();
+
+    // Slots left far bigger than the graph needs are dropped
+    ThreadLocal<VertexSlots> spare = new ThreadLocal<>();
+    VertexSlots big = VertexSlots.acquire(spare, 1 << 16);
+    big.put((1 << 16) - 1, 0);
+    big.release();
+    VertexSlots small = VertexSlots.acquire(spare, 10);
+    assertNotSame(big, small);
+    Assert.assertEquals(-1, small.get((1 << 16) - 1));
+    small.release();
+    assertSame(small, VertexSlots.acquire(spare, 10));
+  }
+
+  public void testPathCache () throws Exception {
+
+    Vertex one = graph.getVertex(VERTEX_NAME_PREFIX + "1");
+    Vertex four = graph.getVertex(VERTEX_NAME_PREFIX + "4");
+
+    // Repeat queries are answered from the cache until the graph changes
+    ShortestPath sp = graph.getPathInformation(one);
+    assertSame(sp, graph.getPathInformation(one));
+    Assert.assertEquals(29.0, sp.distanceTo(four));
+
+    one.findEdge(four).setWeight(5);
+    ShortestPath changed = graph.getPathInformation(one);
+    assertNotSame(sp, changed);
+    Assert.assertEquals(5.0, changed.distanceTo(four));
+    assertSame(changed, graph.getPathInformation(one));
+
+    Vertex ten = addVertex(10);
+    assertNotSame(changed, graph.getPathInformation(one));
+    addEdge(four, ten, 1, true);
+    Assert.assertEquals(6.0, graph.getPathInformation(one).distanceTo(ten));
+    assertTrue(graph.removeEdge(four, ten));
+    assertFalse(graph.getPathInformation(one).hasPathTo(ten));
+
+    // A removed edge no longer changes the graph
+    Edge removed = one.findEdge(four);
+    assertTrue(graph.removeEdge(one, four));
+    sp = graph.getPathInformation(one);
+    removed.setWeight(1);
+    assertSame(sp, graph.getPathInformation(one));
+
+    graph.setPathCacheSize(0);
+    assertNotSame(graph.getPathInformation(one), graph.getPathInformation(one));
+  }
+
+  public void testRandomPaths () throws Exception {
+
+    graph.clear();
+
+    int n = 200;
+    Random random = new Random(42);
+    for (int i = 0; i < n; i++) {
+      addVertex(i);
+    }
+    for (int i = 0; i < n * 4; i++) {
+      Vertex from = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      Vertex to = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      graph.addEdge(from, to, "", random.nextInt(50), random.nextBoolean());
+    }
+
+    CompiledGraph compiled = graph.compile();
+    for (int s = 0; s < 10; s++) {
+      Vertex source = graph.getVertex(VERTEX_NAME_PREFIX + s);
+      ShortestPath sp = graph.getPathInformation(source);
+      ShortestPath expected = compiled.getPathInformation(source);
+
+      for (Vertex v : graph.getVertices()) {
+        Assert.assertEquals(expected.distanceTo(v), sp.distanceTo(v));
+        Assert.assertEquals(graph.areVerticesConnected(source, v), sp.hasPathTo(v));
+
+        if (sp.hasPathTo(v)) {
+          // Walk the path, checking it is continuous and adds up to the distance
+          Stack<Edge> path = sp.pathTo(v);
+          Vertex at = source;
+          double length = 0;
+          while (!path.empty()) {
+            Edge e = path.pop();
+            assertSame(at, e.getFrom());
+            length += e.getWeight();
+            at = e.getTo();
+          }
+          assertSame(v, at);
+          Assert.assertEquals(sp.distanceTo(v), length);
+        }
+      }
+    }
+  }
+
+  public void testShortestPath () throws Exception {
+
+    Vertex two = graph.getVertex(VERTEX_NAME_PREFIX + "2");
+    Vertex three = graph.getVertex(VERTEX_NAME_PREFIX + "3");
+
+    Stack<Edge> path = graph.shortestPath(three, two);
+    assertEquals(3, path.size());
+    assertTrue(graph.shortestPath(two, two).isEmpty());
+    assertTrue(graph.removeEdge(two, three));
+    assertNull(graph.shortestPath(two, three));
+
+    // Weights that only roughly follow the distance between the vertices, some are less than it
+    graph.clear();
+    int n = 300;
+    Random random = new Random(7);
+    for (int i = 0; i < n; i++) {
+      assertTrue(graph.addVertex(VERTEX_NAME_PREFIX + i, new Point(random.nextInt(1000), random.nextInt(1000)), ""));
+    }
+    for (int i = 0; i < n * 4; i++) {
+      Vertex from = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      Vertex to = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      int weight = (int) (from.getLocation().distance(to.getLocation()) * (0.5 + random.nextDouble()));
+      graph.addEdge(from, to, "", weight, random.nextBoolean());
+    }
+
+    Heuristic[] heuristics = {null, Heuristics.NONE, Heuristics.manhattan(0.25)};
+    for (int s = 0; s < 10; s++) {
+      Vertex source = graph.getVertex(VERTEX_NAME_PREFIX + s);
+      ShortestPath expected = graph.getPathInformation(source);
+      for (int t = 0; t < n; t += 7) {
+        Vertex target = graph.getVertex(VERTEX_NAME_PREFIX + t);
+        for (Heuristic h : heuristics) {
+          path = (h == null) ? graph.shortestPath(source, target) : graph.shortestPath(source, target, h);
+          if (!expected.hasPathTo(target)) {
+            assertNull(path);
+            continue;
+          }
+
+          Vertex at = source;
+          double length = 0;
+          while (!path.empty()) {
+            Edge e = path.pop();
+            assertSame(at, e.getFrom());
+            length += e.getWeight();
+            at = e.getTo();
+          }
+          assertSame(target, at);
+          Assert.assertEquals(expected.distanceTo(target), length);
+        }
+      }
+    }
+
+    // The default heuristic keeps up as edges are added, removed, made lighter or heavier and vertices move
+    List<Edge> edges = graph.getEdges();
+    for (int i = 0; i < 200; i++) {
+      Edge e = edges.get(random.nextInt(edges.size()));
+      switch (i % 4) {
+        case 0:
+          e.setWeight(e.getWeight() / (2 + random.nextInt(4)));
+          break;
+        case 1:
+          e.setWeight(e.getWeight() * 2 + 1);
+          break;
+        case 2:
+          graph.removeEdge(e.getFrom(), e.getTo());
+          Vertex from = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+          Vertex to = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+          graph.addEdge(from, to, "", (int) (from.getLocation().distance(to.getLocation()) / 8), true);
+          edges = graph.getEdges();
+          break;
+        default:
+          if (i % 20 == 3) {
+            e.getTo().setLocation(new Point(random.nextInt(1000), random.nextInt(1000)));
+          }
+      }
+
+      Vertex source = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      Vertex target = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      path = graph.shortestPath(source, target);
+      ShortestPath expected = graph.getPathInformation(source);
+      if (path == null) {
+        assertFalse(expected.hasPathTo(target));
+        continue;
+      }
+
+      double length = 0;
+      for (Edge step : path) {
+        length += step.getWeight();
+      }
+      Assert.assertEquals(expected.distanceTo(target), length);
+    }
+  }
+
+  public void testBidirectionalShortestPath () throws Exception {
+
+    // No locations, so the default search runs from both ends, some weights are 0
+    graph.clear();
+    int n = 300;
+    Random random = new Random(11);
+    for (int i = 0; i < n; i++) {
+      assertTrue(graph.addVertex(VERTEX_NAME_PREFIX + i, null, ""));
+    }
+    for (int i = 0; i < n * 3; i++) {
+      Vertex from = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      Vertex to = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      graph.addEdge(from, to, "", random.nextInt(20), random.nextBoolean());
+    }
+
+    Graph snapshot = graph.snapshot();
+    for (int s = 0; s < 10; s++) {
+      Vertex source = graph.getVertex(VERTEX_NAME_PREFIX + s);
+      ShortestPath expected = graph.getPathInformation(source);
+      for (int t = 0; t < n; t += 5) {
+        Vertex target = graph.getVertex(VERTEX_NAME_PREFIX + t);
+        Stack<Edge> path = graph.shortestPath(source, target);
+        if (!expected.hasPathTo(target)) {
+          assertNull(path);
+          assertNull(snapshot.shortestPath(source, target));
+          continue;
+        }
+
+        assertEquals(path, snapshot.shortestPath(source, target));
+        Vertex at = source;
+        double length = 0;
+        while (!path.empty()) {
+          Edge e = path.pop();
+          assertSame(at, e.getFrom());
+          length += e.getWeight();
+          at = e.getTo();
+        }
+        assertSame(target, at);
+        Assert.assertEquals(expected.distanceTo(target), length);
+      }
+    }
+  }
+
+  public void testConcurrentSearches () throws Exception {
+
+    final Vertex two = graph.getVertex(VERTEX_NAME_PREFIX + "2");
+    final Vertex three = graph.getVertex(VERTEX_NAME_PREFIX + "3");
+    assertTrue(graph.removeEdge(two, three));
+
+    // Searches keep their own visit state, so they can't corrupt each other
+    final int[] failures = new int[1];
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final boolean forward = (t % 2) == 0;
+      threads[t] = new Thread() {
+
+        public void run () {
+
+          for (int i = 0; i < 2000; i++) {
+            boolean connected = forward ? graph.areVerticesConnected(two, three) :
+                                graph.areVerticesConnected(three, two);
+            if (connected != !forward) {
+              synchronized (failures) {
+                failures[0]++;
+              }
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(0, failures[0]);
+  }
+
+  private static long distanceSq (Point a, Point b) {
+
+    long dx = a.x - b.x;
+    long dy = a.y - b.y;
+    return dx * dx + dy * dy;
+  }
+
+  public void testSpatialQueries () throws Exception {
+
+    graph.clear();
+
+    int n = 500;
+    Random random = new Random(7);
+    for (int i = 0; i < n; i++) {
+      Point location = new Point(random.nextInt(2000) - 1000, random.nextInt(2000) - 1000);
+      assertTrue(graph.addVertex(VERTEX_NAME_PREFIX + i, location, ""));
+    }
+
+    // Move some of the vertices, and remove some others
+    for (int i = 0; i < n; i += 10) {
+      graph.getVertex(VERTEX_NAME_PREFIX + i).setLocation(new Point(random.nextInt(5000), -random.nextInt(5000)));
+      assertTrue(graph.removeVertex(VERTEX_NAME_PREFIX + (i + 1)));
+    }
+
+    for (Vertex v : graph.getVertices()) {
+      Assert.assertEquals(v.getLocation(), graph.getVertexAtLocation(v.getLocation()).getLocation());
+    }
+    assertNull(graph.getVertexAtLocation(new Point(100000, 100000)));
+
+    Rectangle area = new Rectangle(-300, -200, 700, 450);
+    int inside = 0;
+    for (Vertex v : graph.getVertices()) {
+      if (v.getLocation().x <= area.x + area.width && v.getLocation().y <= area.y + area.height &&
+          v.getLocation().x >= area.x && v.getLocation().y >= area.y) {
+        inside++;
+      }
+    }
+    Assert.assertEquals(inside, graph.getVerticesInArea(area).size());
+
+    for (int q = 0; q < 20; q++) {
+      Point location = new Point(random.nextInt(8000) - 4000, random.nextInt(8000) - 4000);
+      if (q % 4 == 0) {
+        // Far from every vertex, on one side or another
+        location.translate((q % 8 == 0) ? 10000000 : 0, (q % 8 == 0) ? 0 : -10000000);
+      }
+      int k = 1 + random.nextInt(10);
+      List<Vertex> nearest = graph.getNearestVertices(location, k);
+      Assert.assertEquals(k, nearest.size());
+
+      // Nothing that wasn't returned is closer than the farthest one that was
+      long farthest = distanceSq(location, nearest.get(k - 1).getLocation());
+      int closer = 0;
+      for (Vertex v : graph.getVertices()) {
+        if (distanceSq(location, v.getLocation()) < farthest) {
+          closer++;
+        }
+      }
+      assertTrue(closer < k);
+      for (int i = 1; i < k; i++) {
+        assertTrue(distanceSq(location, nearest.get(i - 1).getLocation()) <=
+                   distanceSq(location, nearest.get(i).getLocation()));
+      }
+    }
+  }
+
+  public void testBinary () throws Exception {
+
+    Vertex one = graph.getVertex(VERTEX_NAME_PREFIX + "1");
+    Vertex four = graph.getVertex(VERTEX_NAME_PREFIX + "4");
+    four.findEdge(one).setWeight(7);
+    one.setData(null);
+    assertTrue(graph.addVertex("Nowhere", null, "Unicode \u00e9\u4e2d"));
+
+    File file = File.createTempFile("graph", ".bin");
+    try {
+      assertTrue(graph.saveBinary(file));
+
+      Graph copy = GraphFactory.createGraph();
+      assertTrue(copy.loadBinary(file));
+      Assert.assertEquals(graph.getSize(), copy.getSize());
+      Assert.assertEquals(graph.getEdges().size(), copy.getEdges().size());
+
+      for (Vertex v : graph.getVertices()) {
+        Vertex copied = copy.getVertex(v.getName());
+        assertNotNull(copied);
+        Assert.assertEquals(v.getLocation(), copied.getLocation());
+        Assert.assertEquals(v.getData(), copied.getData());
+      }
+
+      for (Edge e : graph.getEdges()) {
+        Edge copied = copy.getVertex(e.getFrom().getName()).findEdge(copy.getVertex(e.getTo().getName()));
+        assertNotNull(copied);
+        Assert.assertEquals(e.getLabel(), copied.getLabel());
+        Assert.assertEquals(e.getWeight(), copied.getWeight());
+        Assert.assertEquals(e.getDirected(), copied.getDirected());
+      }
+
+      // A file over 2GB is read a window at a time, read this one through a window smaller than an int and a byte
+      Graph windowed = GraphFactory.createGraph();
+      assertTrue(GraphBinaryFormat.load(windowed, file, 6));
+      Assert.assertEquals(copy.getVertices().toString(), windowed.getVertices().toString());
+      Assert.assertEquals(copy.getEdges().size(), windowed.getEdges().size());
+      for (Edge e : copy.getEdges()) {
+        Edge read = windowed.getVertex(e.getFrom().getName()).findEdge(windowed.getVertex(e.getTo().getName()));
+        Assert.assertEquals(e.getLabel(), read.getLabel());
+        Assert.assertEquals(e.getWeight(), read.getWeight());
+      }
+
+      // Not a binary graph file
+      FileWriter out = new FileWriter(file);
+      out.write("{}");
+      out.close();
+      assertFalse(GraphFactory.createGraph().loadBinary(file));
+
+      // Counts too big for the file
+      for (int[] header : new int[][] {{Integer.MAX_VALUE}, {0, Integer.MAX_VALUE}, {0, 0, Integer.MAX_VALUE}}) {
+        DataOutputStream corrupt = new DataOutputStream(new FileOutputStream(file));
+        corrupt.writeInt(GraphBinaryFormat.MAGIC);
+        corrupt.writeInt(GraphBinaryFormat.VERSION);
+        for (int value : header) {
+          corrupt.writeInt(value);
+        }
+        corrupt.close();
+        assertFalse(GraphFactory.createGraph().loadBinary(file));
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  public void testBinaryKeepsExistingEdges () throws Exception {
+
+    Vertex one = graph.getVertex(VERTEX_NAME_PREFIX + "1");
+    Vertex four = graph.getVertex(VERTEX_NAME_PREFIX + "4");
+
+    File file = File.createTempFile("graph", ".bin");
+    try {
+      assertTrue(graph.saveBinary(file));
+
+      Graph copy = GraphFactory.createGraph();
+      copy.addVertex(one.getName(), one.getLocation(), one.getData());
+      copy.addVertex(four.getName(), four.getLocation(), four.getData());
+      Vertex copiedOne = copy.getVertex(one.getName());
+      Vertex copiedFour = copy.getVertex(four.getName());
+      assertTrue(copy.addEdge(copiedFour, copiedOne, "Existing", 99, true));
+
+      assertTrue(copy.loadBinary(file));
+      Assert.assertEquals(graph.getSize(), copy.getSize());
+      Assert.assertEquals("Existing", copiedFour.findEdge(copiedOne).getLabel());
+      Assert.assertEquals(99, copiedFour.findEdge(copiedOne).getWeight());
+      Assert.assertEquals(one.findEdge(four).getWeight(), copiedOne.findEdge(copiedFour).getWeight());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  public void testVertexIds () throws Exception {
+
+    // Dense from 0, in the order the vertices were added
+    Assert.assertEquals(NUM_VERTICES, graph.getVertexIdBound());
+    for (int i = 1; i <= NUM_VERTICES; i++) {
+      Vertex v = graph.getVertex(VERTEX_NAME_PREFIX + i);
+      Assert.assertEquals(i - 1, v.getId());
+      Assert.assertSame(v, graph.getVertex(i - 1));
+    }
+    assertNull(graph.getVertex(NUM_VERTICES));
+    assertNull(graph.getVertex(-1));
+
+    // The id of a removed vertex goes to the next vertex added
+    Vertex two = graph.getVertex(VERTEX_NAME_PREFIX + "2");
+    assertTrue(graph.removeVertex(two.getName()));
+    assertNull(graph.getVertex(1));
+    Vertex five = addVertex(5);
+    Assert.assertEquals(1, five.getId());
+    Assert.assertSame(five, graph.getVertex(1));
+    Assert.assertEquals(NUM_VERTICES, graph.getVertexIdBound());
+
+    // Not while a snapshot still sees the removed vertex
+    Vertex three = graph.getVertex(VERTEX_NAME_PREFIX + "3");
+    Graph snapshot = graph.snapshot();
+    assertTrue(graph.removeVertex(three.getName()));
+    Vertex six = addVertex(6);
+    Assert.assertEquals(NUM_VERTICES, six.getId());
+    Assert.assertSame(three, snapshot.getVertex(2));
+    assertNull(snapshot.getVertex(six.getId()));
+    assertNull(graph.getVertex(2));
+
+    // Paths are worked out by id, a vertex that isn't in the graph has none
+    addEdge(five, six, 1, true);
+    ShortestPath paths = graph.getPathInformation(graph.getVertex(VERTEX_NAME_PREFIX + "1"));
+    assertFalse(paths.hasPathTo(three));
+    assertFalse(paths.hasPathTo(new VertexImpl("missing", null, null)));
+    assertTrue(snapshot.getPathInformation(three).hasPathTo(snapshot.getVertex(VERTEX_NAME_PREFIX + "4")));
+  }
+
+  public void testDeepEquality () throws Exception {
+
+    // A copy holds the same things, but is a different graph with different vertices and edges
+    Graph copy = createGraph();
+    assertTrue(copy.load(new StringReader(graph.toJSONString())));
+    assertFalse(graph.equals(copy));
+    assertTrue(DeepEquality.graphsEqual(graph, copy));
+
+    Vertex one = graph.getVertex(VERTEX_NAME_PREFIX + "1");
+    Vertex two = graph.getVertex(VERTEX_NAME_PREFIX + "2");
+    Vertex copiedOne = copy.getVertex(one.getName());
+    assertFalse(one.equals(copiedOne));
+    assertTrue(DeepEquality.verticesEqual(one, copiedOne));
+    assertTrue(DeepEquality.edgesEqual(one.findEdge(two), copiedOne.findEdge(copy.getVertex(two.getName()))));
+
+    Graph snapshot = graph.snapshot();
+    one.findEdge(two).setWeight(100);
+    assertFalse(DeepEquality.edgesEqual(one.findEdge(two), copiedOne.findEdge(copy.getVertex(two.getName()))));
+    assertFalse(DeepEquality.graphsEqual(graph, copy));
+
+    // The snapshot still has the edges it was taken with
+    assertTrue(graph.removeEdge(one, two));
+    assertFalse(DeepEquality.graphsEqual(snapshot, graph));
+    assertTrue(copy.removeEdge(copiedOne, copy.getVertex(two.getName())));
+    assertTrue(DeepEquality.graphsEqual(graph, copy));
+    assertFalse(DeepEquality.verticesEqual(one, null));
+  }
+
+  public void testRemoveFromHub () throws Exception {
+
+    graph.clear();
+    int n = 200;
+    Vertex hub = addVertex(0);
+    Vertex[] spokes = new Vertex[n + 1];
+    for (int i = 1; i <= n; i++) {
+      spokes[i] = addVertex(i);
+      addEdge(hub, spokes[i], i, i % 2 == 0);
+    }
+    addEdge(hub, hub, 0, true);
+    VertexIfc h = (VertexIfc) hub;
+    Assert.assertEquals(n + 1, h.outgoingEdges().size());
+    Assert.assertEquals(n / 2 + 1, h.incomingEdges().size());
+
+    // Edges are taken out from the middle of the lists, the rest are still found
+    for (int i = 1; i <= n; i += 3) {
+      assertTrue(graph.removeEdge(hub, spokes[i]));
+    }
+    for (int i = 1; i <= n; i++) {
+      Assert.assertEquals(i % 3 != 1, hub.hasEdge(spokes[i]));
+      Assert.assertEquals(i % 3 != 1 && i % 2 == 1, spokes[i].hasEdge(hub));
+    }
+    if (h instanceof VertexImpl) {
+      for (EdgeIfc e : h.outgoingEdges()) {
+        Assert.assertSame(e, h.outgoingEdges().get(e.getSlot(true)));
+        Assert.assertSame(e, e.to().incomingEdges().get(e.getSlot(false)));
+      }
+    }
+
+    // The self loop is in both lists and goes with the vertex
+    assertTrue(h.incomingEdges().contains(hub.findEdge(hub)));
+    assertTrue(graph.removeVertex(hub.getName()));
+    Assert.assertEquals(n, graph.getSize());
+    assertTrue(graph.getEdges().isEmpty());
+    for (int i = 1; i <= n; i++) {
+      assertTrue(((VertexIfc) spokes[i]).incomingEdges().isEmpty());
+      assertTrue(((VertexIfc) spokes[i]).outgoingEdges().isEmpty());
+    }
+
+    // A cleared graph is empty, and the vertices it dropped no longer change it
+    graph.clear();
+    assertTrue(graph.isEmpty());
+    spokes[1].setLocation(new Point(-5, -5));
+    assertNull(graph.getVertexAtLocation(new Point(-5, -5)));
+    Vertex again = addVertex(1);
+    Assert.assertEquals(0, again.getId());
+    assertFalse(again == spokes[1]);
+  }
+
+  public void testGraphListener () throws Exception {
+
+    Recorder each = new Recorder();
+    Recorder byThree = new Recorder();
+    Recorder byTransaction = new Recorder();
+    Recorder timed = new Recorder();
+    graph.addGraphListener(each);
+    graph.addGraphListener(byThree, 3, 0);
+    graph.addGraphListener(byTransaction, 100, 0);
+    graph.addGraphListener(timed, 0, 20);
+
+    // Without either limit nothing outside a transaction would ever be delivered
+    try {
+      graph.addGraphListener(new Recorder(), 0, 0);
+      fail("Added a listener without any limit");
+    }
+    catch (IllegalArgumentException e) {
+    }
+
+    Vertex one = graph.getVertex(VERTEX_NAME_PREFIX + 1);
+    Vertex four = graph.getVertex(VERTEX_NAME_PREFIX + 4);
+    Vertex five = addVertex(5);
+    addEdge(four, five, 2, true);
+    four.findEdge(five).setWeight(9);
+    five.setLocation(new Point(50, 60));
+    Assert.assertEquals(4, each.batches.size());
+    GraphEvent added = each.batches.get(0).get(0);
+    Assert.assertEquals(GraphEvent.Type.VERTEX_ADDED, added.getType());
+    Assert.assertSame(five, added.getVertex());
+    GraphEvent reweighted = each.batches.get(2).get(0);
+    Assert.assertEquals(GraphEvent.Type.WEIGHT_CHANGED, reweighted.getType());
+    Assert.assertEquals(4, reweighted.getOldWeight());
+    Assert.assertSame(four.findEdge(five), reweighted.getEdge());
+    Assert.assertEquals(GraphEvent.Type.LOCATION_CHANGED, each.batches.get(3).get(0).getType());
+    Assert.assertEquals(1, byThree.batches.size());
+    Assert.assertEquals(3, byThree.batches.get(0).size());
+    assertTrue(byTransaction.batches.isEmpty());
+
+    // The edges of a removed vertex go before it, both directions of the bidirectional edge are told about
+    assertTrue(graph.removeVertex(one.getName()));
+    List<GraphEvent> removal = each.events().subList(4, 8);
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(GraphEvent.Type.EDGE_REMOVED, removal.get(i).getType());
+      Assert.assertSame(one, (i < 2) ? removal.get(i).getEdge().getFrom() : removal.get(i).getEdge().getTo());
+    }
+    Assert.assertEquals(GraphEvent.Type.VERTEX_REMOVED, removal.get(3).getType());
+    Assert.assertEquals(2, byThree.batches.size());
+
+    // A transaction is held back until its outermost end, then delivered as one batch
+    graph.beginTransaction();
+    Vertex six = addVertex(6);
+    graph.beginTransaction();
+    addEdge(five, six, 1, false);
+    graph.endTransaction();
+    assertTrue(graph.removeEdge(six, five));
+    Assert.assertEquals(8, each.batches.size());
+    graph.endTransaction();
+    Assert.assertEquals(9, each.batches.size());
+    Assert.assertEquals(5, each.batches.get(8).size());
+    Assert.assertEquals(1, byTransaction.batches.size());
+    Assert.assertEquals(13, byTransaction.batches.get(0).size());
+    Assert.assertEquals(3, byThree.batches.size());
+    Assert.assertEquals(7, byThree.batches.get(2).size());
+
+    // The timed listener gets everything once its delay is up
+    for (int waited = 0; timed.events().size() < 13 && waited < 5000; waited += 10) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(each.events().size(), timed.events().size());
+
+    addVertex(7);
+    assertTrue(graph.removeGraphListener(byThree));
+    assertFalse(graph.removeGraphListener(byThree));
+    Assert.assertEquals(4, byThree.batches.size());
+    Assert.assertEquals(1, byThree.batches.get(3).size());
+
+    if (graph instanceof GraphImpl) {
+      graph.clear();
+      List<GraphEvent> last = each.batches.get(each.batches.size() - 1);
+      Assert.assertEquals(GraphEvent.Type.CLEARED, last.get(0).getType());
+    }
+
+    try {
+      graph.endTransaction();
+      fail("Ended a transaction that wasn't started");
+    }
+    catch (IllegalStateException e) {
+    }
+  }
+
+  public void testTrackPathInformation () throws Exception {
+
+    graph.clear();
+    int n = 60;
+    Random random = new Random(24);
+    for (int i = 0; i < n; i++) {
+      addVertex(i);
+    }
+    for (int i = 0; i < 4 * n; i++) {
+      graph.addEdge(graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n)),
+          graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n)), "", 1 + random.nextInt(20), random.nextBoolean());
+    }
+
+    Vertex source = graph.getVertex(VERTEX_NAME_PREFIX + 0);
+    DynamicShortestPath tracked = graph.trackPathInformation(source);
+    Assert.assertSame(source, tracked.getSource());
+    assertTrackedPaths(tracked, source);
+
+    // Every kind of change is repaired, the tree always matches one worked out from scratch
+    for (int step = 0; step < 300; step++) {
+      List<Edge> edges = graph.getEdges();
+      Vertex a = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      Vertex b = graph.getVertex(VERTEX_NAME_PREFIX + random.nextInt(n));
+      int change = random.nextInt(10);
+      if (change < 5 && !edges.isEmpty()) {
+        edges.get(random.nextInt(edges.size())).setWeight(1 + random.nextInt(20));
+      } else if (change < 7 && a != null && b != null) {
+        graph.addEdge(a, b, "", 1 + random.nextInt(20), random.nextBoolean());
+      } else if (change < 9 && !edges.isEmpty()) {
+        Edge e = edges.get(random.nextInt(edges.size()));
+        graph.removeEdge(e.getFrom(), e.getTo());
+      } else if (a != null && a != source) {
+        // The name comes back as a new vertex, likely with the same id
+        graph.removeVertex(a.getName());
+        assertTrue(graph.addVertex(a.getName(), null, ""));
+        Assert.assertEquals(Double.POSITIVE_INFINITY, tracked.distanceTo(a));
+      }
+      assertTrackedPaths(tracked, source);
+    }
+
+    // A transaction is repaired when it ends
+    graph.beginTransaction();
+    for (Edge e : graph.getEdges()) {
+      e.setWeight(e.getWeight() + 1);
+    }
+    graph.endTransaction();
+    assertTrackedPaths(tracked, source);
+
+    // Once closed the paths stay as they were
+    tracked.close();
+    assertFalse(graph.removeGraphListener((GraphListener) tracked));
+    graph.removeVertex(source.getName());
+    Assert.assertEquals(0d, tracked.distanceTo(source));
+  }
+
+  private void assertTrackedPaths (ShortestPath tracked, Vertex source) {
+
+    ShortestPath expected = graph.getPathInformation(source);
+    for (Vertex v : graph.getVertices()) {
+      Assert.assertEquals(expected.distanceTo(v), tracked.distanceTo(v));
+      Stack<Edge> path = tracked.pathTo(v);
+      if (path != null) {
+        double length = 0;
+        Vertex at = source;
+        while (!path.isEmpty()) {
+          Edge e = path.pop();
+          Assert.assertSame(at, e.getFrom());
+          length += e.getWeight();
+          at = e.getTo();
+        }
+        Assert.assertSame(v, at);
+        Assert.assertEquals(tracked.distanceTo(v), length);
+      }
+    }
+  }
+
+  /**
+   * Keeps every batch it is given
+   */
+  private static class Recorder implements GraphListener {
+
+    final List<List<GraphEvent>> batches = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void graphChanged (List<GraphEvent> events) {
+
+      batches.add(events);
+    }
+
+    List<GraphEvent> events () {
+
+      List<GraphEvent> all = new ArrayList<>();
+      for (List<GraphEvent> batch : batches) {
+        all.addAll(batch);
+      }
+      return all;
+    }
+  }
+
 }
@@ -0,0 +1,15 @@
+package Graph;
+
+public interface Heuristic {
+
+  /**
+   * Estimates the distance left to travel, used to guide a point to point search toward the target. The
+   * estimate must never be more than the real distance, or the search may miss the shortest path.
+   *
+   * @param v      - A vertex the search has reached
+   * @param target - The vertex the search is looking for
+   * @return A lower bound on the distance from v to target
+   */
+  public double estimate (Vertex v, Vertex target);
+
+}
@@ -0,0 +1,89 @@
+package Graph;
+
+import java.awt.*;
+
+/**
+ * Heuristics for Graph.shortestPath based on the locations of the vertices. Vertices without a location are
+ * estimated to be 0 from anywhere.
+ */
+public class Heuristics {
+
+  /**
+   * Estimates 0 everywhere, which makes the search a Dijkstra search. Graph.shortestPath runs it from both ends
+   * at once.
+   */
+  public static final Heuristic NONE = new Heuristic() {
+
+    public double estimate (Vertex v, Vertex target) {
+
+      return 0d;
+    }
+  };
+
+  private Heuristics () {
+
+  }
+
+  /**
+   * @param scale - What one unit of straight line distance is worth in edge weight, the smallest weight divided
+   *              by distance of any edge is always safe
+   * @return A heuristic estimating the straight line distance between the locations times scale
+   */
+  public static Heuristic euclidean (final double scale) {
+
+    return new Heuristic() {
+
+      public double estimate (Vertex v, Vertex target) {
+
+        Point a = v.getLocation();
+        Point b = target.getLocation();
+        return (a != null && b != null) ? scale * a.distance(b) : 0d;
+      }
+    };
+  }
+
+  /**
+   * @param scale - What one unit of grid distance is worth in edge weight, the smallest weight divided by
+   *              grid distance of any edge is always safe
+   * @return A heuristic estimating the horizontal plus vertical distance between the locations times scale
+   */
+  public static Heuristic manhattan (final double scale) {
+
+    return new Heuristic() {
+
+      public double estimate (Vertex v, Vertex target) {
+
+        Point a = v.getLocation();
+        Point b = target.getLocation();
+        if (a == null || b == null) {
+          return 0d;
+        }
+
+        return scale * (Math.abs((double) a.x - b.x) + Math.abs((double) a.y - b.y));
+      }
+    };
+  }
+
+  /**
+   * Works out the largest scale that keeps the euclidean heuristic from overestimating on this edge. If no edge of
+   * a graph is shorter in weight than scale times its length, neither is any path, so the estimate stays a lower
+   * bound, and it never drops by more than the weight of an edge from one vertex to the next. The smallest scale
+   * of all the edges is safe for the whole graph.
+   *
+   * @param e - An edge of the graph
+   * @return The weight of the edge divided by its straight line length, 0 if an end has no location, infinity if
+   *         the ends are at the same place
+   */
+  static double edgeScale (EdgeIfc e) {
+
+    Point a = e.from().getLocation();
+    Point b = e.to().getLocation();
+    if (a == null || b == null) {
+      return 0d;
+    }
+
+    double length = a.distance(b);
+    return (length > 0) ? e.getWeight() / length : Double.POSITIVE_INFINITY;
+  }
+
+}
@@ -0,0 +1,80 @@
+package Graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of edges used for lock free adjacency reads. A writer replaces a vertex's list with
+ * appended or without, and readers iterate whichever list they picked up without any locking.
+ * Appending shares the backing array with the previous list, writing only past its end, so adding
+ * an edge is amortized O(1); removing an edge copies the array.
+ */
+final class ImmutableEdgeList extends AbstractList<EdgeIfc> implements RandomAccess {
+
+  static final ImmutableEdgeList EMPTY = new ImmutableEdgeList(new EdgeIfc[4], 0);
+
+  private final EdgeIfc[] array;
+
+  private final int size;
+
+  private ImmutableEdgeList (EdgeIfc[] a, int s) {
+
+    array = a;
+    size = s;
+  }
+
+  @Override
+  public EdgeIfc get (int index) {
+
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    return array[index];
+  }
+
+  @Override
+  public int size () {
+
+    return size;
+  }
+
+  /**
+   * Only one writer at a time may append to the lists sharing a backing array, callers hold the vertex lock.
+   *
+   * @param e - The edge to add at the end
+   * @return A list with the edges of this list followed by e
+   */
+  ImmutableEdgeList appended (EdgeIfc e) {
+
+    EdgeIfc[] a = array;
+    if (size == a.length || a[size] != null || this == EMPTY) {
+      // Full, or the slot past the end was already used by a list appended from this one
+      a = Arrays.copyOf(a, Math.max(4, 2 * size));
+    }
+    a[size] = e;
+
+    return new ImmutableEdgeList(a, size + 1);
+  }
+
+  /**
+   * @param e - The edge to leave out
+   * @return A list with the edges of this list except the first one that is the same object as e,
+   *         this list if e isn't in it
+   */
+  ImmutableEdgeList without (EdgeIfc e) {
+
+    for (int i = 0; i < size; i++) {
+      if (array[i] == e) {
+        EdgeIfc[] a = new EdgeIfc[Math.max(4, size)];
+        System.arraycopy(array, 0, a, 0, i);
+        System.arraycopy(array, i + 1, a, i, size - i - 1);
+        return new ImmutableEdgeList(a, size - 1);
+      }
+    }
+
+    return this;
+  }
+
+}
@@ -0,0 +1,197 @@
+package Graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap over dense int ids with double priorities. Each id can be in the heap at most once,
+ * and its priority can be lowered in place, so Dijkstra style searches never hold duplicate entries.
+ */
+class IndexedMinHeap {
+
+  /**
+   * heap[i] is the id stored at heap slot i
+   */
+  private int[] heap;
+
+  /**
+   * position[id] is the heap slot holding id, -1 if id isn't in the heap
+   */
+  private int[] position;
+
+  /**
+   * keys[id] is the priority of id while it is in the heap
+   */
+  private double[] keys;
+
+  private int size;
+
+  /**
+   * Create an empty heap that can hold the ids 0 to capacity - 1
+   *
+   * @param capacity - The number of ids the heap can hold
+   */
+  IndexedMinHeap (int capacity) {
+
+    heap = new int[capacity];
+    position = new int[capacity];
+    keys = new double[capacity];
+    Arrays.fill(position, -1);
+    size = 0;
+  }
+
+  /**
+   * Makes room for the ids 0 to capacity - 1, keeping the ids already in the heap
+   *
+   * @param capacity - The number of ids the heap must be able to hold
+   */
+  void ensureCapacity (int capacity) {
+
+    int old = position.length;
+    if (capacity > old) {
+      int grown = Math.max(capacity, old + (old >> 1));
+      heap = Arrays.copyOf(heap, grown);
+      keys = Arrays.copyOf(keys, grown);
+      position = Arrays.copyOf(position, grown);
+      Arrays.fill(position, old, grown, -1);
+    }
+  }
+
+  /**
+   * @return True if there are no ids in the heap
+   */
+  boolean isEmpty () {
+
+    return size == 0;
+  }
+
+  /**
+   * @return The number of ids in the heap
+   */
+  int size () {
+
+    return size;
+  }
+
+  /**
+   * @param id - The id to look for
+   * @return True if the id is currently in the heap
+   */
+  boolean contains (int id) {
+
+    return position[id] >= 0;
+  }
+
+  /**
+   * @return The smallest priority in the heap, infinity if the heap is empty
+   */
+  double peekKey () {
+
+    return (size > 0) ? keys[heap[0]] : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Adds the id with the given priority, or lowers its priority if it is already in the heap. A priority that is
+   * not lower than the current one is ignored.
+   *
+   * @param id  - The id to add or update
+   * @param key - The new priority
+   * @return True if the heap was changed
+   */
+  boolean insertOrDecrease (int id, double key) {
+
+    int slot = position[id];
+    if (slot < 0) {
+      keys[id] = key;
+      heap[size] = id;
+      position[id] = size;
+      siftUp(size++);
+      return true;
+    }
+
+    if (key < keys[id]) {
+      keys[id] = key;
+      siftUp(slot);
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Removes the id with the smallest priority
+   *
+   * @return The removed id
+   * @throws IllegalStateException If the heap is empty
+   */
+  int poll () throws IllegalStateException {
+
+    if (size == 0) {
+      throw new IllegalStateException("heap is empty");
+    }
+
+    int min = heap[0];
+    position[min] = -1;
+    size--;
+    if (size > 0) {
+      int last = heap[size];
+      heap[0] = last;
+      position[last] = 0;
+      siftDown(0);
+    }
+
+    return min;
+  }
+
+  /**
+   * Removes all the ids, only touching the slots that are in use
+   */
+  void clear () {
+
+    for (int i = 0; i < size; i++) {
+      position[heap[i]] = -1;
+    }
+    size = 0;
+  }
+
+  private void siftUp (int slot) {
+
+    int id = heap[slot];
+    double key = keys[id];
+    while (slot > 0) {
+      int parent = (slot - 1) >>> 1;
+      int parentId = heap[parent];
+      if (keys[parentId] <= key) {
+        break;
+      }
+      heap[slot] = parentId;
+      position[parentId] = slot;
+      slot = parent;
+    }
+    heap[slot] = id;
+    position[id] = slot;
+  }
+
+  private void siftDown (int slot) {
+
+    int id = heap[slot];
+    double key = keys[id];
+    int half = size >>> 1;
+    while (slot < half) {
+      int child = 2 * slot + 1;
+      int right = child + 1;
+      if (right < size && keys[heap[right]] < keys[heap[child]]) {
+        child = right;
+      }
+      int childId = heap[child];
+      if (key <= keys[childId]) {
+        break;
+      }
+      heap[slot] = childId;
+      position[childId] = slot;
+      slot = child;
+    }
+    heap[slot] = id;
+    position[id] = slot;
+  }
+
+}
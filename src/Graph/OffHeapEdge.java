@@ -0,0 +1,232 @@
+package Graph;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Flyweight view of an edge of an off-heap graph, it only holds where the edge's record is. Once the edge is
+ * removed the view keeps what the edge had, like a removed on-heap edge. Views are compared by identity, the
+ * storage hands out one view per edge for as long as it is held.
+ */
+class OffHeapEdge implements EdgeIfc {
+
+  private final OffHeapStorage storage;
+  private final int id;
+
+  /**
+   * What the edge had when it was removed from the graph, null while it is in the graph
+   */
+  private volatile Removed removed;
+
+  OffHeapEdge (OffHeapStorage storage, int id) {
+
+    this.storage = storage;
+    this.id = id;
+  }
+
+  /**
+   * Called by the storage as the edge is removed, before its record is given up
+   */
+  void detach (VertexIfc from, VertexIfc to, String label, int weight, boolean directed) {
+
+    removed = new Removed(from, to, label, weight, directed);
+  }
+
+  /**
+   * @return True if this is the view of an edge that is in the storage
+   */
+  boolean isIn (OffHeapStorage s) {
+
+    return storage == s && removed == null;
+  }
+
+  /**
+   * @return A string form of the edge using the JSON string representation
+   */
+  @Override
+  public String toString () {
+
+    StringBuffer tmp = new StringBuffer("Graph.Edge ");
+    tmp.append(toJSONString());
+    return tmp.toString();
+  }
+
+  /**
+   * @return A string containing the JSON representation of this edge
+   */
+  @Override
+  public String toJSONString () {
+
+    StringWriter out = new StringWriter();
+    try {
+      writeJSONString(out);
+    }
+    catch (IOException e) {
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes the JSON representation of this edge straight to the writer
+   *
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
+   */
+  @Override
+  public void writeJSONString (Writer out) throws IOException {
+
+    EdgeImpl.writeJSON(this, out);
+  }
+
+  /**
+   * Off-heap edges are linked through their records, they don't have slots
+   */
+  @Override
+  public int getSlot (boolean outgoing) {
+
+    return -1;
+  }
+
+  /**
+   * Off-heap edges are linked through their records, they don't have slots
+   */
+  @Override
+  public void setSlot (boolean outgoing, int slot) {
+
+    throw new UnsupportedOperationException("Off-heap edges don't have slots");
+  }
+
+  /**
+   * The graph is told about changes by the view itself
+   *
+   * @param o - Not used
+   */
+  @Override
+  public void setObserver (GraphObserver o) {
+
+  }
+
+  /**
+   * @return The possibly null label of the edge
+   */
+  @Override
+  public String getLabel () {
+
+    Removed r = removed;
+    return (r != null) ? r.label : storage.label(id);
+  }
+
+  /**
+   * @param l - The label for this edge
+   */
+  @Override
+  public void setLabel (String l) {
+
+    if (l != null) {
+      Removed r = removed;
+      if (r != null) {
+        r.label = l;
+        return;
+      }
+
+      storage.setLabel(id, l);
+    }
+  }
+
+  /**
+   * @return The weight for this edge
+   */
+  @Override
+  public int getWeight () {
+
+    Removed r = removed;
+    return (r != null) ? r.weight : storage.weight(id);
+  }
+
+  /**
+   * @param w - The weight for this edge, ignored if it is negative
+   */
+  @Override
+  public void setWeight (int w) {
+
+    if (w >= 0 && w != getWeight()) {
+      Removed r = removed;
+      if (r != null) {
+        r.weight = w;
+        return;
+      }
+
+      int oldWeight = storage.weight(id);
+      storage.setWeight(id, w);
+      storage.graph().weightChanged(this, oldWeight);
+    }
+  }
+
+  /**
+   * @return True if the edge has a direction, false if it is bidirectional
+   */
+  @Override
+  public boolean getDirected () {
+
+    Removed r = removed;
+    return (r != null) ? r.directed : storage.directed(id);
+  }
+
+  /**
+   * @return The starting vertex
+   */
+  @Override
+  public Vertex getFrom () {
+
+    return from();
+  }
+
+  /**
+   * @return The ending vertex
+   */
+  @Override
+  public Vertex getTo () {
+
+    return to();
+  }
+
+  /**
+   * @return The starting vertex
+   */
+  @Override
+  public VertexIfc from () {
+
+    Removed r = removed;
+    return (r != null) ? r.from : storage.vertex(storage.from(id));
+  }
+
+  /**
+   * @return The ending vertex
+   */
+  @Override
+  public VertexIfc to () {
+
+    Removed r = removed;
+    return (r != null) ? r.to : storage.vertex(storage.to(id));
+  }
+
+  private static class Removed {
+
+    final VertexIfc from;
+    final VertexIfc to;
+    volatile String label;
+    volatile int weight;
+    final boolean directed;
+
+    Removed (VertexIfc from, VertexIfc to, String label, int weight, boolean directed) {
+
+      this.from = from;
+      this.to = to;
+      this.label = label;
+      this.weight = weight;
+      this.directed = directed;
+    }
+  }
+
+}
@@ -0,0 +1,466 @@
+package Graph;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Graph for use by one thread at a time, whose vertices, edges, weights, locations and strings are all kept in
+ * direct byte buffers outside the Java heap. Only flyweight views of the vertices and edges are made, on demand,
+ * so the heap the graph needs doesn't grow with it and the garbage collector has nothing of it to trace. The direct
+ * buffers count against -XX:MaxDirectMemorySize, not the heap.
+ * <p>
+ * Without a spatial index on the heap, the spatial queries scan the vertex records. Snapshots work as they do for
+ * the on-heap graph, the edges of the vertices changed while a snapshot is held are saved on the heap, but as the
+ * unchanged edges are read straight from the buffers, a snapshot is only read while the graph isn't being changed.
+ * <p>
+ * The shortest path trees and the weakly connected components hold a view of every vertex they reach, so keeping
+ * them between queries would make the heap grow with the graph. The path cache starts turned off, setPathCacheSize
+ * turns it on for graphs whose views fit on the heap, and the components are only worked out when asked for.
+ */
+class OffHeapGraphImpl extends AbstractGraph implements GraphObserver {
+
+  private OffHeapStorage storage;
+
+  /**
+   * State saved for the snapshots taken of this graph
+   */
+  private final SnapshotLog snapshots;
+
+  /**
+   * Construct a new graph without any vertices or edges
+   */
+  OffHeapGraphImpl () {
+
+    storage = new OffHeapStorage(this);
+    snapshots = new SnapshotLog();
+    setPathCacheSize(0);
+  }
+
+  /**
+   * @return False, the components would hold a view of every vertex
+   */
+  @Override
+  boolean keepsComponents () {
+
+    return false;
+  }
+
+  /**
+   * @param location - The location to determine if a vertex resides at
+   * @return The vertex at the location, null if there isn't a vertex at that location
+   */
+  @Override
+  public Vertex getVertexAtLocation (Point location) {
+
+    if (location != null) {
+      for (int v = 0; v < storage.vertexBound(); v++) {
+        if (storage.isVertex(v) && storage.distanceSq(v, location) == 0) {
+          return storage.vertex(v);
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @param area - The area to look in, the edges of the area are included
+   * @return The vertices whose location is inside the area
+   */
+  @Override
+  public List<Vertex> getVerticesInArea (Rectangle area) {
+
+    List<Vertex> found = new ArrayList<>();
+    if (area == null || area.width < 0 || area.height < 0) {
+      return found;
+    }
+
+    long right = (long) area.x + area.width;
+    long bottom = (long) area.y + area.height;
+    for (int v = 0; v < storage.vertexBound(); v++) {
+      if (storage.isVertex(v) && storage.isLocatedWithin(v, area.x, area.y, right, bottom)) {
+        found.add(storage.vertex(v));
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * @param location - The location to measure from
+   * @param k        - The number of vertices wanted
+   * @return Up to k of the vertices closest to the location, closest first
+   */
+  @Override
+  public List<Vertex> getNearestVertices (Point location, int k) {
+
+    List<Vertex> found = new ArrayList<>();
+    if (location == null || k <= 0) {
+      return found;
+    }
+
+    // Farthest first, so the head is the one to drop when something closer turns up. Only ids and distances are
+    // held, views are made for the vertices returned.
+    final long[] distances = new long[storage.vertexBound()];
+    PriorityQueue<Integer> best = new PriorityQueue<>(k, new Comparator<Integer>() {
+
+      public int compare (Integer a, Integer b) {
+
+        return Long.compare(distances[b], distances[a]);
+      }
+    });
+    for (int v = 0; v < storage.vertexBound(); v++) {
+      long d = storage.isVertex(v) ? storage.distanceSq(v, location) : -1;
+      if (d >= 0) {
+        distances[v] = d;
+        if (best.size() < k) {
+          best.add(v);
+        } else if (d < distances[best.peek()]) {
+          best.poll();
+          best.add(v);
+        }
+      }
+    }
+
+    while (!best.isEmpty()) {
+      found.add(storage.vertex(best.poll()));
+    }
+    Collections.reverse(found);
+
+    return found;
+  }
+
+  /**
+   * Adds a vertex to the graph, if the given name is valid, and a vertex with that name isn't present in the graph
+   *
+   * @param name     - The name for the new vertex
+   * @param location - The location of the new vertex
+   * @param data     - The data for the vertex
+   * @return True if the vertex is added to the graph, false if it already existed or there was an problem
+   * @throws IllegalArgumentException If the name is null or empty
+   */
+  @Override
+  public boolean addVertex (String name, Point location, String data) throws IllegalArgumentException {
+
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Vertex name cannot be empty");
+    }
+
+    if (storage.findVertex(name) >= 0) {
+      return false;
+    }
+
+    if (!snapshots.hasSnapshots()) {
+      storage.release();
+    }
+
+    snapshots.record(name, null);
+    int v = storage.addVertex(name, location, data);
+    modified();
+    vertexAdded(storage.vertex(v));
+    return true;
+  }
+
+  /**
+   * Removes the vertex from the graph, and removes all the edges adjacent to the vertex
+   *
+   * @param name - The name of the vertex to remove
+   * @return True if the edge was removed, false if it doesn't exist or there was a problem
+   */
+  @Override
+  public boolean removeVertex (String name) throws IllegalArgumentException {
+
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Vertex name cannot be empty");
+    }
+
+    int v = storage.findVertex(name);
+    if (v < 0) {
+      return false;
+    }
+
+    // Views made now, while the records are there, are the ones the snapshots and listeners are given
+    VertexIfc removed = storage.vertex(v);
+    snapshots.recordWithNeighbours(removed);
+    List<EdgeIfc> adjacent = listening() ? new ArrayList<EdgeIfc>() : null;
+    for (int e = storage.firstOut(v); e >= 0; e = storage.firstOut(v)) {
+      removeEdgeRecord(e, adjacent);
+    }
+    for (int e = storage.firstIn(v); e >= 0; e = storage.firstIn(v)) {
+      removeEdgeRecord(e, adjacent);
+    }
+    storage.removeVertex(v, snapshots.hasSnapshots());
+    modified();
+    connectionsRemoved();
+    if (adjacent != null) {
+      for (EdgeIfc e : adjacent) {
+        edgeRemoved(e);
+      }
+      vertexRemoved(removed);
+    }
+
+    return true;
+  }
+
+  /**
+   * Removes all the vertices and edges from the graph. Unless a snapshot may still see them this takes constant
+   * time, the storage is dropped and its buffers are given back once the views of the old vertices and edges are no
+   * longer held, and the listeners are sent a single CLEARED event.
+   */
+  @Override
+  public void clear () {
+
+    if (!snapshots.hasSnapshots()) {
+      storage = new OffHeapStorage(this);
+      modified();
+      cleared();
+      return;
+    }
+
+    ArrayList<String> toRemove = new ArrayList<>(storage.vertexCount());
+
+    for (VertexIfc v : storage.vertexCollection()) {
+      toRemove.add(v.getName());
+    }
+
+    for (String name : toRemove) {
+      removeVertex(name);
+    }
+  }
+
+  /**
+   * Insert a directed, weighted Edge into the graph.
+   *
+   * @param from     - The Edge starting vertex
+   * @param to       - The Edge ending vertex
+   * @param label    - The Edge label
+   * @param weight   - The Edge weight
+   * @param directed - True if the edge has a direction, false if it is bidirectional
+   * @return true if the Edge was added, false if from already has this Edge
+   * @throws IllegalArgumentException If from/to are not vertices in the graph
+   */
+  @Override
+  public boolean addEdge (Vertex from, Vertex to, String label, int weight, boolean directed)
+      throws IllegalArgumentException {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    if (to == null) {
+      throw new IllegalArgumentException("to cannot be null");
+    }
+
+    VertexIfc actualFrom = resolve(from);
+    if (actualFrom == null) {
+      throw new IllegalArgumentException("from is not in graph");
+    }
+
+    VertexIfc actualTo = resolve(to);
+    if (actualTo == null) {
+      throw new IllegalArgumentException("to is not in graph");
+    }
+
+    int f = actualFrom.getId();
+    int t = actualTo.getId();
+    boolean added = addDirectedEdge(f, t, label, weight, directed);
+
+    if (!directed) {
+      added = added && addDirectedEdge(t, f, label, weight, directed);
+    }
+
+    return added;
+  }
+
+  /**
+   * Remove an Edge from the graph
+   *
+   * @param from - The Edge starting vertex
+   * @param to   -The Edge ending vertex
+   * @return true if the Edge exists, false otherwise
+   */
+  @Override
+  public boolean removeEdge (Vertex from, Vertex to) throws IllegalArgumentException {
+
+    if (from == null) {
+      throw new IllegalArgumentException("from cannot be null");
+    }
+
+    if (to == null) {
+      throw new IllegalArgumentException("to cannot be null");
+    }
+
+    VertexIfc actualFrom = resolve(from);
+    VertexIfc actualTo = resolve(to);
+    if (actualFrom == null || actualTo == null) {
+      return false;
+    }
+
+    int f = actualFrom.getId();
+    int t = actualTo.getId();
+    int e = storage.findEdge(f, t);
+    if (e < 0) {
+      return false;
+    }
+
+    snapshots.record(actualFrom);
+    snapshots.record(actualTo);
+    List<EdgeIfc> removed = listening() ? new ArrayList<EdgeIfc>() : null;
+    boolean directed = storage.directed(e);
+    removeEdgeRecord(e, removed);
+    if (!directed) {
+      e = storage.findEdge(t, f);
+      if (e >= 0) {
+        removeEdgeRecord(e, removed);
+      }
+    }
+    modified();
+    connectionsRemoved();
+    if (removed != null) {
+      for (EdgeIfc r : removed) {
+        edgeRemoved(r);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Takes a read only view of the graph as it is now, in constant time. The snapshot keeps seeing the graph as it
+   * was while the graph is changed, but it reads the buffers the changes are made to, so it must not be read at the
+   * same time as a change is made.
+   *
+   * @return The snapshot
+   */
+  @Override
+  public Graph snapshot () {
+
+    return new GraphSnapshot(this, snapshots.freeze());
+  }
+
+  /**
+   * Tells the listeners when a vertex in the graph is moved
+   *
+   * @param v           - The vertex that moved
+   * @param oldLocation - The location of the vertex before it moved, may be null
+   */
+  @Override
+  public void locationChanged (VertexIfc v, Point oldLocation) {
+
+    // Vertices dropped by clear still report to the graph
+    if (vertexAt(v.getId()) == v) {
+      moved(v, oldLocation);
+    }
+  }
+
+  /**
+   * Drops the cached path information and tells the listeners when an edge in the graph changes weight
+   *
+   * @param e         - The edge whose weight changed
+   * @param oldWeight - The weight of the edge before it changed
+   */
+  @Override
+  public void weightChanged (EdgeIfc e, int oldWeight) {
+
+    if (vertexAt(e.from().getId()) == e.from()) {
+      reweighted(e, oldWeight);
+    }
+  }
+
+  /**
+   * @param outgoing - True to step through the outgoing edges of vertices, false for the incoming edges
+   * @return A cursor that reads the edge records, without making a view for each edge
+   */
+  @Override
+  public EdgeCursor edgeCursor (boolean outgoing) {
+
+    return storage.cursor(outgoing);
+  }
+
+  /**
+   * Used internally to get the edges in the graph
+   *
+   * @return The set of the edges in the graph, a live view of the records
+   */
+  @Override
+  public Set<EdgeIfc> edges () {
+
+    return storage.edgeSet();
+  }
+
+  /**
+   * @param name - The name of the vertex to retrieve
+   * @return The vertex with the matching name, null if the vertex isn't in the graph
+   */
+  @Override
+  VertexIfc findVertex (String name) {
+
+    int v = (name != null && !name.isEmpty()) ? storage.findVertex(name) : -1;
+    return (v >= 0) ? storage.vertex(v) : null;
+  }
+
+  /**
+   * @param id - A vertex id
+   * @return The vertex in the graph with the id, null if there isn't one
+   */
+  @Override
+  VertexIfc vertexAt (int id) {
+
+    return storage.isVertex(id) ? storage.vertex(id) : null;
+  }
+
+  /**
+   * @return One more than the highest vertex id in the graph
+   */
+  @Override
+  int idBound () {
+
+    return storage.vertexBound();
+  }
+
+  /**
+   * @return The vertices in the graph, a live view that the caller must not change
+   */
+  @Override
+  Collection<VertexIfc> vertexValues () {
+
+    return storage.vertexCollection();
+  }
+
+  /**
+   * Adds a directed edge between two vertices in the graph. For bidirectional edges, will be call twice when the
+   * edge is added.
+   *
+   * @return True if the edge was added
+   */
+  private boolean addDirectedEdge (int from, int to, String label, int weight, boolean directed) {
+
+    if (storage.findEdge(from, to) >= 0) {
+      return false;
+    }
+
+    if (snapshots.hasSnapshots()) {
+      snapshots.record(storage.vertex(from));
+      snapshots.record(storage.vertex(to));
+    }
+
+    int e = storage.addEdge(from, to, (label != null) ? label : "", Math.max(weight, 0), directed);
+    modified();
+    edgeAdded(storage.edge(e));
+    return true;
+  }
+
+  /**
+   * @param e       - The number of the edge to remove
+   * @param removed - Where to put the view of the removed edge for the listeners, null if nothing is listening
+   */
+  private void removeEdgeRecord (int e, List<EdgeIfc> removed) {
+
+    if (removed != null) {
+      removed.add(storage.edge(e));
+    }
+    storage.removeEdge(e);
+  }
+
+}
@@ -0,0 +1,212 @@
+package Graph;
+
+import junit.framework.Assert;
+
+import java.awt.*;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Runs all the graph tests against the off-heap graph, then checks what is particular to it: views handed out
+ * for the records, and removed records being used again.
+ */
+public class OffHeapGraphTest extends GraphTest {
+
+  @Override
+  GraphIfc createGraph () {
+
+    return new OffHeapGraphImpl();
+  }
+
+  /**
+   * The unchanged edges of a snapshot of the off-heap graph are read straight from the buffers, so it is only read
+   * while the graph isn't being changed. Read between the changes on another thread, each snapshot still sees the
+   * graph as it was.
+   */
+  @Override
+  public void testSnapshotsReadWhileChanging () throws Exception {
+
+    readSnapshotsWhileChanging(new Object());
+  }
+
+  /**
+   * The path cache starts turned off for the off-heap graph, once turned on it works as for the others
+   */
+  @Override
+  public void testPathCache () throws Exception {
+
+    GraphIfc g = createGraph();
+    assertTrue(g.addVertex("A", null, null));
+    assertTrue(g.addVertex("B", null, null));
+    assertTrue(g.addEdge(g.getVertex("A"), g.getVertex("B"), null, 3, true));
+    Vertex a = g.getVertex("A");
+    assertNotSame(g.getPathInformation(a), g.getPathInformation(a));
+
+    g.setPathCacheSize(128);
+    ShortestPath sp = g.getPathInformation(a);
+    assertSame(sp, g.getPathInformation(a));
+    a.findEdge(g.getVertex("B")).setWeight(5);
+    assertNotSame(sp, g.getPathInformation(a));
+    Assert.assertEquals(5.0, g.getPathInformation(a).distanceTo(g.getVertex("B")));
+  }
+
+  public void testHeapRetention () throws Exception {
+
+    GraphIfc g = createGraph();
+    int n = 50000;
+    for (int i = 0; i < n; i++) {
+      assertTrue(g.addVertex("V" + i, new Point(i, i), null));
+    }
+    for (int i = 1; i < n; i++) {
+      assertTrue(g.addEdge(g.getVertex("V" + (i - 1)), g.getVertex("V" + i), null, 1, false));
+    }
+
+    // Queries that reach every vertex leave nothing of it on the heap once they are done. Were a view of each
+    // vertex kept, with the weak reference that finds it, that would be several megabytes.
+    long before = retainedHeap(g);
+    assertTrue(g.areVerticesConnected(g.getVertex("V0"), g.getVertex("V" + (n - 1))));
+    assertTrue(g.isGraphConnected(null));
+    for (int i = 0; i < 8; i++) {
+      Assert.assertEquals((double) (n - 1 - i), g.getPathInformation(g.getVertex("V" + i)).distanceTo(
+          g.getVertex("V" + (n - 1))));
+    }
+    assertTrue(retainedHeap(g) - before < (1 << 20));
+  }
+
+  public void testStringsReused () throws Exception {
+
+    GraphIfc g = createGraph();
+    int n = 1000;
+    for (int i = 0; i < n; i++) {
+      assertTrue(g.addVertex("V" + i, null, "data " + i));
+    }
+    for (int i = 1; i < n; i++) {
+      assertTrue(g.addEdge(g.getVertex("V" + (i - 1)), g.getVertex("V" + i), "road", i, true));
+    }
+
+    // Every string changes many times over, which would take megabytes more were the old ones never given back
+    long before = directMemory();
+    for (int round = 0; round < 200; round++) {
+      for (int i = 0; i < n; i++) {
+        g.getVertex("V" + i).setData("data " + i + " round " + round);
+      }
+      for (int i = 1; i < n; i++) {
+        g.getVertex("V" + (i - 1)).findEdge(g.getVertex("V" + i)).setLabel((round % 2 == 0) ? "lane" : "road " + i);
+      }
+      int k = round % n;
+      assertTrue(g.removeVertex("V" + k));
+      assertTrue(g.addVertex("V" + k, null, "data " + k + " round " + round));
+      if (k > 0) {
+        assertTrue(g.addEdge(g.getVertex("V" + (k - 1)), g.getVertex("V" + k), "road", k, true));
+      }
+      assertTrue(g.addEdge(g.getVertex("V" + k), g.getVertex("V" + (k + 1)), "road", k + 1, true));
+    }
+    assertTrue(directMemory() - before < (1 << 20));
+
+    for (int i = 0; i < n; i++) {
+      Assert.assertEquals("data " + i + " round 199", g.getVertex("V" + i).getData());
+    }
+    Assert.assertEquals("road 500", g.getVertex("V499").findEdge(g.getVertex("V500")).getLabel());
+    Assert.assertEquals("road", g.getVertex("V198").findEdge(g.getVertex("V199")).getLabel());
+  }
+
+  /**
+   * @return The bytes taken by direct buffers
+   */
+  private static long directMemory () {
+
+    long used = 0;
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if ("direct".equals(pool.getName())) {
+        used += pool.getMemoryUsed();
+      }
+    }
+
+    return used;
+  }
+
+  /**
+   * The collected views are only let go of once their references have been queued, which happens a little after
+   * the collection, so the least of a few tries is taken
+   *
+   * @return The heap in use once the garbage has been collected, and the graph has let go of the collected views
+   */
+  private static long retainedHeap (GraphIfc g) throws InterruptedException {
+
+    Runtime runtime = Runtime.getRuntime();
+    long least = Long.MAX_VALUE;
+    for (int i = 0; i < 8; i++) {
+      System.gc();
+      Thread.sleep(20);
+      g.getVertex(0);
+      least = Math.min(least, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    return least;
+  }
+
+  public void testViews () throws Exception {
+
+    GraphIfc g = createGraph();
+    for (int i = 0; i < 100; i++) {
+      assertTrue(g.addVertex("V" + i, new Point(i, -i), "data " + i));
+    }
+    for (int i = 0; i < 99; i++) {
+      assertTrue(g.addEdge(g.getVertex("V" + i), g.getVertex("V" + (i + 1)), "E" + i, i, i % 2 == 0));
+    }
+
+    // The same view is handed out while it is held
+    Vertex v = g.getVertex("V10");
+    Assert.assertSame(v, g.getVertex(10));
+    Assert.assertSame(v, g.getVertex("V9").findEdge(v).getTo());
+    Assert.assertEquals(new Point(10, -10), v.getLocation());
+    Assert.assertEquals("data 10", v.getData());
+    v.setData("changed");
+    Assert.assertEquals("changed", g.getVertex("V10").getData());
+
+    // A removed vertex and its edges keep what they had, and its record is used again
+    int edgeCount = g.getEdges().size();
+    Edge e = v.findEdge(g.getVertex("V11"));
+    Assert.assertEquals(10, e.getWeight());
+    assertTrue(g.removeVertex("V10"));
+    Assert.assertEquals("V10", v.getName());
+    Assert.assertEquals("changed", v.getData());
+    Assert.assertEquals("E10", e.getLabel());
+    Assert.assertSame(v, e.getFrom());
+    assertFalse(v.hasEdge(g.getVertex("V11")));
+    assertTrue(g.addVertex("New", null, null));
+    Vertex added = g.getVertex("New");
+    Assert.assertEquals(10, added.getId());
+    assertFalse(added == v);
+    assertNull(added.getLocation());
+    Assert.assertEquals(edgeCount - 3, g.getEdges().size());
+    assertFalse(g.edges().contains(e));
+
+    // Names that collide in the table are still told apart, and the table grows past its first size
+    for (int i = 0; i < 40000; i++) {
+      assertTrue(g.addVertex("W" + i, null, ""));
+    }
+    for (int i = 0; i < 40000; i += 2) {
+      assertTrue(g.removeVertex("W" + i));
+    }
+    for (int i = 0; i < 40000; i++) {
+      Assert.assertEquals(i % 2 == 1, g.getVertex("W" + i) != null);
+    }
+    Assert.assertEquals(100 + 20000, g.getSize());
+
+    // A record removed while a snapshot may see it is held back, and used again once the snapshot is dropped
+    Graph snapshot = g.snapshot();
+    Vertex w = g.getVertex("W1");
+    assertTrue(g.removeVertex("W1"));
+    assertTrue(g.addVertex("Held", null, null));
+    assertFalse(g.getVertex("Held").getId() == w.getId());
+    Assert.assertSame(w, snapshot.getVertex(w.getId()));
+    snapshot = null;
+    for (int i = 0; i < 100 && g.getVertex(w.getId()) == null; i++) {
+      System.gc();
+      assertTrue(g.addVertex("Reused" + i, null, null));
+    }
+    assertNotNull(g.getVertex(w.getId()));
+  }
+
+}
@@ -0,0 +1,927 @@
+package Graph;
+
+import java.awt.*;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The vertices, edges and strings of an off-heap graph. A vertex id is the number of its record, an edge is named
+ * by the number of its record too, and the edges of a vertex are linked through their records in two doubly linked
+ * lists, outgoing and incoming, so adding and removing an edge never moves another. Vertex names are found through
+ * an open addressing hash table that is off-heap as well. Removed records are kept on free lists and used again,
+ * except that the records of vertices removed while a snapshot may see them are held back until none can, so the
+ * ids in a snapshot stay unique. The strings of removed vertices and edges, and data and labels that are replaced,
+ * give their room back to the string store, and a label used recently is shared by the edges that have it.
+ * <p>
+ * Nothing about a vertex or edge is kept on the heap except the flyweight views handed out for them, and a bounded
+ * number of recent labels. The views are
+ * looked up through weak references, so while a caller holds the view of a vertex or edge it is handed the same
+ * one again, which keeps comparing by identity working, and the views nobody holds are garbage collected. The
+ * algorithms step through the edges with a cursor that reads the records, so they only make views for what they
+ * keep rather than for every edge they look at.
+ */
+class OffHeapStorage {
+
+  // Vertex record layout
+  private static final int V_FLAGS = 0;
+  private static final int V_X = 4;
+  private static final int V_Y = 8;
+  private static final int V_HASH = 12;
+  private static final int V_NAME = 16;
+  private static final int V_DATA = 24;
+  private static final int V_FIRST_OUT = 32;
+  private static final int V_LAST_OUT = 36;
+  private static final int V_FIRST_IN = 40;
+  private static final int V_LAST_IN = 44;
+  private static final int V_OUT_DEGREE = 48;
+  private static final int V_IN_DEGREE = 52;
+  private static final int VERTEX_SIZE = 56;
+
+  // Edge record layout
+  private static final int E_FROM = 0;
+  private static final int E_TO = 4;
+  private static final int E_WEIGHT = 8;
+  private static final int E_FLAGS = 12;
+  private static final int E_LABEL = 16;
+  private static final int E_PREV_OUT = 24;
+  private static final int E_NEXT_OUT = 28;
+  private static final int E_PREV_IN = 32;
+  private static final int E_NEXT_IN = 36;
+  private static final int EDGE_SIZE = 40;
+
+  private static final int LIVE = 1;
+  private static final int LOCATED = 2;
+  private static final int DIRECTED = 2;
+
+  /**
+   * Name table slots hold the vertex id plus one, so the zeros of a new page read as empty
+   */
+  private static final int TOMBSTONE = -1;
+
+  /**
+   * The number of recently used labels remembered so that edges with the same label share it
+   */
+  private static final int LABELS = 1024;
+
+  private final OffHeapGraphImpl graph;
+
+  private final OffHeapStore vertices;
+  private final OffHeapStore edges;
+  private final OffHeapStrings strings;
+  private OffHeapStore table;
+  private int tableSize;
+
+  /**
+   * Table slots that aren't empty, tombstones included
+   */
+  private int tableUsed;
+
+  private int vertexBound;
+  private int vertexCount;
+  private int freeVertex = -1;
+  private int heldVertex = -1;
+  private int lastHeldVertex = -1;
+  private int edgeBound;
+  private int edgeCount;
+  private int freeEdge = -1;
+
+  /**
+   * Where the labels used most recently are stored. An entry may outlive its string, so it is checked before use.
+   */
+  private final Map<String, Long> labels = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+
+    @Override
+    protected boolean removeEldestEntry (Map.Entry<String, Long> eldest) {
+
+      return size() > LABELS;
+    }
+  };
+
+  private final ConcurrentMap<Integer, ViewReference> vertexViews = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, ViewReference> edgeViews = new ConcurrentHashMap<>();
+  private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+  /**
+   * Create empty storage
+   *
+   * @param graph - The graph the storage belongs to, the views tell it about their changes
+   */
+  OffHeapStorage (OffHeapGraphImpl graph) {
+
+    this.graph = graph;
+    vertices = new OffHeapStore(VERTEX_SIZE);
+    edges = new OffHeapStore(EDGE_SIZE);
+    strings = new OffHeapStrings();
+    tableSize = 1 << 14;
+    table = new OffHeapStore(4);
+    table.ensureCapacity(tableSize);
+  }
+
+  OffHeapGraphImpl graph () {
+
+    return graph;
+  }
+
+  /**
+   * @return One more than the highest vertex id in use
+   */
+  int vertexBound () {
+
+    return vertexBound;
+  }
+
+  int vertexCount () {
+
+    return vertexCount;
+  }
+
+  int edgeCount () {
+
+    return edgeCount;
+  }
+
+  boolean isVertex (int v) {
+
+    return v >= 0 && v < vertexBound && (vertices.getInt(v, V_FLAGS) & LIVE) != 0;
+  }
+
+  boolean isEdge (int e) {
+
+    return e >= 0 && e < edgeBound && (edges.getInt(e, E_FLAGS) & LIVE) != 0;
+  }
+
+  /**
+   * @param name - The name of a vertex
+   * @return The id of the vertex with the name, -1 if there isn't one
+   */
+  int findVertex (String name) {
+
+    int hash = hash(name);
+    byte[] bytes = OffHeapStrings.encode(name);
+    int mask = tableSize - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      int slot = table.getInt(i, 0);
+      if (slot == 0) {
+        return -1;
+      }
+      if (slot > 0 && vertices.getInt(slot - 1, V_HASH) == hash &&
+          strings.matches(vertices.getLong(slot - 1, V_NAME), bytes)) {
+        return slot - 1;
+      }
+    }
+  }
+
+  /**
+   * Adds a vertex, the caller has made sure no vertex has the name
+   *
+   * @return The id of the new vertex
+   */
+  int addVertex (String name, Point location, String data) {
+
+    int v = freeVertex;
+    if (v >= 0) {
+      freeVertex = vertices.getInt(v, V_FIRST_OUT);
+    } else {
+      v = vertexBound++;
+      vertices.ensureCapacity(vertexBound);
+    }
+
+    int hash = hash(name);
+    vertices.putInt(v, V_FLAGS, LIVE);
+    vertices.putInt(v, V_HASH, hash);
+    vertices.putLong(v, V_NAME, strings.put(name));
+    vertices.putLong(v, V_DATA, strings.put(data));
+    vertices.putInt(v, V_FIRST_OUT, -1);
+    vertices.putInt(v, V_LAST_OUT, -1);
+    vertices.putInt(v, V_FIRST_IN, -1);
+    vertices.putInt(v, V_LAST_IN, -1);
+    vertices.putInt(v, V_OUT_DEGREE, 0);
+    vertices.putInt(v, V_IN_DEGREE, 0);
+    setLocation(v, location);
+    vertexCount++;
+
+    if (2 * (tableUsed + 1) > tableSize) {
+      rehash((2 * (vertexCount + 1) > tableSize / 2) ? 2 * tableSize : tableSize);
+    }
+    insert(v, hash);
+
+    return v;
+  }
+
+  /**
+   * Removes a vertex whose edges have already been removed. A view of it that is still held keeps what it had.
+   *
+   * @param v    - The id of the vertex
+   * @param hold - True to keep the id from being used again until release is called
+   */
+  void removeVertex (int v, boolean hold) {
+
+    ViewReference ref = vertexViews.remove(v);
+    OffHeapVertex view = (ref != null) ? (OffHeapVertex) ref.get() : null;
+    if (view != null) {
+      view.detach(name(v), location(v), data(v));
+    }
+    strings.release(vertices.getLong(v, V_NAME));
+    strings.release(vertices.getLong(v, V_DATA));
+
+    int hash = vertices.getInt(v, V_HASH);
+    int mask = tableSize - 1;
+    int i = hash & mask;
+    while (table.getInt(i, 0) != v + 1) {
+      i = (i + 1) & mask;
+    }
+    table.putInt(i, 0, TOMBSTONE);
+
+    vertices.putInt(v, V_FLAGS, 0);
+    if (hold) {
+      vertices.putInt(v, V_FIRST_OUT, heldVertex);
+      if (heldVertex < 0) {
+        lastHeldVertex = v;
+      }
+      heldVertex = v;
+    } else {
+      vertices.putInt(v, V_FIRST_OUT, freeVertex);
+      freeVertex = v;
+    }
+    vertexCount--;
+  }
+
+  /**
+   * Lets the ids of the vertices removed while they were held back be used again
+   */
+  void release () {
+
+    if (heldVertex >= 0) {
+      vertices.putInt(lastHeldVertex, V_FIRST_OUT, freeVertex);
+      freeVertex = heldVertex;
+      heldVertex = -1;
+      lastHeldVertex = -1;
+    }
+  }
+
+  /**
+   * Adds an edge at the end of the outgoing edges of from and the incoming edges of to
+   *
+   * @return The number of the new edge
+   */
+  int addEdge (int from, int to, String label, int weight, boolean directed) {
+
+    int e = freeEdge;
+    if (e >= 0) {
+      freeEdge = edges.getInt(e, E_NEXT_OUT);
+    } else {
+      e = edgeBound++;
+      edges.ensureCapacity(edgeBound);
+    }
+
+    edges.putInt(e, E_FROM, from);
+    edges.putInt(e, E_TO, to);
+    edges.putInt(e, E_WEIGHT, weight);
+    edges.putInt(e, E_FLAGS, LIVE | (directed ? DIRECTED : 0));
+    edges.putLong(e, E_LABEL, putLabel(label));
+
+    int lastOut = vertices.getInt(from, V_LAST_OUT);
+    edges.putInt(e, E_PREV_OUT, lastOut);
+    edges.putInt(e, E_NEXT_OUT, -1);
+    if (lastOut >= 0) {
+      edges.putInt(lastOut, E_NEXT_OUT, e);
+    } else {
+      vertices.putInt(from, V_FIRST_OUT, e);
+    }
+    vertices.putInt(from, V_LAST_OUT, e);
+    vertices.putInt(from, V_OUT_DEGREE, vertices.getInt(from, V_OUT_DEGREE) + 1);
+
+    int lastIn = vertices.getInt(to, V_LAST_IN);
+    edges.putInt(e, E_PREV_IN, lastIn);
+    edges.putInt(e, E_NEXT_IN, -1);
+    if (lastIn >= 0) {
+      edges.putInt(lastIn, E_NEXT_IN, e);
+    } else {
+      vertices.putInt(to, V_FIRST_IN, e);
+    }
+    vertices.putInt(to, V_LAST_IN, e);
+    vertices.putInt(to, V_IN_DEGREE, vertices.getInt(to, V_IN_DEGREE) + 1);
+
+    edgeCount++;
+    return e;
+  }
+
+  /**
+   * Unlinks an edge from both its lists in constant time. A view of it that is still held keeps what it had.
+   *
+   * @param e - The number of the edge
+   */
+  void removeEdge (int e) {
+
+    ViewReference ref = edgeViews.remove(e);
+    OffHeapEdge view = (ref != null) ? (OffHeapEdge) ref.get() : null;
+    if (view != null) {
+      view.detach(vertex(from(e)), vertex(to(e)), label(e), weight(e), directed(e));
+    }
+    strings.release(edges.getLong(e, E_LABEL));
+
+    int from = from(e);
+    int prev = edges.getInt(e, E_PREV_OUT);
+    int next = edges.getInt(e, E_NEXT_OUT);
+    if (prev >= 0) {
+      edges.putInt(prev, E_NEXT_OUT, next);
+    } else {
+      vertices.putInt(from, V_FIRST_OUT, next);
+    }
+    if (next >= 0) {
+      edges.putInt(next, E_PREV_OUT, prev);
+    } else {
+      vertices.putInt(from, V_LAST_OUT, prev);
+    }
+    vertices.putInt(from, V_OUT_DEGREE, vertices.getInt(from, V_OUT_DEGREE) - 1);
+
+    int to = to(e);
+    prev = edges.getInt(e, E_PREV_IN);
+    next = edges.getInt(e, E_NEXT_IN);
+    if (prev >= 0) {
+      edges.putInt(prev, E_NEXT_IN, next);
+    } else {
+      vertices.putInt(to, V_FIRST_IN, next);
+    }
+    if (next >= 0) {
+      edges.putInt(next, E_PREV_IN, prev);
+    } else {
+      vertices.putInt(to, V_LAST_IN, prev);
+    }
+    vertices.putInt(to, V_IN_DEGREE, vertices.getInt(to, V_IN_DEGREE) - 1);
+
+    edges.putInt(e, E_FLAGS, 0);
+    edges.putInt(e, E_NEXT_OUT, freeEdge);
+    freeEdge = e;
+    edgeCount--;
+  }
+
+  /**
+   * Walks the shorter of the outgoing edges of from and the incoming edges of to
+   *
+   * @return The number of the edge from from to to, -1 if there isn't one
+   */
+  int findEdge (int from, int to) {
+
+    if (vertices.getInt(from, V_OUT_DEGREE) <= vertices.getInt(to, V_IN_DEGREE)) {
+      for (int e = vertices.getInt(from, V_FIRST_OUT); e >= 0; e = edges.getInt(e, E_NEXT_OUT)) {
+        if (edges.getInt(e, E_TO) == to) {
+          return e;
+        }
+      }
+    } else {
+      for (int e = vertices.getInt(to, V_FIRST_IN); e >= 0; e = edges.getInt(e, E_NEXT_IN)) {
+        if (edges.getInt(e, E_FROM) == from) {
+          return e;
+        }
+      }
+    }
+
+    return -1;
+  }
+
+  int firstOut (int v) {
+
+    return vertices.getInt(v, V_FIRST_OUT);
+  }
+
+  int nextOut (int e) {
+
+    return edges.getInt(e, E_NEXT_OUT);
+  }
+
+  int firstIn (int v) {
+
+    return vertices.getInt(v, V_FIRST_IN);
+  }
+
+  int nextIn (int e) {
+
+    return edges.getInt(e, E_NEXT_IN);
+  }
+
+  String name (int v) {
+
+    return strings.get(vertices.getLong(v, V_NAME));
+  }
+
+  /**
+   * @return A new point holding the location of the vertex, null if it doesn't have one
+   */
+  Point location (int v) {
+
+    if ((vertices.getInt(v, V_FLAGS) & LOCATED) == 0) {
+      return null;
+    }
+
+    return new Point(vertices.getInt(v, V_X), vertices.getInt(v, V_Y));
+  }
+
+  void setLocation (int v, Point location) {
+
+    int flags = vertices.getInt(v, V_FLAGS);
+    if (location != null) {
+      vertices.putInt(v, V_X, location.x);
+      vertices.putInt(v, V_Y, location.y);
+      vertices.putInt(v, V_FLAGS, flags | LOCATED);
+    } else {
+      vertices.putInt(v, V_FLAGS, flags & ~LOCATED);
+    }
+  }
+
+  /**
+   * Reads the location without making a point, for scanning every vertex
+   *
+   * @return True if the vertex has a location inside the bounds, edges included
+   */
+  boolean isLocatedWithin (int v, long left, long top, long right, long bottom) {
+
+    if ((vertices.getInt(v, V_FLAGS) & LOCATED) == 0) {
+      return false;
+    }
+
+    int x = vertices.getInt(v, V_X);
+    int y = vertices.getInt(v, V_Y);
+    return x >= left && x <= right && y >= top && y <= bottom;
+  }
+
+  /**
+   * @return The square of the distance from the location to the vertex, -1 if the vertex doesn't have a location
+   */
+  long distanceSq (int v, Point location) {
+
+    if ((vertices.getInt(v, V_FLAGS) & LOCATED) == 0) {
+      return -1;
+    }
+
+    long dx = (long) vertices.getInt(v, V_X) - location.x;
+    long dy = (long) vertices.getInt(v, V_Y) - location.y;
+    return dx * dx + dy * dy;
+  }
+
+  String data (int v) {
+
+    return strings.get(vertices.getLong(v, V_DATA));
+  }
+
+  void setData (int v, String data) {
+
+    strings.release(vertices.getLong(v, V_DATA));
+    vertices.putLong(v, V_DATA, strings.put(data));
+  }
+
+  int outDegree (int v) {
+
+    return vertices.getInt(v, V_OUT_DEGREE);
+  }
+
+  int inDegree (int v) {
+
+    return vertices.getInt(v, V_IN_DEGREE);
+  }
+
+  int from (int e) {
+
+    return edges.getInt(e, E_FROM);
+  }
+
+  int to (int e) {
+
+    return edges.getInt(e, E_TO);
+  }
+
+  int weight (int e) {
+
+    return edges.getInt(e, E_WEIGHT);
+  }
+
+  void setWeight (int e, int weight) {
+
+    edges.putInt(e, E_WEIGHT, weight);
+  }
+
+  boolean directed (int e) {
+
+    return (edges.getInt(e, E_FLAGS) & DIRECTED) != 0;
+  }
+
+  String label (int e) {
+
+    return strings.get(edges.getLong(e, E_LABEL));
+  }
+
+  void setLabel (int e, String label) {
+
+    long address = putLabel(label);
+    strings.release(edges.getLong(e, E_LABEL));
+    edges.putLong(e, E_LABEL, address);
+  }
+
+  /**
+   * Labels repeat across many edges, so a label used recently is shared rather than stored again
+   *
+   * @return The address of the label, with a reference taken for the caller
+   */
+  private long putLabel (String label) {
+
+    if (label == null || label.isEmpty()) {
+      return strings.put(label);
+    }
+
+    Long address = labels.get(label);
+    if (address != null && strings.isLive(address) && strings.matches(address, OffHeapStrings.encode(label))) {
+      return strings.share(address);
+    }
+
+    long stored = strings.put(label);
+    labels.put(label, stored);
+    return stored;
+  }
+
+  /**
+   * @param v - The id of a vertex in the storage
+   * @return The view of the vertex, the same one for as long as someone holds it
+   */
+  OffHeapVertex vertex (int v) {
+
+    expunge();
+    Integer key = v;
+    while (true) {
+      ViewReference ref = vertexViews.get(key);
+      OffHeapVertex view = (ref != null) ? (OffHeapVertex) ref.get() : null;
+      if (view != null) {
+        return view;
+      }
+
+      view = new OffHeapVertex(this, v);
+      ViewReference created = new ViewReference(view, key, true, collected);
+      if ((ref == null) ? vertexViews.putIfAbsent(key, created) == null : vertexViews.replace(key, ref, created)) {
+        return view;
+      }
+    }
+  }
+
+  /**
+   * @param e - The number of an edge in the storage
+   * @return The view of the edge, the same one for as long as someone holds it
+   */
+  OffHeapEdge edge (int e) {
+
+    expunge();
+    Integer key = e;
+    while (true) {
+      ViewReference ref = edgeViews.get(key);
+      OffHeapEdge view = (ref != null) ? (OffHeapEdge) ref.get() : null;
+      if (view != null) {
+        return view;
+      }
+
+      view = new OffHeapEdge(this, e);
+      ViewReference created = new ViewReference(view, key, false, collected);
+      if ((ref == null) ? edgeViews.putIfAbsent(key, created) == null : edgeViews.replace(key, ref, created)) {
+        return view;
+      }
+    }
+  }
+
+  /**
+   * @return The outgoing or incoming edges of the vertex, a live view that walks the records
+   */
+  List<EdgeIfc> edges (int v, boolean outgoing) {
+
+    return new EdgeList(v, outgoing);
+  }
+
+  /**
+   * @param outgoing - True to step through the outgoing edges of vertices, false for the incoming edges
+   * @return A cursor that walks the edge records, views are only made for what the caller asks for
+   */
+  EdgeCursor cursor (boolean outgoing) {
+
+    return new RecordCursor(outgoing);
+  }
+
+  /**
+   * @return The vertices, a live view in id order
+   */
+  Collection<VertexIfc> vertexCollection () {
+
+    return new AbstractCollection<VertexIfc>() {
+
+      @Override
+      public Iterator<VertexIfc> iterator () {
+
+        return new RecordIterator<VertexIfc>(vertexBound) {
+
+          @Override
+          boolean isLive (int record) {
+
+            return isVertex(record);
+          }
+
+          @Override
+          VertexIfc view (int record) {
+
+            return vertex(record);
+          }
+        };
+      }
+
+      @Override
+      public int size () {
+
+        return vertexCount;
+      }
+    };
+  }
+
+  /**
+   * @return The edges, a live view in record order
+   */
+  Set<EdgeIfc> edgeSet () {
+
+    return new AbstractSet<EdgeIfc>() {
+
+      @Override
+      public Iterator<EdgeIfc> iterator () {
+
+        return new RecordIterator<EdgeIfc>(edgeBound) {
+
+          @Override
+          boolean isLive (int record) {
+
+            return isEdge(record);
+          }
+
+          @Override
+          EdgeIfc view (int record) {
+
+            return edge(record);
+          }
+        };
+      }
+
+      @Override
+      public int size () {
+
+        return edgeCount;
+      }
+
+      @Override
+      public boolean contains (Object o) {
+
+        return (o instanceof OffHeapEdge) && ((OffHeapEdge) o).isIn(OffHeapStorage.this);
+      }
+    };
+  }
+
+  /**
+   * Drops the entries of views that have been garbage collected
+   */
+  private void expunge () {
+
+    ViewReference ref;
+    while ((ref = (ViewReference) collected.poll()) != null) {
+      (ref.vertex ? vertexViews : edgeViews).remove(ref.key, ref);
+    }
+  }
+
+  private void insert (int v, int hash) {
+
+    int mask = tableSize - 1;
+    int i = hash & mask;
+    int slot;
+    while ((slot = table.getInt(i, 0)) > 0) {
+      i = (i + 1) & mask;
+    }
+    if (slot == 0) {
+      tableUsed++;
+    }
+    table.putInt(i, 0, v + 1);
+  }
+
+  /**
+   * Moves the live vertices into a new table, leaving the tombstones behind
+   */
+  private void rehash (int size) {
+
+    OffHeapStore old = table;
+    int oldSize = tableSize;
+    table = new OffHeapStore(4);
+    table.ensureCapacity(size);
+    tableSize = size;
+    tableUsed = 0;
+    for (int i = 0; i < oldSize; i++) {
+      int slot = old.getInt(i, 0);
+      if (slot > 0) {
+        insert(slot - 1, vertices.getInt(slot - 1, V_HASH));
+      }
+    }
+  }
+
+  private static int hash (String name) {
+
+    int h = name.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static class ViewReference extends WeakReference<Object> {
+
+    final Integer key;
+    final boolean vertex;
+
+    ViewReference (Object view, Integer key, boolean vertex, ReferenceQueue<Object> queue) {
+
+      super(view, queue);
+      this.key = key;
+      this.vertex = vertex;
+    }
+  }
+
+  /**
+   * Steps over the records in use, in record order
+   */
+  private abstract static class RecordIterator<T> implements Iterator<T> {
+
+    private final int bound;
+    private int next;
+
+    RecordIterator (int bound) {
+
+      this.bound = bound;
+    }
+
+    abstract boolean isLive (int record);
+
+    abstract T view (int record);
+
+    @Override
+    public boolean hasNext () {
+
+      while (next < bound && !isLive(next)) {
+        next++;
+      }
+      return next < bound;
+    }
+
+    @Override
+    public T next () {
+
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return view(next++);
+    }
+
+    @Override
+    public void remove () {
+
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Follows the links between the edge records of a vertex, reading the ids and weights straight from the records
+   */
+  private class RecordCursor implements EdgeCursor {
+
+    private final boolean outgoing;
+    private int next = -1;
+    private int edge = -1;
+
+    RecordCursor (boolean outgoing) {
+
+      this.outgoing = outgoing;
+    }
+
+    @Override
+    public void start (VertexIfc v) {
+
+      next = outgoing ? firstOut(v.getId()) : firstIn(v.getId());
+    }
+
+    @Override
+    public boolean next () {
+
+      if (next < 0) {
+        return false;
+      }
+
+      edge = next;
+      next = outgoing ? nextOut(edge) : nextIn(edge);
+      return true;
+    }
+
+    @Override
+    public int otherId () {
+
+      return outgoing ? to(edge) : from(edge);
+    }
+
+    @Override
+    public boolean isOther (VertexIfc v) {
+
+      return (v instanceof OffHeapVertex) && ((OffHeapVertex) v).isIn(OffHeapStorage.this) && v.getId() == otherId();
+    }
+
+    @Override
+    public VertexIfc other () {
+
+      return vertex(otherId());
+    }
+
+    @Override
+    public int weight () {
+
+      return OffHeapStorage.this.weight(edge);
+    }
+
+    @Override
+    public EdgeIfc edge () {
+
+      return OffHeapStorage.this.edge(edge);
+    }
+  }
+
+  /**
+   * The outgoing or incoming edges of a vertex. Stepping through them follows the links between the edge records,
+   * get(i) has to walk i links.
+   */
+  private class EdgeList extends AbstractList<EdgeIfc> {
+
+    private final int vertex;
+    private final boolean outgoing;
+
+    EdgeList (int vertex, boolean outgoing) {
+
+      this.vertex = vertex;
+      this.outgoing = outgoing;
+    }
+
+    @Override
+    public int size () {
+
+      return outgoing ? outDegree(vertex) : inDegree(vertex);
+    }
+
+    @Override
+    public EdgeIfc get (int index) {
+
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("index " + index + " is out of range");
+      }
+
+      int e = outgoing ? firstOut(vertex) : firstIn(vertex);
+      for (int i = 0; i < index; i++) {
+        e = outgoing ? nextOut(e) : nextIn(e);
+      }
+
+      return edge(e);
+    }
+
+    @Override
+    public Iterator<EdgeIfc> iterator () {
+
+      return new Iterator<EdgeIfc>() {
+
+        private int next = outgoing ? firstOut(vertex) : firstIn(vertex);
+
+        @Override
+        public boolean hasNext () {
+
+          return next >= 0;
+        }
+
+        @Override
+        public EdgeIfc next () {
+
+          if (next < 0) {
+            throw new NoSuchElementException();
+          }
+          int e = next;
+          next = outgoing ? nextOut(e) : nextIn(e);
+          return edge(e);
+        }
+
+        @Override
+        public void remove () {
+
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+  }
+
+}
@@ -0,0 +1,84 @@
+package Graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Fixed size records in direct byte buffers, outside the Java heap. The records are spread over pages, so the
+ * store can grow past what one buffer can address, and growing never copies the records already there. Fields are
+ * read and written at a byte offset within their record, with the absolute buffer methods, so any number of
+ * threads can read at once. New records read as all zeros.
+ */
+class OffHeapStore {
+
+  private static final int PAGE_SHIFT = 14;
+  private static final int RECORDS_PER_PAGE = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = RECORDS_PER_PAGE - 1;
+
+  private final int recordSize;
+
+  private ByteBuffer[] pages;
+  private int pageCount;
+
+  /**
+   * Create a store without any room, pages are added as they are needed
+   *
+   * @param recordSize - The number of bytes in each record
+   */
+  OffHeapStore (int recordSize) {
+
+    this.recordSize = recordSize;
+    pages = new ByteBuffer[4];
+  }
+
+  /**
+   * @return The number of records there is room for
+   */
+  int capacity () {
+
+    return pageCount << PAGE_SHIFT;
+  }
+
+  /**
+   * Adds pages until there is room for the records 0 to records - 1
+   *
+   * @param records - The number of records needed
+   */
+  void ensureCapacity (int records) {
+
+    int needed = (int) (((long) records + PAGE_MASK) >>> PAGE_SHIFT);
+    if (needed > pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(needed, pages.length + (pages.length >> 1)));
+    }
+    while (pageCount < needed) {
+      pages[pageCount++] = newPage();
+    }
+  }
+
+  int getInt (int record, int offset) {
+
+    return pages[record >>> PAGE_SHIFT].getInt((record & PAGE_MASK) * recordSize + offset);
+  }
+
+  void putInt (int record, int offset, int value) {
+
+    pages[record >>> PAGE_SHIFT].putInt((record & PAGE_MASK) * recordSize + offset, value);
+  }
+
+  long getLong (int record, int offset) {
+
+    return pages[record >>> PAGE_SHIFT].getLong((record & PAGE_MASK) * recordSize + offset);
+  }
+
+  void putLong (int record, int offset, long value) {
+
+    pages[record >>> PAGE_SHIFT].putLong((record & PAGE_MASK) * recordSize + offset, value);
+  }
+
+  private ByteBuffer newPage () {
+
+    return ByteBuffer.allocateDirect(RECORDS_PER_PAGE * recordSize).order(ByteOrder.nativeOrder());
+  }
+
+}
@@ -0,0 +1,259 @@
+package Graph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Strings kept as UTF-8 in direct byte buffers, outside the Java heap. A string is stored with a count of the
+ * records that refer to it and its length in front, and is found again by its address, the page number in the high
+ * half and the offset in the low half. Each string gets room rounded up to a size class, and once nothing refers to
+ * it the room goes on the free list of its class for the next string of that class, so a graph whose strings keep
+ * changing reuses the same room instead of growing.
+ */
+class OffHeapStrings {
+
+  /**
+   * The address of null, and of the empty string, neither takes any space
+   */
+  static final long NULL = -1;
+  static final long EMPTY = -2;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int PAGE_SIZE = 1 << 20;
+
+  // Room layout, the next free room of the class is kept over the bytes once the room is free
+  private static final int REFS = 0;
+  private static final int LENGTH = 4;
+  private static final int BYTES = 8;
+  private static final int NEXT_FREE = BYTES;
+
+  /**
+   * Up to this length the classes are 8 bytes apart, above it each class is twice the one before
+   */
+  private static final int SMALL = 256;
+  private static final int SMALL_CLASSES = SMALL / 8;
+
+  /**
+   * Longer strings get exactly the room they need, and their room isn't used again
+   */
+  private static final int LARGEST_CLASS_LENGTH = 1 << 30;
+
+  private ByteBuffer[] pages;
+  private int pageCount;
+
+  /**
+   * Bytes used in the last page
+   */
+  private int used;
+
+  /**
+   * The first free room of each size class, NULL if there isn't one
+   */
+  private final long[] free;
+
+  OffHeapStrings () {
+
+    pages = new ByteBuffer[4];
+    free = new long[sizeClass(LARGEST_CLASS_LENGTH) + 1];
+    Arrays.fill(free, NULL);
+  }
+
+  /**
+   * @param s - The string to store, may be null
+   * @return The address of the string
+   */
+  long put (String s) {
+
+    if (s == null) {
+      return NULL;
+    }
+
+    if (s.isEmpty()) {
+      return EMPTY;
+    }
+
+    byte[] bytes = s.getBytes(UTF_8);
+    int sizeClass = sizeClass(bytes.length);
+    long address = (sizeClass >= 0) ? free[sizeClass] : NULL;
+    if (address != NULL) {
+      free[sizeClass] = pages[(int) (address >>> 32)].getLong((int) address + NEXT_FREE);
+    } else {
+      address = append(BYTES + room(bytes.length));
+    }
+
+    ByteBuffer page = pages[(int) (address >>> 32)].duplicate();
+    page.position((int) address);
+    page.putInt(1);
+    page.putInt(bytes.length);
+    page.put(bytes);
+
+    return address;
+  }
+
+  /**
+   * Adds a reference to a stored string
+   *
+   * @param address - The address of a string
+   * @return The address
+   */
+  long share (long address) {
+
+    if (address >= 0) {
+      ByteBuffer page = pages[(int) (address >>> 32)];
+      int offset = (int) address + REFS;
+      page.putInt(offset, page.getInt(offset) + 1);
+    }
+
+    return address;
+  }
+
+  /**
+   * Drops a reference to a stored string, once nothing refers to it its room is free for another string
+   *
+   * @param address - The address of a string, it must not be read again through this reference
+   */
+  void release (long address) {
+
+    if (address < 0) {
+      return;
+    }
+
+    ByteBuffer page = pages[(int) (address >>> 32)];
+    int offset = (int) address;
+    int refs = page.getInt(offset + REFS) - 1;
+    page.putInt(offset + REFS, refs);
+    if (refs == 0) {
+      int sizeClass = sizeClass(page.getInt(offset + LENGTH));
+      if (sizeClass >= 0) {
+        page.putLong(offset + NEXT_FREE, free[sizeClass]);
+        free[sizeClass] = address;
+      }
+    }
+  }
+
+  /**
+   * @param address - The address a string was stored at
+   * @return True if something still refers to the string stored there
+   */
+  boolean isLive (long address) {
+
+    return address < 0 || pages[(int) (address >>> 32)].getInt((int) address + REFS) > 0;
+  }
+
+  /**
+   * @param address - The address of a string
+   * @return The string
+   */
+  String get (long address) {
+
+    if (address == NULL) {
+      return null;
+    }
+
+    if (address == EMPTY) {
+      return "";
+    }
+
+    ByteBuffer page = pages[(int) (address >>> 32)].duplicate();
+    page.position((int) address + LENGTH);
+    byte[] bytes = new byte[page.getInt()];
+    page.get(bytes);
+
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * Compares a stored string with one already encoded, without decoding the stored one
+   *
+   * @param address - The address of a string
+   * @param bytes   - The UTF-8 bytes of the other string
+   * @return True if the strings are the same
+   */
+  boolean matches (long address, byte[] bytes) {
+
+    if (address < 0) {
+      return address == EMPTY && bytes.length == 0;
+    }
+
+    ByteBuffer page = pages[(int) (address >>> 32)];
+    int offset = (int) address;
+    if (page.getInt(offset + LENGTH) != bytes.length) {
+      return false;
+    }
+
+    for (int i = 0; i < bytes.length; i++) {
+      if (page.get(offset + BYTES + i) != bytes[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @param size - The bytes needed
+   * @return The address of new room at the end of the last page, on a new page if it doesn't fit
+   */
+  private long append (int size) {
+
+    if (pageCount == 0 || pages[pageCount - 1].capacity() - used < size) {
+      if (pageCount == pages.length) {
+        pages = Arrays.copyOf(pages, pageCount + (pageCount >> 1));
+      }
+      // A string longer than a page gets a page of its own
+      pages[pageCount++] = ByteBuffer.allocateDirect(Math.max(PAGE_SIZE, size));
+      used = 0;
+    }
+
+    long address = ((long) (pageCount - 1) << 32) | used;
+    used += size;
+    return address;
+  }
+
+  /**
+   * @param length - The length of a string in bytes
+   * @return The room the string is given, at least enough to hold the link to the next free room
+   */
+  private static int room (int length) {
+
+    if (length > LARGEST_CLASS_LENGTH) {
+      return length;
+    }
+
+    if (length <= SMALL) {
+      return Math.max(8, (length + 7) & ~7);
+    }
+
+    return Integer.highestOneBit(length - 1) << 1;
+  }
+
+  /**
+   * @param length - The length of a string in bytes
+   * @return The size class of the string, -1 if it is too long to have one
+   */
+  private static int sizeClass (int length) {
+
+    if (length > LARGEST_CLASS_LENGTH) {
+      return -1;
+    }
+
+    int room = room(length);
+    if (room <= SMALL) {
+      return room / 8 - 1;
+    }
+
+    return SMALL_CLASSES + Integer.numberOfTrailingZeros(room) - Integer.numberOfTrailingZeros(2 * SMALL);
+  }
+
+  /**
+   * @param s - A string
+   * @return The UTF-8 bytes of the string, as matches compares them
+   */
+  static byte[] encode (String s) {
+
+    return s.getBytes(UTF_8);
+  }
+
+}
@@ -0,0 +1,276 @@
+package Graph;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Flyweight view of a vertex of an off-heap graph, it only holds where the vertex's record is. Everything is read
+ * from and written to the record, until the vertex is removed, then the view keeps what the vertex had so it can
+ * still be read like a removed on-heap vertex. Views are compared by identity, the storage hands out one view per
+ * vertex for as long as it is held.
+ */
+class OffHeapVertex implements VertexIfc {
+
+  private final OffHeapStorage storage;
+  private final int id;
+
+  /**
+   * What the vertex had when it was removed from the graph, null while it is in the graph
+   */
+  private volatile Removed removed;
+
+  OffHeapVertex (OffHeapStorage storage, int id) {
+
+    this.storage = storage;
+    this.id = id;
+  }
+
+  /**
+   * Called by the storage as the vertex is removed, before its record is given up
+   */
+  void detach (String name, Point location, String data) {
+
+    removed = new Removed(name, location, data);
+  }
+
+  /**
+   * @return True if this is the view of a vertex that is in the storage
+   */
+  boolean isIn (OffHeapStorage s) {
+
+    return storage == s && removed == null;
+  }
+
+  /**
+   * @return a string form of the vertex with in and out edges.
+   */
+  @Override
+  public String toString () {
+
+    StringBuffer tmp = new StringBuffer("Graph.Vertex ");
+    tmp.append(toJSONString());
+    return tmp.toString();
+  }
+
+  /**
+   * @return A string containing the JSON representation of this vertex
+   */
+  @Override
+  public String toJSONString () {
+
+    StringWriter out = new StringWriter();
+    try {
+      writeJSONString(out);
+    }
+    catch (IOException e) {
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes the JSON representation of this vertex, including its edges, straight to the writer
+   *
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
+   */
+  @Override
+  public void writeJSONString (Writer out) throws IOException {
+
+    VertexImpl.writeJSON(this, out);
+  }
+
+  /**
+   * @return The name of this vertex
+   */
+  @Override
+  public String getName () {
+
+    Removed r = removed;
+    return (r != null) ? r.name : storage.name(id);
+  }
+
+  /**
+   * @return The id of the vertex, the number of its record
+   */
+  @Override
+  public int getId () {
+
+    return id;
+  }
+
+  /**
+   * @return A copy of the location of this vertex, changing it doesn't move the vertex
+   */
+  @Override
+  public Point getLocation () {
+
+    Removed r = removed;
+    return (r != null) ? r.location : storage.location(id);
+  }
+
+  /**
+   * @param l The location of the vertex on the graph
+   */
+  @Override
+  public void setLocation (Point l) {
+
+    if (l != null) {
+      Removed r = removed;
+      if (r != null) {
+        r.location = l;
+        return;
+      }
+
+      Point oldLocation = storage.location(id);
+      storage.setLocation(id, l);
+      storage.graph().locationChanged(this, oldLocation);
+    }
+  }
+
+  /**
+   * @return The possibly null data of the vertex
+   */
+  @Override
+  public String getData () {
+
+    Removed r = removed;
+    return (r != null) ? r.data : storage.data(id);
+  }
+
+  /**
+   * @param d The data for the vertex.
+   */
+  @Override
+  public void setData (String d) {
+
+    Removed r = removed;
+    if (r != null) {
+      r.data = d;
+      return;
+    }
+
+    storage.setData(id, d);
+  }
+
+  /**
+   * @param v - The vertex to check
+   * @return true if there is an outgoing edge ending at vertex, false otherwise.
+   */
+  @Override
+  public boolean hasEdge (Vertex v) {
+
+    return find(v) != null;
+  }
+
+  /**
+   * @param v The destination
+   * @return The outgoing edge going to v if one exists, null otherwise.
+   */
+  @Override
+  public Edge findEdge (Vertex v) {
+
+    return find(v);
+  }
+
+  /**
+   * The graph is told about changes by the view itself
+   *
+   * @param o - Not used
+   */
+  @Override
+  public void setObserver (GraphObserver o) {
+
+  }
+
+  /**
+   * The id of an off-heap vertex is the number of its record, it can't be changed
+   *
+   * @param id - Not used
+   */
+  @Override
+  public void setId (int id) {
+
+    throw new UnsupportedOperationException("The id of an off-heap vertex can't be changed");
+  }
+
+  /**
+   * Walks the shorter of the outgoing edges of this vertex and the incoming edges of v
+   *
+   * @param v - The vertex that we are looking for a outgoing edge that connects to
+   * @return The outgoing edge going to v if one exists, null otherwise.
+   */
+  @Override
+  public EdgeIfc find (Vertex v) {
+
+    if (!(v instanceof OffHeapVertex) || !isIn(storage) || !((OffHeapVertex) v).isIn(storage)) {
+      return null;
+    }
+
+    int e = storage.findEdge(id, ((OffHeapVertex) v).id);
+    return (e >= 0) ? storage.edge(e) : null;
+  }
+
+  /**
+   * The edges of an off-heap vertex are only changed through its graph
+   */
+  @Override
+  public boolean addEdge (EdgeIfc e) {
+
+    throw new UnsupportedOperationException("Add edges through the graph");
+  }
+
+  /**
+   * The edges of an off-heap vertex are only changed through its graph
+   */
+  @Override
+  public boolean removeEdge (EdgeIfc e) {
+
+    throw new UnsupportedOperationException("Remove edges through the graph");
+  }
+
+  /**
+   * The edges of an off-heap vertex are only changed through its graph
+   */
+  @Override
+  public boolean removeEdges (GraphIfc graph) {
+
+    throw new UnsupportedOperationException("Remove edges through the graph");
+  }
+
+  /**
+   * @return Incoming edge list, a live view of the records
+   */
+  @Override
+  public List<EdgeIfc> incomingEdges () {
+
+    return (removed == null) ? storage.edges(id, false) : Collections.<EdgeIfc>emptyList();
+  }
+
+  /**
+   * @return Outgoing edge list, a live view of the records
+   */
+  @Override
+  public List<EdgeIfc> outgoingEdges () {
+
+    return (removed == null) ? storage.edges(id, true) : Collections.<EdgeIfc>emptyList();
+  }
+
+  private static class Removed {
+
+    final String name;
+    volatile Point location;
+    volatile String data;
+
+    Removed (String name, Point location, String data) {
+
+      this.name = name;
+      this.location = location;
+      this.data = data;
+    }
+  }
+
+}
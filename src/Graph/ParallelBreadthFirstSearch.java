@@ -0,0 +1,274 @@
+package Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Level synchronous breadth first search that spreads each level over a fork join pool. While the frontier is
+ * small each chunk of it follows its outgoing edges down (top down). Once the frontier is a large part of the graph
+ * it is cheaper to have each unvisited vertex look up its incoming edges for a parent in the frontier, stopping at
+ * the first one (bottom up), and the search switches back once the frontier shrinks again. Visited vertices are
+ * kept in a bitmap whose bits are set with compare and swap, so every vertex is claimed by exactly one chunk and
+ * the number of vertices reached is just the sum of the frontier sizes.
+ */
+class ParallelBreadthFirstSearch {
+
+  /**
+   * Smaller graphs are searched faster on one thread than the chunks can be handed out
+   */
+  private static final int MIN_VERTICES = 1 << 15;
+
+  /**
+   * The number of frontier vertices, or vertex ids in a bottom up step, each task works on
+   */
+  private static final int CHUNK = 1024;
+
+  /**
+   * Go bottom up when the frontier is more than 1 / BOTTOM_UP of the vertices, and top down again when it is less
+   * than 1 / TOP_DOWN of them
+   */
+  private static final int BOTTOM_UP = 16;
+  private static final int TOP_DOWN = 64;
+
+  private static final ForkJoinPool POOL = new ForkJoinPool();
+
+  private final GraphIfc graph;
+
+  /**
+   * Indexed by vertex id, null for the ids no vertex had when the search started
+   */
+  private final VertexIfc[] vertices;
+  private final int size;
+
+  private final AtomicLongArray visited;
+
+  /**
+   * @param numVertices - The number of vertices in the graph
+   * @return True if a graph this size is worth searching in parallel
+   */
+  static boolean worthwhile (int numVertices) {
+
+    return numVertices >= MIN_VERTICES && POOL.getParallelism() > 1;
+  }
+
+  /**
+   * Takes the vertices the graph has now
+   *
+   * @param g - The graph to search, its edges are read through it
+   */
+  ParallelBreadthFirstSearch (AbstractGraph g) {
+
+    graph = g;
+    VertexIfc[] values = g.vertexValues().toArray(new VertexIfc[0]);
+    int bound = g.idBound();
+    for (VertexIfc v : values) {
+      bound = Math.max(bound, v.getId() + 1);
+    }
+    vertices = new VertexIfc[bound];
+    for (VertexIfc v : values) {
+      vertices[v.getId()] = v;
+    }
+    size = values.length;
+    visited = new AtomicLongArray((bound + 63) >>> 6);
+  }
+
+  /**
+   * @return The number of vertices the search can reach
+   */
+  int size () {
+
+    return size;
+  }
+
+  /**
+   * @param start - The vertex to start at
+   * @return The number of vertices reachable from start, start included, 0 if start isn't in the graph
+   */
+  int reachedFrom (VertexIfc start) {
+
+    int s = idOf(start);
+    if (s < 0) {
+      return 0;
+    }
+
+    int n = size;
+    visit(s);
+    int[] frontier = {s};
+    int reached = 1;
+    boolean bottomUp = false;
+    while (frontier.length > 0) {
+      if (!bottomUp && frontier.length > n / BOTTOM_UP) {
+        bottomUp = true;
+      } else if (bottomUp && frontier.length < n / TOP_DOWN) {
+        bottomUp = false;
+      }
+
+      frontier = bottomUp ? bottomUpStep(frontier) : topDownStep(frontier);
+      reached += frontier.length;
+    }
+
+    return reached;
+  }
+
+  /**
+   * @return The vertices first reached from the frontier over its outgoing edges
+   */
+  private int[] topDownStep (final int[] frontier) {
+
+    List<Chunk> chunks = new ArrayList<>();
+    for (int lo = 0; lo < frontier.length; lo += CHUNK) {
+      final int from = lo;
+      final int to = Math.min(lo + CHUNK, frontier.length);
+      chunks.add(new Chunk() {
+
+        @Override
+        protected void compute () {
+
+          for (int i = from; i < to; i++) {
+            for (EdgeIfc e : graph.outgoingEdges(vertices[frontier[i]])) {
+              // Edges to vertices added after the search started are left out
+              int w = idOf(e.to());
+              if (w >= 0 && visit(w)) {
+                add(w);
+              }
+            }
+          }
+        }
+      });
+    }
+
+    return run(chunks);
+  }
+
+  /**
+   * @return The unvisited vertices with an incoming edge from the frontier
+   */
+  private int[] bottomUpStep (int[] frontier) {
+
+    final long[] inFrontier = new long[visited.length()];
+    for (int v : frontier) {
+      inFrontier[v >>> 6] |= 1L << v;
+    }
+
+    List<Chunk> chunks = new ArrayList<>();
+    for (int lo = 0; lo < vertices.length; lo += CHUNK) {
+      final int from = lo;
+      final int to = Math.min(lo + CHUNK, vertices.length);
+      chunks.add(new Chunk() {
+
+        @Override
+        protected void compute () {
+
+          for (int u = from; u < to; u++) {
+            if (vertices[u] == null || isVisited(u)) {
+              continue;
+            }
+            for (EdgeIfc e : graph.incomingEdges(vertices[u])) {
+              int p = idOf(e.from());
+              if (p >= 0 && (inFrontier[p >>> 6] & (1L << p)) != 0) {
+                // No other chunk has u, so the only other writers to the word are setting other bits
+                visit(u);
+                add(u);
+                break;
+              }
+            }
+          }
+        }
+      });
+    }
+
+    return run(chunks);
+  }
+
+  /**
+   * Runs the chunks in the pool and gathers what they found into the next frontier
+   */
+  private int[] run (final List<Chunk> chunks) {
+
+    if (chunks.size() == 1) {
+      // Not worth handing to the pool, invoke runs it on this thread
+      chunks.get(0).invoke();
+    } else {
+      POOL.invoke(new RecursiveAction() {
+
+        @Override
+        protected void compute () {
+
+          invokeAll(chunks);
+        }
+      });
+    }
+
+    int total = 0;
+    for (Chunk c : chunks) {
+      total += c.count;
+    }
+    int[] next = new int[total];
+    int at = 0;
+    for (Chunk c : chunks) {
+      System.arraycopy(c.found, 0, next, at, c.count);
+      at += c.count;
+    }
+
+    return next;
+  }
+
+  /**
+   * @param v - A vertex
+   * @return The id of v, -1 if v wasn't in the graph when the search started
+   */
+  private int idOf (VertexIfc v) {
+
+    int id = v.getId();
+    return (id >= 0 && id < vertices.length && vertices[id] == v) ? id : -1;
+  }
+
+  private boolean isVisited (int v) {
+
+    return (visited.get(v >>> 6) & (1L << v)) != 0;
+  }
+
+  /**
+   * Marks v as visited
+   *
+   * @param v - The id of the vertex
+   * @return True if this call marked it, false if it was already visited
+   */
+  private boolean visit (int v) {
+
+    int word = v >>> 6;
+    long bit = 1L << v;
+    while (true) {
+      long old = visited.get(word);
+      if ((old & bit) != 0) {
+        return false;
+      }
+      if (visited.compareAndSet(word, old, old | bit)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * One task's share of a level, with the vertices it reached. Only ever run in the pool, never serialized.
+   */
+  @SuppressWarnings("serial")
+  private abstract static class Chunk extends RecursiveAction {
+
+    int[] found = new int[16];
+    int count;
+
+    void add (int v) {
+
+      if (count == found.length) {
+        found = Arrays.copyOf(found, 2 * count);
+      }
+      found[count++] = v;
+    }
+  }
+
+}
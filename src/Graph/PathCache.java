@@ -0,0 +1,90 @@
+package Graph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of shortest path trees, keyed by the id of the source vertex. Every entry was
+ * computed at the same version of the graph. When a lookup or store comes in with a newer version, the whole
+ * cache is dropped, so a tree is never handed out after the graph has changed. All the methods are synchronized,
+ * they only ever do a few map operations.
+ */
+class PathCache {
+
+  static final int DEFAULT_SIZE = 128;
+
+  private int maxSize;
+
+  /**
+   * The version of the graph the cached trees were computed at
+   */
+  private long version;
+
+  private final LinkedHashMap<Integer, ShortestPath> trees;
+
+  /**
+   * Create an empty cache holding up to DEFAULT_SIZE trees
+   */
+  PathCache () {
+
+    maxSize = DEFAULT_SIZE;
+    version = 0;
+    trees = new LinkedHashMap<Integer, ShortestPath>(16, .75f, true) {
+
+      @Override
+      protected boolean removeEldestEntry (Map.Entry<Integer, ShortestPath> eldest) {
+
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @param size - The most trees to keep, 0 to stop caching
+   */
+  synchronized void setMaxSize (int size) {
+
+    maxSize = Math.max(0, size);
+    while (trees.size() > maxSize) {
+      trees.remove(trees.keySet().iterator().next());
+    }
+  }
+
+  /**
+   * @param source         - The id of the source vertex
+   * @param currentVersion - The version of the graph now
+   * @return The tree for the source computed at currentVersion, null if there isn't one
+   */
+  synchronized ShortestPath get (int source, long currentVersion) {
+
+    if (currentVersion != version) {
+      if (currentVersion > version) {
+        trees.clear();
+        version = currentVersion;
+      }
+      return null;
+    }
+
+    return trees.get(source);
+  }
+
+  /**
+   * Stores a tree, unless the graph has changed since the tree was started
+   *
+   * @param source          - The id of the source vertex
+   * @param computedVersion - The version of the graph read before the tree was computed
+   * @param tree            - The tree
+   */
+  synchronized void put (int source, long computedVersion, ShortestPath tree) {
+
+    if (computedVersion > version) {
+      trees.clear();
+      version = computedVersion;
+    }
+
+    if (computedVersion == version && maxSize > 0) {
+      trees.put(source, tree);
+    }
+  }
+
+}
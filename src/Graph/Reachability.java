@@ -0,0 +1,88 @@
+package Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers "is there a path from one vertex to another" with a bidirectional breadth first search. One search
+ * runs forward from the start over the outgoing edges, the other runs backward from the destination over the
+ * incoming edges, and the side with the smaller frontier is expanded one level at a time. The searches stop as
+ * soon as they meet, or as soon as either side runs out of vertices.
+ */
+class Reachability {
+
+  private Reachability () {
+
+  }
+
+  /**
+   * @param graph - The graph to search, its edges are read through it
+   * @param from  - The vertex where the search will start
+   * @param to    - The destination vertex
+   * @return True if there is a path from "from" to "to"
+   */
+  static boolean isReachable (GraphIfc graph, VertexIfc from, VertexIfc to) {
+
+    if (from == to) {
+      return true;
+    }
+
+    VisitContext forward = new VisitContext();
+    VisitContext backward = new VisitContext();
+    List<VertexIfc> forwardFrontier = new ArrayList<>();
+    List<VertexIfc> backwardFrontier = new ArrayList<>();
+
+    forward.visit(from);
+    forwardFrontier.add(from);
+    backward.visit(to);
+    backwardFrontier.add(to);
+
+    EdgeCursor outgoing = graph.edgeCursor(true);
+    EdgeCursor incoming = graph.edgeCursor(false);
+    while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+      if (forwardFrontier.size() <= backwardFrontier.size()) {
+        forwardFrontier = expand(outgoing, forwardFrontier, forward, backward);
+        if (forwardFrontier == null) {
+          return true;
+        }
+      } else {
+        backwardFrontier = expand(incoming, backwardFrontier, backward, forward);
+        if (backwardFrontier == null) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Expand one side of the search by one level
+   *
+   * @param edges    - The outgoing edges for the forward side, the incoming edges for the backward side
+   * @param frontier - The vertices reached at the last level on this side
+   * @param visited  - The vertices this side has reached
+   * @param other    - The vertices the other side has reached
+   * @return The next frontier, or null if the two sides met
+   */
+  private static List<VertexIfc> expand (EdgeCursor edges, List<VertexIfc> frontier, VisitContext visited,
+                                         VisitContext other) {
+
+    List<VertexIfc> next = new ArrayList<>();
+    for (VertexIfc v : frontier) {
+      edges.start(v);
+      while (edges.next()) {
+        int w = edges.otherId();
+        if (visited.visit(w)) {
+          if (other.visited(w)) {
+            return null;
+          }
+          next.add(edges.other());
+        }
+      }
+    }
+
+    return next;
+  }
+
+}
@@ -4,47 +4,13 @@ import java.util.*;
 
 public class ShortestPathImpl implements ShortestPath {
 
-  private final List<VertexIfc> unsettled;
-  private final List<VertexIfc> settled;
-  private final Map<String, PathAndDistance> pathsTo;
-
-
-  private class PathAndDistance {
-
-    Double distance;
-    EdgeIfc edge;
-
-    PathAndDistance () {
-
-      distance = 0d;
-      edge = null;
-    }
-
-    PathAndDistance (double d, EdgeIfc e) {
-
-      distance = d;
-      edge = e;
-    }
-  }
-
   /**
-   * Used to update the distance and edge to a vertex
-   *
-   * @param key      - The vertex name
-   * @param distance - The new distance from the starting vertex to this vertex
-   * @param edge     - The first edge in the path from this vertex to the starting vertex
+   * Indexed by vertex id. vertices[id] is the vertex the tree reached with that id, null if none, so a vertex that
+   * gets the id of a removed vertex later isn't mistaken for it.
    */
-  void setPathAndDistance (String key, double distance, EdgeIfc edge) {
-
-    PathAndDistance pd = pathsTo.get(key);
-    if (pd != null) {
-      pd.distance = distance;
-      pd.edge = edge;
-    } else {
-      pd = new PathAndDistance(distance, edge);
-      pathsTo.put(key, pd);
-    }
-  }
+  private VertexIfc[] vertices;
+  private double[] distance;
+  private EdgeIfc[] via;
 
   /**
    * Traverse the graph to set distance and path information from the "from" vertex to all the vertices
@@ -53,70 +19,56 @@ public class ShortestPathImpl implements ShortestPath {
    * @param graph - The graph
    * @param from  - The vertext to gather path information for
    */
-  public ShortestPathImpl (Graph graph, VertexIfc from) {
-
-    unsettled = new ArrayList<VertexIfc>(10);
-    settled = new ArrayList<VertexIfc>(graph.getSize());
-    pathsTo = new HashMap<String, PathAndDistance>(graph.getSize());
+  public ShortestPathImpl (GraphIfc graph, VertexIfc from) {
 
-    for (Vertex v : graph.getVertices()) {
-      setPathAndDistance(v.getName(), Double.POSITIVE_INFINITY, null);
+    if (from == null) {
+      throw new IllegalArgumentException("from is not in graph");
     }
 
-    unsettled.add(from);
-    setPathAndDistance(from.getName(), 0d, null);
+    int capacity = Math.max(from.getId() + 1, graph.getVertexIdBound());
+    vertices = new VertexIfc[capacity];
+    distance = new double[capacity];
+    via = new EdgeIfc[capacity];
 
-    while (!unsettled.isEmpty()) {
-      VertexIfc evalVertex = getVertexWithShortestDistance();
-      unsettled.remove(evalVertex);
-      settled.add(evalVertex);
-      evaluateAdjacentVertices(evalVertex);
-    }
-  }
-
-  /**
-   * Used to find the next vertex to evaluate in the list of unsettled vertices.
-   *
-   * @return The vertex that the shortest distance from the starting vertex
-   */
-  private VertexIfc getVertexWithShortestDistance () {
-
-    VertexIfc ret = null;
-    if (unsettled.isEmpty()) {
-      return ret;
-    }
+    IndexedMinHeap unsettled = new IndexedMinHeap(capacity);
+    BitSet settled = new BitSet(capacity);
 
-    Double shortest = Double.POSITIVE_INFINITY;
-    for (VertexIfc v : unsettled) {
-      PathAndDistance pd = pathsTo.get(v.getName());
-      Double thisDistance = pd.distance;
-      if (thisDistance < shortest) {
-        shortest = thisDistance;
-        ret = v;
-      }
-    }
+    int source = from.getId();
+    vertices[source] = from;
+    distance[source] = 0d;
+    unsettled.insertOrDecrease(source, 0d);
 
-    return ret;
-  }
+    EdgeCursor edges = graph.edgeCursor(true);
+    while (!unsettled.isEmpty()) {
+      int evalIndex = unsettled.poll();
+      settled.set(evalIndex);
+
+      // Look at all the edges of the vertex to find the shortest distance to its adjacent vertices
+      double evalDistance = distance[evalIndex];
+      edges.start(vertices[evalIndex]);
+      while (edges.next()) {
+        int i = edges.otherId();
+        if (i >= vertices.length) {
+          // A concurrent graph may have grown since its id bound was read
+          int grown = Math.max(i + 1, vertices.length + (vertices.length >> 1));
+          vertices = Arrays.copyOf(vertices, grown);
+          distance = Arrays.copyOf(distance, grown);
+          via = Arrays.copyOf(via, grown);
+          unsettled.ensureCapacity(grown);
+        }
+        if (vertices[i] == null) {
+          vertices[i] = edges.other();
+          distance[i] = Double.POSITIVE_INFINITY;
+        } else if (settled.get(i) || !edges.isOther(vertices[i])) {
+          // Either settled, or the id was handed on by a concurrent removal while the tree was worked out
+          continue;
+        }
 
-  /**
-   * Looks at all the edges of the vertex to find the shortest distance from this vertex to its adjacent vertices.
-   *
-   * @param evalVertex - The vertex being evaluated
-   */
-  private void evaluateAdjacentVertices (VertexIfc evalVertex) {
-
-    for (EdgeIfc e : evalVertex.outgoingEdges()) {
-      VertexIfc to = e.to();
-      if (!settled.contains(to)) {
-        PathAndDistance pdEval = pathsTo.get(evalVertex.getName());
-        PathAndDistance pdTo = pathsTo.get(to.getName());
-        Double edgeDistance = Double.valueOf(e.getWeight());
-        Double newDistance = pdEval.distance + edgeDistance;
-        if (pdTo.distance > newDistance) {
-          pdTo.distance = newDistance;
-          pdTo.edge = e;
-          unsettled.add(to);
+        double newDistance = evalDistance + edges.weight();
+        if (newDistance < distance[i]) {
+          distance[i] = newDistance;
+          via[i] = edges.edge();
+          unsettled.insertOrDecrease(i, newDistance);
         }
       }
     }
@@ -129,8 +81,8 @@ public class ShortestPathImpl implements ShortestPath {
   @Override
   public double distanceTo (Vertex to) {
 
-    PathAndDistance pd = pathsTo.get(to.getName());
-    return pd.distance;
+    int i = (to != null) ? to.getId() : -1;
+    return (i >= 0 && i < vertices.length && vertices[i] == to) ? distance[i] : Double.POSITIVE_INFINITY;
   }
 
   /**
@@ -155,12 +107,10 @@ public class ShortestPathImpl implements ShortestPath {
     }
 
     Stack<Edge> path = new Stack<>();
-    PathAndDistance pd = pathsTo.get(to.getName());
-    EdgeIfc e = pd.edge;
+    EdgeIfc e = via[to.getId()];
     while (e != null) {
       path.push(e);
-      pd = pathsTo.get(e.from().getName());
-      e = pd.edge;
+      e = via[e.from().getId()];
     }
 
     return path;
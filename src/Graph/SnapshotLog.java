@@ -0,0 +1,165 @@
+package Graph;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps what snapshots of a graph need to see the graph as it was when they were taken. Taking a snapshot starts
+ * a new epoch. The first time a vertex name is changed during an epoch, the vertex that had the name and its edge
+ * lists are saved in the epoch, before the change is made. A snapshot sees a name as the first epoch, from its own
+ * onwards, that saved it, or as the live graph if none did. Unchanged vertices are shared with the live graph.
+ * <p>
+ * Each epoch points to the next, and the graph only holds the latest weakly, so the saved state is dropped as
+ * soon as the snapshots that need it are. Until a snapshot is taken, recording costs a null check.
+ */
+class SnapshotLog {
+
+  /**
+   * The state of a vertex name when an epoch started
+   */
+  static class Frozen {
+
+    /**
+     * The vertex that had the name, null if no vertex did
+     */
+    final VertexIfc vertex;
+
+    final List<EdgeIfc> outgoing;
+
+    final List<EdgeIfc> incoming;
+
+    Frozen (VertexIfc v) {
+
+      vertex = v;
+      outgoing = (v != null) ? copy(v, v.outgoingEdges()) : Collections.<EdgeIfc>emptyList();
+      incoming = (v != null) ? copy(v, v.incomingEdges()) : Collections.<EdgeIfc>emptyList();
+    }
+
+    private static List<EdgeIfc> copy (VertexIfc v, List<EdgeIfc> edges) {
+
+      // Immutable lists can be shared, and so can the lists of a single threaded vertex, which moves on to copies
+      // once they are saved. The lists of other vertices are changed in place.
+      return (edges instanceof ImmutableEdgeList || v instanceof VertexImpl) ? edges : new ArrayList<>(edges);
+    }
+  }
+
+  /**
+   * The changes made between one snapshot and the next
+   */
+  static class Epoch {
+
+    /**
+     * Vertex name to its state when this epoch started, for the names changed during this epoch
+     */
+    final ConcurrentMap<String, Frozen> frozen = new ConcurrentHashMap<>();
+
+    /**
+     * The epoch started by the next snapshot, null while this is the latest
+     */
+    volatile Epoch next;
+
+    /**
+     * @param name - A vertex name
+     * @return The state of the name when this epoch started, null if it hasn't changed since
+     */
+    Frozen find (String name) {
+
+      for (Epoch e = this; e != null; e = e.next) {
+        Frozen f = e.frozen.get(name);
+        if (f != null) {
+          return f;
+        }
+      }
+
+      return null;
+    }
+  }
+
+  private volatile WeakReference<Epoch> latest;
+
+  /**
+   * Starts the epoch for a new snapshot. The caller must make sure no changes are being made while it does.
+   *
+   * @return The epoch the new snapshot reads through
+   */
+  Epoch freeze () {
+
+    Epoch last = (latest != null) ? latest.get() : null;
+    if (last != null && last.frozen.isEmpty()) {
+      // Nothing has changed since the last snapshot, so they can share its epoch
+      return last;
+    }
+
+    Epoch e = new Epoch();
+    if (last != null) {
+      last.next = e;
+    }
+    latest = new WeakReference<>(e);
+
+    return e;
+  }
+
+  /**
+   * Epochs point forward, so the latest is reachable as long as any snapshot of the graph is
+   *
+   * @return True if a snapshot of the graph may still be in use
+   */
+  boolean hasSnapshots () {
+
+    WeakReference<Epoch> ref = latest;
+    return ref != null && ref.get() != null;
+  }
+
+  /**
+   * Saves the state of a vertex name before it is changed, if a snapshot still needs it
+   *
+   * @param name    - The name that is about to change
+   * @param current - The vertex that has the name now, null if there isn't one
+   */
+  void record (String name, VertexIfc current) {
+
+    WeakReference<Epoch> ref = latest;
+    Epoch e = (ref != null) ? ref.get() : null;
+    if (e != null && !e.frozen.containsKey(name)) {
+      if (e.frozen.putIfAbsent(name, new Frozen(current)) == null && current instanceof VertexImpl) {
+        // Saved before the vertex lets go of its lists, so a snapshot that reads the copies finds the saved lists
+        ((VertexImpl) current).copyEdges();
+      }
+    }
+  }
+
+  /**
+   * Saves the state of a vertex before its edges are changed
+   *
+   * @param v - The vertex that is about to change
+   */
+  void record (VertexIfc v) {
+
+    record(v.getName(), v);
+  }
+
+  /**
+   * Saves the state of a vertex and the vertices at the other end of its edges, before the vertex is removed
+   *
+   * @param v - The vertex that is about to be removed
+   */
+  void recordWithNeighbours (VertexIfc v) {
+
+    if (latest == null) {
+      return;
+    }
+
+    record(v);
+    for (EdgeIfc e : v.outgoingEdges()) {
+      record(e.to());
+    }
+    for (EdgeIfc e : v.incomingEdges()) {
+      record(e.from());
+    }
+  }
+
+}
@@ -0,0 +1,340 @@
+package Graph;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Uniform grid over vertex locations. Each vertex is kept in the list of the square cell its location falls in,
+ * so point, rectangle and nearest neighbour queries only look at the cells around the query instead of every
+ * vertex. Vertices without a location aren't indexed.
+ */
+class SpatialIndex {
+
+  /**
+   * Cells are 2^CELL_SHIFT units wide and high
+   */
+  private static final int CELL_SHIFT = 6;
+
+  private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+  /**
+   * Packed cell coordinates to the vertices in that cell
+   */
+  private final Map<Long, List<VertexIfc>> cells;
+
+  /**
+   * Vertex to the packed coordinates of the cell it was put in, so it can be found again even
+   * if its location has since changed
+   */
+  private final Map<VertexIfc, Long> cellOf;
+
+  /**
+   * Bounds, in cell coordinates, of every cell that has held a vertex. Only ever grows.
+   */
+  private int minCellX;
+  private int minCellY;
+  private int maxCellX;
+  private int maxCellY;
+
+  /**
+   * Create an empty index
+   */
+  SpatialIndex () {
+
+    cells = new HashMap<>();
+    cellOf = new IdentityHashMap<>();
+    clear();
+  }
+
+  /**
+   * @return The number of indexed vertices
+   */
+  int size () {
+
+    return cellOf.size();
+  }
+
+  /**
+   * Removes all the vertices from the index
+   */
+  void clear () {
+
+    cells.clear();
+    cellOf.clear();
+    minCellX = Integer.MAX_VALUE;
+    minCellY = Integer.MAX_VALUE;
+    maxCellX = Integer.MIN_VALUE;
+    maxCellY = Integer.MIN_VALUE;
+  }
+
+  /**
+   * Index the vertex at its current location
+   *
+   * @param v - The vertex to add
+   */
+  void add (VertexIfc v) {
+
+    Point location = v.getLocation();
+    if (location == null || cellOf.containsKey(v)) {
+      return;
+    }
+
+    int cx = cell(location.x);
+    int cy = cell(location.y);
+    Long key = key(cx, cy);
+    List<VertexIfc> cell = cells.get(key);
+    if (cell == null) {
+      cell = new ArrayList<>(2);
+      cells.put(key, cell);
+    }
+    cell.add(v);
+    cellOf.put(v, key);
+
+    minCellX = Math.min(minCellX, cx);
+    minCellY = Math.min(minCellY, cy);
+    maxCellX = Math.max(maxCellX, cx);
+    maxCellY = Math.max(maxCellY, cy);
+  }
+
+  /**
+   * Remove the vertex from the index
+   *
+   * @param v - The vertex to remove
+   */
+  void remove (VertexIfc v) {
+
+    Long key = cellOf.remove(v);
+    if (key == null) {
+      return;
+    }
+
+    List<VertexIfc> cell = cells.get(key);
+    for (int i = 0; i < cell.size(); i++) {
+      if (cell.get(i) == v) {
+        cell.set(i, cell.get(cell.size() - 1));
+        cell.remove(cell.size() - 1);
+        break;
+      }
+    }
+
+    if (cell.isEmpty()) {
+      cells.remove(key);
+    }
+  }
+
+  /**
+   * Move the vertex to the cell for its current location
+   *
+   * @param v - The vertex that moved
+   */
+  void move (VertexIfc v) {
+
+    Long key = cellOf.get(v);
+    Point location = v.getLocation();
+    if (key != null && location != null && key == key(cell(location.x), cell(location.y))) {
+      return;
+    }
+
+    remove(v);
+    add(v);
+  }
+
+  /**
+   * @param location - The location to look at
+   * @return A vertex at the location, null if there isn't a vertex at that location
+   */
+  VertexIfc at (Point location) {
+
+    List<VertexIfc> cell = cells.get(key(cell(location.x), cell(location.y)));
+    if (cell != null) {
+      for (VertexIfc v : cell) {
+        if (location.equals(v.getLocation())) {
+          return v;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @param area - The area to look in, edges included
+   * @return The vertices whose location is inside the area
+   */
+  List<Vertex> within (Rectangle area) {
+
+    List<Vertex> found = new ArrayList<>();
+    if (area.width < 0 || area.height < 0) {
+      return found;
+    }
+
+    long right = (long) area.x + area.width;
+    long bottom = (long) area.y + area.height;
+    int fromX = Math.max(cell(area.x), minCellX);
+    int fromY = Math.max(cell(area.y), minCellY);
+    int toX = Math.min(cell((int) Math.min(right, Integer.MAX_VALUE)), maxCellX);
+    int toY = Math.min(cell((int) Math.min(bottom, Integer.MAX_VALUE)), maxCellY);
+
+    if (fromX > toX || fromY > toY) {
+      return found;
+    }
+
+    if ((long) (toX - fromX + 1) * (toY - fromY + 1) <= cells.size()) {
+      for (int cx = fromX; cx <= toX; cx++) {
+        for (int cy = fromY; cy <= toY; cy++) {
+          collect(cells.get(key(cx, cy)), area, right, bottom, found);
+        }
+      }
+    } else {
+      // The area covers more cells than are in use, just look at the ones in use
+      for (List<VertexIfc> cell : cells.values()) {
+        collect(cell, area, right, bottom, found);
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * Finds the k vertices closest to the location by searching rings of cells outwards from the location's cell,
+   * stopping once no unsearched cell can hold anything closer than what has been found. The rings that don't reach
+   * the cells that have held vertices are skipped. From outside bounds with more cells than vertices, the rings would
+   * cross mostly empty cells, so every vertex is looked at instead.
+   *
+   * @param location - The location to measure from
+   * @param k        - The number of vertices wanted
+   * @return Up to k vertices, closest first
+   */
+  List<Vertex> nearest (final Point location, int k) {
+
+    List<Vertex> found = new ArrayList<>();
+    if (k <= 0 || cells.isEmpty()) {
+      return found;
+    }
+
+    // Farthest first, so the head is the one to drop when something closer turns up
+    PriorityQueue<VertexIfc> best = new PriorityQueue<>(k, new Comparator<VertexIfc>() {
+
+      public int compare (VertexIfc a, VertexIfc b) {
+
+        return Long.compare(distanceSq(location, b.getLocation()), distanceSq(location, a.getLocation()));
+      }
+    });
+
+    int cx = cell(location.x);
+    int cy = cell(location.y);
+    // How many cells the bounds are from the location's cell across and down, 0 on an axis the location is within
+    int gapX = Math.max(Math.max(minCellX - cx, cx - maxCellX), 0);
+    int gapY = Math.max(Math.max(minCellY - cy, cy - maxCellY), 0);
+    int firstRing = Math.max(gapX, gapY);
+    long across = (long) Math.max(Math.min(gapX, gapY) - 1, 0) * CELL_SIZE;
+    int lastRing = Math.max(Math.max(cx - minCellX, maxCellX - cx), Math.max(cy - minCellY, maxCellY - cy));
+
+    if (firstRing > 0 && (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) > cellOf.size()) {
+      // From outside bounds this sparse each ring crosses more empty cells than there are vertices, look at them all
+      for (List<VertexIfc> cell : cells.values()) {
+        offer(cell, location, k, best);
+      }
+    } else {
+      for (int ring = firstRing; ring <= lastRing; ring++) {
+        if (ring == 0) {
+          offer(cells.get(key(cx, cy)), location, k, best);
+        } else {
+          int lowY = Math.max(cy - ring, minCellY);
+          int highY = Math.min(cy + ring, maxCellY);
+          int lowX = Math.max(cx - ring, minCellX);
+          int highX = Math.min(cx + ring, maxCellX);
+
+          if (cy - ring >= minCellY) {
+            for (int x = lowX; x <= highX; x++) {
+              offer(cells.get(key(x, cy - ring)), location, k, best);
+            }
+          }
+          if (cy + ring <= maxCellY) {
+            for (int x = lowX; x <= highX; x++) {
+              offer(cells.get(key(x, cy + ring)), location, k, best);
+            }
+          }
+          if (cx - ring >= minCellX) {
+            for (int y = Math.max(lowY, cy - ring + 1); y <= Math.min(highY, cy + ring - 1); y++) {
+              offer(cells.get(key(cx - ring, y)), location, k, best);
+            }
+          }
+          if (cx + ring <= maxCellX) {
+            for (int y = Math.max(lowY, cy - ring + 1); y <= Math.min(highY, cy + ring - 1); y++) {
+              offer(cells.get(key(cx + ring, y)), location, k, best);
+            }
+          }
+        }
+
+        // Everything in the next ring is at least ring cells away on one axis, and at least the smaller gap to the
+        // bounds on the other
+        if (best.size() == k) {
+          long reach = (long) ring * CELL_SIZE;
+          if (distanceSq(location, best.peek().getLocation()) <= reach * reach + across * across) {
+            break;
+          }
+        }
+      }
+    }
+
+    while (!best.isEmpty()) {
+      found.add(best.poll());
+    }
+    Collections.reverse(found);
+
+    return found;
+  }
+
+  private static void collect (List<VertexIfc> cell, Rectangle area, long right, long bottom, List<Vertex> found) {
+
+    if (cell != null) {
+      for (VertexIfc v : cell) {
+        Point p = v.getLocation();
+        if (p.x >= area.x && p.x <= right && p.y >= area.y && p.y <= bottom) {
+          found.add(v);
+        }
+      }
+    }
+  }
+
+  private static void offer (List<VertexIfc> cell, Point location, int k, PriorityQueue<VertexIfc> best) {
+
+    if (cell != null) {
+      for (VertexIfc v : cell) {
+        if (best.size() < k) {
+          best.add(v);
+        } else if (distanceSq(location, v.getLocation()) < distanceSq(location, best.peek().getLocation())) {
+          best.poll();
+          best.add(v);
+        }
+      }
+    }
+  }
+
+  private static long distanceSq (Point a, Point b) {
+
+    long dx = (long) a.x - b.x;
+    long dy = (long) a.y - b.y;
+    return dx * dx + dy * dy;
+  }
+
+  private static int cell (int coordinate) {
+
+    // Arithmetic shift rounds toward negative infinity, so negative coordinates land in the right cell
+    return coordinate >> CELL_SHIFT;
+  }
+
+  private static long key (int cx, int cy) {
+
+    return ((long) cx << 32) | (cy & 0xffffffffL);
+  }
+
+}
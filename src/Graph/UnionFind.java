@@ -0,0 +1,175 @@
+package Graph;
+
+import java.util.Arrays;
+
+/**
+ * Union find over the vertices of a graph, ignoring edge direction. Sets are merged smaller into larger and paths
+ * are halved as they are followed, so adding an edge and checking two vertices are both close to constant time.
+ * Vertices and edges can only be added, the graph throws it away when one is removed. Not thread safe, the graph
+ * guards it.
+ */
+class UnionFind {
+
+  /**
+   * Indexed by vertex id. vertices[i] is the vertex with id i, null if it hasn't been added.
+   */
+  private VertexIfc[] vertices;
+
+  /**
+   * parent[i] is the next id on the way to the root of i's set, size[i] the number of vertices in the set of root i
+   */
+  private int[] parent;
+  private int[] size;
+
+  private int count;
+
+  private long directedEdges;
+
+  UnionFind () {
+
+    vertices = new VertexIfc[16];
+    parent = new int[16];
+    size = new int[16];
+  }
+
+  /**
+   * Adds the vertex in a set of its own, if it isn't already in one
+   *
+   * @param v - The vertex
+   * @return The id of the vertex
+   */
+  int add (VertexIfc v) {
+
+    int id = v.getId();
+    if (id >= vertices.length) {
+      int grown = Math.max(id + 1, 2 * vertices.length);
+      vertices = Arrays.copyOf(vertices, grown);
+      parent = Arrays.copyOf(parent, grown);
+      size = Arrays.copyOf(size, grown);
+    }
+    if (vertices[id] == v) {
+      return id;
+    }
+
+    vertices[id] = v;
+    parent[id] = id;
+    size[id] = 1;
+    count++;
+
+    return id;
+  }
+
+  /**
+   * Merges the sets of the two ends of the edge
+   *
+   * @param e - An edge added to the graph
+   */
+  void union (EdgeIfc e) {
+
+    if (e.getDirected()) {
+      directedEdges++;
+    }
+
+    int a = find(add(e.from()));
+    int b = find(add(e.to()));
+    if (a == b) {
+      return;
+    }
+
+    if (size[a] < size[b]) {
+      int swap = a;
+      a = b;
+      b = swap;
+    }
+    parent[b] = a;
+    size[a] += size[b];
+    count--;
+  }
+
+  /**
+   * @param a - A vertex
+   * @param b - Another vertex
+   * @return True if the vertices are in the same set, false if not or if either hasn't been added
+   */
+  boolean connected (VertexIfc a, VertexIfc b) {
+
+    return contains(a) && contains(b) && find(a.getId()) == find(b.getId());
+  }
+
+  /**
+   * A removed vertex's id can go to a new vertex, whose set can't be told apart from the old one's. The components
+   * have to be worked out again then.
+   *
+   * @param v - A vertex
+   * @return True if the vertex has been added, or no other vertex with its id has been
+   */
+  boolean canAdd (VertexIfc v) {
+
+    int id = v.getId();
+    return id >= vertices.length || vertices[id] == null || vertices[id] == v;
+  }
+
+  /**
+   * @return True if the vertex has been added
+   */
+  private boolean contains (VertexIfc v) {
+
+    int id = v.getId();
+    return id >= 0 && id < vertices.length && vertices[id] == v;
+  }
+
+  /**
+   * @return The number of sets
+   */
+  int getCount () {
+
+    return count;
+  }
+
+  /**
+   * @return True if any of the edges has a direction, in which case being in one set doesn't mean one vertex can
+   *         be reached from the other
+   */
+  boolean hasDirectedEdges () {
+
+    return directedEdges > 0;
+  }
+
+  /**
+   * @return The sets as components
+   */
+  Components toComponents () {
+
+    int bound = vertices.length;
+    VertexIfc[] added = new VertexIfc[bound];
+    int[] component = new int[bound];
+    int[] numbers = new int[bound];
+    Arrays.fill(numbers, -1);
+    int n = 0;
+    int numbered = 0;
+    for (int i = 0; i < bound; i++) {
+      if (vertices[i] == null) {
+        continue;
+      }
+      int root = find(i);
+      if (numbers[root] < 0) {
+        numbers[root] = numbered++;
+      }
+      added[n] = vertices[i];
+      component[n++] = numbers[root];
+    }
+
+    return new ComponentsImpl(Arrays.copyOf(added, n), component, numbered);
+  }
+
+  private int find (int i) {
+
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+
+    return i;
+  }
+
+}
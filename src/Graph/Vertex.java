@@ -9,6 +9,14 @@ public interface Vertex {
    */
   public String getName ();
 
+  /**
+   * Ids are dense, a graph hands out the lowest unused ids, and the id of a removed vertex is used again for a
+   * vertex added later. Graph.getVertex(int) maps an id back to the vertex.
+   *
+   * @return The id the graph gave this vertex when it was added, -1 if it was never in a graph
+   */
+  public int getId ();
+
   /**
    * @return The location of this vertex on the graph
    */
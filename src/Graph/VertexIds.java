@@ -0,0 +1,174 @@
+package Graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hands out the dense int ids of the vertices in a graph, and maps the ids back to the vertices. A new vertex gets
+ * the lowest id released since, or the next id after the highest, so ids stay below the most vertices the graph has
+ * had at once. A snapshot still sees the vertices removed after it was taken, so while any snapshot may be in use
+ * the ids of removed vertices are held back, and only handed out again once the snapshots are gone. Assigning and
+ * releasing ids are synchronized, looking an id up doesn't take a lock.
+ */
+class VertexIds {
+
+  private final SnapshotLog snapshots;
+
+  /**
+   * Id to the vertex that has it, replaced by a bigger copy when the ids outgrow it
+   */
+  private volatile AtomicReferenceArray<VertexIfc> table;
+
+  /**
+   * One more than the highest id handed out so far
+   */
+  private volatile int bound;
+
+  /**
+   * Released ids, kept as a min heap so the lowest is handed out first
+   */
+  private int[] free;
+  private int freeCount;
+
+  /**
+   * Ids released while a snapshot may still see the vertex that had them
+   */
+  private int[] held;
+  private int heldCount;
+
+  /**
+   * @param log      - The snapshot log of the graph
+   * @param capacity - The number of vertices expected
+   */
+  VertexIds (SnapshotLog log, int capacity) {
+
+    snapshots = log;
+    table = new AtomicReferenceArray<>(Math.max(16, capacity));
+    free = new int[16];
+    held = new int[16];
+  }
+
+  /**
+   * Gives the vertex an id and puts it in the table
+   *
+   * @param v - A vertex being added to the graph
+   * @return The id given to the vertex
+   */
+  synchronized int assign (VertexIfc v) {
+
+    if (heldCount > 0 && !snapshots.hasSnapshots()) {
+      for (int i = 0; i < heldCount; i++) {
+        pushFree(held[i]);
+      }
+      heldCount = 0;
+    }
+
+    int id;
+    if (freeCount > 0) {
+      id = popFree();
+    } else {
+      id = bound;
+      AtomicReferenceArray<VertexIfc> t = table;
+      if (id == t.length()) {
+        AtomicReferenceArray<VertexIfc> grown = new AtomicReferenceArray<>(2 * id);
+        for (int i = 0; i < id; i++) {
+          grown.set(i, t.get(i));
+        }
+        table = grown;
+      }
+      bound = id + 1;
+    }
+
+    v.setId(id);
+    table.set(id, v);
+
+    return id;
+  }
+
+  /**
+   * Takes the vertex out of the table. The vertex keeps its id, so snapshots that still see it can look it up.
+   *
+   * @param v - A vertex removed from the graph
+   */
+  synchronized void release (VertexIfc v) {
+
+    int id = v.getId();
+    if (get(id) != v) {
+      return;
+    }
+
+    table.set(id, null);
+    if (snapshots.hasSnapshots()) {
+      if (heldCount == held.length) {
+        held = Arrays.copyOf(held, 2 * heldCount);
+      }
+      held[heldCount++] = id;
+    } else {
+      pushFree(id);
+    }
+  }
+
+  /**
+   * @param id - A vertex id
+   * @return The vertex in the graph with the id, null if there isn't one
+   */
+  VertexIfc get (int id) {
+
+    AtomicReferenceArray<VertexIfc> t = table;
+    return (id >= 0 && id < t.length()) ? t.get(id) : null;
+  }
+
+  /**
+   * @return One more than the highest id handed out so far, so arrays of this size can be indexed by vertex id
+   */
+  int bound () {
+
+    return bound;
+  }
+
+  private void pushFree (int id) {
+
+    if (freeCount == free.length) {
+      free = Arrays.copyOf(free, 2 * freeCount);
+    }
+
+    // Sift the id up from the bottom of the heap
+    int i = freeCount++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (free[parent] <= id) {
+        break;
+      }
+      free[i] = free[parent];
+      i = parent;
+    }
+    free[i] = id;
+  }
+
+  private int popFree () {
+
+    int lowest = free[0];
+    int last = free[--freeCount];
+
+    // Sift the last id down from the top of the heap
+    int i = 0;
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= freeCount) {
+        break;
+      }
+      if (child + 1 < freeCount && free[child + 1] < free[child]) {
+        child++;
+      }
+      if (last <= free[child]) {
+        break;
+      }
+      free[i] = free[child];
+      i = child;
+    }
+    free[i] = last;
+
+    return lowest;
+  }
+
+}
@@ -1,10 +1,11 @@
 package Graph;
 
 import org.json.simple.JSONAware;
+import org.json.simple.JSONStreamAware;
 
 import java.util.List;
 
-public interface VertexIfc extends Vertex, VisitAware, JSONAware {
+public interface VertexIfc extends Vertex, JSONAware, JSONStreamAware {
 
   public boolean addEdge (EdgeIfc e);
 
@@ -18,4 +19,13 @@ public interface VertexIfc extends Vertex, VisitAware, JSONAware {
 
   public List<EdgeIfc> outgoingEdges ();
 
+  public void setObserver (GraphObserver o);
+
+  /**
+   * Called once by the graph the vertex is added to, before any other thread can see the vertex
+   *
+   * @param id - The id the graph gave the vertex
+   */
+  public void setId (int id);
+
 }
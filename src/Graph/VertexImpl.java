@@ -1,28 +1,48 @@
 package Graph;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import org.json.simple.JSONValue;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
-
+import java.util.Map;
+
+/**
+ * Vertex for the single threaded graph. Vertices are compared by identity, so hashed collections of them cost the
+ * same whatever their edges, DeepEquality compares what they hold. The edge lists are changed in place, except that
+ * once they have been saved for a snapshot the vertex moves on to copies, so snapshots can go on reading them from
+ * other threads.
+ */
 class VertexImpl implements VertexIfc {
 
-  private final List<EdgeIfc> incomingEdges;
+  private volatile List<EdgeIfc> incomingEdges;
+
+  private volatile List<EdgeIfc> outgoingEdges;
 
-  private final List<EdgeIfc> outgoingEdges;
+  /**
+   * Ending vertex to the outgoing edge that goes to it, keyed by vertex identity
+   */
+  private final Map<Vertex, EdgeIfc> outgoingIndex;
 
   private final String name;
 
-  private Point location;
+  private volatile Point location;
 
-  private String data;
+  private volatile String data;
 
-  private boolean visited;
+  /**
+   * Set once, before the vertex is published to other threads
+   */
+  private int id = -1;
+
+  /**
+   * The graph watching this vertex for changes, null if the vertex isn't in a graph
+   */
+  private GraphObserver observer;
 
   /**
    * Create a Vertex with name n, location l, and given data
@@ -35,6 +55,26 @@ class VertexImpl implements VertexIfc {
 
     incomingEdges = new ArrayList<>();
     outgoingEdges = new ArrayList<>();
+    outgoingIndex = new IdentityHashMap<>();
+    name = n;
+    location = l;
+    data = d;
+  }
+
+  /**
+   * Create a Vertex whose edge lists are already big enough for the edges it will get
+   *
+   * @param n        - name of vertex
+   * @param l        - location of vertex
+   * @param d        - data associated with vertex
+   * @param outgoing - The number of outgoing edges expected
+   * @param incoming - The number of incoming edges expected
+   */
+  VertexImpl (String n, Point l, String d, int outgoing, int incoming) {
+
+    incomingEdges = new ArrayList<>(incoming);
+    outgoingEdges = new ArrayList<>(outgoing);
+    outgoingIndex = new IdentityHashMap<>(outgoing);
     name = n;
     location = l;
     data = d;
@@ -53,50 +93,76 @@ class VertexImpl implements VertexIfc {
   }
 
   /**
-   * @param o - Object, possibly a vertex, to compare to this vertex
-   * @return True if the object matches this vertex, false otherwise
+   * @return A string containing the JSON representation of this vertex
    */
   @Override
-  public boolean equals (Object o) {
+  public String toJSONString () {
 
-    if (this == o) {
-      return true;
+    StringWriter out = new StringWriter();
+    try {
+      writeJSONString(out);
     }
-
-    if ((o == null) || (this.getClass() != o.getClass())) {
-      return false;
+    catch (IOException e) {
     }
-
-    VertexImpl vertex = (VertexImpl) o;
-    return this.name.equals(vertex.name) &&
-        this.location.equals(location) &&
-        this.data.equals(vertex.data) &&
-        this.outgoingEdges.equals(vertex.outgoingEdges) &&
-        this.incomingEdges.equals(vertex.incomingEdges);
+    return out.toString();
   }
 
   /**
-   * @return The hashcode for this vertex
+   * Writes the JSON representation of this vertex, including its edges, straight to the writer
+   *
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
    */
   @Override
-  public int hashCode () {
-
-    int hash = 7;
-    hash = 31 * hash + name.hashCode();
-    hash = 31 * hash + location.hashCode();
-    hash = 31 * hash + data.hashCode();
-    hash = 31 * hash + outgoingEdges.hashCode();
-    hash = 31 * hash + incomingEdges.hashCode();
-    return hash;
+  public void writeJSONString (Writer out) throws IOException {
+
+    writeJSON(this, out);
   }
 
   /**
-   * @return A string containing the JSON representation of this vertex
+   * Writes the JSON representation of a vertex, including its edges, straight to the writer
+   *
+   * @param v   - The vertex to write
+   * @param out - The writer to write to
+   * @throws IOException If the writer fails
    */
-  @Override
-  public String toJSONString () {
-    //Create a JSON object for this vertex, then get the string representation
-    return getJSON().toString();
+  static void writeJSON (VertexIfc v, Writer out) throws IOException {
+
+    writeJSON(v, v.incomingEdges(), v.outgoingEdges(), out);
+  }
+
+  /**
+   * Writes the JSON representation of a vertex with the given edges, straight to the writer
+   *
+   * @param v        - The vertex to write
+   * @param incoming - The incoming edges to write for the vertex
+   * @param outgoing - The outgoing edges to write for the vertex
+   * @param out      - The writer to write to
+   * @throws IOException If the writer fails
+   */
+  static void writeJSON (VertexIfc v, List<EdgeIfc> incoming, List<EdgeIfc> outgoing, Writer out)
+      throws IOException {
+
+    Point location = v.getLocation();
+    out.write("{\"name\":");
+    JSONValue.writeJSONString(v.getName(), out);
+    out.write(",\"location\":");
+    if (location != null) {
+      out.write("{\"x\":");
+      out.write(Integer.toString(location.x));
+      out.write(",\"y\":");
+      out.write(Integer.toString(location.y));
+      out.write('}');
+    } else {
+      out.write("null");
+    }
+    out.write(",\"data\":");
+    JSONValue.writeJSONString(v.getData(), out);
+    out.write(",\"incomingEdges\":");
+    writeEdges(incoming, out);
+    out.write(",\"outgoingEdges\":");
+    writeEdges(outgoing, out);
+    out.write('}');
   }
 
   /**
@@ -108,6 +174,15 @@ class VertexImpl implements VertexIfc {
     return name;
   }
 
+  /**
+   * @return The id the graph gave this vertex when it was added, -1 if it was never in a graph
+   */
+  @Override
+  public int getId () {
+
+    return id;
+  }
+
   /**
    * @return The location of this vertex on the graph
    */
@@ -125,7 +200,13 @@ class VertexImpl implements VertexIfc {
   @Override
   public void setLocation (Point l) {
 
-    location = (l != null) ? l : location;
+    if (l != null) {
+      Point oldLocation = location;
+      location = l;
+      if (observer != null) {
+        observer.locationChanged(this, oldLocation);
+      }
+    }
   }
 
   /**
@@ -173,34 +254,27 @@ class VertexImpl implements VertexIfc {
   }
 
   /**
-   * @return True is this object has been visited during the search
-   */
-  @Override
-  public boolean visited () {
-
-    return visited;
-  }
-
-  /**
-   * Set the flag to indicate that the object has been visited
+   * Set the graph to tell about changes to this vertex
+   *
+   * @param o - The observer, null to stop telling anyone
    */
   @Override
-  public void visit () {
+  public void setObserver (GraphObserver o) {
 
-    visited = true;
+    observer = o;
   }
 
   /**
-   * Clear the flag to indicate that the object has not been visited
+   * @param id - The id the graph gave the vertex
    */
   @Override
-  public void leave () {
+  public void setId (int id) {
 
-    visited = false;
+    this.id = id;
   }
 
   /**
-   * Search the outgoing edges looking for an edge whose edge.to == v.
+   * Look up the outgoing edge whose edge.to == v, using the outgoing index instead of scanning the edges.
    *
    * @param v - The vertex that we are looking for a outgoing edge that connects to
    * @return The outgoing edge going to v if one exists, null otherwise.
@@ -208,20 +282,12 @@ class VertexImpl implements VertexIfc {
   @Override
   public EdgeIfc find (Vertex v) {
 
-    if (v != null) {
-      for (EdgeIfc e : outgoingEdges) {
-        if (e.getTo().equals(v)) {
-          return e;
-        }
-      }
-    }
-
-    return null;
+    return (v != null) ? outgoingIndex.get(v) : null;
   }
 
   /**
    * Add an edge to the vertex. If edge.from is this vertex, its an outgoing
-   * edge. If edge.to is this vertex, its an incoming edge. If neither from or
+   * edge. If edge.to is this vertex, its an incoming edge. A self loop is both. If neither from or
    * to is this vertex, the edge is not added.
    *
    * @param e - The edge to add
@@ -231,12 +297,19 @@ class VertexImpl implements VertexIfc {
   public boolean addEdge (EdgeIfc e) {
 
     if (e != null) {
-      if (e.getFrom().equals(this)) {
+      if (e.from() != this && e.to() != this) {
+        return false;
+      }
+      if (e.from() == this) {
+        e.setSlot(true, outgoingEdges.size());
         outgoingEdges.add(e);
-      } else if (e.getTo().equals(this)) {
+        if (!outgoingIndex.containsKey(e.to())) {
+          outgoingIndex.put(e.to(), e);
+        }
+      }
+      if (e.to() == this) {
+        e.setSlot(false, incomingEdges.size());
         incomingEdges.add(e);
-      } else {
-        return false;
       }
     }
 
@@ -244,31 +317,37 @@ class VertexImpl implements VertexIfc {
   }
 
   /**
-   * Remove an edge from this vertex
+   * Remove an edge from this vertex, from both lists for a self loop. The last edge of the list is moved into the
+   * slot the edge leaves, so removing an edge takes constant time whatever the degree of the vertex.
    *
    * @param e - The edge to removeEdge
    * @return true if the edge was removed, false if the edge was not connected
    *         to this vertex
    */
-
   @Override
   public boolean removeEdge (EdgeIfc e) {
 
     if (e != null) {
-      if (e.getFrom().equals(this)) {
-        outgoingEdges.remove(e);
-      } else if (e.getTo().equals(this)) {
-        incomingEdges.remove(e);
-      } else {
+      if (e.from() != this && e.to() != this) {
         return false;
       }
+      if (e.from() == this) {
+        unlink(outgoingEdges, e, true);
+        if (outgoingIndex.get(e.to()) == e) {
+          outgoingIndex.remove(e.to());
+        }
+      }
+      if (e.to() == this) {
+        unlink(incomingEdges, e, false);
+      }
     }
 
     return true;
   }
 
   /**
-   * Removes all the edges in the vertex from this vertex, and from the graph
+   * Removes all the edges in the vertex from this vertex, and from the graph. Each edge is taken out of the
+   * vertex at its other end in constant time, and this vertex's lists are emptied at the end.
    *
    * @param graph The graph this vertex is contained in
    * @return true if all the edges are successfully remove, false otherwise
@@ -277,8 +356,26 @@ class VertexImpl implements VertexIfc {
   public boolean removeEdges (GraphIfc graph) {
 
     if (graph != null) {
-      removeEdges(graph, outgoingEdges.iterator(), false);
-      removeEdges(graph, incomingEdges.iterator(), true);
+      for (int i = outgoingEdges.size() - 1; i >= 0; i--) {
+        EdgeIfc e = outgoingEdges.get(i);
+        if (e.to() != this) {
+          e.to().removeEdge(e);
+        } else {
+          // A self loop, only the incoming list still has to let go of it
+          unlink(incomingEdges, e, false);
+        }
+        graph.edges().remove(e);
+        e.setObserver(null);
+      }
+      outgoingEdges.clear();
+      outgoingIndex.clear();
+
+      for (EdgeIfc e : incomingEdges) {
+        e.from().removeEdge(e);
+        graph.edges().remove(e);
+        e.setObserver(null);
+      }
+      incomingEdges.clear();
     }
 
     return outgoingEdges.isEmpty() && incomingEdges.isEmpty();
@@ -307,64 +404,54 @@ class VertexImpl implements VertexIfc {
   }
 
   /**
-   * @return The JSON object that represents this vertex
+   * @param edges - The edge list to write, can be the outgoing or incoming edges
+   * @param out   - The writer to write the JSON array of the edges to
+   * @throws IOException If the writer fails
    */
-  JSONObject getJSON () {
-
-    JSONObject obj = new JSONObject();
-    JSONObject locationObj = new JSONObject();
-
-    locationObj.put("x", location.x);
-    locationObj.put("y", location.y);
+  private static void writeEdges (List<EdgeIfc> edges, Writer out) throws IOException {
 
-    obj.put("name", name);
-    obj.put("location", locationObj);
-    obj.put("data", data);
-    obj.put("incomingEdges", edgesToJSON(incomingEdges));
-    obj.put("outgoingEdges", edgesToJSON(outgoingEdges));
-
-    return obj;
+    out.write('[');
+    boolean first = true;
+    for (EdgeIfc e : edges) {
+      if (!first) {
+        out.write(',');
+      }
+      e.writeJSONString(out);
+      first = false;
+    }
+    out.write(']');
   }
 
   /**
-   * @param edges - The edge list to create JSON for, can be the outgoing or incoming edges
-   * @return The JSONArray representing the edges
+   * Called once the edge lists have been saved for a snapshot. The saved lists are left as they are and the vertex
+   * changes copies of them from now on.
    */
-  private JSONArray edgesToJSON (List<EdgeIfc> edges) {
-
-    JSONArray arr = new JSONArray();
-    JSONParser parser = new JSONParser();
-
-    for (EdgeIfc e : edges) {
-      try {
-        JSONObject jsonVertex = (JSONObject) parser.parse(e.toJSONString());
-        arr.add(jsonVertex);
-      }
-      catch (ParseException ex) {
-      }
-    }
+  void copyEdges () {
 
-    return arr;
+    outgoingEdges = new ArrayList<>(outgoingEdges);
+    incomingEdges = new ArrayList<>(incomingEdges);
   }
 
   /**
-   * Remove all the edges in the iterator from the vertex and the graph
+   * Takes the edge out of the list by moving the last edge of the list into its slot
    *
-   * @param graph - The graph the vertex is contained within
-   * @param it    - Iterator to use to loop through the edges
-   * @param from  - True if removing the incoming edges, false for the outgoing edges
+   * @param edges    - The outgoing or incoming edges of this vertex
+   * @param e        - The edge to take out
+   * @param outgoing - True if the list is the outgoing edges
    */
-  private void removeEdges (GraphIfc graph, Iterator<EdgeIfc> it, boolean from) {
+  private static void unlink (List<EdgeIfc> edges, EdgeIfc e, boolean outgoing) {
 
-    while (it.hasNext()) {
-      EdgeIfc e = it.next();
-
-      VertexIfc v = from ? e.from() : e.to();
-      v.removeEdge(e);
-      graph.edges().remove(e);
+    int slot = e.getSlot(outgoing);
+    if (slot < 0 || slot >= edges.size() || edges.get(slot) != e) {
+      return;
+    }
 
-      it.remove();
+    EdgeIfc last = edges.remove(edges.size() - 1);
+    if (last != e) {
+      edges.set(slot, last);
+      last.setSlot(outgoing, slot);
     }
+    e.setSlot(outgoing, -1);
   }
 
 }
@@ -0,0 +1,111 @@
+package Graph;
+
+import java.util.Arrays;
+
+/**
+ * Maps vertex ids to the slots a search hands out as it reaches vertices, with array reads instead of hashing.
+ * Emptying the map only moves its stamp on, so a search pays for the vertices it reaches rather than for the size
+ * of the graph. Each graph keeps, for each thread, the map of the thread's last search of it to use for the next
+ * one, a search that starts while another is running on the same thread gets a new map. A kept map far bigger than
+ * the graph now needs is dropped rather than used again, so it doesn't stay sized for what the graph once was.
+ */
+class VertexSlots {
+
+  /**
+   * A kept map with room for more than this many times the ids the graph has now is dropped
+   */
+  private static final int SLACK = 4;
+
+  /**
+   * Where the map is kept between searches
+   */
+  private final ThreadLocal<VertexSlots> spare;
+
+  /**
+   * slots[id] is the slot of id, if stamps[id] is the current stamp
+   */
+  private int[] stamps;
+  private int[] slots;
+  private int stamp;
+
+  private VertexSlots (ThreadLocal<VertexSlots> spare) {
+
+    this.spare = spare;
+    stamps = new int[0];
+    slots = new int[0];
+  }
+
+  /**
+   * @param spare - Where the graph keeps the map of this thread's last search
+   * @param bound - One more than the highest vertex id in the graph
+   * @return An empty map, give it back with release when the search is done
+   */
+  static VertexSlots acquire (ThreadLocal<VertexSlots> spare, int bound) {
+
+    VertexSlots s = spare.get();
+    if (s != null) {
+      spare.set(null);
+      if (s.stamps.length / SLACK > bound) {
+        s = null;
+      }
+    }
+    if (s == null) {
+      s = new VertexSlots(spare);
+    }
+    s.clear(bound);
+
+    return s;
+  }
+
+  /**
+   * Keeps the map for the next search of the graph on this thread
+   */
+  void release () {
+
+    spare.set(this);
+  }
+
+  /**
+   * @param id - A vertex id
+   * @return The slot of the id, -1 if it doesn't have one
+   */
+  int get (int id) {
+
+    return (id < stamps.length && stamps[id] == stamp) ? slots[id] : -1;
+  }
+
+  /**
+   * @param id   - A vertex id
+   * @param slot - The slot for the id
+   */
+  void put (int id, int slot) {
+
+    if (id >= stamps.length) {
+      grow(id + 1);
+    }
+    stamps[id] = stamp;
+    slots[id] = slot;
+  }
+
+  private void clear (int bound) {
+
+    if (bound > stamps.length) {
+      grow(bound);
+    }
+
+    stamp++;
+    if (stamp == 0) {
+      // Every stamp has been used, start again from a clean slate
+      Arrays.fill(stamps, 0);
+      stamp = 1;
+    }
+  }
+
+  private void grow (int capacity) {
+
+    int grown = Math.max(capacity, stamps.length + (stamps.length >> 1));
+    stamps = Arrays.copyOf(stamps, grown);
+    slots = Arrays.copyOf(slots, grown);
+  }
+
+}
@@ -107,4 +107,31 @@ public class VertexTest extends SimpleBaseTestCase {
     assertEquals(0, to.outgoingEdges().size());
   }
 
+  public void testFindWithManyEdges () throws Exception {
+
+    int numEdges = 1000;
+    VertexIfc[] targets = new VertexIfc[numEdges];
+    EdgeIfc[] edges = new EdgeIfc[numEdges];
+    for (int i = 0; i < numEdges; i++) {
+      targets[i] = GraphFactory.createVertex(TO_NAME + i, new Point(i, i), "");
+      edges[i] = GraphFactory.createEdge(from, targets[i], LABEL, i, DIRECTED);
+      assertTrue(from.addEdge(edges[i]));
+      assertTrue(targets[i].addEdge(edges[i]));
+    }
+
+    for (int i = 0; i < numEdges; i++) {
+      assertSame(edges[i], from.find(targets[i]));
+      assertNull(targets[i].find(from));
+    }
+
+    for (int i = 0; i < numEdges; i += 2) {
+      assertTrue(from.removeEdge(edges[i]));
+    }
+
+    for (int i = 0; i < numEdges; i++) {
+      assertEquals(i % 2 != 0, from.hasEdge(targets[i]));
+    }
+    assertTrue(from.hasEdge(to));
+  }
+
 }
@@ -0,0 +1,88 @@
+package Graph;
+
+import java.util.BitSet;
+
+/**
+ * Visit state for a single traversal. Each search gets its own context, so starting a search doesn't
+ * have to reset anything on the vertices, and any number of searches can run over the same graph at once.
+ * The visited vertices are kept as bits indexed by vertex id.
+ */
+class VisitContext {
+
+  private final BitSet visited;
+
+  private int count;
+
+  /**
+   * Create a context where nothing has been visited yet
+   */
+  VisitContext () {
+
+    visited = new BitSet();
+  }
+
+  /**
+   * Create a context where nothing has been visited yet, sized for a search that may reach the whole graph
+   *
+   * @param bound - One more than the highest vertex id in the graph
+   */
+  VisitContext (int bound) {
+
+    visited = new BitSet(bound);
+  }
+
+  /**
+   * @param v - The vertex to check
+   * @return True if the vertex has been visited during this search
+   */
+  boolean visited (VertexIfc v) {
+
+    return visited.get(v.getId());
+  }
+
+  /**
+   * @param id - The id of the vertex to check
+   * @return True if the vertex with the id has been visited during this search
+   */
+  boolean visited (int id) {
+
+    return visited.get(id);
+  }
+
+  /**
+   * Mark the vertex as visited during this search
+   *
+   * @param v - The vertex being visited
+   * @return True if this is the first visit of the vertex, false if it had already been visited
+   */
+  boolean visit (VertexIfc v) {
+
+    return visit(v.getId());
+  }
+
+  /**
+   * Mark the vertex with the id as visited during this search
+   *
+   * @param id - The id of the vertex being visited
+   * @return True if this is the first visit of the vertex, false if it had already been visited
+   */
+  boolean visit (int id) {
+
+    if (visited.get(id)) {
+      return false;
+    }
+
+    visited.set(id);
+    count++;
+    return true;
+  }
+
+  /**
+   * @return The number of vertices visited during this search
+   */
+  int visitCount () {
+
+    return count;
+  }
+
+}